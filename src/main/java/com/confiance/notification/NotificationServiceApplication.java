@@ -7,6 +7,8 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
+import java.security.Security;
+
 @SpringBootApplication
 @ComponentScan(basePackages = {"com.confiance"})
 @EntityScan(basePackages = {"com.confiance"})
@@ -14,6 +16,9 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 @EnableJpaAuditing
 public class NotificationServiceApplication {
     public static void main(String[] args) {
+        // The JVM reads its DNS cache TTL once, before the first lookup, so it is set before Spring starts.
+        // OutboundHttp re-resolves provider hosts as soon as this TTL lapses.
+        Security.setProperty("networkaddress.cache.ttl", System.getenv().getOrDefault("DNS_CACHE_TTL_SECONDS", "60"));
         SpringApplication.run(NotificationServiceApplication.class, args);
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -21,4 +22,117 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    @Bean(name = "emailRoutingExecutor")
+    public Executor emailRoutingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(20);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("EmailRouting-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "emailRetryExecutor")
+    public Executor emailRetryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(50);
+        // Back-pressure the retry scan instead of dropping claimed rows
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("EmailRetry-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "scheduledDeliveryExecutor")
+    public Executor scheduledDeliveryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1000);
+        // Slow the timing wheel rather than drop items that came due
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("Scheduled-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "campaignExecutor")
+    public Executor campaignExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // One thread per campaign streamed; campaign.max-concurrent-campaigns keeps claims within this
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("Campaign-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "smsExecutor")
+    public Executor smsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Bulk sends fan out here; the Twilio concurrency limit caps calls actually in flight
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(32);
+        executor.setQueueCapacity(500);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("Sms-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "pushExecutor")
+    public Executor pushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Blocking push gateways only; FCM calls are asynchronous on the shared HTTP/2 client
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(1000);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("Push-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "pushDispatchExecutor")
+    public Executor pushDispatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Push flushes wait on the gateway and its OAuth refresh; one at a time, off the shared scheduler
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("PushFlush-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "dnsRefreshExecutor")
+    public Executor dnsRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Provider host lookups, one task per host whose cached entry lapsed
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("DnsRefresh-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "streamExecutor")
+    public Executor streamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // Redis listener: one thread keeps events in publish order and only hands them to the
+        // stream partitions, which do the blocking writes
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10000);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("StreamFanout-");
+        executor.initialize();
+        return executor;
+    }
 }
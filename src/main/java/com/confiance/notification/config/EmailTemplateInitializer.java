@@ -24,6 +24,8 @@ public class EmailTemplateInitializer implements CommandLineRunner {
         createWelcomeTemplate();
         createOtpTemplate();
         createPaymentSuccessTemplate();
+        createDigestTemplate();
+        createPaymentReminderTemplate();
         log.info("Email templates initialization completed");
     }
 
@@ -410,4 +412,148 @@ public class EmailTemplateInitializer implements CommandLineRunner {
         templateRepository.save(template);
         log.info("Created payment-success email template");
     }
+
+    private void createDigestTemplate() {
+        if (templateRepository.existsByCode("digest")) {
+            log.debug("Digest template already exists");
+            return;
+        }
+
+        String htmlContent = """
+            <!DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                <title>Your Updates</title>
+            </head>
+            <body style="margin: 0; padding: 0; font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; background-color: #f4f4f4;">
+                <table role="presentation" style="width: 100%; border-collapse: collapse;">
+                    <tr>
+                        <td align="center" style="padding: 40px 0;">
+                            <table role="presentation" style="width: 600px; border-collapse: collapse; background-color: #ffffff; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1);">
+                                <!-- Header -->
+                                <tr>
+                                    <td style="padding: 40px 40px 20px 40px; text-align: center; background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); border-radius: 8px 8px 0 0;">
+                                        <h1 style="margin: 0; color: #ffffff; font-size: 28px; font-weight: 600;">${count} new ${categoryLabel} updates</h1>
+                                    </td>
+                                </tr>
+
+                                <!-- Content -->
+                                <tr>
+                                    <td style="padding: 40px;">
+                                        <p style="margin: 0 0 20px 0; font-size: 16px; line-height: 1.6; color: #333333;">
+                                            Here is what happened in the last ${windowMinutes} minutes:
+                                        </p>
+                                        <ul style="margin: 0; padding: 0 0 0 20px; font-size: 15px; line-height: 1.8; color: #333333;">
+                                            ${itemsHtml}
+                                        </ul>
+                                        <p style="margin: 20px 0 0 0; font-size: 14px; line-height: 1.6; color: #999999;">
+                                            ${moreText}
+                                        </p>
+                                    </td>
+                                </tr>
+
+                                <!-- Footer -->
+                                <tr>
+                                    <td style="padding: 20px 40px; text-align: center; background-color: #f8f9fa; border-radius: 0 0 8px 8px;">
+                                        <p style="margin: 0; font-size: 12px; color: #999999;">
+                                            &copy; 2024 Confiance. All rights reserved.
+                                        </p>
+                                    </td>
+                                </tr>
+                            </table>
+                        </td>
+                    </tr>
+                </table>
+            </body>
+            </html>
+            """;
+
+        EmailTemplate template = EmailTemplate.builder()
+                .code("digest")
+                .name("Notification Digest")
+                .subject("${count} new ${categoryLabel} updates")
+                .htmlContent(htmlContent)
+                .description("Digest sent instead of individual emails for high-frequency categories")
+                .availableVariables("count, categoryLabel, windowMinutes, itemsHtml, moreText")
+                .category("DIGEST")
+                .isActive(true)
+                .build();
+
+        templateRepository.save(template);
+        log.info("Created digest email template");
+    }
+
+    private void createPaymentReminderTemplate() {
+        if (templateRepository.existsByCode("payment-reminder")) {
+            log.debug("Payment reminder template already exists");
+            return;
+        }
+
+        String htmlContent = """
+            <!DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                <title>Complete Your Payment</title>
+            </head>
+            <body style="margin: 0; padding: 0; font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; background-color: #f4f4f4;">
+                <table role="presentation" style="width: 100%; border-collapse: collapse;">
+                    <tr>
+                        <td align="center" style="padding: 40px 0;">
+                            <table role="presentation" style="width: 600px; border-collapse: collapse; background-color: #ffffff; border-radius: 8px; box-shadow: 0 2px 10px rgba(0,0,0,0.1);">
+                                <!-- Header -->
+                                <tr>
+                                    <td style="padding: 40px 40px 20px 40px; text-align: center; background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); border-radius: 8px 8px 0 0;">
+                                        <h1 style="margin: 0; color: #ffffff; font-size: 28px; font-weight: 600;">Your order is waiting</h1>
+                                    </td>
+                                </tr>
+
+                                <!-- Content -->
+                                <tr>
+                                    <td style="padding: 40px;">
+                                        <p style="margin: 0 0 20px 0; font-size: 16px; line-height: 1.6; color: #333333;">
+                                            Hi ${customerName},
+                                        </p>
+                                        <p style="margin: 0 0 20px 0; font-size: 16px; line-height: 1.6; color: #333333;">
+                                            We noticed the payment of <strong>${currency} ${amount}</strong> for order <strong>#${orderId}</strong> has not been completed yet.
+                                        </p>
+                                        <p style="margin: 0; font-size: 14px; line-height: 1.6; color: #666666;">
+                                            If you have already paid, you can ignore this email.
+                                        </p>
+                                    </td>
+                                </tr>
+
+                                <!-- Footer -->
+                                <tr>
+                                    <td style="padding: 20px 40px; text-align: center; background-color: #f8f9fa; border-radius: 0 0 8px 8px;">
+                                        <p style="margin: 0; font-size: 12px; color: #999999;">
+                                            &copy; 2024 Confiance. All rights reserved.
+                                        </p>
+                                    </td>
+                                </tr>
+                            </table>
+                        </td>
+                    </tr>
+                </table>
+            </body>
+            </html>
+            """;
+
+        EmailTemplate template = EmailTemplate.builder()
+                .code("payment-reminder")
+                .name("Payment Reminder Email")
+                .subject("Complete your payment - Order #${orderId}")
+                .htmlContent(htmlContent)
+                .description("Reminder sent when an order is still unpaid after the configured delay")
+                .availableVariables("customerName, orderId, amount, currency")
+                .category("TRANSACTIONAL")
+                .isActive(true)
+                .build();
+
+        templateRepository.save(template);
+        log.info("Created payment-reminder email template");
+    }
 }
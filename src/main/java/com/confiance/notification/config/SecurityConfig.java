@@ -4,6 +4,7 @@ import com.confiance.common.security.JwtAuthenticationFilter;
 import com.confiance.common.security.JwtUtil;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -20,6 +21,8 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    private static final String ADMIN_ROLE = "ADMIN";
+
     private final JwtUtil jwtUtil;
 
     @Bean
@@ -33,6 +36,22 @@ public class SecurityConfig {
                         // Use AntPathRequestMatcher — the default PathPattern-based
                         // matcher mishandles deep `/**` here.
                         .requestMatchers(new AntPathRequestMatcher("/api/v1/files/local/**")).permitAll()
+                        // Live notification streams carry a user's feed; the controller matches the
+                        // path's user id to the token, so this must come before the permitAll below
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/user/*/stream")).authenticated()
+                        // Changing who may receive email is an operator action; reads and the provider
+                        // webhook stay open under the permitAll below
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/suppressions/**", HttpMethod.POST.name())).hasRole(ADMIN_ROLE)
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/suppressions/**", HttpMethod.DELETE.name())).hasRole(ADMIN_ROLE)
+                        // Dead letters hold other users' mail and re-driving them resends it
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/email-logs/dead-letter/**")).hasRole(ADMIN_ROLE)
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/email-logs/*/redrive")).hasRole(ADMIN_ROLE)
+                        // Bodies and per-user / per-address history expose message content and addresses
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/email-logs/*/body")).hasRole(ADMIN_ROLE)
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/email-logs/user/**")).hasRole(ADMIN_ROLE)
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/email-logs/recipient")).hasRole(ADMIN_ROLE)
+                        // Campaigns mail whole recipient lists
+                        .requestMatchers(new AntPathRequestMatcher("/api/v1/notifications/campaigns/**")).hasRole(ADMIN_ROLE)
                         .requestMatchers(
                                 "/swagger-ui/**",
                                 "/swagger-ui.html",
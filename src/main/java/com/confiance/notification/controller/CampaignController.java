@@ -0,0 +1,71 @@
+package com.confiance.notification.controller;
+
+import com.confiance.common.dto.ApiResponse;
+import com.confiance.common.dto.PageResponse;
+import com.confiance.notification.dto.CampaignRequest;
+import com.confiance.notification.dto.CampaignResponse;
+import com.confiance.notification.service.campaign.CampaignService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/v1/notifications/campaigns")
+@RequiredArgsConstructor
+@Tag(name = "Email Campaigns", description = "Bulk email campaigns streamed from uploaded recipient files")
+public class CampaignController {
+
+    private final CampaignService campaignService;
+
+    @PostMapping
+    @Operation(summary = "Create Campaign", description = "Create a draft campaign")
+    public ResponseEntity<ApiResponse<CampaignResponse>> create(@Valid @RequestBody CampaignRequest request) {
+        return ResponseEntity.ok(ApiResponse.success("Campaign created", campaignService.create(request)));
+    }
+
+    @PostMapping(value = "/{id}/recipients", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload Recipients", description = "Upload a CSV (with an email column) or NDJSON recipient file")
+    public ResponseEntity<ApiResponse<CampaignResponse>> uploadRecipients(
+            @PathVariable Long id,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) Long userId) {
+        return ResponseEntity.ok(ApiResponse.success("Recipients uploaded", campaignService.uploadRecipients(id, file, userId)));
+    }
+
+    @PostMapping("/{id}/start")
+    @Operation(summary = "Start Campaign", description = "Start a draft campaign or resume a paused one from its checkpoint")
+    public ResponseEntity<ApiResponse<CampaignResponse>> start(@PathVariable Long id) {
+        return ResponseEntity.accepted().body(ApiResponse.success("Campaign started", campaignService.start(id)));
+    }
+
+    @PostMapping("/{id}/pause")
+    @Operation(summary = "Pause Campaign", description = "Stop after the current chunk; progress is kept")
+    public ResponseEntity<ApiResponse<CampaignResponse>> pause(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success("Campaign paused", campaignService.pause(id)));
+    }
+
+    @PostMapping("/{id}/cancel")
+    @Operation(summary = "Cancel Campaign", description = "Stop the campaign for good")
+    public ResponseEntity<ApiResponse<CampaignResponse>> cancel(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success("Campaign cancelled", campaignService.cancel(id)));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get Campaign", description = "Campaign status with live sent, failed and suppressed counters")
+    public ResponseEntity<ApiResponse<CampaignResponse>> get(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(campaignService.getById(id)));
+    }
+
+    @GetMapping
+    @Operation(summary = "List Campaigns", description = "Campaigns, newest first")
+    public ResponseEntity<ApiResponse<PageResponse<CampaignResponse>>> list(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(campaignService.getCampaigns(page, size)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.confiance.notification.controller;
+
+import com.confiance.common.dto.ApiResponse;
+import com.confiance.notification.dto.CursorPageResponse;
+import com.confiance.notification.dto.EmailLogResponse;
+import com.confiance.notification.service.EmailLogService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/notifications/email-logs")
+@RequiredArgsConstructor
+@Tag(name = "Email Logs", description = "Email delivery log and dead letter APIs")
+public class EmailLogController {
+
+    private final EmailLogService emailLogService;
+
+    @GetMapping("/track/{id}")
+    @Operation(summary = "Get Delivery Status", description = "Look up an email by the tracking id returned on send, or by provider message id")
+    public ResponseEntity<ApiResponse<EmailLogResponse>> getStatus(@PathVariable String id) {
+        return ResponseEntity.ok(ApiResponse.success(emailLogService.getByTrackingId(id)));
+    }
+
+    @GetMapping("/user/{userId}")
+    @Operation(summary = "Get User Email History", description = "A user's emails, newest first. Pass nextCursor back for the next page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<EmailLogResponse>>> getUserHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(emailLogService.getUserHistory(userId, cursor, size)));
+    }
+
+    @GetMapping("/recipient")
+    @Operation(summary = "Get Recipient Email History", description = "Emails sent to an address, newest first. Pass nextCursor back for the next page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<EmailLogResponse>>> getRecipientHistory(
+            @RequestParam String email,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(emailLogService.getRecipientHistory(email, cursor, size)));
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get Status Counts", description = "Emails by current status for a creation date range (inclusive)")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getStatusCounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ApiResponse.success(emailLogService.getStatusCounts(from, to)));
+    }
+
+    @GetMapping("/dead-letter")
+    @Operation(summary = "Get Dead Letters", description = "Emails that exhausted their retry attempts, newest first. Pass nextCursor back for the next page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<EmailLogResponse>>> getDeadLetters(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(emailLogService.getDeadLetters(cursor, size)));
+    }
+
+    @PostMapping("/{id}/redrive")
+    @Operation(summary = "Re-drive Email", description = "Queue a dead-lettered email for another round of retries")
+    public ResponseEntity<ApiResponse<EmailLogResponse>> redrive(@PathVariable Long id) {
+        EmailLogResponse response = emailLogService.redrive(id);
+        return ResponseEntity.ok(ApiResponse.success("Email queued for retry", response));
+    }
+
+    @PostMapping("/dead-letter/redrive")
+    @Operation(summary = "Re-drive Dead Letters", description = "Queue dead-lettered emails for retry, oldest first")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> redriveAll(
+            @RequestParam(defaultValue = "1000") int limit) {
+        int redriven = emailLogService.redriveAll(limit);
+        return ResponseEntity.ok(ApiResponse.success(Collections.singletonMap("redriven", redriven)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.confiance.notification.controller;
+
+import com.confiance.common.dto.ApiResponse;
+import com.confiance.common.dto.PageResponse;
+import com.confiance.notification.dto.EmailSuppressionRequest;
+import com.confiance.notification.dto.EmailSuppressionResponse;
+import com.confiance.notification.service.EmailSuppressionService;
+import com.confiance.notification.service.email.SendGridEventProcessor;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/notifications")
+@RequiredArgsConstructor
+@Tag(name = "Email Suppressions", description = "Bounce / complaint suppression list APIs")
+public class EmailSuppressionController {
+
+    private final EmailSuppressionService suppressionService;
+    private final SendGridEventProcessor sendGridEventProcessor;
+
+    @GetMapping("/suppressions")
+    @Operation(summary = "Get Suppressions", description = "Paginated list of suppressed addresses")
+    public ResponseEntity<ApiResponse<PageResponse<EmailSuppressionResponse>>> getSuppressions(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(suppressionService.getSuppressions(page, size)));
+    }
+
+    @GetMapping("/suppressions/check")
+    @Operation(summary = "Check Suppression", description = "Check whether an address is suppressed")
+    public ResponseEntity<ApiResponse<Map<String, Boolean>>> checkSuppression(@RequestParam String email) {
+        return ResponseEntity.ok(ApiResponse.success(
+                Collections.singletonMap("suppressed", suppressionService.isSuppressed(email))));
+    }
+
+    @PostMapping("/suppressions")
+    @Operation(summary = "Add Suppression", description = "Stop sending email to an address")
+    public ResponseEntity<ApiResponse<EmailSuppressionResponse>> addSuppression(
+            @Valid @RequestBody EmailSuppressionRequest request) {
+        EmailSuppressionResponse response = suppressionService.suppress(
+                request.getEmail(), request.getReason(), "ADMIN", request.getDetail());
+        return ResponseEntity.ok(ApiResponse.success("Address suppressed", response));
+    }
+
+    @DeleteMapping("/suppressions/{email}")
+    @Operation(summary = "Remove Suppression", description = "Allow email to an address again")
+    public ResponseEntity<ApiResponse<Void>> removeSuppression(@PathVariable String email) {
+        suppressionService.remove(email);
+        return ResponseEntity.ok(ApiResponse.success("Suppression removed", null));
+    }
+
+    @PostMapping("/webhooks/sendgrid/events")
+    @Operation(summary = "SendGrid Events", description = "SendGrid Event Webhook; suppresses bounced, complaining and unsubscribed addresses")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> handleSendGridEvents(
+            @RequestBody byte[] payload,
+            @RequestHeader(value = "X-Twilio-Email-Event-Webhook-Signature", required = false) String signature,
+            @RequestHeader(value = "X-Twilio-Email-Event-Webhook-Timestamp", required = false) String timestamp) {
+        if (!sendGridEventProcessor.verify(payload, signature, timestamp)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<Map<String, Integer>>builder()
+                            .success(false)
+                            .message("Invalid webhook signature")
+                            .build());
+        }
+        int suppressed = sendGridEventProcessor.process(payload);
+        return ResponseEntity.ok(ApiResponse.success(Collections.singletonMap("suppressed", suppressed)));
+    }
+}
@@ -1,16 +1,24 @@
 package com.confiance.notification.controller;
 
 import com.confiance.common.dto.ApiResponse;
+import com.confiance.notification.dto.EmailProviderHealth;
 import com.confiance.notification.dto.EmailRequest;
 import com.confiance.notification.dto.EmailResponse;
 import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.digest.EmailDigestService;
+import com.confiance.notification.service.email.EmailIdempotencyService;
+import com.confiance.notification.service.email.EmailProviderRouter;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,12 +27,28 @@ import java.util.Map;
 @Tag(name = "Notifications", description = "Email notification APIs")
 public class NotificationController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final EmailService emailService;
+    private final EmailProviderRouter emailProviderRouter;
 
     @PostMapping("/send-email")
-    @Operation(summary = "Send Email", description = "Send an email notification")
-    public ResponseEntity<ApiResponse<EmailResponse>> sendEmail(@Valid @RequestBody EmailRequest request) {
+    @Operation(summary = "Send Email", description = "Send an email notification. Repeating a request with the same "
+            + "Idempotency-Key returns the original response instead of sending again")
+    public ResponseEntity<ApiResponse<EmailResponse>> sendEmail(
+            @Valid @RequestBody EmailRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        applyIdempotencyKey(request, idempotencyKey);
         EmailResponse response = emailService.sendEmail(request);
+        if (EmailIdempotencyService.STATUS_PROCESSING.equals(response.getStatus())) {
+            return ResponseEntity.accepted().body(ApiResponse.success("Email is already being sent", response));
+        }
+        if (EmailDigestService.STATUS_BUFFERED.equals(response.getStatus())) {
+            return ResponseEntity.accepted().body(ApiResponse.success("Email added to digest", response));
+        }
+        if (ScheduledDeliveryService.STATUS_SCHEDULED.equals(response.getStatus())) {
+            return ResponseEntity.accepted().body(ApiResponse.success("Email scheduled", response));
+        }
         return ResponseEntity.ok(ApiResponse.success("Email sent successfully", response));
     }
 
@@ -51,10 +75,33 @@ public class NotificationController {
         return ResponseEntity.ok(ApiResponse.success("Email sent successfully", response));
     }
 
+    @GetMapping("/providers/health")
+    @Operation(summary = "Email Provider Health", description = "Latency, error rate and circuit state per email provider")
+    public ResponseEntity<ApiResponse<List<EmailProviderHealth>>> getProviderHealth() {
+        return ResponseEntity.ok(ApiResponse.success(emailProviderRouter.getHealth()));
+    }
+
+    @GetMapping("/email-logs/{id}/body")
+    @Operation(summary = "Get Email Body", description = "Reconstruct the body of a logged email")
+    public ResponseEntity<ApiResponse<Map<String, String>>> getEmailBody(@PathVariable Long id) {
+        String body = emailService.getEmailBody(id);
+        return ResponseEntity.ok(ApiResponse.success(Collections.singletonMap("body", body)));
+    }
+
     @PostMapping("/send-email/async")
     @Operation(summary = "Send Email Async", description = "Send an email asynchronously")
-    public ResponseEntity<ApiResponse<Void>> sendEmailAsync(@Valid @RequestBody EmailRequest request) {
+    public ResponseEntity<ApiResponse<Void>> sendEmailAsync(
+            @Valid @RequestBody EmailRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        applyIdempotencyKey(request, idempotencyKey);
         emailService.sendEmailAsync(request);
         return ResponseEntity.accepted().body(ApiResponse.success("Email queued for delivery", null));
     }
+
+    // The header wins over a dedupKey in the body
+    private void applyIdempotencyKey(EmailRequest request, String idempotencyKey) {
+        if (StringUtils.hasText(idempotencyKey)) {
+            request.setDedupKey(idempotencyKey);
+        }
+    }
 }
@@ -4,18 +4,22 @@ import com.confiance.common.dto.ApiResponse;
 import com.confiance.notification.dto.OtpRequest;
 import com.confiance.notification.dto.OtpResponse;
 import com.confiance.notification.dto.OtpVerifyRequest;
-import com.confiance.notification.ratelimit.RateLimitExceededException;
-import com.confiance.notification.ratelimit.RateLimitResult;
 import com.confiance.notification.ratelimit.RateLimiterService;
 import com.confiance.notification.service.OtpService;
+import com.confiance.notification.service.otp.OtpChannelRouter;
+import com.confiance.notification.service.otp.OtpRouteStats;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/v1/otp")
 @RequiredArgsConstructor
@@ -24,6 +28,8 @@ public class OtpController {
 
     private final OtpService otpService;
     private final RateLimiterService rateLimiterService;
+    private final OtpChannelRouter channelRouter;
+    private final OtpRouteStats routeStats;
 
     @PostMapping("/send")
     @Operation(summary = "Send OTP", description = "Send OTP to phone number or email")
@@ -31,12 +37,7 @@ public class OtpController {
             @Valid @RequestBody OtpRequest request,
             HttpServletRequest httpRequest) {
 
-        // Check rate limit for OTP sending
-        RateLimitResult rateLimitResult = rateLimiterService.checkOtpSendLimit(request.getIdentifier());
-        if (!rateLimitResult.isAllowed()) {
-            throw new RateLimitExceededException(rateLimitResult);
-        }
-
+        // Cooldown and send limits are enforced atomically with the OTP state
         OtpResponse response = otpService.sendOtp(request);
 
         // Clear failed attempts on successful send
@@ -51,20 +52,10 @@ public class OtpController {
             @Valid @RequestBody OtpVerifyRequest request,
             HttpServletRequest httpRequest) {
 
-        // Check verification attempt limit
-        RateLimitResult rateLimitResult = rateLimiterService.checkOtpVerifyLimit(request.getIdentifier());
-        if (!rateLimitResult.isAllowed()) {
-            throw new RateLimitExceededException(rateLimitResult);
-        }
-
-        // Increment verification attempt
-        rateLimiterService.incrementOtpVerifyAttempt(request.getIdentifier());
-
+        // Attempts are counted on the OTP itself
         OtpResponse response = otpService.verifyOtp(request);
 
         if ("VERIFIED".equals(response.getStatus())) {
-            // Reset verification attempts on success
-            rateLimiterService.resetOtpVerifyAttempts(request.getIdentifier());
             rateLimiterService.clearFailedAttempts(getClientIp(httpRequest));
             return ResponseEntity.ok(ApiResponse.success("OTP verified successfully", response));
         } else {
@@ -80,19 +71,29 @@ public class OtpController {
             @Valid @RequestBody OtpRequest request,
             HttpServletRequest httpRequest) {
 
-        // Check rate limit for OTP sending (same as send)
-        RateLimitResult rateLimitResult = rateLimiterService.checkOtpSendLimit(request.getIdentifier());
-        if (!rateLimitResult.isAllowed()) {
-            throw new RateLimitExceededException(rateLimitResult);
-        }
-
-        // Reset previous verification attempts
-        rateLimiterService.resetOtpVerifyAttempts(request.getIdentifier());
-
+        // Same limits as send; a new OTP starts with fresh verification attempts
         OtpResponse response = otpService.sendOtp(request);
         return ResponseEntity.ok(ApiResponse.success("OTP resent successfully", response));
     }
 
+    @PostMapping(value = "/delivery-status", consumes = "application/x-www-form-urlencoded")
+    @Operation(summary = "SMS delivery status", description = "Twilio status callback for OTP messages")
+    public ResponseEntity<Void> deliveryStatus(
+            @RequestParam Map<String, String> params,
+            @RequestHeader(value = "X-Twilio-Signature", required = false) String signature) {
+
+        if (!channelRouter.onTwilioStatus(params, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/routes")
+    @Operation(summary = "OTP route stats", description = "Time-to-verify p50/p95 per channel and country code on this node")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> routeStats() {
+        return ResponseEntity.ok(ApiResponse.success("OTP route stats", routeStats.snapshot()));
+    }
+
     private String getClientIp(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
@@ -0,0 +1,64 @@
+package com.confiance.notification.controller;
+
+import com.confiance.common.dto.ApiResponse;
+import com.confiance.notification.dto.DeviceTokenRequest;
+import com.confiance.notification.dto.DeviceTokenResponse;
+import com.confiance.notification.dto.PushRequest;
+import com.confiance.notification.service.PushService;
+import com.confiance.notification.service.push.PushDispatcher;
+import com.confiance.notification.service.push.PushMessage;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/push")
+@RequiredArgsConstructor
+@Tag(name = "Push", description = "Device registration and push notification APIs")
+public class PushController {
+
+    private final PushService pushService;
+    private final PushDispatcher pushDispatcher;
+
+    @PostMapping("/devices")
+    @Operation(summary = "Register Device", description = "Register or refresh a device token for a user")
+    public ResponseEntity<ApiResponse<DeviceTokenResponse>> registerDevice(@Valid @RequestBody DeviceTokenRequest request) {
+        DeviceTokenResponse response = pushService.registerDevice(
+                request.getUserId(), request.getToken(), request.getPlatform(), request.getAppVersion());
+        return ResponseEntity.ok(ApiResponse.success("Device registered", response));
+    }
+
+    @DeleteMapping("/devices")
+    @Operation(summary = "Unregister Device", description = "Stop pushing to a device token, e.g. on logout")
+    public ResponseEntity<ApiResponse<Void>> unregisterDevice(@RequestParam String token) {
+        pushService.unregisterDevice(token);
+        return ResponseEntity.ok(ApiResponse.success("Device unregistered", null));
+    }
+
+    @GetMapping("/devices/user/{userId}")
+    @Operation(summary = "Get User Devices", description = "Device tokens registered for a user")
+    public ResponseEntity<ApiResponse<List<DeviceTokenResponse>>> getDevices(@PathVariable Long userId) {
+        return ResponseEntity.ok(ApiResponse.success(pushService.getDevices(userId)));
+    }
+
+    @PostMapping("/send")
+    @Operation(summary = "Send Push", description = "Queue a push to every device of a user")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> send(@Valid @RequestBody PushRequest request) {
+        int queued = pushService.sendToUser(request.getUserId(), new PushMessage(
+                request.getTitle(), request.getBody(), request.getData(), request.getCollapseKey(), null));
+        return ResponseEntity.accepted().body(ApiResponse.success("Push queued", Collections.singletonMap("queued", queued)));
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Push Stats", description = "Queue depth and delivery counters on this node")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getStats() {
+        return ResponseEntity.ok(ApiResponse.success(pushDispatcher.getStats()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.confiance.notification.controller;
+
+import com.confiance.common.dto.ApiResponse;
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.common.exception.ResourceNotFoundException;
+import com.confiance.notification.dto.ScheduleNotificationRequest;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/notifications/scheduled")
+@RequiredArgsConstructor
+@Tag(name = "Scheduled Delivery", description = "Delayed notification delivery APIs")
+public class ScheduledDeliveryController {
+
+    private final ScheduledDeliveryService scheduledDeliveryService;
+
+    /**
+     * Emails are scheduled through the regular send endpoints by setting {@code sendAt}.
+     */
+    @PostMapping("/notification")
+    @Operation(summary = "Schedule Notification", description = "Create an in-app notification at the given time (ISO-8601 sendAt)")
+    public ResponseEntity<ApiResponse<Map<String, String>>> scheduleNotification(
+            @Valid @RequestBody ScheduleNotificationRequest request) {
+        Instant sendAt = request.getSendAt().toInstant();
+        String id = scheduledDeliveryService.scheduleNotification(
+                request.getUserId(),
+                request.getTitle(),
+                request.getMessage() != null ? request.getMessage() : "",
+                request.getType() != null ? request.getType() : "INFO",
+                request.getActionUrl(),
+                request.getIcon(),
+                sendAt);
+        return ResponseEntity.accepted()
+                .body(ApiResponse.success("Notification scheduled", Map.of("id", id, "sendAt", sendAt.toString())));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancel Scheduled Item", description = "Cancel a scheduled email or notification that has not gone out yet")
+    public ResponseEntity<ApiResponse<Void>> cancel(@PathVariable String id) {
+        if (!scheduledDeliveryService.cancel(id)) {
+            throw new ResourceNotFoundException("Scheduled item", "id", id);
+        }
+        return ResponseEntity.ok(ApiResponse.success("Scheduled item cancelled", null));
+    }
+
+    @GetMapping("/dead-letter")
+    @Operation(summary = "Get Scheduled Dead Letters", description = "Scheduled items that exhausted their delivery attempts, newest first")
+    public ResponseEntity<ApiResponse<List<ScheduledDeliveryService.DeadLetter>>> getDeadLetters(
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > 500) {
+            throw new BadRequestException("Limit must be between 1 and 500");
+        }
+        return ResponseEntity.ok(ApiResponse.success(scheduledDeliveryService.getDeadLetters(limit)));
+    }
+}
@@ -0,0 +1,41 @@
+package com.confiance.notification.controller;
+
+import com.confiance.common.dto.ApiResponse;
+import com.confiance.notification.dto.SmsBulkRequest;
+import com.confiance.notification.dto.SmsRequest;
+import com.confiance.notification.dto.SmsResponse;
+import com.confiance.notification.service.SmsService;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/sms")
+@RequiredArgsConstructor
+@Tag(name = "SMS", description = "SMS APIs")
+public class SmsController {
+
+    private final SmsService smsService;
+
+    @PostMapping("/send")
+    @Operation(summary = "Send SMS", description = "Send an SMS from a body or an sms.templates entry, now or at sendAt")
+    public ResponseEntity<ApiResponse<SmsResponse>> send(@Valid @RequestBody SmsRequest request) {
+        SmsResponse response = smsService.send(request);
+        if (ScheduledDeliveryService.STATUS_SCHEDULED.equals(response.getStatus())) {
+            return ResponseEntity.accepted().body(ApiResponse.success("SMS scheduled", response));
+        }
+        return ResponseEntity.ok(ApiResponse.success("SMS processed", response));
+    }
+
+    @PostMapping("/bulk")
+    @Operation(summary = "Send Bulk SMS", description = "Render one body or template per recipient and send concurrently")
+    public ResponseEntity<ApiResponse<List<SmsResponse>>> sendBulk(@Valid @RequestBody SmsBulkRequest request) {
+        return ResponseEntity.ok(ApiResponse.success("Bulk SMS processed", smsService.sendBulk(request)));
+    }
+}
@@ -2,13 +2,19 @@ package com.confiance.notification.controller;
 
 import com.confiance.common.dto.ApiResponse;
 import com.confiance.common.dto.PageResponse;
+import com.confiance.common.security.JwtUtil;
 import com.confiance.notification.dto.UserNotificationResponse;
 import com.confiance.notification.service.UserNotificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
@@ -18,7 +24,10 @@ import java.util.Map;
 @Tag(name = "User Notifications", description = "User notification management APIs")
 public class UserNotificationController {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final UserNotificationService notificationService;
+    private final JwtUtil jwtUtil;
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get User Notifications", description = "Get paginated list of user notifications")
@@ -60,6 +69,21 @@ public class UserNotificationController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream Notifications", description = "Server-sent events with new notifications and "
+            + "unread-count changes as they happen. Reconnect with Last-Event-ID to receive notifications missed meanwhile. "
+            + "Requires the user's own bearer token")
+    public SseEmitter streamNotifications(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            Authentication authentication) {
+        if (!userId.equals(authenticatedUserId(authentication, authorization))) {
+            throw new AccessDeniedException("Notification streams are only available to their own user");
+        }
+        return notificationService.openStream(userId, lastEventId);
+    }
+
     @GetMapping("/user/{userId}/unread-count")
     @Operation(summary = "Get Unread Count", description = "Get count of unread notifications")
     public ResponseEntity<ApiResponse<Map<String, Long>>> getUnreadCount(@PathVariable Long userId) {
@@ -91,4 +115,16 @@ public class UserNotificationController {
         notificationService.deleteNotification(notificationId, userId);
         return ResponseEntity.ok(ApiResponse.success("Notification deleted", null));
     }
+
+    /**
+     * The caller's user id from the userId claim of the bearer token the shared
+     * JwtAuthenticationFilter authenticated; null without one
+     */
+    private Long authenticatedUserId(Authentication authentication, String authorization) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return jwtUtil.extractUserId(authorization.substring(BEARER_PREFIX.length()));
+    }
 }
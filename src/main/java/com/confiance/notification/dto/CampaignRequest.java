@@ -0,0 +1,43 @@
+package com.confiance.notification.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignRequest {
+
+    @NotBlank(message = "Name is required")
+    private String name;
+
+    @NotBlank(message = "Subject is required")
+    private String subject;
+
+    // Either a template or a body
+    private String templateName;
+
+    private String body;
+
+    private boolean isHtml;
+
+    private String category;
+
+    // Shared variables; each recipient's own columns override them
+    private Map<String, Object> templateVariables;
+
+    // Public id of an uploaded CSV/NDJSON recipient file; can also be uploaded later
+    private String recipientFileId;
+
+    @Min(value = 1, message = "Rate must be at least 1 per second")
+    private Integer ratePerSecond;
+
+    private Long createdBy;
+}
@@ -0,0 +1,37 @@
+package com.confiance.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignResponse {
+
+    private Long id;
+    private String name;
+    private String subject;
+    private String templateName;
+    private String category;
+    private String recipientFileId;
+    private String fileFormat;
+    private String status;
+    private Integer ratePerSecond;
+    private long checkpointOffset;
+    private long processedCount;
+    private long sentCount;
+    private long failedCount;
+    private long suppressedCount;
+    private long deferredCount;
+    private long skippedCount;
+    private String lastError;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.confiance.notification.dto;
+
+import com.confiance.notification.enums.DevicePlatform;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceTokenRequest {
+
+    @NotNull(message = "User ID is required")
+    private Long userId;
+
+    @NotBlank(message = "Device token is required")
+    private String token;
+
+    @NotNull(message = "Platform is required")
+    private DevicePlatform platform;
+
+    private String appVersion;
+}
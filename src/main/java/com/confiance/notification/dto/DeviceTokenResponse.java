@@ -0,0 +1,23 @@
+package com.confiance.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceTokenResponse {
+
+    private Long id;
+    private Long userId;
+    private String token;
+    private String platform;
+    private String appVersion;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastSeenAt;
+}
@@ -0,0 +1,31 @@
+package com.confiance.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailLogResponse {
+
+    private Long id;
+    private String recipient;
+    private String subject;
+    private String templateName;
+    private String status;
+    private String messageId;
+    private String trackingId;
+    private String provider;
+    private String errorMessage;
+    private Long userId;
+    private int attemptCount;
+    private LocalDateTime lastAttemptAt;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+}
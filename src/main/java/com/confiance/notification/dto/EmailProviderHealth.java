@@ -0,0 +1,19 @@
+package com.confiance.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailProviderHealth {
+    private String provider;
+    private boolean configured;
+    private String circuitState;
+    private double averageLatencyMs;
+    private double errorRate;
+    private long totalCalls;
+}
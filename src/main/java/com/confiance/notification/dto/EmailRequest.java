@@ -1,12 +1,15 @@
 package com.confiance.notification.dto;
 
+import com.confiance.notification.enums.EmailPriority;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +40,19 @@ public class EmailRequest {
 
     private List<EmailAttachment> attachments;
 
+    // Emails in a digest category (see digest.email-categories) are coalesced per user
+    private String category;
+
+    // Lane for async sends; derived from the template or category when not set
+    private EmailPriority priority;
+
+    // Same key within the retention window returns the first response instead of sending again
+    @Size(max = 128, message = "Dedup key must be at most 128 characters")
+    private String dedupKey;
+
+    // Deliver at this time instead of now; ignored when already past
+    private OffsetDateTime sendAt;
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -44,7 +60,10 @@ public class EmailRequest {
     public static class EmailAttachment {
         private String fileName;
         private String contentType;
+        // Inline bytes are kept for small generated files; prefer publicId or url
         private byte[] content;
+        // publicId of a stored FileUpload
+        private String publicId;
         private String url;
     }
 }
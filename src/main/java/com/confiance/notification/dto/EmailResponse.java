@@ -13,6 +13,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class EmailResponse {
     private String messageId;
+    private String trackingId;
     private String status;
     private String recipient;
     private LocalDateTime sentAt;
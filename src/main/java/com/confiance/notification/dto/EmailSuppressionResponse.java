@@ -0,0 +1,22 @@
+package com.confiance.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailSuppressionResponse {
+
+    private Long id;
+    private String email;
+    private String reason;
+    private String source;
+    private String detail;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,35 @@
+package com.confiance.notification.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleNotificationRequest {
+
+    @NotNull(message = "User ID is required")
+    private Long userId;
+
+    @NotBlank(message = "Title is required")
+    private String title;
+
+    private String message;
+
+    private String type; // Defaults to INFO
+
+    private String actionUrl;
+
+    private String icon;
+
+    // ISO-8601 with offset, e.g. 2026-11-01T09:00:00+05:30
+    @NotNull(message = "sendAt is required")
+    private OffsetDateTime sendAt;
+}
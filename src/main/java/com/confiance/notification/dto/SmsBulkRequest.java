@@ -0,0 +1,44 @@
+package com.confiance.notification.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One template or body rendered per recipient and fanned out concurrently
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsBulkRequest {
+
+    private String body;
+
+    private String templateName;
+
+    // Shared by every recipient; a recipient's own variables win
+    private Map<String, Object> templateVariables;
+
+    @NotEmpty(message = "At least one recipient is required")
+    @Valid
+    private List<Recipient> recipients;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Recipient {
+        @NotBlank(message = "Recipient phone number is required")
+        private String to;
+        private String countryCode;
+        private Map<String, Object> variables;
+    }
+}
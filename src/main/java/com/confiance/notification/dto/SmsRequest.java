@@ -0,0 +1,35 @@
+package com.confiance.notification.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsRequest {
+
+    @NotBlank(message = "Recipient phone number is required")
+    private String to;
+
+    // Used when the number is not already in E.164 form
+    private String countryCode;
+
+    // Either a literal body or a template from sms.templates
+    private String body;
+
+    private String templateName;
+
+    private Map<String, Object> templateVariables;
+
+    private Long userId;
+
+    // Deliver at this time instead of now; ignored when already past
+    private OffsetDateTime sendAt;
+}
@@ -0,0 +1,23 @@
+package com.confiance.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsResponse {
+    private String messageId;
+    private String status;
+    private String recipient;
+    private String encoding;
+    private Integer segments;
+    private LocalDateTime sentAt;
+    private String provider;
+    private String error;
+}
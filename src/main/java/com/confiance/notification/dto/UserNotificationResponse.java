@@ -20,7 +20,9 @@ public class UserNotificationResponse {
     private String type;
     private String actionUrl;
     private String icon;
+    private int groupCount;
     private boolean isRead;
     private LocalDateTime readAt;
     private LocalDateTime createdAt;
+    private LocalDateTime lastEventAt;
 }
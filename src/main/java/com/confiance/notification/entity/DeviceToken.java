@@ -1,7 +1,6 @@
 package com.confiance.notification.entity;
 
-import com.confiance.notification.enums.OtpProvider;
-import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.enums.DevicePlatform;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -11,45 +10,38 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "otp_logs")
+@Table(name = "device_tokens", indexes = @Index(name = "idx_device_tokens_user", columnList = "userId"))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class OtpLog {
+public class DeviceToken {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(nullable = false)
-    private String identifier;
+    private Long userId;
 
-    @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
-    private OtpPurpose purpose;
+    // A token belongs to one install; re-registering it under another user moves it
+    @Column(nullable = false, unique = true, length = 512)
+    private String token;
 
     @Enumerated(EnumType.STRING)
-    private OtpProvider provider;
-
     @Column(nullable = false)
-    private String status;
+    private DevicePlatform platform;
 
-    private Long userId;
-
-    private int attemptCount;
-
-    private String errorMessage;
+    private String appVersion;
 
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    private LocalDateTime verifiedAt;
-
-    private LocalDateTime expiresAt;
+    private LocalDateTime lastSeenAt;
 
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        lastSeenAt = createdAt;
     }
 }
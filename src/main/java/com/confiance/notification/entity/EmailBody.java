@@ -0,0 +1,41 @@
+package com.confiance.notification.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Content-addressed, compressed storage for non-templated email bodies.
+ * Identical bodies share one row, referenced from {@link EmailLog#getBodyHash()}.
+ */
+@Entity
+@Table(name = "email_bodies")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailBody {
+
+    @Id
+    @Column(length = 64)
+    private String hash; // SHA-256 of the uncompressed UTF-8 body, hex encoded
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] content; // Deflate-compressed body
+
+    @Column(nullable = false)
+    private Integer originalSize;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,107 @@
+package com.confiance.notification.entity;
+
+import com.confiance.notification.enums.CampaignStatus;
+import com.confiance.notification.enums.RecipientFileFormat;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_campaigns", indexes = {
+        @Index(name = "idx_email_campaigns_status", columnList = "status, leaseUntil")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private String subject;
+
+    private String templateName;
+
+    @Column(columnDefinition = "LONGTEXT")
+    private String body;
+
+    private boolean isHtml;
+
+    private String category;
+
+    // JSON object merged under each recipient's own fields
+    @Column(columnDefinition = "TEXT")
+    private String templateVariables;
+
+    // FileUpload public id of the recipient list
+    private String recipientFileId;
+
+    @Enumerated(EnumType.STRING)
+    private RecipientFileFormat fileFormat;
+
+    // CSV header line, kept so a resumed run can map columns without re-reading the start of the file
+    @Column(columnDefinition = "TEXT")
+    private String csvHeader;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CampaignStatus status;
+
+    private Integer ratePerSecond;
+
+    // Byte offset in the recipient file of the first line not yet dispatched
+    private long checkpointOffset;
+
+    private long processedCount;
+
+    private long sentCount;
+
+    private long failedCount;
+
+    private long suppressedCount;
+
+    private long deferredCount;
+
+    // Invalid rows, disabled features and replays of already-sent lines
+    private long skippedCount;
+
+    @Column(length = 500)
+    private String lastError;
+
+    // Node currently streaming the campaign; another node takes over once the lease runs out
+    private String leaseOwner;
+
+    private LocalDateTime leaseUntil;
+
+    private Long createdBy;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -10,7 +10,15 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "email_logs")
+@Table(name = "email_logs", indexes = {
+        @Index(name = "idx_email_log_retry", columnList = "nextAttemptAt, id"),
+        @Index(name = "idx_email_log_tracking_id", columnList = "trackingId", unique = true),
+        @Index(name = "idx_email_log_message_id", columnList = "messageId"),
+        @Index(name = "idx_email_log_user_created", columnList = "userId, createdAt, id"),
+        @Index(name = "idx_email_log_recipient_created", columnList = "recipient, createdAt, id"),
+        @Index(name = "idx_email_log_status", columnList = "status, id"),
+        @Index(name = "idx_email_log_created", columnList = "createdAt")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -31,16 +39,34 @@ public class EmailLog {
     @Column(nullable = false)
     private String subject;
 
-    @Column(columnDefinition = "TEXT")
-    private String body;
+    // Non-templated bodies are stored once in email_bodies, keyed by content hash
+    @Column(length = 64)
+    private String bodyHash;
 
     private String templateName;
 
+    // Templated bodies are not stored; they are re-rendered from the template revision
+    private Integer templateVersion;
+
+    @Column(columnDefinition = "TEXT")
+    private String templateVariables;
+
+    private boolean html;
+
+    // JSON list of attachment references (publicId / url), so retries can resend them
+    @Column(columnDefinition = "TEXT")
+    private String attachments;
+
     @Column(nullable = false)
     private String status;
 
+    // Provider message id of the latest attempt
     private String messageId;
 
+    // Stable id returned to the caller; unlike messageId it survives retries
+    @Column(length = 36)
+    private String trackingId;
+
     @Enumerated(EnumType.STRING)
     private EmailProvider provider;
 
@@ -48,6 +74,13 @@ public class EmailLog {
 
     private Long userId;
 
+    private int attemptCount;
+
+    // Set only while a retry is due; the retry scheduler scans this column
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime lastAttemptAt;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,44 @@
+package com.confiance.notification.entity;
+
+import com.confiance.notification.enums.SuppressionReason;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_suppressions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailSuppression {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Stored lower-cased
+    @Column(nullable = false, unique = true)
+    private String email;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SuppressionReason reason;
+
+    private String source; // SENDGRID, ADMIN, ...
+
+    @Column(length = 500)
+    private String detail;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -48,6 +48,11 @@ public class EmailTemplate {
     @Builder.Default
     private Boolean isActive = true;
 
+    // Bumped whenever subject or content changes; email logs reference it
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 1")
+    @Builder.Default
+    private Integer version = 1;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
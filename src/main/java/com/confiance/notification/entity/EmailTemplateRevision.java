@@ -0,0 +1,51 @@
+package com.confiance.notification.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable snapshot of an {@link EmailTemplate} at a given version, so templated
+ * email logs can be re-rendered after the template has been edited.
+ */
+@Entity
+@Table(name = "email_template_revisions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_template_revision_code_version", columnNames = {"code", "version"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailTemplateRevision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String code;
+
+    @Column(nullable = false)
+    private Integer version;
+
+    @Column(nullable = false, length = 500)
+    private String subject;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String htmlContent;
+
+    @Column(columnDefinition = "TEXT")
+    private String plainTextContent;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -9,12 +9,16 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "user_notifications", indexes = {
         @Index(name = "idx_notification_user_id", columnList = "userId"),
         @Index(name = "idx_notification_read", columnList = "isRead"),
-        @Index(name = "idx_notification_created", columnList = "createdAt")
+        @Index(name = "idx_notification_created", columnList = "createdAt"),
+        @Index(name = "idx_notification_user_last_event", columnList = "userId, lastEventAt"),
+        // Finding the unread row a new event of the same type collapses into
+        @Index(name = "idx_notification_collapse", columnList = "userId, type, isRead, lastEventAt")
 })
 @Data
 @Builder
@@ -43,6 +47,11 @@ public class UserNotification {
 
     private String icon; // Optional icon name
 
+    // Number of events collapsed into this row; title/message show the latest one
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 1")
+    @Builder.Default
+    private int groupCount = 1;
+
     @Column(nullable = false)
     @Builder.Default
     private boolean isRead = false;
@@ -52,4 +61,20 @@ public class UserNotification {
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    // Time of the latest event collapsed into the row; lists sort by it. Null only on rows
+    // written before it existed, until UserNotificationBackfill copies createdAt into it
+    private LocalDateTime lastEventAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (lastEventAt == null) {
+            lastEventAt = eventTime();
+        }
+    }
+
+    // Truncated to the column's microseconds, so stream event ids built from the entity match the row
+    public static LocalDateTime eventTime() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
 }
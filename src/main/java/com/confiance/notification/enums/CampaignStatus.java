@@ -0,0 +1,10 @@
+package com.confiance.notification.enums;
+
+public enum CampaignStatus {
+    DRAFT,
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
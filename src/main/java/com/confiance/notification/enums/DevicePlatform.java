@@ -0,0 +1,7 @@
+package com.confiance.notification.enums;
+
+public enum DevicePlatform {
+    ANDROID,
+    IOS,
+    WEB
+}
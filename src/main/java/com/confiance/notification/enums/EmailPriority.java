@@ -0,0 +1,7 @@
+package com.confiance.notification.enums;
+
+public enum EmailPriority {
+    TRANSACTIONAL,
+    NORMAL,
+    BULK
+}
@@ -3,5 +3,6 @@ package com.confiance.notification.enums;
 public enum EmailProvider {
     SMTP,
     SENDGRID,
-    AWS_SES
+    AWS_SES,
+    SIMULATED
 }
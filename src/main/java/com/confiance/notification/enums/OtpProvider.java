@@ -3,5 +3,6 @@ package com.confiance.notification.enums;
 public enum OtpProvider {
     TWILIO,
     AWS_SNS,
-    MSG91
+    MSG91,
+    SIMULATED
 }
@@ -0,0 +1,6 @@
+package com.confiance.notification.enums;
+
+public enum RecipientFileFormat {
+    CSV,
+    NDJSON
+}
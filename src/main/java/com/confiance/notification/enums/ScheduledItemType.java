@@ -0,0 +1,8 @@
+package com.confiance.notification.enums;
+
+public enum ScheduledItemType {
+    EMAIL,
+    NOTIFICATION,
+    PAYMENT_REMINDER,
+    SMS
+}
@@ -0,0 +1,6 @@
+package com.confiance.notification.enums;
+
+public enum SmsProvider {
+    TWILIO,
+    SIMULATED
+}
@@ -0,0 +1,8 @@
+package com.confiance.notification.enums;
+
+public enum SuppressionReason {
+    HARD_BOUNCE,
+    COMPLAINT,
+    UNSUBSCRIBE,
+    MANUAL
+}
@@ -0,0 +1,172 @@
+package com.confiance.notification.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps in-flight calls per provider with a limit that adapts to latency. Each completed call
+ * compares its round trip with the provider's no-load baseline: while they match the limit
+ * creeps up, when calls slow down it shrinks in proportion, and timeouts or rejections cut it
+ * outright. Callers over the limit wait a few milliseconds for a slot and are then shed, so a
+ * slow provider holds a bounded number of request threads.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProviderConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double DROP_FACTOR = 0.8;
+    private static final long BASELINE_RESET_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final Permit UNLIMITED = new Permit(null, 0);
+
+    private final RateLimitConfig config;
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * A slot for one call. Close it when the call finishes; call {@link #dropped()} first when the
+     * provider timed out or pushed back so the limit shrinks instead of learning from the sample.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Limiter limiter;
+        private final long startNanos;
+        private boolean dropped;
+        private boolean ignored;
+        private boolean released;
+
+        private Permit(Limiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        public void dropped() {
+            dropped = true;
+        }
+
+        /**
+         * Release the slot without feeding the latency into the limit, e.g. for batch calls
+         */
+        public void ignore() {
+            ignored = true;
+        }
+
+        @Override
+        public void close() {
+            if (limiter == null || released) {
+                return;
+            }
+            released = true;
+            limiter.release(ignored ? -1 : System.nanoTime() - startNanos, dropped);
+        }
+    }
+
+    /**
+     * A permit for a call to the provider, or null when the provider is at its limit and
+     * no slot freed up within the queue timeout
+     */
+    public Permit tryAcquire(String provider) {
+        Limiter limiter = limiter(provider);
+        if (limiter == null) {
+            return UNLIMITED;
+        }
+        try {
+            if (!limiter.acquire()) {
+                log.warn("Shedding call to {}: {} calls in flight (limit {})", provider, limiter.inFlight(), limiter.limit());
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return new Permit(limiter, System.nanoTime());
+    }
+
+    public int currentLimit(String provider) {
+        Limiter limiter = limiter(provider);
+        return limiter == null ? Integer.MAX_VALUE : limiter.limit();
+    }
+
+    private Limiter limiter(String provider) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        RateLimitConfig.ProviderLimits limits = config.getProviders().get(provider);
+        return limits == null ? null : limiters.computeIfAbsent(provider, p -> new Limiter(p, limits));
+    }
+
+    private static final class Limiter {
+        private final String provider;
+        private final RateLimitConfig.ProviderLimits limits;
+        private double limit;
+        private int inFlight;
+        private long baselineNanos = Long.MAX_VALUE;
+        private long baselineSetAt = System.nanoTime();
+
+        Limiter(String provider, RateLimitConfig.ProviderLimits limits) {
+            this.provider = provider;
+            this.limits = limits;
+            this.limit = Math.max(limits.getMinConcurrency(),
+                    Math.min(limits.getInitialConcurrency(), limits.getMaxConcurrency()));
+        }
+
+        synchronized boolean acquire() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.getQueueTimeoutMs());
+            while (inFlight >= (int) limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            inFlight++;
+            return true;
+        }
+
+        synchronized void release(long rttNanos, boolean dropped) {
+            inFlight--;
+            int before = (int) limit;
+            if (dropped) {
+                limit = Math.max(limits.getMinConcurrency(), limit * DROP_FACTOR);
+            } else if (rttNanos >= 0) {
+                sample(rttNanos);
+            }
+            if ((int) limit != before) {
+                log.debug("Concurrency limit for {} is now {}", provider, (int) limit);
+            }
+            notifyAll();
+        }
+
+        private void sample(long rttNanos) {
+            long now = System.nanoTime();
+            // Let the baseline drift up again if the provider's unloaded latency has changed
+            if (now - baselineSetAt > BASELINE_RESET_NANOS) {
+                baselineNanos = rttNanos;
+                baselineSetAt = now;
+            } else if (rttNanos < baselineNanos) {
+                baselineNanos = rttNanos;
+            }
+
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, (double) baselineNanos / Math.max(1, rttNanos)));
+            // Only grow when the limit was actually being used; an idle provider tells us nothing
+            double headroom = inFlight + 1 >= limit / 2 ? Math.sqrt(limit) : 0;
+            double target = limit * gradient + headroom;
+            limit = limit * (1 - SMOOTHING) + target * SMOOTHING;
+            limit = Math.max(limits.getMinConcurrency(), Math.min(limits.getMaxConcurrency(), limit));
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+
+        synchronized int limit() {
+            return (int) limit;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.confiance.notification.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side budgets for calls to third-party providers. Each provider gets a token
+ * bucket whose rate is cut on every 429 and crept back up while calls succeed (AIMD).
+ * A provider's Retry-After pauses every thread on this node until it passes, instead
+ * of each caller discovering the limit on its own.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProviderThrottle {
+
+    public static final String SENDGRID = "sendgrid";
+    public static final String AWS_SES = "aws-ses";
+    public static final String SMTP = "smtp";
+    public static final String TWILIO = "twilio";
+    public static final String AWS_SNS = "aws-sns";
+    public static final String CLOUDINARY = "cloudinary";
+    public static final String RAZORPAY = "razorpay";
+    public static final String FCM = "fcm";
+
+    private static final String BULK_SUFFIX = "-bulk";
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final long DECREASE_GUARD_MS = 1000;   // One cut per burst of 429s
+
+    private final RateLimitConfig config;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * Wait (up to the provider's max-wait) for permission to make a call worth {@code permits}.
+     * Returns false when the provider is backing off or the budget stays exhausted.
+     */
+    public boolean acquire(String provider, int permits) {
+        Budget budget = budget(provider);
+        if (budget == null) {
+            return true;
+        }
+        long maxWaitMs = budget.limits.getMaxWaitMs();
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        try {
+            long blockedMs = budget.blockedUntil.get() - System.currentTimeMillis();
+            if (blockedMs > 0) {
+                if (blockedMs > maxWaitMs) {
+                    return false;
+                }
+                Thread.sleep(blockedMs);
+            }
+            long remainingMs = Math.max(0, deadline - System.currentTimeMillis());
+            int tokens = Math.min(Math.max(permits, 1), budget.limits.getBurst());
+            return budget.bucket.asBlocking().tryConsume(tokens, Duration.ofMillis(remainingMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public boolean acquire(String provider) {
+        return acquire(provider, 1);
+    }
+
+    /**
+     * Budget bulk sends take before the provider's own, so bulk only ever uses that share of it
+     * and latency-sensitive callers (OTP) keep the rest
+     */
+    public static String bulkKey(String provider) {
+        return provider + BULK_SUFFIX;
+    }
+
+    /**
+     * The provider answered 429. Pause all callers for Retry-After (or the default backoff) and cut the rate.
+     */
+    public void onThrottled(String provider, Long retryAfterSeconds) {
+        Budget budget = budget(provider);
+        if (budget == null) {
+            return;
+        }
+        long pauseMs = TimeUnit.SECONDS.toMillis(retryAfterSeconds != null && retryAfterSeconds > 0
+                ? retryAfterSeconds : budget.limits.getDefaultBackoffSeconds());
+        long until = System.currentTimeMillis() + pauseMs;
+        budget.blockedUntil.accumulateAndGet(until, Math::max);
+        budget.decrease();
+        log.warn("Provider {} is throttling us; pausing {}ms, rate now {}/s", provider, pauseMs, budget.currentRate());
+    }
+
+    public void onSuccess(String provider) {
+        Budget budget = budget(provider);
+        if (budget != null) {
+            budget.increase();
+        }
+    }
+
+    /**
+     * Milliseconds until the provider's Retry-After passes, or 0
+     */
+    public long blockedForMs(String provider) {
+        Budget budget = budget(provider);
+        return budget == null ? 0 : Math.max(0, budget.blockedUntil.get() - System.currentTimeMillis());
+    }
+
+    /**
+     * Retry-After as delay-seconds or an HTTP date; null when absent or unreadable
+     */
+    public static Long parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        String value = header.trim();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).getSeconds());
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private Budget budget(String provider) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        RateLimitConfig.ProviderLimits limits = config.getProviders().get(provider);
+        return limits == null ? null : budgets.computeIfAbsent(provider, p -> new Budget(limits));
+    }
+
+    private static class Budget {
+        final RateLimitConfig.ProviderLimits limits;
+        final Bucket bucket;
+        final AtomicLong blockedUntil = new AtomicLong();
+        private double rate;
+        private long successes;
+        private long lastDecreaseAt;
+
+        Budget(RateLimitConfig.ProviderLimits limits) {
+            this.limits = limits;
+            this.rate = limits.getRatePerSecond();
+            this.bucket = Bucket.builder().addLimit(bandwidth((int) rate)).build();
+        }
+
+        synchronized void decrease() {
+            long now = System.currentTimeMillis();
+            if (now - lastDecreaseAt < DECREASE_GUARD_MS) {
+                return;
+            }
+            lastDecreaseAt = now;
+            successes = 0;
+            retune(Math.max(limits.getMinRatePerSecond(), rate * DECREASE_FACTOR));
+        }
+
+        /**
+         * Add about one call per second for every second's worth of successes
+         */
+        synchronized void increase() {
+            if (rate >= limits.getRatePerSecond() || ++successes < rate) {
+                return;
+            }
+            successes = 0;
+            retune(Math.min(limits.getRatePerSecond(), rate + Math.max(1, limits.getRatePerSecond() * 0.05)));
+        }
+
+        synchronized double currentRate() {
+            return rate;
+        }
+
+        private void retune(double newRate) {
+            int previous = (int) rate;
+            rate = newRate;
+            if ((int) newRate != previous) {
+                bucket.replaceConfiguration(BucketConfiguration.builder().addLimit(bandwidth((int) newRate)).build(),
+                        TokensInheritanceStrategy.AS_IS);
+            }
+        }
+
+        private Bandwidth bandwidth(int perSecond) {
+            int refill = Math.max(1, perSecond);
+            return Bandwidth.classic(Math.max(limits.getBurst(), 1), Refill.greedy(refill, Duration.ofSeconds(1)));
+        }
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "rate-limit")
@@ -29,6 +32,9 @@ public class RateLimitConfig {
     // IP Blocking
     private IpBlocking ipBlocking = new IpBlocking();
 
+    // Outbound budgets per provider (sendgrid, aws-ses, smtp, twilio, cloudinary, razorpay); providers not listed are not throttled
+    private Map<String, ProviderLimits> providers = new HashMap<>();
+
     @Data
     public static class OtpLimits {
         private int sendPerMinute = 2;           // Max OTP sends per minute per identifier
@@ -71,4 +77,17 @@ public class RateLimitConfig {
         private int blockDurationMinutes = 30;   // Block duration in minutes
         private int failedAttemptWindowMinutes = 5; // Window to count failed attempts
     }
+
+    @Data
+    public static class ProviderLimits {
+        private int ratePerSecond = 10;          // Calls per second while the provider is not pushing back
+        private int burst = 10;                  // Calls that may go out at once after a quiet period
+        private int minRatePerSecond = 1;        // Floor for the rate after repeated 429s
+        private long maxWaitMs = 2000;           // How long a caller may block for budget before giving up
+        private int defaultBackoffSeconds = 5;   // Pause after a 429 without Retry-After
+        private int initialConcurrency = 20;     // In-flight calls allowed before any latency is observed
+        private int minConcurrency = 2;          // Floor for the adaptive in-flight limit
+        private int maxConcurrency = 100;        // Ceiling for the adaptive in-flight limit
+        private long queueTimeoutMs = 50;        // How long a call over the in-flight limit waits before being shed
+    }
 }
@@ -27,87 +27,6 @@ public class RateLimiterService {
     private static final String RATE_LIMIT_PREFIX = "rate_limit:";
     private static final String BLOCKED_IP_PREFIX = "blocked_ip:";
     private static final String FAILED_ATTEMPTS_PREFIX = "failed_attempts:";
-    private static final String OTP_COOLDOWN_PREFIX = "otp_cooldown:";
-
-    // ==================== OTP Rate Limiting ====================
-
-    /**
-     * Check if OTP can be sent (respects cooldown and rate limits)
-     */
-    public RateLimitResult checkOtpSendLimit(String identifier) {
-        if (!config.isEnabled()) {
-            return RateLimitResult.allowed();
-        }
-
-        String sanitizedId = sanitizeKey(identifier);
-
-        // Check cooldown first
-        String cooldownKey = OTP_COOLDOWN_PREFIX + sanitizedId;
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(cooldownKey))) {
-            Long ttl = redisTemplate.getExpire(cooldownKey, TimeUnit.SECONDS);
-            return RateLimitResult.denied(
-                    "Please wait " + ttl + " seconds before requesting another OTP",
-                    ttl != null ? ttl.intValue() : config.getOtp().getCooldownSeconds()
-            );
-        }
-
-        // Check per-minute limit
-        String minuteKey = RATE_LIMIT_PREFIX + "otp:minute:" + sanitizedId;
-        if (!checkAndIncrement(minuteKey, config.getOtp().getSendPerMinute(), 60)) {
-            return RateLimitResult.denied("Too many OTP requests. Please try again in a minute.", 60);
-        }
-
-        // Check per-hour limit
-        String hourKey = RATE_LIMIT_PREFIX + "otp:hour:" + sanitizedId;
-        if (!checkAndIncrement(hourKey, config.getOtp().getSendPerHour(), 3600)) {
-            return RateLimitResult.denied("Hourly OTP limit reached. Please try again later.", 3600);
-        }
-
-        // Check per-day limit
-        String dayKey = RATE_LIMIT_PREFIX + "otp:day:" + sanitizedId;
-        if (!checkAndIncrement(dayKey, config.getOtp().getSendPerDay(), 86400)) {
-            return RateLimitResult.denied("Daily OTP limit reached. Please try again tomorrow.", 86400);
-        }
-
-        // Set cooldown
-        redisTemplate.opsForValue().set(cooldownKey, "1", config.getOtp().getCooldownSeconds(), TimeUnit.SECONDS);
-
-        return RateLimitResult.allowed();
-    }
-
-    /**
-     * Check OTP verification attempts
-     */
-    public RateLimitResult checkOtpVerifyLimit(String identifier) {
-        if (!config.isEnabled()) {
-            return RateLimitResult.allowed();
-        }
-
-        String key = RATE_LIMIT_PREFIX + "otp:verify:" + sanitizeKey(identifier);
-        int current = getCount(key);
-
-        if (current >= config.getOtp().getVerifyAttemptsPerOtp()) {
-            return RateLimitResult.denied("Maximum verification attempts exceeded. Please request a new OTP.", 0);
-        }
-
-        return RateLimitResult.allowed();
-    }
-
-    /**
-     * Increment OTP verification attempt counter
-     */
-    public void incrementOtpVerifyAttempt(String identifier) {
-        String key = RATE_LIMIT_PREFIX + "otp:verify:" + sanitizeKey(identifier);
-        increment(key, 300); // 5 minutes TTL
-    }
-
-    /**
-     * Reset OTP verification attempts (on successful verify or new OTP)
-     */
-    public void resetOtpVerifyAttempts(String identifier) {
-        String key = RATE_LIMIT_PREFIX + "otp:verify:" + sanitizeKey(identifier);
-        redisTemplate.delete(key);
-    }
 
     // ==================== Payment Rate Limiting ====================
 
@@ -324,13 +243,6 @@ public class RateLimiterService {
         return value != null ? Integer.parseInt(value) : 0;
     }
 
-    private void increment(String key, int ttlSeconds) {
-        Long count = redisTemplate.opsForValue().increment(key);
-        if (count != null && count == 1) {
-            redisTemplate.expire(key, ttlSeconds, TimeUnit.SECONDS);
-        }
-    }
-
     private String sanitizeKey(String input) {
         return input.replaceAll("[^a-zA-Z0-9+@._-]", "_");
     }
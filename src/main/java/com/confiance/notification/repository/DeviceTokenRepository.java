@@ -0,0 +1,25 @@
+package com.confiance.notification.repository;
+
+import com.confiance.notification.entity.DeviceToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long> {
+
+    List<DeviceToken> findByUserIdOrderByLastSeenAtDesc(Long userId);
+
+    Optional<DeviceToken> findByToken(String token);
+
+    List<DeviceToken> findByTokenIn(Collection<String> tokens);
+
+    @Modifying
+    @Query("DELETE FROM DeviceToken d WHERE d.token IN :tokens")
+    int deleteByTokenIn(Collection<String> tokens);
+}
@@ -0,0 +1,70 @@
+package com.confiance.notification.repository;
+
+import com.confiance.notification.entity.EmailCampaign;
+import com.confiance.notification.enums.CampaignStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailCampaignRepository extends JpaRepository<EmailCampaign, Long> {
+
+    @Query("SELECT c.id FROM EmailCampaign c WHERE c.status = :status " +
+            "AND (c.leaseUntil IS NULL OR c.leaseUntil < :now) ORDER BY c.id ASC")
+    List<Long> findClaimable(CampaignStatus status, LocalDateTime now);
+
+    /**
+     * Take the lease on a running campaign; fails if another node holds a live lease
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailCampaign c SET c.leaseOwner = :owner, c.leaseUntil = :leaseUntil " +
+            "WHERE c.id = :id AND c.status = :status AND (c.leaseUntil IS NULL OR c.leaseUntil < :now)")
+    int claimLease(Long id, CampaignStatus status, String owner, LocalDateTime now, LocalDateTime leaseUntil);
+
+    /**
+     * Record a dispatched chunk and renew the lease in one statement. Returns 0 once the
+     * campaign is paused or cancelled, or the lease was lost, which stops the run.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailCampaign c SET c.checkpointOffset = :offset, c.csvHeader = COALESCE(c.csvHeader, :csvHeader), " +
+            "c.processedCount = c.processedCount + :processed, c.sentCount = c.sentCount + :sent, " +
+            "c.failedCount = c.failedCount + :failed, c.suppressedCount = c.suppressedCount + :suppressed, " +
+            "c.deferredCount = c.deferredCount + :deferred, c.skippedCount = c.skippedCount + :skipped, " +
+            "c.leaseUntil = :leaseUntil, c.updatedAt = :now " +
+            "WHERE c.id = :id AND c.leaseOwner = :owner AND c.status = :status")
+    int checkpoint(Long id, String owner, CampaignStatus status, long offset, String csvHeader,
+                   long processed, long sent, long failed, long suppressed, long deferred, long skipped,
+                   LocalDateTime leaseUntil, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailCampaign c SET c.status = :newStatus, c.lastError = :error, c.completedAt = :now, " +
+            "c.leaseOwner = NULL, c.leaseUntil = NULL, c.updatedAt = :now " +
+            "WHERE c.id = :id AND c.leaseOwner = :owner AND c.status = :expected")
+    int finish(Long id, String owner, CampaignStatus expected, CampaignStatus newStatus, String error, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailCampaign c SET c.leaseOwner = NULL, c.leaseUntil = NULL WHERE c.id = :id AND c.leaseOwner = :owner")
+    int releaseLease(Long id, String owner);
+
+    /**
+     * Status change by the API. A targeted update, so counters written by a running node are not overwritten.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailCampaign c SET c.status = :to, c.updatedAt = :now, " +
+            "c.startedAt = CASE WHEN :to = com.confiance.notification.enums.CampaignStatus.RUNNING " +
+            "THEN COALESCE(c.startedAt, :now) ELSE c.startedAt END, " +
+            "c.completedAt = CASE WHEN :to = com.confiance.notification.enums.CampaignStatus.CANCELLED " +
+            "THEN :now ELSE c.completedAt END " +
+            "WHERE c.id = :id AND c.status IN :from")
+    int transition(Long id, List<CampaignStatus> from, CampaignStatus to, LocalDateTime now);
+}
@@ -1,24 +1,76 @@
 package com.confiance.notification.repository;
 
 import com.confiance.notification.entity.EmailLog;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EmailLogRepository extends JpaRepository<EmailLog, Long> {
 
-    Page<EmailLog> findByRecipient(String recipient, Pageable pageable);
+    Optional<EmailLog> findByTrackingId(String trackingId);
 
-    Page<EmailLog> findByUserId(Long userId, Pageable pageable);
+    Optional<EmailLog> findFirstByMessageIdOrderByIdDesc(String messageId);
 
-    Page<EmailLog> findByStatus(String status, Pageable pageable);
+    /**
+     * First page of a user's history, newest first; served by (userId, createdAt, id)
+     */
+    List<EmailLog> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
 
-    List<EmailLog> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+    /**
+     * Next page of a user's history after the (createdAt, id) cursor
+     */
+    @Query("SELECT e FROM EmailLog e WHERE e.userId = :userId " +
+            "AND (e.createdAt < :cursorAt OR (e.createdAt = :cursorAt AND e.id < :cursorId)) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<EmailLog> findUserHistoryBefore(Long userId, LocalDateTime cursorAt, Long cursorId, Pageable pageable);
 
-    long countByStatusAndCreatedAtBetween(String status, LocalDateTime start, LocalDateTime end);
+    /**
+     * Keyset pages of one status, newest first; served by (status, id)
+     */
+    List<EmailLog> findByStatusOrderByIdDesc(String status, Pageable pageable);
+
+    List<EmailLog> findByStatusAndIdLessThanOrderByIdDesc(String status, Long cursorId, Pageable pageable);
+
+    List<EmailLog> findByRecipientOrderByCreatedAtDescIdDesc(String recipient, Pageable pageable);
+
+    @Query("SELECT e FROM EmailLog e WHERE e.recipient = :recipient " +
+            "AND (e.createdAt < :cursorAt OR (e.createdAt = :cursorAt AND e.id < :cursorId)) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<EmailLog> findRecipientHistoryBefore(String recipient, LocalDateTime cursorAt, Long cursorId, Pageable pageable);
+
+    /**
+     * Keyset scan of deliveries due for retry, ordered by (nextAttemptAt, id)
+     */
+    @Query("SELECT e FROM EmailLog e WHERE e.nextAttemptAt <= :now " +
+            "AND (e.nextAttemptAt > :cursorAt OR (e.nextAttemptAt = :cursorAt AND e.id > :cursorId)) " +
+            "ORDER BY e.nextAttemptAt ASC, e.id ASC")
+    List<EmailLog> findDueForRetry(LocalDateTime now, LocalDateTime cursorAt, Long cursorId, Pageable pageable);
+
+    /**
+     * Claim a due delivery by pushing its nextAttemptAt out to a lease; fails if another node got it first
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailLog e SET e.nextAttemptAt = :leaseUntil WHERE e.id = :id AND e.nextAttemptAt = :expected")
+    int claimForRetry(Long id, LocalDateTime expected, LocalDateTime leaseUntil);
+
+    /**
+     * Keyset page of (id, createdAt) pairs in a status; createdAt keys the daily stats buckets
+     */
+    @Query("SELECT e.id, e.createdAt FROM EmailLog e WHERE e.status = :status AND e.id > :afterId ORDER BY e.id ASC")
+    List<Object[]> findIdsByStatusAfter(String status, Long afterId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailLog e SET e.status = 'FAILED', e.attemptCount = 0, e.nextAttemptAt = :at " +
+            "WHERE e.id IN :ids AND e.status = 'DEAD_LETTER'")
+    int redrive(List<Long> ids, LocalDateTime at);
 }
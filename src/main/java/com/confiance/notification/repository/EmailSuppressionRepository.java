@@ -0,0 +1,24 @@
+package com.confiance.notification.repository;
+
+import com.confiance.notification.entity.EmailSuppression;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmailSuppressionRepository extends JpaRepository<EmailSuppression, Long> {
+
+    Optional<EmailSuppression> findByEmail(String email);
+
+    boolean existsByEmail(String email);
+
+    /**
+     * Keyset page of (id, email) pairs for loading the in-memory filter
+     */
+    @Query("SELECT s.id, s.email FROM EmailSuppression s WHERE s.id > :afterId ORDER BY s.id ASC")
+    List<Object[]> findEmailsAfter(Long afterId, Pageable pageable);
+}
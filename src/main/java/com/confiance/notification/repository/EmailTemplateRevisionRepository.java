@@ -0,0 +1,15 @@
+package com.confiance.notification.repository;
+
+import com.confiance.notification.entity.EmailTemplateRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmailTemplateRevisionRepository extends JpaRepository<EmailTemplateRevision, Long> {
+
+    Optional<EmailTemplateRevision> findByCodeAndVersion(String code, Integer version);
+
+    boolean existsByCodeAndVersion(String code, Integer version);
+}
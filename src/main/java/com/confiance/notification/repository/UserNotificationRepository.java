@@ -9,19 +9,41 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserNotificationRepository extends JpaRepository<UserNotification, Long> {
 
-    Page<UserNotification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
+    Page<UserNotification> findByUserIdOrderByLastEventAtDesc(Long userId, Pageable pageable);
 
-    Page<UserNotification> findByUserIdAndIsReadOrderByCreatedAtDesc(Long userId, boolean isRead, Pageable pageable);
+    Page<UserNotification> findByUserIdAndIsReadOrderByLastEventAtDesc(Long userId, boolean isRead, Pageable pageable);
 
     long countByUserIdAndIsRead(Long userId, boolean isRead);
 
+    /**
+     * (userId, unread count) rows; users with nothing unread are absent
+     */
+    @Query("SELECT n.userId, COUNT(n) FROM UserNotification n WHERE n.userId IN :userIds AND n.isRead = false GROUP BY n.userId")
+    List<Object[]> countUnreadByUserIds(Collection<Long> userIds);
+
+    List<UserNotification> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Pageable pageable);
+
+    /**
+     * Rows whose latest event comes after (lastEventAt, id), oldest first; collapsed rows reappear
+     * here with their original id
+     */
+    @Query("SELECT n FROM UserNotification n WHERE n.userId = :userId "
+            + "AND (n.lastEventAt > :after OR (n.lastEventAt = :after AND n.id > :id)) "
+            + "ORDER BY n.lastEventAt ASC, n.id ASC")
+    List<UserNotification> findEventsAfter(Long userId, LocalDateTime after, Long id, Pageable pageable);
+
     Optional<UserNotification> findByIdAndUserId(Long id, Long userId);
 
+    Optional<UserNotification> findFirstByUserIdAndTypeAndIsReadFalseAndLastEventAtAfterOrderByLastEventAtDesc(
+            Long userId, String type, LocalDateTime after);
+
     @Modifying
     @Query("UPDATE UserNotification n SET n.isRead = true, n.readAt = :now WHERE n.userId = :userId AND n.isRead = false")
     int markAllAsRead(Long userId, LocalDateTime now);
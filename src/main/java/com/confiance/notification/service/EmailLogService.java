@@ -0,0 +1,210 @@
+package com.confiance.notification.service;
+
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.common.exception.ResourceNotFoundException;
+import com.confiance.notification.dto.CursorPageResponse;
+import com.confiance.notification.dto.EmailLogResponse;
+import com.confiance.notification.entity.EmailLog;
+import com.confiance.notification.repository.EmailLogRepository;
+import com.confiance.notification.service.email.EmailStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailLogService {
+
+    private static final int REDRIVE_CHUNK_SIZE = 500;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // Status the re-drive query gives dead letters
+    private static final String STATUS_REDRIVEN = "FAILED";
+
+    private final EmailLogRepository emailLogRepository;
+    private final EmailStatsService emailStatsService;
+
+    /**
+     * Delivery status by the tracking id returned from the send APIs, or by provider message id
+     */
+    public EmailLogResponse getByTrackingId(String id) {
+        return emailLogRepository.findByTrackingId(id)
+                .or(() -> emailLogRepository.findFirstByMessageIdOrderByIdDesc(id))
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("EmailLog", "trackingId", id));
+    }
+
+    public CursorPageResponse<EmailLogResponse> getUserHistory(Long userId, String cursor, int size) {
+        int pageSize = pageSize(size);
+        Cursor after = Cursor.decode(cursor);
+        List<EmailLog> logs = after == null
+                ? emailLogRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, PageRequest.of(0, pageSize + 1))
+                : emailLogRepository.findUserHistoryBefore(userId, after.createdAt(), after.id(), PageRequest.of(0, pageSize + 1));
+        return toCursorPage(logs, pageSize);
+    }
+
+    public CursorPageResponse<EmailLogResponse> getRecipientHistory(String recipient, String cursor, int size) {
+        int pageSize = pageSize(size);
+        Cursor after = Cursor.decode(cursor);
+        List<EmailLog> logs = after == null
+                ? emailLogRepository.findByRecipientOrderByCreatedAtDescIdDesc(recipient, PageRequest.of(0, pageSize + 1))
+                : emailLogRepository.findRecipientHistoryBefore(recipient, after.createdAt(), after.id(), PageRequest.of(0, pageSize + 1));
+        return toCursorPage(logs, pageSize);
+    }
+
+    /**
+     * Counts by status for emails created in the date range, from the maintained counters
+     */
+    public Map<String, Long> getStatusCounts(LocalDate from, LocalDate to) {
+        return emailStatsService.countsBetween(from, to);
+    }
+
+    /**
+     * Dead letters, newest first; the cursor is the id of the last row on the previous page
+     */
+    public CursorPageResponse<EmailLogResponse> getDeadLetters(String cursor, int size) {
+        int pageSize = pageSize(size);
+        Long afterId = decodeId(cursor);
+        List<EmailLog> logs = afterId == null
+                ? emailLogRepository.findByStatusOrderByIdDesc(EmailService.STATUS_DEAD_LETTER, PageRequest.of(0, pageSize + 1))
+                : emailLogRepository.findByStatusAndIdLessThanOrderByIdDesc(
+                        EmailService.STATUS_DEAD_LETTER, afterId, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = logs.size() > pageSize;
+        List<EmailLog> page = hasMore ? logs.subList(0, pageSize) : logs;
+        return CursorPageResponse.<EmailLogResponse>builder()
+                .content(page.stream().map(this::toResponse).toList())
+                .size(page.size())
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? String.valueOf(page.get(page.size() - 1).getId()) : null)
+                .build();
+    }
+
+    /**
+     * Put a dead-lettered delivery back in the retry queue with a fresh attempt budget
+     */
+    public EmailLogResponse redrive(Long emailLogId) {
+        EmailLog emailLog = emailLogRepository.findById(emailLogId)
+                .orElseThrow(() -> new ResourceNotFoundException("EmailLog", "id", emailLogId));
+        if (!EmailService.STATUS_DEAD_LETTER.equals(emailLog.getStatus())) {
+            throw new BadRequestException("Only dead-lettered emails can be re-driven");
+        }
+
+        if (emailLogRepository.redrive(List.of(emailLogId), LocalDateTime.now()) > 0) {
+            emailStatsService.recordTransition(emailLog.getCreatedAt(), EmailService.STATUS_DEAD_LETTER, STATUS_REDRIVEN);
+        }
+        log.info("Email log {} re-driven from dead letter", emailLogId);
+        return toResponse(emailLogRepository.findById(emailLogId).orElse(emailLog));
+    }
+
+    /**
+     * Re-drive up to {@code limit} dead letters, oldest first. The retry scheduler's
+     * rate budget spreads the actual sends out.
+     */
+    public int redriveAll(int limit) {
+        int redriven = 0;
+        long afterId = 0L;
+        LocalDateTime now = LocalDateTime.now();
+
+        while (redriven < limit) {
+            int chunk = Math.min(REDRIVE_CHUNK_SIZE, limit - redriven);
+            List<Object[]> rows = emailLogRepository.findIdsByStatusAfter(
+                    EmailService.STATUS_DEAD_LETTER, afterId, PageRequest.of(0, chunk));
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Long> ids = rows.stream().map(row -> (Long) row[0]).toList();
+            redriven += emailLogRepository.redrive(ids, now);
+            rows.forEach(row -> emailStatsService.recordTransition(
+                    (LocalDateTime) row[1], EmailService.STATUS_DEAD_LETTER, STATUS_REDRIVEN));
+            afterId = ids.get(ids.size() - 1);
+            if (rows.size() < chunk) {
+                break;
+            }
+        }
+
+        log.info("Re-drove {} dead-lettered emails", redriven);
+        return redriven;
+    }
+
+    private CursorPageResponse<EmailLogResponse> toCursorPage(List<EmailLog> logs, int pageSize) {
+        // One extra row was fetched to learn whether another page exists
+        boolean hasMore = logs.size() > pageSize;
+        List<EmailLog> page = hasMore ? logs.subList(0, pageSize) : logs;
+        EmailLog last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return CursorPageResponse.<EmailLogResponse>builder()
+                .content(page.stream().map(this::toResponse).toList())
+                .size(page.size())
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? new Cursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .build();
+    }
+
+    private int pageSize(int size) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new BadRequestException("Size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        return size;
+    }
+
+    private Long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Opaque (createdAt, id) position of the last row on a page
+     */
+    private record Cursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+    }
+
+    private EmailLogResponse toResponse(EmailLog emailLog) {
+        return EmailLogResponse.builder()
+                .id(emailLog.getId())
+                .recipient(emailLog.getRecipient())
+                .subject(emailLog.getSubject())
+                .templateName(emailLog.getTemplateName())
+                .status(emailLog.getStatus())
+                .messageId(emailLog.getMessageId())
+                .trackingId(emailLog.getTrackingId())
+                .provider(emailLog.getProvider() != null ? emailLog.getProvider().name() : null)
+                .errorMessage(emailLog.getErrorMessage())
+                .userId(emailLog.getUserId())
+                .attemptCount(emailLog.getAttemptCount())
+                .lastAttemptAt(emailLog.getLastAttemptAt())
+                .nextAttemptAt(emailLog.getNextAttemptAt())
+                .createdAt(emailLog.getCreatedAt())
+                .sentAt(emailLog.getSentAt())
+                .build();
+    }
+}
@@ -1,5 +1,7 @@
 package com.confiance.notification.service;
 
+import com.confiance.common.exception.InternalServerException;
+import com.confiance.common.exception.ResourceNotFoundException;
 import com.confiance.notification.dto.EmailRequest;
 import com.confiance.notification.dto.EmailResponse;
 import com.confiance.notification.entity.EmailLog;
@@ -7,19 +9,31 @@ import com.confiance.notification.entity.EmailTemplate;
 import com.confiance.notification.enums.EmailProvider;
 import com.confiance.notification.repository.EmailLogRepository;
 import com.confiance.notification.repository.EmailTemplateRepository;
+import com.confiance.notification.service.digest.EmailDigestService;
+import com.confiance.notification.service.email.DomainThrottle;
+import com.confiance.notification.service.email.EmailBodyStore;
+import com.confiance.notification.service.email.EmailDispatcher;
+import com.confiance.notification.service.email.EmailIdempotencyService;
+import com.confiance.notification.service.email.EmailProviderRouter;
+import com.confiance.notification.service.email.EmailRetryPolicy;
 import com.confiance.notification.service.email.EmailSender;
+import com.confiance.notification.service.email.EmailStatsService;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -28,11 +42,24 @@ import java.util.stream.Collectors;
 @Slf4j
 public class EmailService {
 
+    public static final String STATUS_DEAD_LETTER = "DEAD_LETTER";
+    public static final String STATUS_SUPPRESSED = "SUPPRESSED";
+
     private final Map<EmailProvider, EmailSender> emailSenders;
     private final EmailLogRepository emailLogRepository;
     private final EmailTemplateRepository emailTemplateRepository;
     private final TemplateEngine templateEngine;
     private final FeatureService featureService;
+    private final EmailBodyStore emailBodyStore;
+    private final EmailProviderRouter emailProviderRouter;
+    private final EmailRetryPolicy retryPolicy;
+    private final EmailIdempotencyService idempotencyService;
+    private final EmailDispatcher emailDispatcher;
+    private final DomainThrottle domainThrottle;
+    private final EmailDigestService emailDigestService;
+    private final EmailSuppressionService suppressionService;
+    private final ScheduledDeliveryService scheduledDeliveryService;
+    private final EmailStatsService emailStatsService;
 
     private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
 
@@ -42,13 +69,29 @@ public class EmailService {
     @Autowired
     public EmailService(List<EmailSender> senders, EmailLogRepository emailLogRepository,
                         EmailTemplateRepository emailTemplateRepository, TemplateEngine templateEngine,
-                        FeatureService featureService) {
+                        FeatureService featureService, EmailBodyStore emailBodyStore,
+                        EmailProviderRouter emailProviderRouter, EmailRetryPolicy retryPolicy,
+                        EmailIdempotencyService idempotencyService, EmailDispatcher emailDispatcher,
+                        DomainThrottle domainThrottle, EmailDigestService emailDigestService,
+                        EmailSuppressionService suppressionService,
+                        ScheduledDeliveryService scheduledDeliveryService,
+                        EmailStatsService emailStatsService) {
         this.emailSenders = senders.stream()
                 .collect(Collectors.toMap(EmailSender::getProvider, sender -> sender));
         this.emailLogRepository = emailLogRepository;
         this.emailTemplateRepository = emailTemplateRepository;
         this.templateEngine = templateEngine;
         this.featureService = featureService;
+        this.emailBodyStore = emailBodyStore;
+        this.emailProviderRouter = emailProviderRouter;
+        this.retryPolicy = retryPolicy;
+        this.idempotencyService = idempotencyService;
+        this.emailDispatcher = emailDispatcher;
+        this.domainThrottle = domainThrottle;
+        this.emailDigestService = emailDigestService;
+        this.suppressionService = suppressionService;
+        this.scheduledDeliveryService = scheduledDeliveryService;
+        this.emailStatsService = emailStatsService;
         log.info("Email service initialized with providers: {}", emailSenders.keySet());
     }
 
@@ -57,11 +100,175 @@ public class EmailService {
     }
 
     public EmailResponse sendEmail(EmailRequest request, Long userId) {
-        EmailProvider provider = EmailProvider.valueOf(defaultProvider.toUpperCase().replace("-", "_"));
-        return sendEmailWithProvider(request, provider, userId);
+        if (!StringUtils.hasText(request.getDedupKey())) {
+            return accept(request, userId);
+        }
+
+        // Claimed before branching, so a retried request is not scheduled or buffered twice
+        EmailIdempotencyService.Claim claim = idempotencyService.claim(request.getDedupKey(), request);
+        if (!claim.isOwner()) {
+            return claim.replay();
+        }
+        try {
+            EmailResponse response = accept(request, userId);
+            idempotencyService.complete(claim, response);
+            return response;
+        } catch (RuntimeException e) {
+            idempotencyService.release(claim);
+            throw e;
+        }
+    }
+
+    private EmailResponse accept(EmailRequest request, Long userId) {
+        if (isScheduledForLater(request)) {
+            return schedule(request, userId);
+        }
+        if (emailDigestService.offer(request, userId)) {
+            return buffered(request);
+        }
+        return deliver(request, preferredProvider(), userId);
+    }
+
+    /**
+     * Send without digest coalescing
+     */
+    public EmailResponse sendImmediately(EmailRequest request, Long userId) {
+        return sendEmailWithProvider(request, preferredProvider(), userId);
+    }
+
+    private boolean isScheduledForLater(EmailRequest request) {
+        return request.getSendAt() != null && request.getSendAt().toInstant().isAfter(Instant.now());
+    }
+
+    private EmailResponse schedule(EmailRequest request, Long userId) {
+        // The key is already claimed; keeping it would make the send coming due replay this claim
+        request.setDedupKey(null);
+        String id = scheduledDeliveryService.scheduleEmail(request, userId, request.getSendAt().toInstant());
+        log.info("Email to {} scheduled for {}", request.getTo(), request.getSendAt());
+        return EmailResponse.builder()
+                .messageId(id)
+                .status(ScheduledDeliveryService.STATUS_SCHEDULED)
+                .recipient(request.getTo())
+                .build();
+    }
+
+    private EmailResponse buffered(EmailRequest request) {
+        log.debug("Email to {} buffered for digest", request.getTo());
+        return EmailResponse.builder()
+                .status(EmailDigestService.STATUS_BUFFERED)
+                .recipient(request.getTo())
+                .build();
+    }
+
+    private EmailProvider preferredProvider() {
+        return EmailProvider.valueOf(defaultProvider.toUpperCase().replace("-", "_"));
     }
 
     public EmailResponse sendEmailWithProvider(EmailRequest request, EmailProvider provider, Long userId) {
+        if (!StringUtils.hasText(request.getDedupKey())) {
+            return deliver(request, provider, userId);
+        }
+
+        EmailIdempotencyService.Claim claim = idempotencyService.claim(request.getDedupKey(), request);
+        if (!claim.isOwner()) {
+            return claim.replay();
+        }
+        try {
+            EmailResponse response = deliver(request, provider, userId);
+            idempotencyService.complete(claim, response);
+            return response;
+        } catch (RuntimeException e) {
+            idempotencyService.release(claim);
+            throw e;
+        }
+    }
+
+    private EmailResponse deliver(EmailRequest request, EmailProvider provider, Long userId) {
+        EmailResponse skippedResponse = skipIfNotDeliverable(request, provider, userId);
+        if (skippedResponse != null) {
+            return skippedResponse;
+        }
+
+        RenderedTemplate rendered = render(request);
+
+        // The router picks the healthiest provider, preferring the requested one
+        EmailResponse response = emailProviderRouter.send(request, provider);
+
+        recordDelivery(request, rendered, response, provider, userId);
+
+        return response;
+    }
+
+    /**
+     * Send a batch the dispatcher grouped by recipient domain, so the sender can
+     * reuse one connection for the whole group. Returns one outcome per email,
+     * including skipped, suppressed and replayed ones.
+     */
+    public List<EmailResponse> deliverBatch(List<EmailDispatcher.QueuedEmail> batch) {
+        EmailProvider provider = preferredProvider();
+        List<PendingSend> pending = new ArrayList<>();
+        List<EmailResponse> outcomes = new ArrayList<>(batch.size());
+
+        for (EmailDispatcher.QueuedEmail queued : batch) {
+            EmailRequest request = queued.request();
+            EmailIdempotencyService.Claim claim = null;
+            try {
+                if (StringUtils.hasText(request.getDedupKey())) {
+                    claim = idempotencyService.claim(request.getDedupKey(), request);
+                    if (!claim.isOwner()) {
+                        outcomes.add(claim.replay());
+                        continue;
+                    }
+                }
+                EmailResponse skippedResponse = skipIfNotDeliverable(request, provider, queued.userId());
+                if (skippedResponse != null) {
+                    if (claim != null) {
+                        idempotencyService.complete(claim, skippedResponse);
+                    }
+                    outcomes.add(skippedResponse);
+                    continue;
+                }
+                pending.add(new PendingSend(queued, render(request), claim));
+            } catch (Exception e) {
+                log.error("Dropping queued email to {}: {}", request.getTo(), e.getMessage());
+                if (claim != null) {
+                    idempotencyService.release(claim);
+                }
+                outcomes.add(EmailResponse.builder()
+                        .status("FAILED")
+                        .recipient(request.getTo())
+                        .sentAt(LocalDateTime.now())
+                        .build());
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return outcomes;
+        }
+
+        List<EmailResponse> responses = emailProviderRouter.sendBatch(
+                pending.stream().map(p -> p.queued().request()).toList(), provider);
+
+        for (int i = 0; i < pending.size(); i++) {
+            PendingSend send = pending.get(i);
+            EmailResponse response = responses.get(i);
+            recordDelivery(send.queued().request(), send.rendered(), response, provider, send.queued().userId());
+            if (send.claim() != null) {
+                idempotencyService.complete(send.claim(), response);
+            }
+            outcomes.add(response);
+        }
+        return outcomes;
+    }
+
+    private record PendingSend(EmailDispatcher.QueuedEmail queued, RenderedTemplate rendered,
+                               EmailIdempotencyService.Claim claim) {}
+
+    /**
+     * Log and return a SKIPPED response when email, or the template's feature, is switched off,
+     * or a SUPPRESSED response when the recipient is on the suppression list
+     */
+    private EmailResponse skipIfNotDeliverable(EmailRequest request, EmailProvider provider, Long userId) {
         // Check if EMAIL feature is enabled globally
         if (!featureService.isEnabled(FeatureService.FEATURE_EMAIL)) {
             log.warn("Email feature is DISABLED - skipping email to: {}", request.getTo());
@@ -70,7 +277,7 @@ public class EmailService {
                     .recipient(request.getTo())
                     .sentAt(LocalDateTime.now())
                     .build();
-            saveEmailLog(request, skippedResponse, provider, userId);
+            saveEmailLog(request, null, skippedResponse, provider, userId);
             return skippedResponse;
         }
 
@@ -85,38 +292,59 @@ public class EmailService {
                         .recipient(request.getTo())
                         .sentAt(LocalDateTime.now())
                         .build();
-                saveEmailLog(request, skippedResponse, provider, userId);
+                saveEmailLog(request, null, skippedResponse, provider, userId);
                 return skippedResponse;
             }
         }
 
-        EmailSender sender = emailSenders.get(provider);
-
-        if (sender == null || !sender.isConfigured()) {
-            log.warn("Email provider {} not available or not configured, falling back to SMTP", provider);
-            sender = emailSenders.get(EmailProvider.SMTP);
-        }
-
-        if (sender == null) {
-            log.error("No email sender available");
-            return EmailResponse.builder()
-                    .status("FAILED")
+        // Bloom filter check; only a filter hit reaches the database
+        if (suppressionService.isSuppressed(request.getTo())) {
+            log.info("Recipient {} is suppressed - not sending", request.getTo());
+            EmailResponse suppressedResponse = EmailResponse.builder()
+                    .status(STATUS_SUPPRESSED)
                     .recipient(request.getTo())
                     .sentAt(LocalDateTime.now())
                     .build();
+            saveEmailLog(request, null, suppressedResponse, provider, userId);
+            return suppressedResponse;
         }
+        request.setCc(withoutSuppressed(request.getCc()));
+        request.setBcc(withoutSuppressed(request.getBcc()));
+        return null;
+    }
 
-        if (request.getTemplateName() != null && request.getTemplateVariables() != null) {
-            String processedBody = processTemplate(request.getTemplateName(), request.getTemplateVariables());
-            request.setBody(processedBody);
-            request.setHtml(true);
+    private List<String> withoutSuppressed(List<String> addresses) {
+        if (addresses == null || addresses.isEmpty()) {
+            return addresses;
         }
+        return addresses.stream().filter(address -> !suppressionService.isSuppressed(address)).toList();
+    }
 
-        EmailResponse response = sender.send(request);
+    private RenderedTemplate render(EmailRequest request) {
+        if (request.getTemplateName() == null || request.getTemplateVariables() == null) {
+            return null;
+        }
+        RenderedTemplate rendered = processTemplate(request.getTemplateName(), request.getTemplateVariables());
+        request.setBody(rendered.body());
+        request.setHtml(true);
+        return rendered;
+    }
 
-        saveEmailLog(request, response, provider, userId);
+    private void recordDelivery(EmailRequest request, RenderedTemplate rendered, EmailResponse response,
+                                EmailProvider provider, Long userId) {
+        domainThrottle.recordOutcome(DomainThrottle.domainOf(request.getTo()), response.getStatus());
+        saveEmailLog(request, rendered, response, resolveProvider(response, provider), userId);
+    }
 
-        return response;
+    private EmailProvider resolveProvider(EmailResponse response, EmailProvider requested) {
+        if (response.getProvider() == null) {
+            return requested;
+        }
+        try {
+            return EmailProvider.valueOf(response.getProvider());
+        } catch (IllegalArgumentException e) {
+            return requested;
+        }
     }
 
     /**
@@ -131,14 +359,20 @@ public class EmailService {
         };
     }
 
-    @Async
     public void sendEmailAsync(EmailRequest request) {
         sendEmailAsync(request, null);
     }
 
-    @Async
+    /**
+     * Queue for delivery; the dispatcher shapes sends per recipient domain
+     */
     public void sendEmailAsync(EmailRequest request, Long userId) {
-        sendEmail(request, userId);
+        if (isScheduledForLater(request) || emailDigestService.accepts(request)) {
+            // Scheduling and buffering are quick and claim the key the same way a synchronous send does
+            sendEmail(request, userId);
+            return;
+        }
+        emailDispatcher.enqueue(request, userId);
     }
 
     public EmailResponse sendTemplatedEmail(String to, String subject, String templateName,
@@ -163,13 +397,15 @@ public class EmailService {
         sendEmail(request);
     }
 
-    private String processTemplate(String templateName, Map<String, Object> variables) {
+    private RenderedTemplate processTemplate(String templateName, Map<String, Object> variables) {
         // First, try to get template from database
         Optional<EmailTemplate> dbTemplate = emailTemplateRepository.findByCodeAndIsActiveTrue(templateName);
 
         if (dbTemplate.isPresent()) {
             log.debug("Using DB template for: {}", templateName);
-            return processDbTemplate(dbTemplate.get().getHtmlContent(), variables);
+            EmailTemplate template = dbTemplate.get();
+            emailBodyStore.recordTemplateRevision(template);
+            return new RenderedTemplate(processDbTemplate(template.getHtmlContent(), variables), template.getVersion());
         }
 
         // Fallback to Thymeleaf filesystem template
@@ -177,10 +413,11 @@ public class EmailService {
             log.debug("Using Thymeleaf template for: {}", templateName);
             Context context = new Context();
             context.setVariables(variables);
-            return templateEngine.process(templateName, context);
+            return new RenderedTemplate(templateEngine.process(templateName, context), null);
         } catch (Exception e) {
+            // Fail the send rather than mail out an empty body
             log.error("Error processing email template {}: {}", templateName, e.getMessage());
-            return "";
+            throw new InternalServerException("Could not render email template " + templateName);
         }
     }
 
@@ -203,27 +440,142 @@ public class EmailService {
         return sb.toString();
     }
 
-    private void saveEmailLog(EmailRequest request, EmailResponse response, EmailProvider provider, Long userId) {
+    private void saveEmailLog(EmailRequest request, RenderedTemplate rendered, EmailResponse response,
+                              EmailProvider provider, Long userId) {
         try {
+            // DB-templated bodies are re-rendered from the template revision on demand; anything else,
+            // Thymeleaf output included since it changes with the deployment, is stored once by hash
+            boolean templated = rendered != null && rendered.version() != null;
             EmailLog log = EmailLog.builder()
                     .recipient(request.getTo())
                     .cc(request.getCc() != null ? String.join(",", request.getCc()) : null)
                     .bcc(request.getBcc() != null ? String.join(",", request.getBcc()) : null)
                     .subject(request.getSubject())
-                    .body(request.getBody())
+                    .bodyHash(templated ? null : emailBodyStore.storeBody(request.getBody()))
                     .templateName(request.getTemplateName())
+                    .templateVersion(templated ? rendered.version() : null)
+                    .templateVariables(templated ? emailBodyStore.serializeVariables(request.getTemplateVariables()) : null)
+                    .html(request.isHtml())
+                    .attachments(emailBodyStore.serializeAttachments(request.getAttachments()))
                     .status(response.getStatus())
                     .messageId(response.getMessageId())
+                    .trackingId(UUID.randomUUID().toString())
                     .provider(provider)
                     .userId(userId)
                     .sentAt("SENT".equals(response.getStatus()) ? response.getSentAt() : null)
                     .build();
-            emailLogRepository.save(log);
+            if (!"SKIPPED".equals(response.getStatus()) && !STATUS_SUPPRESSED.equals(response.getStatus())) {
+                log.setAttemptCount(1);
+                log.setLastAttemptAt(LocalDateTime.now());
+                if (retryPolicy.isRetryable(response.getStatus()) && retryPolicy.canRetry(request)) {
+                    log.setNextAttemptAt(retryPolicy.nextAttemptAt(1));
+                }
+            }
+            EmailLog saved = emailLogRepository.save(log);
+            response.setTrackingId(saved.getTrackingId());
+            emailStatsService.recordNew(saved.getCreatedAt(), saved.getStatus());
         } catch (Exception e) {
             EmailService.log.error("Error saving email log: {}", e.getMessage());
         }
     }
 
+    /**
+     * Re-send a logged delivery and record the outcome on the same log row
+     */
+    public EmailResponse retryDelivery(EmailLog emailLog) {
+        if (!featureService.isEnabled(FeatureService.FEATURE_EMAIL)) {
+            // Don't burn an attempt while email is switched off
+            log.debug("Email feature is DISABLED - postponing retry of email log {}", emailLog.getId());
+            emailLog.setNextAttemptAt(retryPolicy.nextAttemptAt(emailLog.getAttemptCount()));
+            emailLogRepository.save(emailLog);
+            return null;
+        }
+
+        String previousStatus = emailLog.getStatus();
+
+        // Bounced or complained since the first attempt
+        if (suppressionService.isSuppressed(emailLog.getRecipient())) {
+            emailLog.setStatus(STATUS_SUPPRESSED);
+            emailLog.setNextAttemptAt(null);
+            saveRetried(emailLog, previousStatus);
+            return null;
+        }
+
+        String body;
+        try {
+            body = emailBodyStore.reconstructBody(emailLog);
+        } catch (Exception e) {
+            // Nothing to resend; retrying will not fix a missing body or template revision
+            log.error("Cannot rebuild email log {} for retry: {}", emailLog.getId(), e.getMessage());
+            emailLog.setStatus(STATUS_DEAD_LETTER);
+            emailLog.setErrorMessage(e.getMessage());
+            emailLog.setNextAttemptAt(null);
+            saveRetried(emailLog, previousStatus);
+            return null;
+        }
+
+        EmailRequest request = EmailRequest.builder()
+                .to(emailLog.getRecipient())
+                .cc(splitAddresses(emailLog.getCc()))
+                .bcc(splitAddresses(emailLog.getBcc()))
+                .subject(emailLog.getSubject())
+                .body(body)
+                .isHtml(emailLog.isHtml())
+                .attachments(emailBodyStore.deserializeAttachments(emailLog.getAttachments()))
+                .build();
+
+        // The recipient domain is pausing after deferrals; wait it out without spending an attempt
+        String domain = DomainThrottle.domainOf(emailLog.getRecipient());
+        long blockedForMs = domainThrottle.blockedForMs(domain);
+        if (blockedForMs > 0) {
+            emailLog.setNextAttemptAt(LocalDateTime.now().plusNanos(blockedForMs * 1_000_000));
+            emailLogRepository.save(emailLog);
+            return null;
+        }
+
+        EmailProvider provider = preferredProvider();
+        EmailResponse response = emailProviderRouter.send(request, provider);
+        domainThrottle.recordOutcome(domain, response.getStatus());
+
+        int attempts = emailLog.getAttemptCount() + 1;
+        emailLog.setAttemptCount(attempts);
+        emailLog.setLastAttemptAt(LocalDateTime.now());
+        emailLog.setStatus(response.getStatus());
+        emailLog.setMessageId(response.getMessageId());
+        emailLog.setProvider(resolveProvider(response, provider));
+        emailLog.setNextAttemptAt(null);
+
+        if ("SENT".equals(response.getStatus())) {
+            emailLog.setSentAt(response.getSentAt());
+            log.info("Retry {} of email log {} delivered", attempts, emailLog.getId());
+        } else if (retryPolicy.isRetryable(response.getStatus()) && retryPolicy.hasAttemptsLeft(attempts)) {
+            emailLog.setNextAttemptAt(retryPolicy.nextAttemptAt(attempts));
+        } else {
+            emailLog.setStatus(STATUS_DEAD_LETTER);
+            log.warn("Email log {} moved to dead letter after {} attempts", emailLog.getId(), attempts);
+        }
+        saveRetried(emailLog, previousStatus);
+        return response;
+    }
+
+    private void saveRetried(EmailLog emailLog, String previousStatus) {
+        emailLogRepository.save(emailLog);
+        emailStatsService.recordTransition(emailLog.getCreatedAt(), previousStatus, emailLog.getStatus());
+    }
+
+    private List<String> splitAddresses(String addresses) {
+        return addresses == null || addresses.isBlank() ? null : List.of(addresses.split(","));
+    }
+
+    /**
+     * Re-render or load the body of a previously logged email
+     */
+    public String getEmailBody(Long emailLogId) {
+        EmailLog emailLog = emailLogRepository.findById(emailLogId)
+                .orElseThrow(() -> new ResourceNotFoundException("EmailLog", "id", emailLogId));
+        return emailBodyStore.reconstructBody(emailLog);
+    }
+
     public Optional<EmailSender> getEmailSender(EmailProvider provider) {
         return Optional.ofNullable(emailSenders.get(provider));
     }
@@ -232,4 +584,7 @@ public class EmailService {
         EmailSender sender = emailSenders.get(provider);
         return sender != null && sender.isConfigured();
     }
+
+    private record RenderedTemplate(String body, Integer version) {
+    }
 }
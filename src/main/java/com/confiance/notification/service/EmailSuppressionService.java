@@ -0,0 +1,263 @@
+package com.confiance.notification.service;
+
+import com.confiance.common.dto.PageResponse;
+import com.confiance.common.exception.ResourceNotFoundException;
+import com.confiance.notification.dto.EmailSuppressionResponse;
+import com.confiance.notification.entity.EmailSuppression;
+import com.confiance.notification.enums.SuppressionReason;
+import com.confiance.notification.repository.EmailSuppressionRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Addresses we must not email (hard bounces, complaints, unsubscribes).
+ * The table is authoritative; a Bloom filter in memory answers "not suppressed"
+ * without a database hit, so only filter hits (real or false positive) query the table.
+ * Changes are broadcast on a Redis channel so every node updates its filter and drops
+ * its cached answer for the address at once.
+ */
+@Service
+@Slf4j
+public class EmailSuppressionService {
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final String CHANGES_CHANNEL = "email:suppression:changes";
+    private static final String ADDED = "+";
+    private static final String REMOVED = "-";
+
+    private final EmailSuppressionRepository suppressionRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<String, Boolean> confirmed = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .build();
+
+    @Value("${email.suppression.expected-insertions:1000000}")
+    private int expectedInsertions;
+
+    @Value("${email.suppression.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter<CharSequence> filter;
+    private volatile long lastLoadedId;
+    private volatile boolean rebuildRequested = true;
+
+    public EmailSuppressionService(EmailSuppressionRepository suppressionRepository,
+                                   RedisTemplate<String, String> redisTemplate,
+                                   RedisMessageListenerContainer listenerContainer) {
+        this.suppressionRepository = suppressionRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener((message, pattern) ->
+                        applyChange(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANGES_CHANNEL));
+    }
+
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isSuppressed(String email) {
+        String normalized = normalize(email);
+        if (normalized == null || normalized.isEmpty()) {
+            return false;
+        }
+        BloomFilter<CharSequence> current = filter;
+        if (current != null && !current.mightContain(normalized)) {
+            return false;
+        }
+        // Filter hit or filter not loaded yet: ask the table
+        Boolean known = confirmed.getIfPresent(normalized);
+        if (known == null) {
+            known = suppressionRepository.existsByEmail(normalized);
+            confirmed.put(normalized, known);
+        }
+        return known;
+    }
+
+    public EmailSuppressionResponse suppress(String email, SuppressionReason reason, String source, String detail) {
+        String normalized = normalize(email);
+        EmailSuppression suppression = suppressionRepository.findByEmail(normalized).orElse(null);
+        if (suppression == null) {
+            try {
+                suppression = suppressionRepository.save(EmailSuppression.builder()
+                        .email(normalized)
+                        .reason(reason != null ? reason : SuppressionReason.MANUAL)
+                        .source(source)
+                        .detail(truncate(detail))
+                        .build());
+                log.info("Suppressed {} ({})", normalized, suppression.getReason());
+            } catch (DataIntegrityViolationException e) {
+                // Same address suppressed concurrently
+                suppression = suppressionRepository.findByEmail(normalized).orElseThrow(() -> e);
+            }
+        }
+
+        markSuppressed(normalized);
+        broadcast(ADDED, normalized);
+        return toResponse(suppression);
+    }
+
+    public void remove(String email) {
+        String normalized = normalize(email);
+        EmailSuppression suppression = suppressionRepository.findByEmail(normalized)
+                .orElseThrow(() -> new ResourceNotFoundException("EmailSuppression", "email", normalized));
+        suppressionRepository.delete(suppression);
+        confirmed.invalidate(normalized);
+        // Bloom filters can't delete; the address stays a (checked) filter hit until the next rebuild
+        rebuildRequested = true;
+        broadcast(REMOVED, normalized);
+        log.info("Removed suppression for {}", normalized);
+    }
+
+    private void markSuppressed(String normalized) {
+        synchronized (this) {
+            if (filter != null) {
+                filter.put(normalized);
+            }
+        }
+        confirmed.put(normalized, true);
+    }
+
+    /**
+     * Other nodes may hold a cached "not suppressed" (or "suppressed") answer for the address
+     */
+    private void broadcast(String change, String normalized) {
+        try {
+            redisTemplate.convertAndSend(CHANGES_CHANNEL, change + normalized);
+        } catch (Exception e) {
+            // Other nodes catch up within the cache expiry and the next filter refresh
+            log.warn("Could not broadcast suppression change for {}: {}", normalized, e.getMessage());
+        }
+    }
+
+    private void applyChange(String change) {
+        if (change.length() < 2) {
+            return;
+        }
+        String normalized = change.substring(1);
+        if (change.startsWith(ADDED)) {
+            markSuppressed(normalized);
+        } else {
+            confirmed.invalidate(normalized);
+        }
+    }
+
+    public PageResponse<EmailSuppressionResponse> getSuppressions(int page, int size) {
+        Page<EmailSuppression> suppressions = suppressionRepository.findAll(
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")));
+        return PageResponse.<EmailSuppressionResponse>builder()
+                .content(suppressions.getContent().stream()
+                        .map(this::toResponse)
+                        .toList())
+                .pageNumber(suppressions.getNumber())
+                .pageSize(suppressions.getSize())
+                .totalElements(suppressions.getTotalElements())
+                .totalPages(suppressions.getTotalPages())
+                .last(suppressions.isLast())
+                .build();
+    }
+
+    /**
+     * Pull rows added since the last load (including by other instances) into the filter
+     */
+    @Scheduled(fixedDelayString = "${email.suppression.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            if (rebuildRequested || filter == null) {
+                rebuild();
+                return;
+            }
+            long loaded = load(filter, lastLoadedId);
+            if (loaded > 0) {
+                log.debug("Loaded {} new suppressions into filter", loaded);
+            }
+        } catch (Exception e) {
+            log.error("Suppression filter refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Periodic full rebuild drops removed addresses and re-sizes the filter
+     */
+    @Scheduled(fixedDelayString = "${email.suppression.rebuild-interval-ms:21600000}",
+            initialDelayString = "${email.suppression.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        rebuildRequested = true;
+    }
+
+    private void rebuild() {
+        long count = suppressionRepository.count();
+        BloomFilter<CharSequence> fresh = BloomFilter.create(
+                Funnels.stringFunnel(StandardCharsets.UTF_8),
+                (int) Math.max(expectedInsertions, count * 2),
+                falsePositiveRate);
+        rebuildRequested = false;
+        lastLoadedId = 0;
+        long loaded = load(fresh, 0);
+
+        synchronized (this) {
+            filter = fresh;
+        }
+        // Catch anything added while the fresh filter was loading
+        load(fresh, lastLoadedId);
+        log.info("Suppression filter rebuilt with {} addresses", loaded);
+    }
+
+    private long load(BloomFilter<CharSequence> target, long afterId) {
+        long loaded = 0;
+        long cursor = afterId;
+        while (true) {
+            List<Object[]> rows = suppressionRepository.findEmailsAfter(cursor, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (Object[] row : rows) {
+                target.put((String) row[1]);
+                cursor = (Long) row[0];
+            }
+            loaded += rows.size();
+            if (rows.size() < LOAD_PAGE_SIZE) {
+                break;
+            }
+        }
+        lastLoadedId = cursor;
+        return loaded;
+    }
+
+    private String truncate(String value) {
+        return value != null && value.length() > 500 ? value.substring(0, 500) : value;
+    }
+
+    private EmailSuppressionResponse toResponse(EmailSuppression suppression) {
+        return EmailSuppressionResponse.builder()
+                .id(suppression.getId())
+                .email(suppression.getEmail())
+                .reason(suppression.getReason().name())
+                .source(suppression.getSource())
+                .detail(suppression.getDetail())
+                .createdAt(suppression.getCreatedAt())
+                .build();
+    }
+}
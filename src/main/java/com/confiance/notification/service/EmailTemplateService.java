@@ -10,6 +10,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -40,6 +41,7 @@ public class EmailTemplateService {
         if (templateRepository.existsByCode(template.getCode())) {
             throw new IllegalArgumentException("Template with code '" + template.getCode() + "' already exists");
         }
+        template.setVersion(1);
         return templateRepository.save(template);
     }
 
@@ -48,6 +50,12 @@ public class EmailTemplateService {
         EmailTemplate existing = templateRepository.findByCode(code)
                 .orElseThrow(() -> new ResourceNotFoundException("Template not found with code: " + code));
 
+        if (!Objects.equals(existing.getSubject(), updatedTemplate.getSubject())
+                || !Objects.equals(existing.getHtmlContent(), updatedTemplate.getHtmlContent())
+                || !Objects.equals(existing.getPlainTextContent(), updatedTemplate.getPlainTextContent())) {
+            existing.setVersion(existing.getVersion() + 1);
+        }
+
         existing.setName(updatedTemplate.getName());
         existing.setSubject(updatedTemplate.getSubject());
         existing.setHtmlContent(updatedTemplate.getHtmlContent());
@@ -7,7 +7,10 @@ import com.confiance.common.exception.InternalServerException;
 import com.confiance.notification.dto.FileUploadResponse;
 import com.confiance.notification.entity.FileUpload;
 import com.confiance.notification.enums.FileType;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.ratelimit.RateLimitExceededException;
 import com.confiance.notification.repository.FileUploadRepository;
+import com.confiance.notification.service.simulation.ProviderSimulator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +18,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -32,14 +40,25 @@ public class FileUploadService {
 
     private final Cloudinary cloudinary;
     private final FileUploadRepository fileUploadRepository;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderSimulator simulator;
 
     @Autowired
     public FileUploadService(@Autowired(required = false) Cloudinary cloudinary,
-                              FileUploadRepository fileUploadRepository) {
+                              FileUploadRepository fileUploadRepository,
+                              ProviderThrottle providerThrottle,
+                              ProviderSimulator simulator) {
         this.cloudinary = cloudinary;
         this.fileUploadRepository = fileUploadRepository;
+        this.providerThrottle = providerThrottle;
+        this.simulator = simulator;
     }
 
+    // "simulated" puts a fake remote store with configurable latency, errors and 429s in front
+    // of local storage, for load tests without Cloudinary
+    @Value("${upload.provider:cloudinary}")
+    private String uploadProvider;
+
     @Value("${cloudinary.folder:confiance}")
     private String defaultFolder;
 
@@ -51,6 +70,8 @@ public class FileUploadService {
     @Value("${app.upload.local-dir:/app/uploads}")
     private String localUploadDir;
 
+    private static final String LOCAL_URL_PREFIX = "/api/v1/files/local/";
+
     private static final List<String> ALLOWED_IMAGE_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "webp", "svg");
     private static final List<String> ALLOWED_DOCUMENT_EXTENSIONS = Arrays.asList("pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "txt", "csv");
     private static final List<String> ALLOWED_VIDEO_EXTENSIONS = Arrays.asList("mp4", "avi", "mov", "wmv", "mkv");
@@ -83,14 +104,32 @@ public class FileUploadService {
         }
     }
 
+    /**
+     * Store generated content, such as an inline email attachment that has to outlive its request
+     */
+    public FileUploadResponse uploadBytes(byte[] content, String fileName, String contentType, Long userId,
+                                          String entityType) {
+        return uploadToCloudinary(new ByteArrayFile(content, fileName, contentType), userId, null, "raw", entityType, null);
+    }
+
     private FileUploadResponse uploadToCloudinary(MultipartFile file, Long userId, String folder,
                                                    String resourceType, String entityType, Long entityId) {
+        if (isSimulated()) {
+            simulateRemoteCall();
+            return uploadLocal(file, userId, folder, resourceType, entityType, entityId);
+        }
+
         // Local-disk fallback so the feature works without Cloudinary credentials.
         // Once CLOUDINARY_API_KEY/SECRET are set in env, this branch is skipped.
         if (cloudinary == null) {
             return uploadLocal(file, userId, folder, resourceType, entityType, entityId);
         }
 
+        if (!providerThrottle.acquire(ProviderThrottle.CLOUDINARY)) {
+            long waitSeconds = Math.max(1, (providerThrottle.blockedForMs(ProviderThrottle.CLOUDINARY) + 999) / 1000);
+            throw new RateLimitExceededException("File storage is busy, please retry shortly", (int) waitSeconds);
+        }
+
         try {
             String effectiveFolder = folder != null ? folder : defaultFolder;
             String publicId = effectiveFolder + "/" + UUID.randomUUID().toString();
@@ -102,7 +141,19 @@ public class FileUploadService {
             );
 
             @SuppressWarnings("unchecked")
-            Map<String, Object> result = cloudinary.uploader().upload(file.getBytes(), uploadOptions);
+            Map<String, Object> result;
+            try {
+                result = cloudinary.uploader().upload(file.getBytes(), uploadOptions);
+            } catch (RuntimeException e) {
+                // The uploader reports HTTP 420/429 as a plain RuntimeException carrying the API message
+                if (e.getMessage() != null && e.getMessage().toLowerCase().contains("rate limit")) {
+                    providerThrottle.onThrottled(ProviderThrottle.CLOUDINARY, null);
+                    throw new RateLimitExceededException("File storage is busy, please retry shortly",
+                            (int) Math.max(1, providerThrottle.blockedForMs(ProviderThrottle.CLOUDINARY) / 1000));
+                }
+                throw e;
+            }
+            providerThrottle.onSuccess(ProviderThrottle.CLOUDINARY);
 
             String cloudinaryPublicId = (String) result.get("public_id");
             String url = (String) result.get("url");
@@ -174,7 +225,7 @@ public class FileUploadService {
 
             // Relative URL — the API gateway routes /api/v1/files/** to this service.
             // Frontend renders it with the API origin prefix.
-            String url = "/api/v1/files/local/" + effectiveFolder + "/" + id
+            String url = LOCAL_URL_PREFIX + effectiveFolder + "/" + id
                     + (ext.isEmpty() ? "" : "." + ext);
 
             FileType fileType = determineFileType(resourceType, ext);
@@ -238,7 +289,48 @@ public class FileUploadService {
         return target;
     }
 
+    /**
+     * Opens a stored file positioned at the given byte offset, so streaming readers can resume.
+     * Remote files are requested with a Range header.
+     */
+    public InputStream openStream(String publicId, long offset) throws IOException {
+        FileUpload fileUpload = fileUploadRepository.findByPublicId(publicId)
+                .filter(f -> f.getDeletedAt() == null)
+                .orElseThrow(() -> new BadRequestException("File not found"));
+
+        String url = fileUpload.getSecureUrl();
+        if (url.startsWith(LOCAL_URL_PREFIX)) {
+            InputStream in = Files.newInputStream(resolveLocalFileByRelative(url.substring(LOCAL_URL_PREFIX.length())));
+            // File channel streams seek instead of reading through the skipped bytes
+            in.skipNBytes(offset);
+            return in;
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(10000);
+        conn.setReadTimeout(60000);
+        if (offset > 0) {
+            conn.setRequestProperty("Range", "bytes=" + offset + "-");
+        }
+        int status = conn.getResponseCode();
+        if (status >= 300) {
+            conn.disconnect();
+            throw new IOException("Fetching " + publicId + " returned HTTP " + status);
+        }
+        InputStream in = conn.getInputStream();
+        if (offset > 0 && status != HttpURLConnection.HTTP_PARTIAL) {
+            // Range ignored by the server
+            in.skipNBytes(offset);
+        }
+        return in;
+    }
+
     public void deleteFile(String publicId) {
+        if (isSimulated()) {
+            simulateRemoteCall();
+            markDeleted(publicId);
+            return;
+        }
         if (cloudinary == null) {
             throw new InternalServerException("Cloudinary is not configured");
         }
@@ -246,10 +338,7 @@ public class FileUploadService {
         try {
             cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
 
-            fileUploadRepository.findByPublicId(publicId).ifPresent(fileUpload -> {
-                fileUpload.setDeletedAt(LocalDateTime.now());
-                fileUploadRepository.save(fileUpload);
-            });
+            markDeleted(publicId);
 
             log.info("File deleted successfully from Cloudinary: {}", publicId);
         } catch (IOException e) {
@@ -258,6 +347,88 @@ public class FileUploadService {
         }
     }
 
+    /**
+     * In-memory content in the shape the upload paths take
+     */
+    private record ByteArrayFile(byte[] content, String fileName, String contentType) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return fileName;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return content.length == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.write(dest.toPath(), content);
+        }
+    }
+
+    private void markDeleted(String publicId) {
+        fileUploadRepository.findByPublicId(publicId).ifPresent(fileUpload -> {
+            fileUpload.setDeletedAt(LocalDateTime.now());
+            fileUploadRepository.save(fileUpload);
+        });
+    }
+
+    private boolean isSimulated() {
+        return "simulated".equalsIgnoreCase(uploadProvider);
+    }
+
+    /**
+     * One simulated storage call, failing the way the Cloudinary path does
+     */
+    private void simulateRemoteCall() {
+        if (!providerThrottle.acquire(ProviderSimulator.UPLOAD)) {
+            long waitSeconds = Math.max(1, (providerThrottle.blockedForMs(ProviderSimulator.UPLOAD) + 999) / 1000);
+            throw new RateLimitExceededException("File storage is busy, please retry shortly", (int) waitSeconds);
+        }
+        ProviderSimulator.Call call;
+        try {
+            call = simulator.call(ProviderSimulator.UPLOAD);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("File storage call interrupted");
+        }
+        if (call.throttled()) {
+            providerThrottle.onThrottled(ProviderSimulator.UPLOAD, (long) call.retryAfterSeconds());
+            throw new RateLimitExceededException("File storage is busy, please retry shortly", call.retryAfterSeconds());
+        }
+        if (!call.ok()) {
+            throw new InternalServerException("Failed to upload file: simulated storage error");
+        }
+        providerThrottle.onSuccess(ProviderSimulator.UPLOAD);
+    }
+
     public FileUploadResponse getFileByPublicId(String publicId) {
         return fileUploadRepository.findByPublicId(publicId)
                 .map(this::toResponse)
@@ -326,6 +497,6 @@ public class FileUploadService {
     }
 
     public boolean isConfigured() {
-        return cloudinary != null;
+        return cloudinary != null || isSimulated();
     }
 }
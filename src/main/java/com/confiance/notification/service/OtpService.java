@@ -4,58 +4,60 @@ import com.confiance.common.exception.BadRequestException;
 import com.confiance.notification.dto.OtpRequest;
 import com.confiance.notification.dto.OtpResponse;
 import com.confiance.notification.dto.OtpVerifyRequest;
-import com.confiance.notification.entity.OtpLog;
 import com.confiance.notification.enums.OtpProvider;
 import com.confiance.notification.enums.OtpPurpose;
-import com.confiance.notification.repository.OtpLogRepository;
+import com.confiance.notification.ratelimit.RateLimitExceededException;
+import com.confiance.notification.service.otp.OtpAuditEvent;
+import com.confiance.notification.service.otp.OtpAuditLog;
+import com.confiance.notification.service.otp.OtpChannel;
+import com.confiance.notification.service.otp.OtpChannelRouter;
+import com.confiance.notification.service.otp.OtpCodeGenerator;
+import com.confiance.notification.service.otp.OtpRouteStats;
+import com.confiance.notification.service.otp.OtpRoutingConfig;
 import com.confiance.notification.service.otp.OtpSender;
+import com.confiance.notification.service.otp.OtpStateStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class OtpService {
 
-    private static final String OTP_KEY_PREFIX = "otp:";
-    private static final String OTP_ATTEMPTS_KEY_PREFIX = "otp_attempts:";
-
     private final Map<OtpProvider, OtpSender> otpSenders;
-    private final OtpLogRepository otpLogRepository;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final OtpAuditLog otpAuditLog;
+    private final OtpStateStore otpStateStore;
+    private final OtpCodeGenerator codeGenerator;
     private final FeatureService featureService;
+    private final OtpChannelRouter channelRouter;
+    private final OtpRouteStats routeStats;
+    private final OtpRoutingConfig routingConfig;
 
     @Value("${otp.provider:twilio}")
     private String defaultProvider;
 
-    @Value("${otp.length:6}")
-    private int otpLength;
-
     @Value("${otp.expiry-minutes:5}")
     private int expiryMinutes;
 
-    @Value("${otp.max-attempts:3}")
-    private int maxAttempts;
-
     @Autowired
-    public OtpService(List<OtpSender> senders, OtpLogRepository otpLogRepository,
-                      RedisTemplate<String, String> redisTemplate, FeatureService featureService) {
+    public OtpService(List<OtpSender> senders, OtpAuditLog otpAuditLog,
+                      OtpStateStore otpStateStore, OtpCodeGenerator codeGenerator, FeatureService featureService,
+                      OtpChannelRouter channelRouter, OtpRouteStats routeStats, OtpRoutingConfig routingConfig) {
         this.otpSenders = senders.stream()
                 .collect(Collectors.toMap(OtpSender::getProvider, sender -> sender));
-        this.otpLogRepository = otpLogRepository;
-        this.redisTemplate = redisTemplate;
+        this.otpAuditLog = otpAuditLog;
+        this.otpStateStore = otpStateStore;
+        this.codeGenerator = codeGenerator;
         this.featureService = featureService;
+        this.channelRouter = channelRouter;
+        this.routeStats = routeStats;
+        this.routingConfig = routingConfig;
         log.info("OTP service initialized with providers: {}", otpSenders.keySet());
     }
 
@@ -73,19 +75,16 @@ public class OtpService {
                     .build();
         }
 
+        if (routingConfig.isEnabled()) {
+            return sendRouted(request);
+        }
+
         // Also check SMS feature if OTP is sent via SMS
         if (!featureService.isEnabled(FeatureService.FEATURE_SMS)) {
             log.warn("SMS feature is DISABLED - using fallback for OTP: {}", identifier);
             return sendOtpFallback(request);
         }
 
-        long recentRequests = otpLogRepository.countByIdentifierAndPurposeAndCreatedAtAfter(
-                identifier, purpose, LocalDateTime.now().minusMinutes(1));
-        if (recentRequests >= 3) {
-            log.warn("Rate limit exceeded for OTP requests: {}", identifier);
-            throw new BadRequestException("Too many OTP requests. Please wait before retrying.");
-        }
-
         OtpProvider provider = OtpProvider.valueOf(defaultProvider.toUpperCase().replace("-", "_"));
         OtpSender sender = otpSenders.get(provider);
 
@@ -94,9 +93,22 @@ public class OtpService {
             return sendOtpFallback(request);
         }
 
-        OtpResponse response = sender.sendOtp(identifier, purpose, request.getCountryCode());
+        // The provider generates and checks the code; we keep limits and attempts
+        long nonce = startSend(identifier, purpose, OtpStateStore.CodeMode.PROVIDER, null, defaultProvider,
+                request.getCountryCode()).nonce();
 
-        saveOtpLog(request, response, provider);
+        OtpResponse response;
+        try {
+            response = sender.sendOtp(identifier, purpose, request.getCountryCode());
+        } catch (RuntimeException e) {
+            otpStateStore.rollbackSend(identifier, purpose, nonce);
+            throw e;
+        }
+        if (!"SENT".equals(response.getStatus())) {
+            otpStateStore.rollbackSend(identifier, purpose, nonce);
+        }
+
+        saveOtpLog(request, response.getStatus(), provider, response.getExpiresAt());
 
         return response;
     }
@@ -106,115 +118,185 @@ public class OtpService {
         OtpPurpose purpose = request.getPurpose();
         String otp = request.getOtp();
 
-        String attemptsKey = OTP_ATTEMPTS_KEY_PREFIX + identifier + ":" + purpose;
-        String attemptsStr = redisTemplate.opsForValue().get(attemptsKey);
-        int attempts = attemptsStr != null ? Integer.parseInt(attemptsStr) : 0;
-
-        if (attempts >= maxAttempts) {
-            log.warn("Max OTP attempts exceeded for: {}", identifier);
-            throw new BadRequestException("Maximum verification attempts exceeded. Please request a new OTP.");
-        }
-
         OtpProvider provider = OtpProvider.valueOf(defaultProvider.toUpperCase().replace("-", "_"));
         OtpSender sender = otpSenders.get(provider);
-
-        OtpResponse response;
-
-        if (sender != null && sender.isConfigured()) {
-            response = sender.verifyOtp(identifier, otp, purpose);
-        } else {
-            response = verifyOtpFallback(identifier, otp, purpose);
-        }
+        boolean providerVerifies = sender != null && sender.isConfigured();
+
+        // Checks expiry and attempts and, for locally generated codes, the code itself in one round trip
+        OtpStateStore.VerifyResult result = otpStateStore.verify(identifier, purpose, otp);
+
+        OtpResponse response = switch (result.outcome()) {
+            case LOCKED -> {
+                log.warn("Max OTP attempts exceeded for: {}", identifier);
+                throw new BadRequestException("Maximum verification attempts exceeded. Please request a new OTP.");
+            }
+            case NO_OTP, EXPIRED -> failed(identifier, "OTP expired or not requested. Please request a new OTP.");
+            case VERIFIED -> verified(identifier);
+            case INVALID -> failed(identifier, "Invalid OTP");
+            case RESERVED -> result.mode() == OtpStateStore.CodeMode.DERIVED
+                    ? verifyDerived(identifier, purpose, otp, result.nonce(), result.requestedAt())
+                    : verifyWithProvider(sender, providerVerifies, identifier, purpose, otp);
+        };
 
         if ("VERIFIED".equals(response.getStatus())) {
-            redisTemplate.delete(attemptsKey);
-            redisTemplate.delete(OTP_KEY_PREFIX + identifier + ":" + purpose);
-
-            Optional<OtpLog> logOpt = otpLogRepository.findTopByIdentifierAndPurposeOrderByCreatedAtDesc(identifier, purpose);
-            logOpt.ifPresent(otpLog -> {
-                otpLog.setStatus("VERIFIED");
-                otpLog.setVerifiedAt(LocalDateTime.now());
-                otpLogRepository.save(otpLog);
-            });
+            log.info("OTP verified successfully for {}", identifier);
+            recordTimeToVerify(result);
+            otpAuditLog.record(OtpAuditEvent.of(identifier, purpose, null, "VERIFIED", null, null));
         } else {
-            redisTemplate.opsForValue().increment(attemptsKey);
-            redisTemplate.expire(attemptsKey, Duration.ofMinutes(expiryMinutes));
-            response.setRemainingAttempts(maxAttempts - attempts - 1);
+            response.setRemainingAttempts(result.remainingAttempts());
         }
 
         return response;
     }
 
-    private OtpResponse sendOtpFallback(OtpRequest request) {
-        String otp = generateOtp();
-        String key = OTP_KEY_PREFIX + request.getIdentifier() + ":" + request.getPurpose();
+    private void recordTimeToVerify(OtpStateStore.VerifyResult result) {
+        if (result.requestedAt() <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // With a hedge out the code was live on several channels and any of them may have carried it
+        if (!result.hedged()) {
+            routeStats.record(result.channel(), result.countryCode(), now - result.channelSentAt());
+        }
+        routeStats.record(OtpRouteStats.ALL_CHANNELS, result.countryCode(), now - result.requestedAt());
+    }
 
-        redisTemplate.opsForValue().set(key, otp, expiryMinutes, TimeUnit.MINUTES);
+    private OtpResponse verifyDerived(String identifier, OtpPurpose purpose, String otp, long nonce, long issuedAt) {
+        if (!codeGenerator.isStateless()) {
+            return failed(identifier, "OTP expired or not requested. Please request a new OTP.");
+        }
+        if (!codeGenerator.matches(identifier, purpose, nonce, issuedAt, otp)) {
+            return failed(identifier, "Invalid OTP");
+        }
+        // The used-marker: a replay of the same code finds the OTP already verified
+        return otpStateStore.markVerified(identifier, purpose)
+                ? verified(identifier)
+                : failed(identifier, "OTP already used. Please request a new OTP.");
+    }
 
-        log.info("OTP {} generated for {} (fallback mode - NOT SENT via SMS)", otp, request.getIdentifier());
+    private OtpResponse verifyWithProvider(OtpSender sender, boolean providerVerifies, String identifier,
+                                           OtpPurpose purpose, String otp) {
+        if (!providerVerifies) {
+            return failed(identifier, "Invalid OTP");
+        }
+        OtpResponse providerResponse = sender.verifyOtp(identifier, otp, purpose);
+        if ("VERIFIED".equals(providerResponse.getStatus())) {
+            otpStateStore.markVerified(identifier, purpose);
+        }
+        return providerResponse;
+    }
+
+    private OtpStateStore.SendResult startSend(String identifier, OtpPurpose purpose, OtpStateStore.CodeMode mode,
+                                               String code, String channel, String countryCode) {
+        OtpStateStore.SendResult result = otpStateStore.startSend(identifier, purpose, mode, code, channel, countryCode);
+        switch (result.outcome()) {
+            case OK -> {
+                return result;
+            }
+            case COOLDOWN -> throw new RateLimitExceededException(
+                    "Please wait " + result.retryAfterSeconds() + " seconds before requesting another OTP",
+                    result.retryAfterSeconds());
+            case MINUTE_LIMIT -> throw new RateLimitExceededException(
+                    "Too many OTP requests. Please try again in a minute.", result.retryAfterSeconds());
+            case HOUR_LIMIT -> throw new RateLimitExceededException(
+                    "Hourly OTP limit reached. Please try again later.", result.retryAfterSeconds());
+            case DAY_LIMIT -> throw new RateLimitExceededException(
+                    "Daily OTP limit reached. Please try again tomorrow.", result.retryAfterSeconds());
+        }
+        throw new IllegalStateException("Unknown OTP send outcome " + result.outcome());
+    }
+
+    /**
+     * Our own code on the fastest channel for the identifier, hedged on the next one if it is slow
+     */
+    private OtpResponse sendRouted(OtpRequest request) {
+        List<OtpChannel> route = channelRouter.route(request.getIdentifier(), request.getCountryCode());
+        if (route.isEmpty()) {
+            log.warn("No OTP channel can reach {}, using fallback", request.getIdentifier());
+            return sendOtpFallback(request);
+        }
+
+        IssuedCode issued = issueCode(request, route.get(0).getName());
+        OtpChannel sentVia;
+        try {
+            sentVia = channelRouter.deliver(route, request, issued.nonce(), issued.code());
+        } catch (RuntimeException e) {
+            otpStateStore.rollbackSend(request.getIdentifier(), request.getPurpose(), issued.nonce());
+            throw e;
+        }
+        if (sentVia == null) {
+            // Nobody got the code: keep the previous one usable and give the user their send back
+            otpStateStore.rollbackSend(request.getIdentifier(), request.getPurpose(), issued.nonce());
+            saveOtpLog(request, "FAILED", route.get(0).getProvider(), null);
+            return OtpResponse.builder()
+                    .identifier(request.getIdentifier())
+                    .status("FAILED")
+                    .message("Failed to send OTP, please try again shortly")
+                    .build();
+        }
 
-        OtpLog otpLog = OtpLog.builder()
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(expiryMinutes);
+        saveOtpLog(request, "SENT", sentVia.getProvider(), expiresAt);
+        return OtpResponse.builder()
                 .identifier(request.getIdentifier())
-                .purpose(request.getPurpose())
-                .provider(null)
-                .status("GENERATED")
-                .userId(request.getUserId())
-                .expiresAt(LocalDateTime.now().plusMinutes(expiryMinutes))
+                .status("SENT")
+                .message("OTP sent successfully")
+                .expiresAt(expiresAt)
                 .build();
-        otpLogRepository.save(otpLog);
+    }
+
+    private record IssuedCode(String code, long nonce) {}
+
+    private IssuedCode issueCode(OtpRequest request, String channel) {
+        if (codeGenerator.isStateless()) {
+            // Only the nonce is kept; the code is derived again on verify
+            OtpStateStore.SendResult sent = startSend(request.getIdentifier(), request.getPurpose(),
+                    OtpStateStore.CodeMode.DERIVED, null, channel, request.getCountryCode());
+            String code = codeGenerator.derive(request.getIdentifier(), request.getPurpose(), sent.nonce(), sent.issuedAt());
+            return new IssuedCode(code, sent.nonce());
+        }
+        String code = codeGenerator.randomCode();
+        long nonce = startSend(request.getIdentifier(), request.getPurpose(), OtpStateStore.CodeMode.HASHED,
+                code, channel, request.getCountryCode()).nonce();
+        return new IssuedCode(code, nonce);
+    }
+
+    private OtpResponse sendOtpFallback(OtpRequest request) {
+        String otp = issueCode(request, "").code();
+
+        log.info("OTP {} generated for {} (fallback mode - NOT SENT via SMS)", otp, request.getIdentifier());
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(expiryMinutes);
+        saveOtpLog(request, "GENERATED", null, expiresAt);
 
         return OtpResponse.builder()
                 .identifier(request.getIdentifier())
                 .status("SENT")
                 .message("OTP generated (configure SMS provider for actual delivery)")
-                .expiresAt(LocalDateTime.now().plusMinutes(expiryMinutes))
+                .expiresAt(expiresAt)
                 .build();
     }
 
-    private OtpResponse verifyOtpFallback(String identifier, String otp, OtpPurpose purpose) {
-        String key = OTP_KEY_PREFIX + identifier + ":" + purpose;
-        String storedOtp = redisTemplate.opsForValue().get(key);
-
-        if (storedOtp != null && storedOtp.equals(otp)) {
-            log.info("OTP verified successfully for {} (fallback mode)", identifier);
-            return OtpResponse.builder()
-                    .identifier(identifier)
-                    .status("VERIFIED")
-                    .message("OTP verified successfully")
-                    .build();
-        } else {
-            log.warn("Invalid OTP for {} (fallback mode)", identifier);
-            return OtpResponse.builder()
-                    .identifier(identifier)
-                    .status("FAILED")
-                    .message("Invalid OTP")
-                    .build();
-        }
+    private OtpResponse verified(String identifier) {
+        return OtpResponse.builder()
+                .identifier(identifier)
+                .status("VERIFIED")
+                .message("OTP verified successfully")
+                .build();
     }
 
-    private String generateOtp() {
-        Random random = new Random();
-        StringBuilder otp = new StringBuilder();
-        for (int i = 0; i < otpLength; i++) {
-            otp.append(random.nextInt(10));
-        }
-        return otp.toString();
+    private OtpResponse failed(String identifier, String message) {
+        log.warn("OTP verification failed for {}: {}", identifier, message);
+        return OtpResponse.builder()
+                .identifier(identifier)
+                .status("FAILED")
+                .message(message)
+                .build();
     }
 
-    private void saveOtpLog(OtpRequest request, OtpResponse response, OtpProvider provider) {
-        try {
-            OtpLog otpLog = OtpLog.builder()
-                    .identifier(request.getIdentifier())
-                    .purpose(request.getPurpose())
-                    .provider(provider)
-                    .status(response.getStatus())
-                    .userId(request.getUserId())
-                    .expiresAt(response.getExpiresAt())
-                    .build();
-            otpLogRepository.save(otpLog);
-        } catch (Exception e) {
-            log.error("Error saving OTP log: {}", e.getMessage());
-        }
+    private void saveOtpLog(OtpRequest request, String status, OtpProvider provider, LocalDateTime expiresAt) {
+        otpAuditLog.record(OtpAuditEvent.of(request.getIdentifier(), request.getPurpose(), provider, status,
+                request.getUserId(), expiresAt));
     }
 
     public boolean isProviderConfigured(OtpProvider provider) {
@@ -10,10 +10,14 @@ import com.confiance.notification.dto.PaymentResponse;
 import com.confiance.notification.dto.PaymentVerifyRequest;
 import com.confiance.notification.entity.Payment;
 import com.confiance.notification.enums.PaymentStatus;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.RateLimitExceededException;
 import com.confiance.notification.repository.PaymentRepository;
+import com.confiance.notification.service.payment.PaymentGateway;
+import com.confiance.notification.service.schedule.ScheduleConfig;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.razorpay.Order;
-import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
 import com.razorpay.Utils;
 import lombok.extern.slf4j.Slf4j;
@@ -28,37 +32,48 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HexFormat;
 import java.util.Map;
 import java.util.UUID;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 @Service
 @Slf4j
 public class PaymentService {
 
-    private final RazorpayClient razorpayClient;
+    private final PaymentGateway paymentGateway;
     private final PaymentRepository paymentRepository;
     private final ObjectMapper objectMapper;
     private final EmailService emailService;
     private final FeatureService featureService;
+    private final ScheduledDeliveryService scheduledDeliveryService;
+    private final ScheduleConfig scheduleConfig;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
 
     @Autowired
-    public PaymentService(@Autowired(required = false) RazorpayClient razorpayClient,
+    public PaymentService(PaymentGateway paymentGateway,
                           PaymentRepository paymentRepository,
                           ObjectMapper objectMapper,
                           EmailService emailService,
-                          FeatureService featureService) {
-        this.razorpayClient = razorpayClient;
+                          FeatureService featureService,
+                          ScheduledDeliveryService scheduledDeliveryService,
+                          ScheduleConfig scheduleConfig,
+                          ProviderConcurrencyLimiter concurrencyLimiter) {
+        this.paymentGateway = paymentGateway;
         this.paymentRepository = paymentRepository;
         this.objectMapper = objectMapper;
         this.emailService = emailService;
         this.featureService = featureService;
+        this.scheduledDeliveryService = scheduledDeliveryService;
+        this.scheduleConfig = scheduleConfig;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     @Value("${razorpay.key-id:}")
@@ -78,7 +93,7 @@ public class PaymentService {
             throw new BadRequestException("Payment service is temporarily disabled. Please try again later.");
         }
 
-        if (razorpayClient == null) {
+        if (!paymentGateway.isConfigured()) {
             throw new InternalServerException("Payment gateway is not configured");
         }
 
@@ -98,7 +113,7 @@ public class PaymentService {
                 orderRequest.put("notes", notes);
             }
 
-            Order razorpayOrder = razorpayClient.orders.create(orderRequest);
+            Order razorpayOrder = createRazorpayOrder(orderRequest);
 
             String razorpayOrderId = razorpayOrder.get("id");
             long amountFromRazorpay = ((Number) razorpayOrder.get("amount")).longValue();
@@ -129,6 +144,8 @@ public class PaymentService {
 
             log.info("Razorpay order created successfully: {}", razorpayOrderId);
 
+            schedulePaymentReminder(savedPayment);
+
             return PaymentOrderResponse.builder()
                     .orderId(savedPayment.getOrderId())
                     .razorpayOrderId(razorpayOrderId)
@@ -147,12 +164,49 @@ public class PaymentService {
         } catch (RazorpayException e) {
             log.error("Failed to create Razorpay order: {}", e.getMessage());
             throw new InternalServerException("Failed to create payment order: " + e.getMessage());
+        } catch (RateLimitExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Unexpected error creating payment order: {}", e.getMessage());
             throw new InternalServerException("Failed to create payment order");
         }
     }
 
+    /**
+     * Order creation with an in-flight cap so a slow gateway cannot hold every request thread
+     */
+    private Order createRazorpayOrder(JSONObject orderRequest) throws RazorpayException {
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(paymentGateway.getName());
+        if (permit == null) {
+            throw new RateLimitExceededException("Payment gateway is busy, please try again shortly", 1);
+        }
+        try {
+            return paymentGateway.createOrder(orderRequest);
+        } catch (RazorpayException e) {
+            String message = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
+            if (message.contains("timeout") || message.contains("too many requests")) {
+                permit.dropped();
+            }
+            throw e;
+        } finally {
+            permit.close();
+        }
+    }
+
+    private void schedulePaymentReminder(Payment payment) {
+        ScheduleConfig.PaymentReminder reminder = scheduleConfig.getPaymentReminder();
+        if (!reminder.isEnabled() || !StringUtils.hasText(payment.getCustomerEmail())) {
+            return;
+        }
+        try {
+            scheduledDeliveryService.schedulePaymentReminder(payment.getOrderId(),
+                    Instant.now().plus(Duration.ofHours(reminder.getDelayHours())));
+        } catch (Exception e) {
+            // A missing reminder must not fail the order
+            log.warn("Could not schedule payment reminder for {}: {}", payment.getOrderId(), e.getMessage());
+        }
+    }
+
     @Transactional
     public PaymentResponse verifyPayment(PaymentVerifyRequest request) {
         Payment payment = paymentRepository.findByRazorpayOrderId(request.getRazorpayOrderId())
@@ -331,7 +385,7 @@ public class PaymentService {
 
     @Transactional
     public PaymentResponse refundPayment(String razorpayPaymentId, BigDecimal amount) {
-        if (razorpayClient == null) {
+        if (!paymentGateway.isConfigured()) {
             throw new InternalServerException("Payment gateway is not configured");
         }
 
@@ -342,7 +396,7 @@ public class PaymentService {
             JSONObject refundRequest = new JSONObject();
             refundRequest.put("amount", amount.multiply(BigDecimal.valueOf(100)).longValue());
 
-            razorpayClient.payments.refund(razorpayPaymentId, refundRequest);
+            paymentGateway.refund(razorpayPaymentId, refundRequest);
 
             payment.setStatus(PaymentStatus.REFUNDED);
             Payment savedPayment = paymentRepository.save(payment);
@@ -375,6 +429,6 @@ public class PaymentService {
     }
 
     public boolean isConfigured() {
-        return razorpayClient != null;
+        return paymentGateway.isConfigured();
     }
 }
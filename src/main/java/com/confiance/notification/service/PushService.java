@@ -0,0 +1,90 @@
+package com.confiance.notification.service;
+
+import com.confiance.notification.dto.DeviceTokenResponse;
+import com.confiance.notification.entity.UserNotification;
+import com.confiance.notification.enums.DevicePlatform;
+import com.confiance.notification.service.inbox.UnreadCounter;
+import com.confiance.notification.service.push.PushDispatcher;
+import com.confiance.notification.service.push.PushMessage;
+import com.confiance.notification.service.push.PushTokenRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Push to a user's registered devices. New in-app notifications are pushed with the unread
+ * count as the badge, so clients can update without polling the unread-count endpoint.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PushService {
+
+    private final PushTokenRegistry tokenRegistry;
+    private final PushDispatcher dispatcher;
+    private final FeatureService featureService;
+    private final UnreadCounter unreadCounter;
+
+    public DeviceTokenResponse registerDevice(Long userId, String token, DevicePlatform platform, String appVersion) {
+        return tokenRegistry.register(userId, token, platform, appVersion);
+    }
+
+    public void unregisterDevice(String token) {
+        tokenRegistry.unregister(token);
+    }
+
+    public List<DeviceTokenResponse> getDevices(Long userId) {
+        return tokenRegistry.getDevices(userId);
+    }
+
+    /**
+     * Queue a push to each of the user's devices; returns how many were queued
+     */
+    public int sendToUser(Long userId, PushMessage message) {
+        if (!featureService.isEnabled(FeatureService.FEATURE_PUSH_NOTIFICATION)) {
+            log.debug("Push feature is DISABLED - skipping push to user {}", userId);
+            return 0;
+        }
+        return enqueue(userId, tokenRegistry.devicesFor(userId), message);
+    }
+
+    public void notifyCreated(UserNotification notification) {
+        if (!featureService.isEnabled(FeatureService.FEATURE_PUSH_NOTIFICATION)) {
+            return;
+        }
+        List<PushTokenRegistry.Device> devices = tokenRegistry.devicesFor(notification.getUserId());
+        if (devices.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> data = new HashMap<>();
+        data.put("notificationId", String.valueOf(notification.getId()));
+        if (notification.getType() != null) {
+            data.put("type", notification.getType());
+        }
+        if (notification.getActionUrl() != null) {
+            data.put("actionUrl", notification.getActionUrl());
+        }
+        long unread = unreadCounter.get(notification.getUserId());
+        // A grouped row keeps its id, so its new push replaces the earlier one on the device
+        enqueue(notification.getUserId(), devices, new PushMessage(notification.getTitle(), notification.getMessage(),
+                data, "notification-" + notification.getId(), (int) Math.min(unread, Integer.MAX_VALUE)));
+    }
+
+    private int enqueue(Long userId, List<PushTokenRegistry.Device> devices, PushMessage message) {
+        int queued = 0;
+        for (PushTokenRegistry.Device device : devices) {
+            if (dispatcher.enqueue(device, message)) {
+                queued++;
+            }
+        }
+        if (queued < devices.size()) {
+            log.warn("Push queue full, dropped {} pushes to user {}", devices.size() - queued, userId);
+        }
+        return queued;
+    }
+}
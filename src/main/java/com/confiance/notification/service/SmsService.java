@@ -0,0 +1,209 @@
+package com.confiance.notification.service;
+
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.common.exception.InternalServerException;
+import com.confiance.notification.dto.SmsBulkRequest;
+import com.confiance.notification.dto.SmsRequest;
+import com.confiance.notification.dto.SmsResponse;
+import com.confiance.notification.enums.SmsProvider;
+import com.confiance.notification.service.email.DomainThrottle;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
+import com.confiance.notification.service.sms.PhoneNumbers;
+import com.confiance.notification.service.sms.SmsConfig;
+import com.confiance.notification.service.sms.SmsEncoding;
+import com.confiance.notification.service.sms.SmsMessage;
+import com.confiance.notification.service.sms.SmsSender;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Plain SMS. Bodies are rendered from a literal or an sms.templates entry, encoded in GSM-7
+ * when possible and sent through the provider named by sms.provider. Bulk sends run under the
+ * provider's bulk budget; recipients it defers are handed to the scheduler to retry.
+ */
+@Service
+@Slf4j
+public class SmsService {
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{\\s*([^}\\s]+)\\s*}}");
+
+    private final Map<SmsProvider, SmsSender> smsSenders;
+    private final SmsConfig config;
+    private final FeatureService featureService;
+    private final ScheduledDeliveryService scheduledDeliveryService;
+
+    public SmsService(List<SmsSender> senders, SmsConfig config, FeatureService featureService,
+                      ScheduledDeliveryService scheduledDeliveryService) {
+        this.smsSenders = senders.stream()
+                .collect(Collectors.toMap(SmsSender::getProvider, sender -> sender));
+        this.config = config;
+        this.featureService = featureService;
+        this.scheduledDeliveryService = scheduledDeliveryService;
+        log.info("SMS service initialized with providers: {}", smsSenders.keySet());
+    }
+
+    public SmsResponse send(SmsRequest request) {
+        if (request.getSendAt() != null && request.getSendAt().toInstant().isAfter(Instant.now())) {
+            // Render now so a bad template is rejected up front rather than when it comes due
+            render(request.getBody(), request.getTemplateName(), request.getTemplateVariables());
+            String id = scheduledDeliveryService.scheduleSms(request, request.getSendAt().toInstant());
+            log.info("SMS to {} scheduled for {}", request.getTo(), request.getSendAt());
+            return SmsResponse.builder()
+                    .messageId(id)
+                    .status(ScheduledDeliveryService.STATUS_SCHEDULED)
+                    .recipient(request.getTo())
+                    .build();
+        }
+        return sendNow(request);
+    }
+
+    public SmsResponse sendNow(SmsRequest request) {
+        return sendNow(request, false);
+    }
+
+    /**
+     * Send now; bulk sends take the provider's bulk budget, as when a deferred bulk recipient is retried
+     */
+    public SmsResponse sendNow(SmsRequest request, boolean bulk) {
+        String to = toE164(request.getTo(), request.getCountryCode());
+        if (!featureService.isEnabled(FeatureService.FEATURE_SMS)) {
+            log.warn("SMS feature is DISABLED - skipping SMS to: {}", to);
+            return skipped(to);
+        }
+        SmsEncoding.Encoded body = encode(render(request.getBody(), request.getTemplateName(),
+                request.getTemplateVariables()));
+        return sender().send(bulk ? SmsMessage.bulk(to, body) : SmsMessage.of(to, body));
+    }
+
+    /**
+     * Render per recipient and send concurrently; responses come back in recipient order
+     */
+    public List<SmsResponse> sendBulk(SmsBulkRequest request) {
+        if (request.getRecipients().size() > config.getMaxBulkRecipients()) {
+            throw new BadRequestException("At most " + config.getMaxBulkRecipients() + " recipients per request");
+        }
+        if (!featureService.isEnabled(FeatureService.FEATURE_SMS)) {
+            log.warn("SMS feature is DISABLED - skipping bulk SMS to {} recipients", request.getRecipients().size());
+            return request.getRecipients().stream()
+                    .map(recipient -> skipped(toE164(recipient.getTo(), recipient.getCountryCode())))
+                    .toList();
+        }
+
+        List<Map<String, Object>> variables = request.getRecipients().stream()
+                .map(recipient -> {
+                    Map<String, Object> merged = new HashMap<>();
+                    if (request.getTemplateVariables() != null) {
+                        merged.putAll(request.getTemplateVariables());
+                    }
+                    if (recipient.getVariables() != null) {
+                        merged.putAll(recipient.getVariables());
+                    }
+                    return merged;
+                })
+                .toList();
+        List<SmsMessage> messages = new ArrayList<>(variables.size());
+        for (int i = 0; i < variables.size(); i++) {
+            SmsBulkRequest.Recipient recipient = request.getRecipients().get(i);
+            messages.add(SmsMessage.bulk(toE164(recipient.getTo(), recipient.getCountryCode()),
+                    encode(render(request.getBody(), request.getTemplateName(), variables.get(i)))));
+        }
+
+        List<SmsResponse> responses = new ArrayList<>(sender().sendBatch(messages));
+        Instant retryAt = Instant.now().plusSeconds(config.getBulkRetryDelaySeconds());
+        for (int i = 0; i < responses.size(); i++) {
+            if (DomainThrottle.STATUS_DEFERRED.equals(responses.get(i).getStatus())) {
+                responses.set(i, scheduleRetry(request, request.getRecipients().get(i), variables.get(i), retryAt));
+            }
+        }
+        log.info("Bulk SMS: {} of {} sent, {} deferred for retry",
+                responses.stream().filter(r -> "SENT".equals(r.getStatus())).count(), responses.size(),
+                responses.stream().filter(r -> ScheduledDeliveryService.STATUS_SCHEDULED.equals(r.getStatus())).count());
+        return responses;
+    }
+
+    private String render(String body, String templateName, Map<String, Object> variables) {
+        String content = body;
+        if (StringUtils.hasText(templateName)) {
+            content = config.getTemplates().get(templateName);
+            if (content == null) {
+                throw new BadRequestException("SMS template not found: " + templateName);
+            }
+        }
+        if (!StringUtils.hasText(content)) {
+            throw new BadRequestException("Either body or templateName is required");
+        }
+        if (variables == null || variables.isEmpty()) {
+            return content;
+        }
+
+        Matcher matcher = VARIABLE_PATTERN.matcher(content);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            Object value = variables.get(matcher.group(1));
+            matcher.appendReplacement(sb, value != null ? Matcher.quoteReplacement(value.toString()) : "");
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private SmsEncoding.Encoded encode(String text) {
+        SmsEncoding.Encoded encoded = SmsEncoding.encode(text, config.isTransliterate());
+        if (encoded.segments() > config.getMaxSegments()) {
+            throw new BadRequestException("SMS body needs " + encoded.segments() + " " + encoded.charset()
+                    + " segments, more than the allowed " + config.getMaxSegments());
+        }
+        return encoded;
+    }
+
+    private SmsSender sender() {
+        SmsSender sender = smsSenders.get(SmsProvider.valueOf(config.getProvider().toUpperCase()));
+        if (sender == null || !sender.isConfigured()) {
+            throw new InternalServerException("SMS provider is not configured: " + config.getProvider());
+        }
+        return sender;
+    }
+
+    /**
+     * A recipient the provider deferred goes back through the scheduler, which keeps retrying it
+     * under the bulk budget
+     */
+    private SmsResponse scheduleRetry(SmsBulkRequest request, SmsBulkRequest.Recipient recipient,
+                                      Map<String, Object> variables, Instant retryAt) {
+        SmsRequest retry = SmsRequest.builder()
+                .to(recipient.getTo())
+                .countryCode(recipient.getCountryCode())
+                .body(request.getBody())
+                .templateName(request.getTemplateName())
+                .templateVariables(variables)
+                .build();
+        String id = scheduledDeliveryService.scheduleSms(retry, retryAt, true);
+        return SmsResponse.builder()
+                .messageId(id)
+                .status(ScheduledDeliveryService.STATUS_SCHEDULED)
+                .recipient(toE164(recipient.getTo(), recipient.getCountryCode()))
+                .build();
+    }
+
+    private String toE164(String phoneNumber, String countryCode) {
+        return PhoneNumbers.toE164(phoneNumber, countryCode, config.getDefaultCountryCode());
+    }
+
+    private SmsResponse skipped(String to) {
+        return SmsResponse.builder()
+                .status("SKIPPED")
+                .recipient(to)
+                .sentAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -5,6 +5,11 @@ import com.confiance.common.exception.ResourceNotFoundException;
 import com.confiance.notification.dto.UserNotificationResponse;
 import com.confiance.notification.entity.UserNotification;
 import com.confiance.notification.repository.UserNotificationRepository;
+import com.confiance.notification.service.digest.DigestConfig;
+import com.confiance.notification.service.inbox.UnreadCounter;
+import com.confiance.notification.service.stream.NotificationStream;
+import com.confiance.notification.service.stream.SseConnectionRegistry;
+import com.confiance.notification.service.stream.StreamConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -12,8 +17,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -21,21 +31,61 @@ import java.time.LocalDateTime;
 public class UserNotificationService {
 
     private final UserNotificationRepository notificationRepository;
+    private final DigestConfig digestConfig;
+    private final PushService pushService;
+    private final UnreadCounter unreadCounter;
+    private final NotificationStream notificationStream;
+    private final SseConnectionRegistry connectionRegistry;
+    private final StreamConfig streamConfig;
 
     public PageResponse<UserNotificationResponse> getUserNotifications(Long userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<UserNotification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+        Page<UserNotification> notifications = notificationRepository.findByUserIdOrderByLastEventAtDesc(userId, pageable);
         return buildPageResponse(notifications);
     }
 
     public PageResponse<UserNotificationResponse> getUnreadNotifications(Long userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<UserNotification> notifications = notificationRepository.findByUserIdAndIsReadOrderByCreatedAtDesc(userId, false, pageable);
+        Page<UserNotification> notifications = notificationRepository.findByUserIdAndIsReadOrderByLastEventAtDesc(userId, false, pageable);
         return buildPageResponse(notifications);
     }
 
+    /**
+     * Open a live stream for the user. It starts with any notifications after lastEventId (so a
+     * reconnect misses nothing) and the current unread count, then carries changes as they commit.
+     */
+    public SseEmitter openStream(Long userId, String lastEventId) {
+        SseEmitter emitter = connectionRegistry.open(userId);
+        for (UserNotification notification : missedSince(userId, lastEventId)) {
+            if (!connectionRegistry.send(userId, emitter, NotificationStream.notificationEvent(toResponse(notification)))) {
+                return emitter;
+            }
+        }
+        connectionRegistry.send(userId, emitter, NotificationStream.unreadCountEvent(getUnreadCount(userId)));
+        return emitter;
+    }
+
+    private List<UserNotification> missedSince(Long userId, String lastEventId) {
+        if (lastEventId == null) {
+            return List.of();
+        }
+        Pageable limit = PageRequest.of(0, streamConfig.getReplayLimit());
+        NotificationStream.EventPosition position = NotificationStream.parseEventId(lastEventId);
+        if (position != null) {
+            return notificationRepository.findEventsAfter(userId, position.lastEventAt(), position.id(), limit);
+        }
+        // Bare notification ids, from streams opened before event ids carried the event time
+        if (lastEventId.matches("\\d+")) {
+            return notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, Long.parseLong(lastEventId), limit);
+        }
+        return List.of();
+    }
+
+    /**
+     * Served from the Redis counter; the table is only counted when the counter is cold
+     */
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndIsRead(userId, false);
+        return unreadCounter.get(userId);
     }
 
     @Transactional
@@ -43,6 +93,9 @@ public class UserNotificationService {
         UserNotification notification = notificationRepository.findByIdAndUserId(notificationId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Notification", "id", notificationId));
 
+        if (!notification.isRead()) {
+            afterCommit(() -> publishUnreadCount(userId, unreadCounter.adjust(userId, -1)));
+        }
         notification.setRead(true);
         notification.setReadAt(LocalDateTime.now());
         UserNotification saved = notificationRepository.save(notification);
@@ -51,7 +104,10 @@ public class UserNotificationService {
 
     @Transactional
     public int markAllAsRead(Long userId) {
-        return notificationRepository.markAllAsRead(userId, LocalDateTime.now());
+        int updated = notificationRepository.markAllAsRead(userId, LocalDateTime.now());
+        // By the rows actually flipped, so a notification created meanwhile is still counted
+        afterCommit(() -> publishUnreadCount(userId, unreadCounter.adjust(userId, -updated)));
+        return updated;
     }
 
     @Transactional
@@ -59,6 +115,9 @@ public class UserNotificationService {
         UserNotification notification = notificationRepository.findByIdAndUserId(notificationId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Notification", "id", notificationId));
         notificationRepository.delete(notification);
+        if (!notification.isRead()) {
+            afterCommit(() -> publishUnreadCount(userId, unreadCounter.adjust(userId, -1)));
+        }
     }
 
     @Transactional
@@ -68,6 +127,25 @@ public class UserNotificationService {
 
     @Transactional
     public UserNotification createNotification(Long userId, String title, String message, String type, String actionUrl, String icon) {
+        // Chatty types fold into the user's latest unread row of the same type within the digest window
+        if (digestConfig.isCollapsibleType(type)) {
+            Optional<UserNotification> group = notificationRepository
+                    .findFirstByUserIdAndTypeAndIsReadFalseAndLastEventAtAfterOrderByLastEventAtDesc(
+                            userId, type, LocalDateTime.now().minusSeconds(digestConfig.getWindowSeconds()));
+            if (group.isPresent()) {
+                UserNotification existing = group.get();
+                existing.setGroupCount(existing.getGroupCount() + 1);
+                existing.setTitle(title);
+                existing.setMessage(message);
+                existing.setActionUrl(actionUrl);
+                existing.setIcon(icon);
+                // The row now stands for the latest event, so it sorts, groups and replays from there
+                existing.setLastEventAt(UserNotification.eventTime());
+                // Still one unread row, so the count is unchanged
+                return announceAfterCommit(notificationRepository.save(existing), false);
+            }
+        }
+
         UserNotification notification = UserNotification.builder()
                 .userId(userId)
                 .title(title)
@@ -77,7 +155,7 @@ public class UserNotificationService {
                 .icon(icon)
                 .isRead(false)
                 .build();
-        return notificationRepository.save(notification);
+        return announceAfterCommit(notificationRepository.save(notification), true);
     }
 
     @Transactional
@@ -86,6 +164,49 @@ public class UserNotificationService {
         return toResponse(createNotification(userId, title, message, type, actionUrl, icon));
     }
 
+    /**
+     * Count, stream and push once the row is visible to readers; a rolled-back notification is
+     * never announced. The count is updated first so the stream and the badge include it.
+     */
+    private UserNotification announceAfterCommit(UserNotification notification, boolean newUnread) {
+        Long userId = notification.getUserId();
+        afterCommit(() -> {
+            long unread = newUnread ? unreadCounter.adjust(userId, 1) : -1;
+            if (newUnread && unread < 0) {
+                unread = unreadCounter.get(userId);
+            }
+            notificationStream.publishNotification(toResponse(notification), unread);
+            try {
+                pushService.notifyCreated(notification);
+            } catch (Exception e) {
+                log.warn("Push for notification {} failed: {}", notification.getId(), e.getMessage());
+            }
+        });
+        return notification;
+    }
+
+    private void publishUnreadCount(Long userId, long unread) {
+        if (unread >= 0) {
+            notificationStream.publishUnreadCount(userId, unread);
+        }
+    }
+
+    /**
+     * Redis side effects run only for committed changes, so a rollback never skews the counter
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private PageResponse<UserNotificationResponse> buildPageResponse(Page<UserNotification> page) {
         return PageResponse.<UserNotificationResponse>builder()
                 .content(page.getContent().stream()
@@ -110,9 +231,11 @@ public class UserNotificationService {
                 .type(notification.getType())
                 .actionUrl(notification.getActionUrl())
                 .icon(notification.getIcon())
+                .groupCount(notification.getGroupCount())
                 .isRead(notification.isRead())
                 .readAt(notification.getReadAt())
                 .createdAt(notification.getCreatedAt())
+                .lastEventAt(notification.getLastEventAt())
                 .build();
     }
 }
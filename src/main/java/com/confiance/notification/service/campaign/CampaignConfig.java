@@ -0,0 +1,19 @@
+package com.confiance.notification.service.campaign;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "campaign")
+public class CampaignConfig {
+
+    private int defaultRatePerSecond = 50;
+    private int maxRatePerSecond = 500;
+    private int chunkSize = 50;                  // Recipients per batch send and per checkpoint
+    private int leaseSeconds = 60;               // A node that stops checkpointing loses the campaign after this
+    private long pollIntervalMs = 5000;
+    private int maxConcurrentCampaigns = 2;      // Campaigns streamed at once per node
+    private int maxLineBytes = 64 * 1024;        // Longer recipient lines are skipped
+}
@@ -0,0 +1,328 @@
+package com.confiance.notification.service.campaign;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.confiance.notification.entity.EmailCampaign;
+import com.confiance.notification.enums.CampaignStatus;
+import com.confiance.notification.enums.EmailPriority;
+import com.confiance.notification.enums.RecipientFileFormat;
+import com.confiance.notification.repository.EmailCampaignRepository;
+import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.FileUploadService;
+import com.confiance.notification.service.email.DomainThrottle;
+import com.confiance.notification.service.email.EmailDispatcher;
+import com.confiance.notification.service.email.EmailSender;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * Streams campaign recipient files through the email pipeline. Each chunk is sent under the
+ * bulk lane's budget and the recipient domains' throttles, then checkpointed by byte offset
+ * together with the counters, so a restarted node resumes at the first unsent line. Per-line dedup keys stop the chunk that was in
+ * flight during a crash from going out twice.
+ */
+@Component
+@Slf4j
+public class CampaignRunner {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final EmailCampaignRepository campaignRepository;
+    private final FileUploadService fileUploadService;
+    private final EmailDispatcher emailDispatcher;
+    private final ObjectMapper objectMapper;
+    private final CampaignConfig config;
+    private final Executor executor;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    public CampaignRunner(EmailCampaignRepository campaignRepository, FileUploadService fileUploadService,
+                          EmailDispatcher emailDispatcher, ObjectMapper objectMapper, CampaignConfig config,
+                          @Qualifier("campaignExecutor") Executor executor) {
+        this.campaignRepository = campaignRepository;
+        this.fileUploadService = fileUploadService;
+        this.emailDispatcher = emailDispatcher;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.executor = executor;
+    }
+
+    private record Recipient(String email, Map<String, Object> fields) {}
+
+    /**
+     * Outcome counts for one chunk
+     */
+    private static class Tally {
+        long processed, sent, failed, suppressed, deferred, skipped;
+
+        void add(EmailResponse response) {
+            String status = response != null ? response.getStatus() : null;
+            if ("SENT".equals(status)) {
+                sent++;
+            } else if (EmailService.STATUS_SUPPRESSED.equals(status)) {
+                suppressed++;
+            } else if (DomainThrottle.STATUS_DEFERRED.equals(status) || EmailSender.STATUS_THROTTLED.equals(status)) {
+                deferred++;
+            } else if ("FAILED".equals(status) || EmailSender.STATUS_REJECTED.equals(status)
+                    || EmailService.STATUS_DEAD_LETTER.equals(status)) {
+                failed++;
+            } else {
+                skipped++;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${campaign.poll-interval-ms:5000}")
+    public void claimRunnable() {
+        if (stopping) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (Long id : campaignRepository.findClaimable(CampaignStatus.RUNNING, now)) {
+                if (active.size() >= config.getMaxConcurrentCampaigns()) {
+                    return;
+                }
+                if (active.contains(id)
+                        || campaignRepository.claimLease(id, CampaignStatus.RUNNING, nodeId, now, leaseUntil()) == 0) {
+                    continue;
+                }
+                active.add(id);
+                try {
+                    executor.execute(() -> {
+                        try {
+                            run(id);
+                        } finally {
+                            active.remove(id);
+                        }
+                    });
+                } catch (TaskRejectedException e) {
+                    active.remove(id);
+                    campaignRepository.releaseLease(id, nodeId);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Campaign claim failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Running campaigns stop after their current chunk and release the lease
+        stopping = true;
+    }
+
+    private void run(Long campaignId) {
+        EmailCampaign campaign = campaignRepository.findById(campaignId).orElse(null);
+        if (campaign == null) {
+            return;
+        }
+
+        Map<String, Object> sharedVariables = sharedVariables(campaign);
+        int rate = Math.min(campaign.getRatePerSecond() != null ? campaign.getRatePerSecond() : config.getDefaultRatePerSecond(),
+                config.getMaxRatePerSecond());
+        Bucket bucket = Bucket.builder()
+                .addLimit(Bandwidth.classic(rate, Refill.greedy(rate, Duration.ofSeconds(1))))
+                .build();
+        // Keep each chunk to about a second of budget so the lease is renewed well within its term
+        int chunkSize = Math.max(1, Math.min(config.getChunkSize(), rate));
+
+        log.info("Streaming campaign {} from offset {}", campaignId, campaign.getCheckpointOffset());
+        try (InputStream in = fileUploadService.openStream(campaign.getRecipientFileId(), campaign.getCheckpointOffset());
+             RecipientLineReader reader = new RecipientLineReader(in, campaign.getCheckpointOffset(), config.getMaxLineBytes())) {
+
+            String[] header = null;
+            String newHeader = null;
+            if (campaign.getFileFormat() == RecipientFileFormat.CSV) {
+                String headerLine = campaign.getCsvHeader();
+                if (headerLine == null) {
+                    headerLine = reader.readLine();
+                    newHeader = headerLine;
+                }
+                header = headerLine != null ? parseHeader(headerLine) : new String[0];
+            }
+
+            while (!stopping) {
+                List<EmailDispatcher.QueuedEmail> chunk = new ArrayList<>(chunkSize);
+                Tally tally = new Tally();
+                String line = null;
+                while (tally.processed < chunkSize && (line = reader.readLine()) != null) {
+                    long lineOffset = reader.offset();
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    tally.processed++;
+                    Recipient recipient = reader.truncated() ? null : parse(campaign.getFileFormat(), line, header);
+                    if (recipient == null) {
+                        tally.skipped++;
+                        continue;
+                    }
+                    chunk.add(new EmailDispatcher.QueuedEmail(
+                            toRequest(campaign, recipient, sharedVariables, lineOffset),
+                            campaign.getCreatedBy(), System.currentTimeMillis()));
+                }
+
+                if (!chunk.isEmpty()) {
+                    bucket.asBlocking().consume(chunk.size());
+                    // Shares the bulk lane's rate and each domain's throttle with queued mail;
+                    // half the lease bounds the wait so the checkpoint still renews it
+                    emailDispatcher.deliverThrottled(EmailPriority.BULK, chunk, config.getLeaseSeconds() * 500L)
+                            .forEach(tally::add);
+                }
+
+                boolean renewed = campaignRepository.checkpoint(campaignId, nodeId, CampaignStatus.RUNNING,
+                        reader.offset(), newHeader, tally.processed, tally.sent, tally.failed, tally.suppressed,
+                        tally.deferred, tally.skipped, leaseUntil(), LocalDateTime.now()) > 0;
+                newHeader = null;
+                if (!renewed) {
+                    log.info("Campaign {} stopped at offset {} (paused, cancelled or lease lost)", campaignId, reader.offset());
+                    campaignRepository.releaseLease(campaignId, nodeId);
+                    return;
+                }
+                if (line == null) {
+                    campaignRepository.finish(campaignId, nodeId, CampaignStatus.RUNNING, CampaignStatus.COMPLETED,
+                            null, LocalDateTime.now());
+                    log.info("Campaign {} completed", campaignId);
+                    return;
+                }
+            }
+            campaignRepository.releaseLease(campaignId, nodeId);
+
+        } catch (IOException e) {
+            // Picked up again from the last checkpoint on a later poll
+            log.warn("Campaign {} interrupted reading recipients: {}", campaignId, e.getMessage());
+            campaignRepository.releaseLease(campaignId, nodeId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            campaignRepository.releaseLease(campaignId, nodeId);
+        } catch (Exception e) {
+            log.error("Campaign {} failed: {}", campaignId, e.getMessage(), e);
+            String error = e.getMessage() != null && e.getMessage().length() > 500 ? e.getMessage().substring(0, 500) : e.getMessage();
+            campaignRepository.finish(campaignId, nodeId, CampaignStatus.RUNNING, CampaignStatus.FAILED,
+                    error, LocalDateTime.now());
+        }
+    }
+
+    private EmailRequest toRequest(EmailCampaign campaign, Recipient recipient,
+                                   Map<String, Object> sharedVariables, long lineOffset) {
+        Map<String, Object> variables = new HashMap<>(sharedVariables);
+        variables.putAll(recipient.fields());
+        return EmailRequest.builder()
+                .to(recipient.email())
+                .subject(campaign.getSubject())
+                .templateName(campaign.getTemplateName())
+                .body(campaign.getBody())
+                .isHtml(campaign.isHtml())
+                .templateVariables(variables)
+                .category(campaign.getCategory())
+                .priority(EmailPriority.BULK)
+                .dedupKey("campaign:" + campaign.getId() + ":" + lineOffset)
+                .build();
+    }
+
+    /**
+     * Recipient from one line, or null when the line has no usable email
+     */
+    private Recipient parse(RecipientFileFormat format, String line, String[] header) {
+        Map<String, Object> fields = new HashMap<>();
+        try {
+            if (format == RecipientFileFormat.NDJSON) {
+                fields.putAll(objectMapper.readValue(line, MAP_TYPE));
+            } else {
+                List<String> values = parseCsvLine(line);
+                for (int i = 0; i < header.length && i < values.size(); i++) {
+                    fields.put(header[i], values.get(i));
+                }
+            }
+        } catch (Exception e) {
+            return null;
+        }
+
+        Object email = fields.remove("email");
+        if (email == null || !EMAIL_PATTERN.matcher(email.toString().trim()).matches()) {
+            return null;
+        }
+        return new Recipient(email.toString().trim(), fields);
+    }
+
+    private String[] parseHeader(String line) {
+        String cleaned = line.startsWith("\uFEFF") ? line.substring(1) : line;
+        return parseCsvLine(cleaned).stream().map(h -> h.trim().equalsIgnoreCase("email") ? "email" : h.trim())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * RFC 4180 fields within one line; quoted fields may contain commas and doubled quotes
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private Map<String, Object> sharedVariables(EmailCampaign campaign) {
+        if (!StringUtils.hasText(campaign.getTemplateVariables())) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(campaign.getTemplateVariables(), MAP_TYPE);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable template variables on campaign {}", campaign.getId());
+            return Map.of();
+        }
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plusSeconds(config.getLeaseSeconds());
+    }
+}
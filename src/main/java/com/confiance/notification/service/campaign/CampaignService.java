@@ -0,0 +1,193 @@
+package com.confiance.notification.service.campaign;
+
+import com.confiance.common.dto.PageResponse;
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.common.exception.ResourceNotFoundException;
+import com.confiance.notification.dto.CampaignRequest;
+import com.confiance.notification.dto.CampaignResponse;
+import com.confiance.notification.dto.FileUploadResponse;
+import com.confiance.notification.entity.EmailCampaign;
+import com.confiance.notification.enums.CampaignStatus;
+import com.confiance.notification.enums.RecipientFileFormat;
+import com.confiance.notification.repository.EmailCampaignRepository;
+import com.confiance.notification.service.FileUploadService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CampaignService {
+
+    public static final String FILE_ENTITY_TYPE = "EMAIL_CAMPAIGN";
+
+    private final EmailCampaignRepository campaignRepository;
+    private final FileUploadService fileUploadService;
+    private final CampaignConfig config;
+    private final ObjectMapper objectMapper;
+
+    public CampaignResponse create(CampaignRequest request) {
+        if (!StringUtils.hasText(request.getTemplateName()) && !StringUtils.hasText(request.getBody())) {
+            throw new BadRequestException("Either templateName or body is required");
+        }
+        validateRate(request.getRatePerSecond());
+
+        EmailCampaign campaign = EmailCampaign.builder()
+                .name(request.getName())
+                .subject(request.getSubject())
+                .templateName(request.getTemplateName())
+                .body(request.getBody())
+                .isHtml(request.isHtml() || StringUtils.hasText(request.getTemplateName()))
+                .category(request.getCategory())
+                .templateVariables(writeVariables(request))
+                .ratePerSecond(request.getRatePerSecond() != null ? request.getRatePerSecond() : config.getDefaultRatePerSecond())
+                .status(CampaignStatus.DRAFT)
+                .createdBy(request.getCreatedBy())
+                .build();
+
+        if (StringUtils.hasText(request.getRecipientFileId())) {
+            FileUploadResponse file = fileUploadService.getFileByPublicId(request.getRecipientFileId());
+            campaign.setRecipientFileId(file.getPublicId());
+            campaign.setFileFormat(formatOf(file.getOriginalFileName()));
+        }
+
+        EmailCampaign saved = campaignRepository.save(campaign);
+        log.info("Created campaign {} ({})", saved.getId(), saved.getName());
+        return toResponse(saved);
+    }
+
+    /**
+     * Store the recipient list with the regular file storage and attach it to a draft campaign
+     */
+    public CampaignResponse uploadRecipients(Long id, MultipartFile file, Long userId) {
+        EmailCampaign campaign = getCampaign(id);
+        if (campaign.getStatus() != CampaignStatus.DRAFT) {
+            throw new BadRequestException("Recipients can only be changed while the campaign is a draft");
+        }
+        RecipientFileFormat format = formatOf(file.getOriginalFilename());
+
+        FileUploadResponse upload = fileUploadService.uploadFile(file, userId, "campaigns", FILE_ENTITY_TYPE, id);
+        campaign.setRecipientFileId(upload.getPublicId());
+        campaign.setFileFormat(format);
+        campaign.setCsvHeader(null);
+        campaign.setCheckpointOffset(0);
+        return toResponse(campaignRepository.save(campaign));
+    }
+
+    public CampaignResponse start(Long id) {
+        EmailCampaign campaign = getCampaign(id);
+        if (campaign.getRecipientFileId() == null) {
+            throw new BadRequestException("Upload a recipient file before starting the campaign");
+        }
+        // The runner on some node picks it up on its next poll and resumes from the checkpoint
+        transition(id, List.of(CampaignStatus.DRAFT, CampaignStatus.PAUSED), CampaignStatus.RUNNING);
+        return getById(id);
+    }
+
+    public CampaignResponse pause(Long id) {
+        transition(id, List.of(CampaignStatus.RUNNING), CampaignStatus.PAUSED);
+        return getById(id);
+    }
+
+    public CampaignResponse cancel(Long id) {
+        transition(id, List.of(CampaignStatus.DRAFT, CampaignStatus.RUNNING, CampaignStatus.PAUSED), CampaignStatus.CANCELLED);
+        return getById(id);
+    }
+
+    public CampaignResponse getById(Long id) {
+        return toResponse(getCampaign(id));
+    }
+
+    public PageResponse<CampaignResponse> getCampaigns(int page, int size) {
+        Page<EmailCampaign> campaigns = campaignRepository.findAll(
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")));
+        return PageResponse.<CampaignResponse>builder()
+                .content(campaigns.getContent().stream()
+                        .map(this::toResponse)
+                        .toList())
+                .pageNumber(campaigns.getNumber())
+                .pageSize(campaigns.getSize())
+                .totalElements(campaigns.getTotalElements())
+                .totalPages(campaigns.getTotalPages())
+                .last(campaigns.isLast())
+                .build();
+    }
+
+    private void transition(Long id, List<CampaignStatus> from, CampaignStatus to) {
+        EmailCampaign campaign = getCampaign(id);
+        if (campaignRepository.transition(id, from, to, LocalDateTime.now()) == 0) {
+            throw new BadRequestException("Campaign " + id + " cannot move from " + campaign.getStatus() + " to " + to);
+        }
+        log.info("Campaign {} is now {}", id, to);
+    }
+
+    private EmailCampaign getCampaign(Long id) {
+        return campaignRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("EmailCampaign", "id", id));
+    }
+
+    private RecipientFileFormat formatOf(String fileName) {
+        String lower = fileName != null ? fileName.toLowerCase() : "";
+        if (lower.endsWith(".csv")) {
+            return RecipientFileFormat.CSV;
+        }
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+            return RecipientFileFormat.NDJSON;
+        }
+        throw new BadRequestException("Recipient file must be .csv, .ndjson or .jsonl");
+    }
+
+    private void validateRate(Integer ratePerSecond) {
+        if (ratePerSecond != null && ratePerSecond > config.getMaxRatePerSecond()) {
+            throw new BadRequestException("Rate must be at most " + config.getMaxRatePerSecond() + " per second");
+        }
+    }
+
+    private String writeVariables(CampaignRequest request) {
+        if (request.getTemplateVariables() == null || request.getTemplateVariables().isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(request.getTemplateVariables());
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Invalid template variables");
+        }
+    }
+
+    private CampaignResponse toResponse(EmailCampaign campaign) {
+        return CampaignResponse.builder()
+                .id(campaign.getId())
+                .name(campaign.getName())
+                .subject(campaign.getSubject())
+                .templateName(campaign.getTemplateName())
+                .category(campaign.getCategory())
+                .recipientFileId(campaign.getRecipientFileId())
+                .fileFormat(campaign.getFileFormat() != null ? campaign.getFileFormat().name() : null)
+                .status(campaign.getStatus().name())
+                .ratePerSecond(campaign.getRatePerSecond())
+                .checkpointOffset(campaign.getCheckpointOffset())
+                .processedCount(campaign.getProcessedCount())
+                .sentCount(campaign.getSentCount())
+                .failedCount(campaign.getFailedCount())
+                .suppressedCount(campaign.getSuppressedCount())
+                .deferredCount(campaign.getDeferredCount())
+                .skippedCount(campaign.getSkippedCount())
+                .lastError(campaign.getLastError())
+                .startedAt(campaign.getStartedAt())
+                .completedAt(campaign.getCompletedAt())
+                .createdAt(campaign.getCreatedAt())
+                .updatedAt(campaign.getUpdatedAt())
+                .build();
+    }
+}
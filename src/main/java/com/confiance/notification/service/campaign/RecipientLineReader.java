@@ -0,0 +1,74 @@
+package com.confiance.notification.service.campaign;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a recipient file one line at a time, tracking the byte offset of the next line
+ * so progress can be checkpointed and resumed. Memory is bounded by the longest line kept.
+ */
+class RecipientLineReader implements Closeable {
+
+    private final InputStream in;
+    private final int maxLineBytes;
+    private final ByteArrayOutputStream line;
+    private long offset;
+    private boolean truncated;
+
+    RecipientLineReader(InputStream in, long startOffset, int maxLineBytes) {
+        this.in = new BufferedInputStream(in, 64 * 1024);
+        this.offset = startOffset;
+        this.maxLineBytes = maxLineBytes;
+        this.line = new ByteArrayOutputStream(256);
+    }
+
+    /**
+     * Next line without its terminator, or null at end of file
+     */
+    String readLine() throws IOException {
+        line.reset();
+        truncated = false;
+        int b;
+        boolean any = false;
+        while ((b = in.read()) != -1) {
+            offset++;
+            any = true;
+            if (b == '\n') {
+                break;
+            }
+            if (line.size() < maxLineBytes) {
+                line.write(b);
+            } else {
+                truncated = true;
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * Whether the last line exceeded the limit and was cut short
+     */
+    boolean truncated() {
+        return truncated;
+    }
+
+    /**
+     * Byte offset of the next unread line
+     */
+    long offset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
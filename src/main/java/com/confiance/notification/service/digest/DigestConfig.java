@@ -0,0 +1,39 @@
+package com.confiance.notification.service.digest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "digest")
+public class DigestConfig {
+
+    // Opt-in: both email digests and row collapsing change what users receive
+    private boolean enabled = false;
+
+    // Email categories (or template codes) that are buffered into a digest
+    private List<String> emailCategories = new ArrayList<>(List.of("trade-alert", "recommendation"));
+
+    // UserNotification types whose unread rows are collapsed into one
+    private List<String> notificationTypes = new ArrayList<>(List.of("TRADE", "RECOMMENDATION"));
+
+    private int windowSeconds = 900;             // How long events are buffered before the digest goes out
+    private int maxItems = 20;                   // Items listed in one digest; the rest are only counted
+    private String templateCode = "digest";
+    private long flushIntervalMs = 30000;
+    private int processingLeaseSeconds = 300;    // A taken buffer not sent within this is put back
+
+    public boolean isDigestCategory(String category) {
+        return enabled && category != null
+                && emailCategories.stream().anyMatch(c -> c.equalsIgnoreCase(category));
+    }
+
+    public boolean isCollapsibleType(String type) {
+        return enabled && type != null
+                && notificationTypes.stream().anyMatch(t -> t.equalsIgnoreCase(type));
+    }
+}
@@ -0,0 +1,296 @@
+package com.confiance.notification.service.digest;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.EmailTemplateService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesces high-frequency emails per (user, category) into one digest.
+ * Events are buffered in a Redis list; a sorted set holds the time each
+ * buffer is due, and the flush job sends one email per due buffer.
+ */
+@Service
+@Slf4j
+public class EmailDigestService {
+
+    public static final String STATUS_BUFFERED = "BUFFERED";
+
+    private static final String KEY_PREFIX = "digest:email:";
+    private static final String DUE_KEY = "digest:email:due";
+    private static final String PROCESSING_KEY = "digest:email:processing";
+    private static final int FLUSH_BATCH = 100;
+    private static final int SUMMARY_LENGTH = 200;
+
+    // Append the event, keep the newest maxItems, count every event and schedule the flush once per window
+    private static final DefaultRedisScript<Long> OFFER_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('RPUSH', KEYS[1], ARGV[1])
+            redis.call('LTRIM', KEYS[1], -tonumber(ARGV[2]), -1)
+            local n = redis.call('INCR', KEYS[2])
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            redis.call('EXPIRE', KEYS[2], ARGV[5])
+            redis.call('ZADD', KEYS[3], 'NX', ARGV[3], ARGV[4])
+            return n
+            """, Long.class);
+
+    // Claim a due buffer and move it to a processing key under a lease; returns nil if another node
+    // already took it, and puts the member back when an earlier attempt's lease is still unresolved
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TAKE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('ZREM', KEYS[1], ARGV[1]) == 0 then return nil end
+            if redis.call('EXISTS', KEYS[4]) == 1 then
+              redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+              return nil
+            end
+            if redis.call('EXISTS', KEYS[2]) == 0 then return nil end
+            redis.call('RENAME', KEYS[2], KEYS[4])
+            local n = redis.call('GET', KEYS[3]) or '0'
+            redis.call('DEL', KEYS[3])
+            redis.call('SET', KEYS[5], n)
+            redis.call('ZADD', KEYS[6], ARGV[2], ARGV[1])
+            local items = redis.call('LRANGE', KEYS[4], 0, -1)
+            table.insert(items, 1, n)
+            return items
+            """, List.class);
+
+    // The digest went out: drop the processing copy
+    private static final DefaultRedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[1], KEYS[2])
+            return redis.call('ZREM', KEYS[3], ARGV[1])
+            """, Long.class);
+
+    // Put a taken buffer back ahead of anything buffered since, and schedule it again.
+    // ARGV: member, dueAt, maxItems, ttlSeconds. Returns the number of events restored
+    private static final DefaultRedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('ZREM', KEYS[6], ARGV[1]) == 0 then return 0 end
+            local items = redis.call('LRANGE', KEYS[4], 0, -1)
+            for i = #items, 1, -1 do
+              redis.call('LPUSH', KEYS[2], items[i])
+            end
+            redis.call('LTRIM', KEYS[2], -tonumber(ARGV[3]), -1)
+            redis.call('INCRBY', KEYS[3], tonumber(redis.call('GET', KEYS[5]) or '0'))
+            redis.call('DEL', KEYS[4], KEYS[5])
+            redis.call('EXPIRE', KEYS[2], ARGV[4])
+            redis.call('EXPIRE', KEYS[3], ARGV[4])
+            redis.call('ZADD', KEYS[1], 'NX', ARGV[2], ARGV[1])
+            return #items
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final DigestConfig config;
+    private final EmailService emailService;
+    private final EmailTemplateService emailTemplateService;
+
+    public EmailDigestService(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper,
+                              DigestConfig config, @Lazy EmailService emailService,
+                              EmailTemplateService emailTemplateService) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.emailService = emailService;
+        this.emailTemplateService = emailTemplateService;
+    }
+
+    /**
+     * Category used for coalescing: the explicit category, else the template code
+     */
+    public static String categoryOf(EmailRequest request) {
+        return request.getCategory() != null ? request.getCategory() : request.getTemplateName();
+    }
+
+    /**
+     * Whether the email's category is digested, so offer would buffer it
+     */
+    public boolean accepts(EmailRequest request) {
+        return config.isDigestCategory(categoryOf(request)) && !hasInlineAttachments(request);
+    }
+
+    /**
+     * Buffer the email if its category is digested. Returns false when the caller should send it now.
+     */
+    public boolean offer(EmailRequest request, Long userId) {
+        if (!accepts(request)) {
+            return false;
+        }
+
+        String category = categoryOf(request);
+        String member = (userId != null ? "u" + userId : request.getTo().toLowerCase()) + "|" + category.toLowerCase();
+        long dueAt = System.currentTimeMillis() + config.getWindowSeconds() * 1000L;
+        try {
+            String event = objectMapper.writeValueAsString(new DigestEvent(userId, request));
+            redisTemplate.execute(OFFER_SCRIPT,
+                    List.of(KEY_PREFIX + member, KEY_PREFIX + member + ":count", DUE_KEY),
+                    event,
+                    String.valueOf(config.getMaxItems()),
+                    String.valueOf(dueAt),
+                    member,
+                    String.valueOf(config.getWindowSeconds() * 4L));
+            return true;
+        } catch (JsonProcessingException e) {
+            log.warn("Could not buffer email for digest: {}", e.getMessage());
+            return false;
+        } catch (Exception e) {
+            // Without Redis the email simply goes out on its own
+            log.warn("Digest buffer unavailable, sending directly: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${digest.flush-interval-ms:30000}")
+    public void flushDue() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            // Buffers taken by a node that died before sending go back into the queue
+            Set<String> expired = redisTemplate.opsForZSet().rangeByScore(PROCESSING_KEY, 0, now, 0, FLUSH_BATCH);
+            if (expired != null) {
+                expired.forEach(member -> restore(member, now));
+            }
+            Set<String> due = redisTemplate.opsForZSet().rangeByScore(DUE_KEY, 0, now, 0, FLUSH_BATCH);
+            if (due == null) {
+                return;
+            }
+            for (String member : due) {
+                flush(member);
+            }
+        } catch (Exception e) {
+            log.error("Digest flush failed: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void flush(String member) {
+        long leaseUntil = System.currentTimeMillis() + config.getProcessingLeaseSeconds() * 1000L;
+        List<String> taken = redisTemplate.execute(TAKE_SCRIPT, keysFor(member), member, String.valueOf(leaseUntil));
+        if (taken == null || taken.size() < 2) {
+            return;
+        }
+        try {
+            send(member, taken);
+        } catch (Exception e) {
+            // The events stay buffered and go out with the next window
+            log.warn("Digest for {} failed, re-buffering: {}", member, e.getMessage());
+            restore(member, System.currentTimeMillis() + config.getWindowSeconds() * 1000L);
+            return;
+        }
+        redisTemplate.execute(ACK_SCRIPT,
+                List.of(KEY_PREFIX + member + ":processing", KEY_PREFIX + member + ":processing:count", PROCESSING_KEY),
+                member);
+    }
+
+    private void restore(String member, long dueAt) {
+        redisTemplate.execute(RESTORE_SCRIPT, keysFor(member), member, String.valueOf(dueAt),
+                String.valueOf(config.getMaxItems()), String.valueOf(config.getWindowSeconds() * 4L));
+    }
+
+    private static List<String> keysFor(String member) {
+        return List.of(DUE_KEY, KEY_PREFIX + member, KEY_PREFIX + member + ":count",
+                KEY_PREFIX + member + ":processing", KEY_PREFIX + member + ":processing:count", PROCESSING_KEY);
+    }
+
+    /**
+     * Send the taken events as one digest, or as the original email when there was only one.
+     * A returned failure is already recorded for retry; only a thrown one re-buffers the events
+     */
+    private void send(String member, List<String> taken) {
+
+        int total = Integer.parseInt(taken.get(0));
+        List<DigestEvent> events = new ArrayList<>();
+        Set<String> dedupKeys = new HashSet<>();
+        for (String json : taken.subList(1, taken.size())) {
+            try {
+                DigestEvent event = objectMapper.readValue(json, DigestEvent.class);
+                // A caller retrying with the same dedupKey is listed once
+                String dedupKey = event.request().getDedupKey();
+                if (dedupKey == null || dedupKeys.add(dedupKey)) {
+                    events.add(event);
+                } else {
+                    total--;
+                }
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping unreadable digest event for {}: {}", member, e.getMessage());
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        DigestEvent latest = events.get(events.size() - 1);
+        if (total <= 1) {
+            // Nothing to coalesce; send the original email
+            EmailRequest original = latest.request();
+            original.setCategory(null);
+            // Its key was claimed when it was buffered; keeping it would replay that claim
+            original.setDedupKey(null);
+            emailService.sendImmediately(original, latest.userId());
+            return;
+        }
+
+        emailService.sendImmediately(buildDigest(latest.request(), categoryOf(latest.request()), events, total),
+                latest.userId());
+        log.info("Sent digest of {} emails for {}", total, member);
+    }
+
+    private EmailRequest buildDigest(EmailRequest latest, String category, List<DigestEvent> events, int total) {
+        StringBuilder items = new StringBuilder();
+        for (DigestEvent event : events) {
+            items.append("<li><strong>").append(HtmlUtils.htmlEscape(event.request().getSubject())).append("</strong>");
+            String summary = summarize(event.request());
+            if (!summary.isEmpty()) {
+                items.append("<br>").append(HtmlUtils.htmlEscape(summary));
+            }
+            items.append("</li>");
+        }
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("count", total);
+        variables.put("categoryLabel", HtmlUtils.htmlEscape(category.replace('-', ' ')));
+        variables.put("windowMinutes", Math.max(1, config.getWindowSeconds() / 60));
+        variables.put("itemsHtml", items.toString());
+        variables.put("moreText", total > events.size() ? "and " + (total - events.size()) + " more" : "");
+
+        EmailTemplateService.ProcessedTemplate digest =
+                emailTemplateService.processEmailTemplate(config.getTemplateCode(), variables);
+
+        return EmailRequest.builder()
+                .to(latest.getTo())
+                .subject(digest.getSubject())
+                .body(digest.getHtmlContent())
+                .isHtml(true)
+                .build();
+    }
+
+    // Plain-text preview of a non-templated body
+    private String summarize(EmailRequest request) {
+        if (request.getBody() == null || request.getTemplateName() != null) {
+            return "";
+        }
+        String text = request.getBody().replaceAll("(?s)<[^>]*>", " ").replaceAll("\\s+", " ").trim();
+        return text.length() > SUMMARY_LENGTH ? text.substring(0, SUMMARY_LENGTH) + "…" : text;
+    }
+
+    private boolean hasInlineAttachments(EmailRequest request) {
+        return request.getAttachments() != null
+                && request.getAttachments().stream().anyMatch(att -> att.getContent() != null);
+    }
+
+    record DigestEvent(Long userId, EmailRequest request) {}
+}
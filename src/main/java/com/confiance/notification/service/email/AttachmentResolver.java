@@ -0,0 +1,256 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.entity.FileUpload;
+import com.confiance.notification.repository.FileUploadRepository;
+import com.confiance.notification.service.FileUploadService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns attachment references into streamable sources so a send never holds
+ * a whole file in memory. Local uploads are read straight from disk; remote
+ * files are spooled to a temp file once and shared through a small LRU cache.
+ * A spooled file is reference counted and only deleted once it has left the
+ * cache and every send holding it has closed its {@link Attachments}.
+ */
+@Component
+@Slf4j
+public class AttachmentResolver {
+
+    private static final String LOCAL_URL_PREFIX = "/api/v1/files/local/";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final FileUploadRepository fileUploadRepository;
+    private final FileUploadService fileUploadService;
+    private final EmailAttachmentConfig config;
+    private final Cache<String, SpooledFile> spooled;
+
+    public AttachmentResolver(FileUploadRepository fileUploadRepository, FileUploadService fileUploadService,
+                              EmailAttachmentConfig config) {
+        this.fileUploadRepository = fileUploadRepository;
+        this.fileUploadService = fileUploadService;
+        this.config = config;
+        this.spooled = CacheBuilder.newBuilder()
+                .maximumWeight(config.getCacheMaxBytes())
+                .weigher((String url, SpooledFile file) -> (int) Math.min(sizeOf(file.path()), Integer.MAX_VALUE))
+                .expireAfterAccess(config.getCacheExpireMinutes(), TimeUnit.MINUTES)
+                .removalListener((RemovalListener<String, SpooledFile>) removal -> removal.getValue().release())
+                .build();
+    }
+
+    public record ResolvedAttachment(String fileName, String contentType, InputStreamSource source) {}
+
+    /**
+     * The attachments of one send. Spooled files stay on disk until it is closed, so close it
+     * only once the message has been written out.
+     */
+    public static final class Attachments implements AutoCloseable, Iterable<ResolvedAttachment> {
+        private final List<ResolvedAttachment> resolved = new ArrayList<>();
+        private final List<SpooledFile> leases = new ArrayList<>();
+
+        public List<ResolvedAttachment> list() {
+            return resolved;
+        }
+
+        @Override
+        public Iterator<ResolvedAttachment> iterator() {
+            return resolved.iterator();
+        }
+
+        @Override
+        public void close() {
+            leases.forEach(SpooledFile::release);
+            leases.clear();
+        }
+    }
+
+    public Attachments resolveAll(List<EmailRequest.EmailAttachment> attachments) {
+        Attachments result = new Attachments();
+        try {
+            if (attachments != null) {
+                for (EmailRequest.EmailAttachment attachment : attachments) {
+                    result.resolved.add(resolve(attachment, result.leases));
+                }
+            }
+        } catch (RuntimeException e) {
+            result.close();
+            throw e;
+        }
+        return result;
+    }
+
+    private ResolvedAttachment resolve(EmailRequest.EmailAttachment attachment, List<SpooledFile> leases) {
+        String contentType = StringUtils.hasText(attachment.getContentType())
+                ? attachment.getContentType() : DEFAULT_CONTENT_TYPE;
+
+        if (attachment.getContent() != null) {
+            return new ResolvedAttachment(attachment.getFileName(), contentType,
+                    new ByteArrayResource(attachment.getContent()));
+        }
+
+        if (StringUtils.hasText(attachment.getPublicId())) {
+            FileUpload upload = fileUploadRepository.findByPublicId(attachment.getPublicId())
+                    .filter(file -> file.getDeletedAt() == null)
+                    .orElseThrow(() -> new BadRequestException("Attachment not found: " + attachment.getPublicId()));
+            String fileName = StringUtils.hasText(attachment.getFileName())
+                    ? attachment.getFileName() : upload.getOriginalFileName();
+            return new ResolvedAttachment(fileName, contentType, sourceForUrl(upload.getSecureUrl(), leases));
+        }
+
+        if (StringUtils.hasText(attachment.getUrl())) {
+            return new ResolvedAttachment(attachment.getFileName(), contentType, sourceForUrl(attachment.getUrl(), leases));
+        }
+
+        throw new BadRequestException("Attachment " + attachment.getFileName() + " has no content, publicId or url");
+    }
+
+    private InputStreamSource sourceForUrl(String url, List<SpooledFile> leases) {
+        if (url.startsWith(LOCAL_URL_PREFIX)) {
+            Path file = fileUploadService.resolveLocalFileByRelative(url.substring(LOCAL_URL_PREFIX.length()));
+            if (!Files.isRegularFile(file)) {
+                throw new BadRequestException("Attachment file is missing: " + url);
+            }
+            return new FileSystemResource(file);
+        }
+
+        URI uri = URI.create(url);
+        if (!"https".equalsIgnoreCase(uri.getScheme()) || !config.getAllowedHosts().contains(uri.getHost())) {
+            throw new BadRequestException("Attachment host is not allowed: " + uri.getHost());
+        }
+
+        try {
+            while (true) {
+                SpooledFile file = spooled.get(url, () -> new SpooledFile(download(uri)));
+                // Fails only if the entry was evicted and deleted in between; fetch it again
+                if (file.retain()) {
+                    leases.add(file);
+                    return new FileSystemResource(file.path());
+                }
+                spooled.asMap().remove(url, file);
+            }
+        } catch (ExecutionException e) {
+            throw new BadRequestException("Could not fetch attachment " + url + ": " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Stream a remote file to a temp file, failing once it passes the size limit
+     */
+    private Path download(URI uri) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) uri.toURL().openConnection();
+        conn.setConnectTimeout(config.getConnectTimeoutMs());
+        conn.setReadTimeout(config.getReadTimeoutMs());
+        conn.setInstanceFollowRedirects(false);
+
+        int responseCode = conn.getResponseCode();
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            conn.disconnect();
+            throw new IOException("HTTP " + responseCode);
+        }
+        if (conn.getContentLengthLong() > config.getMaxSizeBytes()) {
+            conn.disconnect();
+            throw new IOException("attachment exceeds " + config.getMaxSizeBytes() + " bytes");
+        }
+
+        Path file = Files.createTempFile("email-attachment-", ".bin");
+        try (InputStream in = conn.getInputStream(); OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > config.getMaxSizeBytes()) {
+                    throw new IOException("attachment exceeds " + config.getMaxSizeBytes() + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+        log.debug("Spooled attachment {} ({} bytes)", uri, sizeOf(file));
+        return file;
+    }
+
+    /**
+     * A spooled download shared by the cache and the sends reading it
+     */
+    private static final class SpooledFile {
+        private final Path path;
+        // One reference held by the cache entry plus one per open Attachments
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        SpooledFile(Path path) {
+            this.path = path;
+        }
+
+        Path path() {
+            return path;
+        }
+
+        boolean retain() {
+            while (true) {
+                int current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                deleteQuietly(path);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cleanUp() {
+        spooled.invalidateAll();
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete spooled attachment {}: {}", file, e.getMessage());
+        }
+    }
+}
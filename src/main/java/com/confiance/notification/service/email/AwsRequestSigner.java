@@ -0,0 +1,91 @@
+package com.confiance.notification.service.email;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * AWS Signature Version 4 for POST requests without query parameters (SES JSON, SNS form posts).
+ */
+public final class AwsRequestSigner {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SIGNED_HEADERS = "content-type;host;x-amz-date";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+    private final String service;
+
+    public AwsRequestSigner(String accessKey, String secretKey, String region, String service) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+        this.service = service;
+    }
+
+    /**
+     * Headers to add to the request. Host is set by the HTTP client from the URI.
+     */
+    public Map<String, String> sign(String method, URI uri, String contentType, byte[] body) {
+        try {
+            String amzDate = ZonedDateTime.now(ZoneOffset.UTC).format(AMZ_DATE);
+            String dateStamp = amzDate.substring(0, 8);
+            String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+            String canonicalRequest = method + "\n"
+                    + path + "\n"
+                    + "\n"
+                    + "content-type:" + contentType + "\n"
+                    + "host:" + host + "\n"
+                    + "x-amz-date:" + amzDate + "\n"
+                    + "\n"
+                    + SIGNED_HEADERS + "\n"
+                    + hex(sha256(body));
+
+            String scope = dateStamp + "/" + region + "/" + service + "/aws4_request";
+            String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+                    + hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+            byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+            signingKey = hmac(signingKey, region);
+            signingKey = hmac(signingKey, service);
+            signingKey = hmac(signingKey, "aws4_request");
+            String signature = hex(hmac(signingKey, stringToSign));
+
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Content-Type", contentType);
+            headers.put("X-Amz-Date", amzDate);
+            headers.put("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                    + ", SignedHeaders=" + SIGNED_HEADERS + ", Signature=" + signature);
+            return headers;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign AWS request", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] sha256(byte[] data) throws GeneralSecurityException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+
+    private static String hex(byte[] data) {
+        return HexFormat.of().formatHex(data);
+    }
+}
@@ -0,0 +1,480 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.confiance.notification.entity.EmailTemplate;
+import com.confiance.notification.enums.EmailProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.repository.EmailTemplateRepository;
+import com.confiance.notification.service.http.OutboundHttp;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Amazon SES (API v2) over the shared outbound JDK HTTP client, whose warm connection
+ * pool is used by all sends. Batches of DB-templated emails go out through SendBulkEmail, up to
+ * {@code aws.ses.max-bulk-destinations} recipients and one signed request per call.
+ */
+@Component
+@Slf4j
+public class AwsSesEmailSender implements EmailSender {
+
+    private static final String SUBJECT_VARIABLE = "_subject";
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+    private static final String CONTENT_TYPE = "application/json";
+    // Part of the SES template name; bump when toHandlebars output changes so stale templates are not reused
+    private static final int TEMPLATE_FORMAT = 2;
+
+    // Per-destination bulk statuses that mean "try again later" rather than a bad message
+    // Bulk entry statuses that limit our account rather than say anything about the recipient
+    private static final Set<String> THROTTLED_STATUSES =
+            Set.of("ACCOUNT_THROTTLED", "ACCOUNT_DAILY_QUOTA_EXCEEDED");
+
+    private final SesConfig config;
+    private final AttachmentResolver attachmentResolver;
+    private final EmailTemplateRepository emailTemplateRepository;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final AwsRequestSigner signer;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+
+    // SES template names already created; names carry the DB version so they never need updating
+    private final Set<String> syncedTemplates = ConcurrentHashMap.newKeySet();
+
+    // SES template (or null: send individually) per DB template code, so batches skip the DB lookup
+    // and a template SES would not take is not retried on every request
+    private final Map<String, BulkTemplate> bulkTemplates = new ConcurrentHashMap<>();
+
+    @Value("${email.from.address:noreply@confiance.com}")
+    private String fromAddress;
+
+    @Value("${email.from.name:Confiance Financial}")
+    private String fromName;
+
+    public AwsSesEmailSender(SesConfig config, AttachmentResolver attachmentResolver,
+                             EmailTemplateRepository emailTemplateRepository, ObjectMapper objectMapper,
+                             ProviderThrottle providerThrottle, ProviderConcurrencyLimiter concurrencyLimiter,
+                             OutboundHttp outboundHttp) {
+        this.config = config;
+        this.providerThrottle = providerThrottle;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.attachmentResolver = attachmentResolver;
+        this.emailTemplateRepository = emailTemplateRepository;
+        this.objectMapper = objectMapper;
+        this.httpClient = outboundHttp.client();
+        outboundHttp.register(URI.create(config.endpointUrl()).getHost());
+        this.signer = new AwsRequestSigner(config.getAccessKey(), config.getSecretKey(), config.getRegion(), "ses");
+    }
+
+    @Override
+    public EmailResponse send(EmailRequest request) {
+        return sendAsync(request).join();
+    }
+
+    /**
+     * DB-templated emails without cc, bcc or attachments are grouped per template and sent
+     * through SendBulkEmail; the rest go out as individual SendEmail calls. All calls run
+     * concurrently on the shared client.
+     */
+    @Override
+    public List<EmailResponse> sendBatch(List<EmailRequest> requests) {
+        EmailResponse[] responses = new EmailResponse[requests.size()];
+        Map<String, List<Integer>> bulkGroups = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            String sesTemplate = bulkTemplateFor(requests.get(i));
+            if (sesTemplate != null) {
+                bulkGroups.computeIfAbsent(sesTemplate, k -> new ArrayList<>()).add(i);
+            } else {
+                int position = i;
+                calls.add(sendAsync(requests.get(i)).thenAccept(response -> responses[position] = response));
+            }
+        }
+
+        int bulkCalls = 0;
+        for (Map.Entry<String, List<Integer>> group : bulkGroups.entrySet()) {
+            List<Integer> positions = group.getValue();
+            for (int from = 0; from < positions.size(); from += config.getMaxBulkDestinations()) {
+                List<Integer> chunk = positions.subList(from, Math.min(from + config.getMaxBulkDestinations(), positions.size()));
+                List<EmailRequest> chunkRequests = chunk.stream().map(requests::get).toList();
+                calls.add(sendBulkAsync(group.getKey(), chunkRequests).thenAccept(results -> {
+                    for (int j = 0; j < chunk.size(); j++) {
+                        responses[chunk.get(j)] = results.get(j);
+                    }
+                }));
+                bulkCalls++;
+            }
+        }
+
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+        if (bulkCalls > 0) {
+            log.info("SES batch of {} emails sent with {} bulk calls", requests.size(), bulkCalls);
+        }
+        return Arrays.asList(responses);
+    }
+
+    // ==================== SendEmail ====================
+
+    private CompletableFuture<EmailResponse> sendAsync(EmailRequest request) {
+        Map<String, Object> payload;
+        try {
+            payload = sendEmailPayload(request);
+        } catch (Exception e) {
+            log.error("Failed to build SES email to {}: {}", request.getTo(), e.getMessage());
+            return CompletableFuture.completedFuture(response(request, UUID.randomUUID().toString(), "FAILED"));
+        }
+
+        if (!providerThrottle.acquire(ProviderThrottle.AWS_SES, recipientCount(request))) {
+            log.warn("SES send budget exhausted, throttling email to: {}", request.getTo());
+            return CompletableFuture.completedFuture(response(request, UUID.randomUUID().toString(), STATUS_THROTTLED));
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.AWS_SES);
+        if (permit == null) {
+            return CompletableFuture.completedFuture(response(request, UUID.randomUUID().toString(), STATUS_THROTTLED));
+        }
+        return post("/v2/email/outbound-emails", payload, permit)
+                .thenApply(httpResponse -> {
+                    String status = statusFor(httpResponse);
+                    if (!"SENT".equals(status)) {
+                        log.error("Failed to send email via SES to {}: {} {}", request.getTo(),
+                                httpResponse.statusCode(), httpResponse.body());
+                        return response(request, UUID.randomUUID().toString(), status);
+                    }
+                    log.info("Email sent successfully via SES to: {}", request.getTo());
+                    return response(request, readTree(httpResponse.body()).path("MessageId").asText(), status);
+                })
+                .exceptionally(e -> {
+                    log.error("Error sending email via SES: {}", e.getMessage());
+                    return response(request, UUID.randomUUID().toString(), "FAILED");
+                });
+    }
+
+    private Map<String, Object> sendEmailPayload(EmailRequest request) throws Exception {
+        Map<String, Object> destination = new HashMap<>();
+        destination.put("ToAddresses", List.of(request.getTo()));
+        if (request.getCc() != null && !request.getCc().isEmpty()) {
+            destination.put("CcAddresses", request.getCc());
+        }
+        if (request.getBcc() != null && !request.getBcc().isEmpty()) {
+            destination.put("BccAddresses", request.getBcc());
+        }
+
+        Map<String, Object> content;
+        if (request.getAttachments() != null && !request.getAttachments().isEmpty()) {
+            // Simple content has no attachments; send the MIME message instead (byte[] is written as base64)
+            content = Map.of("Raw", Map.of("Data", rawMessage(request)));
+        } else {
+            Map<String, Object> body = Map.of(request.isHtml() ? "Html" : "Text", text(request.getBody()));
+            content = Map.of("Simple", Map.of("Subject", text(request.getSubject()), "Body", body));
+        }
+
+        Map<String, Object> payload = basePayload();
+        payload.put("Destination", destination);
+        payload.put("Content", content);
+        return payload;
+    }
+
+    private byte[] rawMessage(EmailRequest request) throws Exception {
+        MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(fromAddress, fromName);
+        helper.setTo(request.getTo());
+        helper.setSubject(request.getSubject());
+        if (request.getCc() != null && !request.getCc().isEmpty()) {
+            helper.setCc(request.getCc().toArray(new String[0]));
+        }
+        helper.setText(request.getBody() != null ? request.getBody() : "", request.isHtml());
+        try (AttachmentResolver.Attachments attachments = attachmentResolver.resolveAll(request.getAttachments())) {
+            for (AttachmentResolver.ResolvedAttachment attachment : attachments) {
+                helper.addAttachment(attachment.fileName(), attachment.source(), attachment.contentType());
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            message.writeTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    // ==================== SendBulkEmail ====================
+
+    private CompletableFuture<List<EmailResponse>> sendBulkAsync(String sesTemplate, List<EmailRequest> requests) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        try {
+            for (EmailRequest request : requests) {
+                Map<String, String> data = new HashMap<>();
+                request.getTemplateVariables().forEach((key, value) -> {
+                    if (value != null) {
+                        data.put(key, value.toString());
+                    }
+                });
+                data.put(SUBJECT_VARIABLE, request.getSubject());
+                entries.add(Map.of(
+                        "Destination", Map.of("ToAddresses", List.of(request.getTo())),
+                        "ReplacementEmailContent", Map.of("ReplacementTemplate",
+                                Map.of("ReplacementTemplateData", objectMapper.writeValueAsString(data)))));
+            }
+        } catch (Exception e) {
+            log.error("Failed to build SES bulk request for {}: {}", sesTemplate, e.getMessage());
+            return CompletableFuture.completedFuture(failedAll(requests, "FAILED"));
+        }
+
+        Map<String, Object> payload = basePayload();
+        payload.put("DefaultContent", Map.of("Template", Map.of("TemplateName", sesTemplate, "TemplateData", "{}")));
+        payload.put("BulkEmailEntries", entries);
+
+        // SES meters its send rate per recipient, so a bulk call spends one permit per entry
+        if (!providerThrottle.acquire(ProviderThrottle.AWS_SES, requests.size())) {
+            log.warn("SES send budget exhausted, throttling bulk send of {} emails", requests.size());
+            return CompletableFuture.completedFuture(failedAll(requests, STATUS_THROTTLED));
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.AWS_SES);
+        if (permit == null) {
+            return CompletableFuture.completedFuture(failedAll(requests, STATUS_THROTTLED));
+        }
+        return post("/v2/email/outbound-bulk-emails", payload, permit)
+                .thenApply(httpResponse -> {
+                    String status = statusFor(httpResponse);
+                    if (!"SENT".equals(status)) {
+                        log.error("SES bulk send of {} failed: {} {}", sesTemplate, httpResponse.statusCode(), httpResponse.body());
+                        return failedAll(requests, status);
+                    }
+
+                    JsonNode results = readTree(httpResponse.body()).path("BulkEmailEntryResults");
+                    List<EmailResponse> responses = new ArrayList<>(requests.size());
+                    for (int i = 0; i < requests.size(); i++) {
+                        JsonNode result = results.path(i);
+                        String entryStatus = result.path("Status").asText("FAILED");
+                        if ("SUCCESS".equals(entryStatus)) {
+                            responses.add(response(requests.get(i), result.path("MessageId").asText(), "SENT"));
+                            continue;
+                        }
+                        if ("TEMPLATE_NOT_FOUND".equals(entryStatus)) {
+                            syncedTemplates.remove(sesTemplate);
+                            bulkTemplates.values().removeIf(cached -> sesTemplate.equals(cached.sesName()));
+                        }
+                        log.error("SES rejected bulk entry to {}: {} {}", requests.get(i).getTo(), entryStatus,
+                                result.path("Error").asText());
+                        responses.add(response(requests.get(i), UUID.randomUUID().toString(), entryStatus(entryStatus)));
+                    }
+                    return responses;
+                })
+                .exceptionally(e -> {
+                    log.error("Error sending SES bulk email: {}", e.getMessage());
+                    return failedAll(requests, "FAILED");
+                });
+    }
+
+    /**
+     * SES template mirroring the request's DB template, or null when the request
+     * cannot go through bulk sending
+     */
+    private String bulkTemplateFor(EmailRequest request) {
+        if (request.getTemplateName() == null || request.getTemplateVariables() == null
+                || (request.getCc() != null && !request.getCc().isEmpty())
+                || (request.getBcc() != null && !request.getBcc().isEmpty())
+                || (request.getAttachments() != null && !request.getAttachments().isEmpty())) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        BulkTemplate cached = bulkTemplates.get(request.getTemplateName());
+        if (cached != null && now - cached.checkedAt() < config.getTemplateCacheSeconds() * 1000L) {
+            return cached.sesName();
+        }
+        String name = syncTemplate(request.getTemplateName());
+        bulkTemplates.put(request.getTemplateName(), new BulkTemplate(name, now));
+        return name;
+    }
+
+    private String syncTemplate(String code) {
+        try {
+            EmailTemplate template = emailTemplateRepository.findByCodeAndIsActiveTrue(code).orElse(null);
+            if (template == null || template.getHtmlContent() == null) {
+                return null;
+            }
+            String name = (config.getTemplatePrefix() + template.getCode() + "-v" + template.getVersion()
+                    + "-f" + TEMPLATE_FORMAT).replaceAll("[^A-Za-z0-9_-]", "_");
+            return syncedTemplates.contains(name) || createTemplate(name, template) ? name : null;
+        } catch (RuntimeException e) {
+            // Individual sends still work; the template is tried again once the cache entry lapses
+            log.error("Could not prepare SES template for {}: {}", code, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean createTemplate(String name, EmailTemplate template) {
+        Map<String, Object> content = new HashMap<>();
+        // Subjects come from the request, not the template, so they travel as a variable
+        content.put("Subject", "{{{" + SUBJECT_VARIABLE + "}}}");
+        content.put("Html", toHandlebars(template.getHtmlContent()));
+        if (StringUtils.hasText(template.getPlainTextContent())) {
+            content.put("Text", toHandlebars(template.getPlainTextContent()));
+        }
+
+        HttpResponse<String> httpResponse = post("/v2/email/templates",
+                Map.of("TemplateName", name, "TemplateContent", content)).join();
+        // 409: created earlier, possibly by another node
+        if (httpResponse.statusCode() / 100 == 2 || httpResponse.statusCode() == 409) {
+            syncedTemplates.add(name);
+            log.info("SES template {} ready", name);
+            return true;
+        }
+        log.error("Could not create SES template {}: {} {}", name, httpResponse.statusCode(), httpResponse.body());
+        return false;
+    }
+
+    /**
+     * ${var} placeholders become unescaped Handlebars variables, matching the local renderer.
+     * Names are written as segment literals so ${a.b} reads the flat key "a.b", not a path.
+     */
+    private String toHandlebars(String content) {
+        Matcher matcher = VARIABLE_PATTERN.matcher(content);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(sb, Matcher.quoteReplacement("{{{[" + matcher.group(1) + "]}}}"));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    // ==================== HTTP ====================
+
+    private CompletableFuture<HttpResponse<String>> post(String path, Map<String, Object> payload) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(payload);
+            URI uri = URI.create(config.endpointUrl() + path);
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(config.getRequestTimeoutMs()))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            signer.sign("POST", uri, CONTENT_TYPE, body).forEach(builder::header);
+            return httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Holds the in-flight slot until the response arrives; errors and 429s shrink the limit
+     */
+    private CompletableFuture<HttpResponse<String>> post(String path, Map<String, Object> payload,
+                                                         ProviderConcurrencyLimiter.Permit permit) {
+        return post(path, payload).whenComplete((httpResponse, e) -> {
+            if (e != null || httpResponse.statusCode() == 429) {
+                permit.dropped();
+            }
+            permit.close();
+        });
+    }
+
+    /**
+     * SENT for 2xx, DEFERRED when SES throttles, REJECTED when SES refuses the message itself,
+     * otherwise FAILED so the router can fail over
+     */
+    private String statusFor(HttpResponse<String> httpResponse) {
+        int code = httpResponse.statusCode();
+        if (code / 100 == 2) {
+            providerThrottle.onSuccess(ProviderThrottle.AWS_SES);
+            return "SENT";
+        }
+        if (code == 429 || httpResponse.body().contains("Throttling") || httpResponse.body().contains("LimitExceeded")) {
+            providerThrottle.onThrottled(ProviderThrottle.AWS_SES,
+                    httpResponse.headers().firstValue("Retry-After").map(ProviderThrottle::parseRetryAfter).orElse(null));
+            return STATUS_THROTTLED;
+        }
+        if (code == 400 && httpResponse.body().contains("MessageRejected")) {
+            return STATUS_REJECTED;
+        }
+        return "FAILED";
+    }
+
+    private String entryStatus(String sesStatus) {
+        if (THROTTLED_STATUSES.contains(sesStatus)) {
+            return STATUS_THROTTLED;
+        }
+        if ("TRANSIENT_FAILURE".equals(sesStatus)) {
+            return DomainThrottle.STATUS_DEFERRED;
+        }
+        return "MESSAGE_REJECTED".equals(sesStatus) ? STATUS_REJECTED : "FAILED";
+    }
+
+    private Map<String, Object> basePayload() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("FromEmailAddress", "\"" + fromName.replace("\"", "") + "\" <" + fromAddress + ">");
+        if (StringUtils.hasText(config.getConfigurationSet())) {
+            payload.put("ConfigurationSetName", config.getConfigurationSet());
+        }
+        return payload;
+    }
+
+    private static Map<String, Object> text(String value) {
+        return Map.of("Data", value != null ? value : "", "Charset", "UTF-8");
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (Exception e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    private static int recipientCount(EmailRequest request) {
+        return 1 + (request.getCc() != null ? request.getCc().size() : 0)
+                + (request.getBcc() != null ? request.getBcc().size() : 0);
+    }
+
+    private List<EmailResponse> failedAll(List<EmailRequest> requests, String status) {
+        return requests.stream().map(request -> response(request, UUID.randomUUID().toString(), status)).toList();
+    }
+
+    private EmailResponse response(EmailRequest request, String messageId, String status) {
+        return EmailResponse.builder()
+                .messageId(messageId)
+                .status(status)
+                .recipient(request.getTo())
+                .sentAt(LocalDateTime.now())
+                .provider(getProvider().name())
+                .build();
+    }
+
+    @Override
+    public EmailProvider getProvider() {
+        return EmailProvider.AWS_SES;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return StringUtils.hasText(config.getAccessKey()) && StringUtils.hasText(config.getSecretKey());
+    }
+
+    private record BulkTemplate(String sesName, long checkedAt) {}
+}
@@ -0,0 +1,138 @@
+package com.confiance.notification.service.email;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-recipient-domain shaping: a rate budget, a cap on parallel connections,
+ * and an exponential pause when the receiving side defers with a 4xx.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DomainThrottle {
+
+    public static final String STATUS_DEFERRED = "DEFERRED";
+
+    private final EmailDispatchConfig config;
+    private final Map<String, DomainState> domains = new ConcurrentHashMap<>();
+
+    public static String domainOf(String address) {
+        int at = address == null ? -1 : address.lastIndexOf('@');
+        return at < 0 ? "" : address.substring(at + 1).trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Take one connection slot and up to {@code wanted} message tokens for a domain.
+     * Returns how many messages may be sent now; 0 means nothing was taken.
+     */
+    public int tryAcquire(String domain, int wanted) {
+        DomainState state = state(domain);
+        if (state.blockedForMs() > 0 || !state.connections.tryAcquire()) {
+            return 0;
+        }
+        int granted = (int) state.bucket.tryConsumeAsMuchAsPossible(wanted);
+        if (granted == 0) {
+            state.connections.release();
+        }
+        return granted;
+    }
+
+    public void release(String domain) {
+        state(domain).connections.release();
+    }
+
+    public long blockedForMs(String domain) {
+        DomainState state = domains.get(domain);
+        return state == null ? 0 : state.blockedForMs();
+    }
+
+    public void recordOutcome(String domain, String status) {
+        DomainState state = state(domain);
+        if (STATUS_DEFERRED.equals(status)) {
+            long pauseMs = state.onDeferral();
+            log.warn("Recipient domain {} deferred delivery, pausing it for {}ms", domain, pauseMs);
+        } else if ("SENT".equals(status)) {
+            state.onDelivered();
+        }
+    }
+
+    /**
+     * Forget domains nobody has sent to for a while. Only entries that are not paused and hold
+     * no connections go, so the next send starts from a fresh budget and loses nothing.
+     */
+    @Scheduled(fixedDelayString = "${email.dispatch.domain-sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - config.getDomainIdleMs();
+        int before = domains.size();
+        for (String domain : domains.keySet()) {
+            domains.computeIfPresent(domain, (d, state) -> state.isIdle(idleBefore) ? null : state);
+        }
+        int evicted = before - domains.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle recipient domain throttles, {} remain", evicted, domains.size());
+        }
+    }
+
+    // compute rather than computeIfAbsent: it always takes the bin lock, so a touch cannot interleave with eviction
+    private DomainState state(String domain) {
+        return domains.compute(domain, (d, state) -> {
+            DomainState current = state != null ? state : new DomainState(config.limitFor(d));
+            current.lastUsed = System.currentTimeMillis();
+            return current;
+        });
+    }
+
+    private class DomainState {
+        private final Bucket bucket;
+        private final Semaphore connections;
+        private final int maxConnections;
+        private int backoffLevel;
+        private volatile long blockedUntil;
+        private volatile long lastUsed;
+
+        DomainState(EmailDispatchConfig.DomainLimit limit) {
+            int rate = Math.max(limit.getRatePerSecond(), 1);
+            this.bucket = Bucket.builder()
+                    .addLimit(Bandwidth.classic(rate, Refill.greedy(rate, Duration.ofSeconds(1))))
+                    .build();
+            this.maxConnections = Math.max(limit.getConcurrency(), 1);
+            this.connections = new Semaphore(maxConnections);
+        }
+
+        long blockedForMs() {
+            return Math.max(0, blockedUntil - System.currentTimeMillis());
+        }
+
+        boolean isIdle(long idleBefore) {
+            return lastUsed < idleBefore && blockedForMs() == 0 && connections.availablePermits() == maxConnections;
+        }
+
+        synchronized long onDeferral() {
+            backoffLevel = Math.min(backoffLevel + 1, 20);
+            long delay = Math.min(config.getBackoffBaseMs() << (backoffLevel - 1), config.getBackoffMaxMs());
+            long pause = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+            blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + pause);
+            return pause;
+        }
+
+        // Step the backoff down one level per accepted message rather than resetting it
+        synchronized void onDelivered() {
+            if (backoffLevel > 0) {
+                backoffLevel--;
+            }
+        }
+    }
+}
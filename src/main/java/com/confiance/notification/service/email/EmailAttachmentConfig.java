@@ -0,0 +1,21 @@
+package com.confiance.notification.service.email;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "email.attachments")
+public class EmailAttachmentConfig {
+
+    private List<String> allowedHosts = new ArrayList<>(List.of("res.cloudinary.com"));  // Hosts remote attachments may be fetched from
+    private long maxSizeBytes = 25L * 1024 * 1024;     // Largest attachment accepted
+    private long cacheMaxBytes = 256L * 1024 * 1024;   // Disk used by spooled remote attachments
+    private int cacheExpireMinutes = 10;               // Long enough to cover a batch or a failover
+    private int connectTimeoutMs = 5000;
+    private int readTimeoutMs = 30000;
+}
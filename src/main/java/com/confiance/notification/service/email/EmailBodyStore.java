@@ -0,0 +1,258 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.common.exception.ResourceNotFoundException;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.entity.EmailBody;
+import com.confiance.notification.entity.EmailLog;
+import com.confiance.notification.entity.EmailTemplate;
+import com.confiance.notification.entity.EmailTemplateRevision;
+import com.confiance.notification.repository.EmailBodyRepository;
+import com.confiance.notification.repository.EmailTemplateRevisionRepository;
+import com.confiance.notification.service.EmailTemplateService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps email bodies out of email_logs. Templated mail is logged as template code,
+ * version and variables; everything else is compressed and stored once per content hash.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailBodyStore {
+
+    private static final TypeReference<Map<String, Object>> VARIABLES_TYPE = new TypeReference<>() {};
+    private static final TypeReference<List<EmailRequest.EmailAttachment>> ATTACHMENTS_TYPE = new TypeReference<>() {};
+
+    private final EmailBodyRepository emailBodyRepository;
+    private final EmailTemplateRevisionRepository revisionRepository;
+    private final EmailTemplateService emailTemplateService;
+    private final TemplateEngine templateEngine;
+    private final ObjectMapper objectMapper;
+
+    // Hashes / template revisions this node already knows are persisted, to skip the existence check
+    private final Cache<String, Boolean> knownBodies = CacheBuilder.newBuilder().maximumSize(10_000).build();
+    private final Cache<String, Boolean> knownRevisions = CacheBuilder.newBuilder().maximumSize(1_000).build();
+
+    /**
+     * Store a body if it isn't stored yet and return its content hash
+     */
+    public String storeBody(String body) {
+        if (body == null) {
+            return null;
+        }
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(raw);
+
+        if (knownBodies.getIfPresent(hash) != null) {
+            return hash;
+        }
+
+        if (!emailBodyRepository.existsById(hash)) {
+            try {
+                emailBodyRepository.save(EmailBody.builder()
+                        .hash(hash)
+                        .content(compress(raw))
+                        .originalSize(raw.length)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Another node stored the same body concurrently
+                log.debug("Email body {} already stored", hash);
+            }
+        }
+        knownBodies.put(hash, Boolean.TRUE);
+        return hash;
+    }
+
+    /**
+     * Make sure the given template version has a revision snapshot to re-render from
+     */
+    public void recordTemplateRevision(EmailTemplate template) {
+        String key = template.getCode() + ":" + template.getVersion();
+        if (knownRevisions.getIfPresent(key) != null) {
+            return;
+        }
+
+        if (!revisionRepository.existsByCodeAndVersion(template.getCode(), template.getVersion())) {
+            try {
+                revisionRepository.save(EmailTemplateRevision.builder()
+                        .code(template.getCode())
+                        .version(template.getVersion())
+                        .subject(template.getSubject())
+                        .htmlContent(template.getHtmlContent())
+                        .plainTextContent(template.getPlainTextContent())
+                        .build());
+                log.info("Recorded revision {} of email template {}", template.getVersion(), template.getCode());
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Revision {} already recorded", key);
+            }
+        }
+        knownRevisions.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * DB templates only ever render a variable's toString(), so that is what is kept: a date or
+     * decimal re-renders exactly as it was sent instead of as whatever JSON made of it
+     */
+    public String serializeVariables(Map<String, Object> variables) {
+        if (variables == null || variables.isEmpty()) {
+            return null;
+        }
+        Map<String, String> rendered = new LinkedHashMap<>();
+        variables.forEach((name, value) -> rendered.put(name, value != null ? value.toString() : null));
+        try {
+            return objectMapper.writeValueAsString(rendered);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize template variables: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public Map<String, Object> deserializeVariables(String variables) {
+        if (variables == null || variables.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(variables, VARIABLES_TYPE);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not parse stored template variables: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Serialize attachment references for the log; inline bytes are never stored
+     */
+    public String serializeAttachments(List<EmailRequest.EmailAttachment> attachments) {
+        if (attachments == null || attachments.isEmpty()) {
+            return null;
+        }
+        List<EmailRequest.EmailAttachment> references = attachments.stream()
+                .filter(att -> att.getContent() == null)
+                .map(att -> EmailRequest.EmailAttachment.builder()
+                        .fileName(att.getFileName())
+                        .contentType(att.getContentType())
+                        .publicId(att.getPublicId())
+                        .url(att.getUrl())
+                        .build())
+                .toList();
+        try {
+            return references.isEmpty() ? null : objectMapper.writeValueAsString(references);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize attachment references: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public List<EmailRequest.EmailAttachment> deserializeAttachments(String attachments) {
+        if (attachments == null || attachments.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(attachments, ATTACHMENTS_TYPE);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not parse stored attachment references: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Rebuild the body that was sent for a logged email
+     */
+    public String reconstructBody(EmailLog emailLog) {
+        if (emailLog.getBodyHash() != null) {
+            EmailBody body = emailBodyRepository.findById(emailLog.getBodyHash())
+                    .orElseThrow(() -> new ResourceNotFoundException("Email body not found: " + emailLog.getBodyHash()));
+            return new String(decompress(body.getContent(), body.getOriginalSize()), StandardCharsets.UTF_8);
+        }
+
+        if (emailLog.getTemplateName() == null) {
+            return null;
+        }
+
+        Map<String, Object> variables = deserializeVariables(emailLog.getTemplateVariables());
+
+        if (emailLog.getTemplateVersion() != null) {
+            EmailTemplateRevision revision = revisionRepository
+                    .findByCodeAndVersion(emailLog.getTemplateName(), emailLog.getTemplateVersion())
+                    .orElseThrow(() -> new ResourceNotFoundException("Template revision not found: "
+                            + emailLog.getTemplateName() + " v" + emailLog.getTemplateVersion()));
+            return emailTemplateService.processTemplate(revision.getHtmlContent(), variables);
+        }
+
+        // Filesystem (Thymeleaf) templates are versioned with the deployment
+        Context context = new Context();
+        context.setVariables(variables);
+        return templateEngine.process(emailLog.getTemplateName(), context);
+    }
+
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] decompress(byte[] compressed, int originalSize) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] result = new byte[originalSize];
+            int offset = 0;
+            while (!inflater.finished() && offset < originalSize) {
+                int n = inflater.inflate(result, offset, originalSize - offset);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += n;
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt email body", e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
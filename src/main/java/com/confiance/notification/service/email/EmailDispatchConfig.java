@@ -0,0 +1,91 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.enums.EmailPriority;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "email.dispatch")
+public class EmailDispatchConfig {
+
+    private int batchSize = 20;                  // Emails sent over one connection per domain group
+    private long pollIntervalMs = 200;
+
+    // Templates that always go in the transactional lane
+    private List<String> transactionalTemplates = new ArrayList<>(List.of("otp", "password-reset", "payment-success", "welcome"));
+
+    // Categories / templates that go in the bulk lane
+    private List<String> bulkCategories = new ArrayList<>(List.of("marketing", "campaign", "newsletter", "digest"));
+
+    // Priority lanes: weight is the lane's share per scheduling round
+    private LaneConfig transactional = new LaneConfig(8, 8, 50, 1000, 5000);
+    private LaneConfig normal = new LaneConfig(3, 4, 20, 30000, 10000);
+    private LaneConfig bulk = new LaneConfig(1, 2, 10, 300000, 100000);
+
+    // Defaults for any recipient domain without an override
+    private DomainLimit defaults = new DomainLimit();
+
+    // Per-domain overrides, e.g. gmail.com
+    private Map<String, DomainLimit> domains = new HashMap<>();
+
+    private long backoffBaseMs = 2000;           // First pause after a 4xx deferral, doubled per deferral
+    private long backoffMaxMs = 300000;          // Cap on the per-domain pause
+    private long domainIdleMs = 600000;          // Unpaused domains unused this long are forgotten
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LaneConfig {
+        private int weight;                      // Relative share of each scheduling round
+        private int concurrency;                 // Sender threads for the lane
+        private int ratePerSecond;               // Messages per second from the lane
+        private long maxWaitMs;                  // Oldest email waiting longer than this jumps the round
+        private int queueCapacity;               // Queued emails before new ones are rejected
+    }
+
+    @Data
+    public static class DomainLimit {
+        private int ratePerSecond = 10;          // Messages per second to the domain
+        private int concurrency = 2;             // Parallel connections to the domain
+    }
+
+    public DomainLimit limitFor(String domain) {
+        return domains.getOrDefault(domain, defaults);
+    }
+
+    public LaneConfig lane(EmailPriority priority) {
+        return switch (priority) {
+            case TRANSACTIONAL -> transactional;
+            case NORMAL -> normal;
+            case BULK -> bulk;
+        };
+    }
+
+    /**
+     * Explicit priority first, then the template code, then the category
+     */
+    public EmailPriority priorityOf(EmailRequest request) {
+        if (request.getPriority() != null) {
+            return request.getPriority();
+        }
+        String template = request.getTemplateName();
+        if (template != null && transactionalTemplates.stream().anyMatch(t -> t.equalsIgnoreCase(template))) {
+            return EmailPriority.TRANSACTIONAL;
+        }
+        String category = request.getCategory() != null ? request.getCategory() : template;
+        if (category != null && bulkCategories.stream().anyMatch(c -> c.equalsIgnoreCase(category))) {
+            return EmailPriority.BULK;
+        }
+        return EmailPriority.NORMAL;
+    }
+}
@@ -0,0 +1,332 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.confiance.notification.enums.EmailPriority;
+import com.confiance.notification.ratelimit.RateLimitExceededException;
+import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue for asynchronous email, split into priority lanes so bulk traffic
+ * can't hold up transactional mail. Each lane has its own sender threads and
+ * rate budget, and lanes share the per-domain limits through weighted
+ * deficit round robin. Within a lane, emails are grouped by recipient domain
+ * and sent in batches over one connection per group.
+ */
+@Component
+@Slf4j
+public class EmailDispatcher {
+
+    public record QueuedEmail(EmailRequest request, Long userId, long enqueuedAt) {}
+
+    private final Map<EmailPriority, Lane> lanes = new EnumMap<>(EmailPriority.class);
+    private final EmailService emailService;
+    private final DomainThrottle domainThrottle;
+    private final EmailDispatchConfig config;
+    private final ScheduledDeliveryService scheduledDeliveryService;
+    private volatile boolean stopped;
+
+    public EmailDispatcher(@Lazy EmailService emailService, DomainThrottle domainThrottle,
+                           EmailDispatchConfig config, ScheduledDeliveryService scheduledDeliveryService) {
+        this.emailService = emailService;
+        this.domainThrottle = domainThrottle;
+        this.config = config;
+        this.scheduledDeliveryService = scheduledDeliveryService;
+        for (EmailPriority priority : EmailPriority.values()) {
+            lanes.put(priority, new Lane(priority, config.lane(priority)));
+        }
+    }
+
+    public void enqueue(EmailRequest request, Long userId) {
+        if (stopped) {
+            scheduledDeliveryService.scheduleEmail(request, userId, Instant.now());
+            return;
+        }
+        Lane lane = lanes.get(config.priorityOf(request));
+        if (lane.queued.incrementAndGet() > lane.config.getQueueCapacity()) {
+            lane.queued.decrementAndGet();
+            throw new RateLimitExceededException("Email queue is full. Please retry shortly.", 5);
+        }
+        QueuedEmail email = new QueuedEmail(request, userId, System.currentTimeMillis());
+        // Add under the map's lock so a drain cannot drop the deque between lookup and add
+        lane.queues.compute(DomainThrottle.domainOf(request.getTo()), (d, queue) -> {
+            Deque<QueuedEmail> target = queue != null ? queue : new ConcurrentLinkedDeque<>();
+            target.addLast(email);
+            return target;
+        });
+    }
+
+    /**
+     * Send on the caller's thread under a lane's rate budget and each recipient domain's throttle,
+     * for producers such as campaigns that checkpoint on the outcomes. Waits up to maxWaitMs for
+     * budget; emails for domains still unavailable then join the lane's queue and come back DEFERRED.
+     */
+    public List<EmailResponse> deliverThrottled(EmailPriority priority, List<QueuedEmail> emails, long maxWaitMs)
+            throws InterruptedException {
+        Lane lane = lanes.get(priority);
+        Map<String, Deque<QueuedEmail>> byDomain = new LinkedHashMap<>();
+        for (QueuedEmail email : emails) {
+            byDomain.computeIfAbsent(DomainThrottle.domainOf(email.request().getTo()), d -> new ArrayDeque<>())
+                    .addLast(email);
+        }
+
+        List<EmailResponse> outcomes = new ArrayList<>(emails.size());
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        while (!byDomain.isEmpty()) {
+            boolean sent = false;
+            for (Iterator<Map.Entry<String, Deque<QueuedEmail>>> it = byDomain.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Deque<QueuedEmail>> entry = it.next();
+                String domain = entry.getKey();
+                Deque<QueuedEmail> queue = entry.getValue();
+
+                int budget = (int) lane.bucket.tryConsumeAsMuchAsPossible(Math.min(config.getBatchSize(), queue.size()));
+                if (budget == 0) {
+                    break;
+                }
+                int allowed = domainThrottle.tryAcquire(domain, budget);
+                if (allowed < budget) {
+                    lane.bucket.addTokens(budget - allowed);
+                }
+                if (allowed == 0) {
+                    continue;
+                }
+
+                List<QueuedEmail> batch = new ArrayList<>(allowed);
+                while (batch.size() < allowed && !queue.isEmpty()) {
+                    batch.add(queue.pollFirst());
+                }
+                try {
+                    outcomes.addAll(emailService.deliverBatch(batch));
+                } finally {
+                    domainThrottle.release(domain);
+                }
+                sent = true;
+                if (queue.isEmpty()) {
+                    it.remove();
+                }
+            }
+
+            if (!sent) {
+                if (System.currentTimeMillis() >= deadline) {
+                    handOff(byDomain, outcomes);
+                }
+                if (!byDomain.isEmpty()) {
+                    Thread.sleep(config.getPollIntervalMs());
+                }
+            }
+        }
+        return outcomes;
+    }
+
+    // Paused domains wait in the lane instead of holding up the caller; a full lane keeps them with the caller
+    private void handOff(Map<String, Deque<QueuedEmail>> byDomain, List<EmailResponse> outcomes) {
+        for (Iterator<Deque<QueuedEmail>> it = byDomain.values().iterator(); it.hasNext(); ) {
+            Deque<QueuedEmail> queue = it.next();
+            QueuedEmail email;
+            while ((email = queue.peekFirst()) != null) {
+                try {
+                    enqueue(email.request(), email.userId());
+                } catch (RateLimitExceededException e) {
+                    return;
+                }
+                queue.pollFirst();
+                outcomes.add(EmailResponse.builder()
+                        .status(DomainThrottle.STATUS_DEFERRED)
+                        .recipient(email.request().getTo())
+                        .sentAt(LocalDateTime.now())
+                        .build());
+            }
+            it.remove();
+        }
+    }
+
+    public Map<EmailPriority, Integer> getQueuedCounts() {
+        Map<EmailPriority, Integer> counts = new EnumMap<>(EmailPriority.class);
+        lanes.forEach((priority, lane) -> counts.put(priority, lane.queued.get()));
+        return counts;
+    }
+
+    @Scheduled(fixedDelayString = "${email.dispatch.poll-interval-ms:200}")
+    public void drain() {
+        if (stopped) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Lane> round = new ArrayList<>();
+
+        // Starved lanes go first, then the rest in priority order
+        for (Lane lane : lanes.values()) {
+            if (lane.isStarved(now)) {
+                round.add(lane);
+            }
+        }
+        for (Lane lane : lanes.values()) {
+            if (!round.contains(lane)) {
+                round.add(lane);
+            }
+        }
+
+        for (Lane lane : round) {
+            if (lane.queued.get() == 0) {
+                // Idle lanes don't bank credit for later
+                lane.deficit = 0;
+                continue;
+            }
+            lane.deficit = Math.min(lane.deficit + (long) lane.config.getWeight() * config.getBatchSize(),
+                    2L * lane.config.getWeight() * config.getBatchSize());
+            drainLane(lane);
+        }
+    }
+
+    private void drainLane(Lane lane) {
+        for (Map.Entry<String, Deque<QueuedEmail>> entry : lane.queues.entrySet()) {
+            String domain = entry.getKey();
+            Deque<QueuedEmail> queue = entry.getValue();
+
+            while (!queue.isEmpty() && lane.deficit > 0) {
+                int wanted = (int) Math.min(Math.min(config.getBatchSize(), queue.size()), lane.deficit);
+                int budget = (int) lane.bucket.tryConsumeAsMuchAsPossible(wanted);
+                if (budget == 0) {
+                    return;
+                }
+                int allowed = domainThrottle.tryAcquire(domain, budget);
+                if (allowed < budget) {
+                    lane.bucket.addTokens(budget - allowed);
+                }
+                if (allowed == 0) {
+                    break;
+                }
+
+                List<QueuedEmail> batch = new ArrayList<>(allowed);
+                QueuedEmail next;
+                while (batch.size() < allowed && (next = queue.pollFirst()) != null) {
+                    batch.add(next);
+                }
+                if (batch.isEmpty()) {
+                    domainThrottle.release(domain);
+                    break;
+                }
+
+                try {
+                    lane.executor.execute(() -> send(domain, batch));
+                    lane.queued.addAndGet(-batch.size());
+                    lane.deficit -= batch.size();
+                } catch (TaskRejectedException e) {
+                    // All of the lane's senders are busy; put the batch back in order for the next tick
+                    for (int i = batch.size() - 1; i >= 0; i--) {
+                        queue.addFirst(batch.get(i));
+                    }
+                    lane.bucket.addTokens(batch.size());
+                    domainThrottle.release(domain);
+                    return;
+                }
+            }
+            if (queue.isEmpty()) {
+                // Drop the emptied deque unless an enqueue refilled it meanwhile
+                lane.queues.computeIfPresent(domain, (d, q) -> q.isEmpty() ? null : q);
+            }
+        }
+    }
+
+    private void send(String domain, List<QueuedEmail> batch) {
+        try {
+            emailService.deliverBatch(batch);
+        } catch (Exception e) {
+            log.error("Failed to deliver email batch for domain {}: {}", domain, e.getMessage());
+        } finally {
+            domainThrottle.release(domain);
+        }
+    }
+
+    /**
+     * Let batches already handed to senders finish, then move whatever is still queued to the
+     * scheduled-delivery store in Redis, where any node picks it up right away
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        lanes.values().forEach(lane -> lane.executor.shutdown());
+        lanes.forEach((priority, lane) -> {
+            int handedOver = 0;
+            for (Deque<QueuedEmail> queue : lane.queues.values()) {
+                QueuedEmail email;
+                while ((email = queue.pollFirst()) != null) {
+                    try {
+                        scheduledDeliveryService.scheduleEmail(email.request(), email.userId(), Instant.now());
+                        handedOver++;
+                    } catch (RuntimeException e) {
+                        log.error("Queued {} email to {} lost on shutdown: {}", priority, email.request().getTo(),
+                                e.getMessage());
+                    }
+                    lane.queued.decrementAndGet();
+                }
+            }
+            if (handedOver > 0) {
+                log.info("Handed {} queued {} emails to scheduled delivery on shutdown", handedOver, priority);
+            }
+        });
+    }
+
+    private static class Lane {
+        private final EmailDispatchConfig.LaneConfig config;
+        private final Map<String, Deque<QueuedEmail>> queues = new ConcurrentHashMap<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Bucket bucket;
+        private final ThreadPoolTaskExecutor executor;
+        // Only touched by the scheduler thread
+        private long deficit;
+
+        Lane(EmailPriority priority, EmailDispatchConfig.LaneConfig config) {
+            this.config = config;
+            int rate = Math.max(config.getRatePerSecond(), 1);
+            this.bucket = Bucket.builder()
+                    .addLimit(Bandwidth.classic(rate, Refill.greedy(rate, Duration.ofSeconds(1))))
+                    .build();
+            this.executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(Math.max(config.getConcurrency(), 1));
+            executor.setMaxPoolSize(Math.max(config.getConcurrency(), 1));
+            // No queue: when every sender is busy the batch stays in the lane
+            executor.setQueueCapacity(0);
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            executor.setAwaitTerminationSeconds(30);
+            executor.setThreadNamePrefix("Email" + priority.name().charAt(0) + priority.name().substring(1).toLowerCase() + "-");
+            executor.initialize();
+        }
+
+        boolean isStarved(long now) {
+            for (Deque<QueuedEmail> queue : queues.values()) {
+                QueuedEmail oldest = queue.peekFirst();
+                if (oldest != null && now - oldest.enqueuedAt() > config.getMaxWaitMs()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
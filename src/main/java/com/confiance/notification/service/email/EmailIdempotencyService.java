@@ -0,0 +1,178 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HexFormat;
+
+/**
+ * Deduplicates email sends by a client-supplied idempotency key.
+ * The key is claimed with SET NX before dispatch; once the send finishes the
+ * value is replaced by a compact copy of the response, which replays return.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailIdempotencyService {
+
+    public static final String STATUS_PROCESSING = "PROCESSING";
+
+    private static final String KEY_PREFIX = "email:idem:";
+    private static final String PENDING = "P";
+    private static final String DONE = "D";
+    private static final String SEPARATOR = "|";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    // Delete the claim only if it is still our pending marker
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${email.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${email.idempotency.pending-ttl-seconds:300}")
+    private long pendingTtlSeconds;
+
+    /**
+     * Outcome of a claim. A non-null {@code replay} means the send must not go out again.
+     */
+    public record Claim(String key, String fingerprint, EmailResponse replay) {
+
+        public boolean isOwner() {
+            return replay == null;
+        }
+    }
+
+    public Claim claim(String idempotencyKey, EmailRequest request) {
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String key = KEY_PREFIX + idempotencyKey;
+        String fingerprint = fingerprint(request);
+
+        Boolean claimed;
+        String existing;
+        try {
+            claimed = redisTemplate.opsForValue()
+                    .setIfAbsent(key, PENDING + SEPARATOR + fingerprint, Duration.ofSeconds(pendingTtlSeconds));
+            existing = Boolean.TRUE.equals(claimed) ? null : redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            // Sending twice is better than not sending at all
+            log.warn("Idempotency check unavailable, sending without it: {}", e.getMessage());
+            return new Claim(null, fingerprint, null);
+        }
+
+        if (Boolean.TRUE.equals(claimed) || existing == null) {
+            return new Claim(key, fingerprint, null);
+        }
+
+        String[] parts = existing.split("\\|", -1);
+        if (parts.length < 2 || !fingerprint.equals(parts[1])) {
+            throw new BadRequestException("Idempotency key was already used for a different email");
+        }
+
+        if (PENDING.equals(parts[0])) {
+            log.info("Duplicate email request {} while the first is still in flight", idempotencyKey);
+            return new Claim(key, fingerprint, EmailResponse.builder()
+                    .status(STATUS_PROCESSING)
+                    .recipient(request.getTo())
+                    .build());
+        }
+
+        log.info("Replaying stored response for email request {}", idempotencyKey);
+        return new Claim(key, fingerprint, decode(parts, request.getTo()));
+    }
+
+    public void complete(Claim claim, EmailResponse response) {
+        if (claim.key() == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(claim.key(), encode(claim.fingerprint(), response), Duration.ofHours(ttlHours));
+        } catch (Exception e) {
+            log.warn("Could not store idempotent email response: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the claim after an error so the caller can retry with the same key
+     */
+    public void release(Claim claim) {
+        if (claim.key() == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(claim.key()),
+                    PENDING + SEPARATOR + claim.fingerprint());
+        } catch (Exception e) {
+            log.warn("Could not release idempotency key: {}", e.getMessage());
+        }
+    }
+
+    // D|fingerprint|messageId|status|provider|sentAtEpochMillis|trackingId
+    private String encode(String fingerprint, EmailResponse response) {
+        return String.join(SEPARATOR, DONE, fingerprint,
+                nullToEmpty(response.getMessageId()),
+                nullToEmpty(response.getStatus()),
+                nullToEmpty(response.getProvider()),
+                response.getSentAt() != null
+                        ? String.valueOf(response.getSentAt().toInstant(ZoneOffset.UTC).toEpochMilli()) : "",
+                nullToEmpty(response.getTrackingId()));
+    }
+
+    private EmailResponse decode(String[] parts, String recipient) {
+        return EmailResponse.builder()
+                .messageId(part(parts, 2))
+                .status(part(parts, 3))
+                .provider(part(parts, 4))
+                .sentAt(part(parts, 5) != null
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[5])), ZoneOffset.UTC) : null)
+                .trackingId(part(parts, 6))
+                .recipient(recipient)
+                .build();
+    }
+
+    private static String part(String[] parts, int index) {
+        return parts.length > index && !parts[index].isEmpty() ? parts[index] : null;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Short hash of the request, to reject a key reused for a different email
+     */
+    private String fingerprint(EmailRequest request) {
+        try {
+            byte[] json = objectMapper.writer()
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsBytes(request);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint email request", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.confiance.notification.service.email;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One-off data copies for email logs written by earlier versions. Rows logged before
+ * tracking ids existed get one, so every row can be looked up by it. Each legacy body is
+ * stored by hash in email_bodies and linked from its row. Template revisions recorded
+ * before they kept the plain-text part get it from their template, which still holds that
+ * version. Runs in the background after startup on whichever node takes the lock, and does
+ * nothing once done.
+ * <p>
+ * The legacy email_logs.body column is left in place, nullable and unmapped, while nodes
+ * that still write it may be running; dropping it is a schema migration for a later release.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailLogBackfill {
+
+    private static final int PAGE_SIZE = 500;
+    private static final String LOCK_KEY = "email:backfill:lock";
+    // Longer than a backfill runs; a node that dies holding it only delays the next attempt
+    private static final Duration LOCK_TTL = Duration.ofHours(1);
+
+    // Delete the lock only if this node still holds it
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmailBodyStore emailBodyStore;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        String owner = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, owner, LOCK_TTL))) {
+            log.debug("Email log backfill is running on another node");
+            return;
+        }
+        try {
+            int tracked = assignTrackingIds();
+            if (tracked > 0) {
+                log.info("Assigned tracking ids to {} email logs", tracked);
+            }
+            int revisions = jdbcTemplate.update("UPDATE email_template_revisions r JOIN email_templates t "
+                    + "ON t.code = r.code AND t.version = r.version "
+                    + "SET r.plain_text_content = t.plain_text_content "
+                    + "WHERE r.plain_text_content IS NULL AND t.plain_text_content IS NOT NULL");
+            if (revisions > 0) {
+                log.info("Added plain text to {} email template revisions", revisions);
+            }
+            if (!legacyColumnExists()) {
+                return;
+            }
+            long migrated = backfill();
+            if (migrated > 0) {
+                log.info("Copied {} legacy email bodies to email_bodies", migrated);
+            }
+        } catch (Exception e) {
+            // Picked up again on the next start; reconstructBody does not read the old column
+            log.error("Email log backfill failed: {}", e.getMessage());
+        } finally {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY), owner);
+        }
+    }
+
+    private int assignTrackingIds() {
+        int assigned = 0;
+        while (true) {
+            // UUID() is evaluated per row; small batches keep row locks short
+            int updated = jdbcTemplate.update(
+                    "UPDATE email_logs SET tracking_id = UUID() WHERE tracking_id IS NULL LIMIT " + PAGE_SIZE);
+            assigned += updated;
+            if (updated < PAGE_SIZE) {
+                return assigned;
+            }
+        }
+    }
+
+    private boolean legacyColumnExists() {
+        Integer columns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns "
+                        + "WHERE table_schema = DATABASE() AND table_name = 'email_logs' AND column_name = 'body'",
+                Integer.class);
+        return columns != null && columns > 0;
+    }
+
+    private long backfill() {
+        long migrated = 0;
+        long cursor = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT id, body FROM email_logs "
+                            + "WHERE id > ? AND body IS NOT NULL AND body_hash IS NULL ORDER BY id LIMIT " + PAGE_SIZE,
+                    cursor);
+            if (rows.isEmpty()) {
+                return migrated;
+            }
+            for (Map<String, Object> row : rows) {
+                long id = ((Number) row.get("id")).longValue();
+                String hash = emailBodyStore.storeBody((String) row.get("body"));
+                migrated += jdbcTemplate.update(
+                        "UPDATE email_logs SET body_hash = ? WHERE id = ? AND body_hash IS NULL", hash, id);
+                cursor = id;
+            }
+        }
+    }
+}
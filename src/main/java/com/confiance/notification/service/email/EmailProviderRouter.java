@@ -0,0 +1,380 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailProviderHealth;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.confiance.notification.enums.EmailProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Routes each email to the healthiest configured provider. Tracks EWMA latency and
+ * error rate per provider, opens a circuit breaker on repeated failures and fails
+ * over (or optionally hedges) to the next provider.
+ */
+@Component
+@Slf4j
+public class EmailProviderRouter {
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final Map<EmailProvider, EmailSender> senders = new EnumMap<>(EmailProvider.class);
+    private final Map<EmailProvider, ProviderHealth> health = new EnumMap<>(EmailProvider.class);
+    private final EmailRoutingConfig config;
+    private final Executor executor;
+
+    public EmailProviderRouter(List<EmailSender> emailSenders, EmailRoutingConfig config,
+                               @Qualifier("emailRoutingExecutor") Executor executor) {
+        this.config = config;
+        this.executor = executor;
+        // A simulated run must never fail over to a real provider and mail real recipients
+        boolean simulated = emailSenders.stream().anyMatch(sender -> sender.getProvider() == EmailProvider.SIMULATED);
+        for (EmailSender sender : emailSenders) {
+            if (simulated && sender.getProvider() != EmailProvider.SIMULATED) {
+                continue;
+            }
+            senders.put(sender.getProvider(), sender);
+            health.put(sender.getProvider(), new ProviderHealth());
+        }
+        if (simulated) {
+            log.info("Email routing restricted to the simulated provider");
+        }
+    }
+
+    public EmailResponse send(EmailRequest request, EmailProvider preferred) {
+        List<EmailProvider> candidates = candidates(preferred);
+        if (candidates.isEmpty()) {
+            log.error("No email provider available for: {}", request.getTo());
+            return failed(request, preferred);
+        }
+
+        if (config.isHedgeEnabled() && candidates.size() > 1) {
+            return sendHedged(request, candidates);
+        }
+
+        EmailResponse response = sendInTurn(request, candidates, null);
+        return response != null ? response : failed(request, preferred);
+    }
+
+    /**
+     * Try each candidate in order until one answers; {@code response} is the failure to report
+     * if none does
+     */
+    private EmailResponse sendInTurn(EmailRequest request, List<EmailProvider> candidates, EmailResponse response) {
+        for (EmailProvider provider : candidates) {
+            if (!health.get(provider).tryAcquire(config)) {
+                continue;
+            }
+            response = invoke(provider, request);
+            if (isAnswered(response)) {
+                return response;
+            }
+            log.warn("Email provider {} failed for {}, trying next provider", provider, request.getTo());
+        }
+        return response;
+    }
+
+    /**
+     * Send a group of emails through one provider call so the sender can reuse its
+     * connection. Messages that fail outright are failed over one by one.
+     */
+    public List<EmailResponse> sendBatch(List<EmailRequest> requests, EmailProvider preferred) {
+        if (requests.size() == 1) {
+            return List.of(send(requests.get(0), preferred));
+        }
+
+        for (EmailProvider provider : candidates(preferred)) {
+            ProviderHealth providerHealth = health.get(provider);
+            if (!providerHealth.tryAcquire(config)) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            List<EmailResponse> responses;
+            try {
+                responses = senders.get(provider).sendBatch(requests);
+            } catch (RuntimeException e) {
+                log.error("Email provider {} threw on batch: {}", provider, e.getMessage());
+                providerHealth.record(false, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), config);
+                continue;
+            }
+            long perMessageMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / requests.size();
+
+            List<EmailResponse> result = new ArrayList<>(responses);
+            for (int i = 0; i < result.size(); i++) {
+                EmailResponse response = result.get(i);
+                recordHealth(providerHealth, response, perMessageMs);
+                if (!isAnswered(response)) {
+                    result.set(i, failOver(requests.get(i), preferred, provider, response));
+                }
+            }
+            return result;
+        }
+
+        log.error("No email provider available for a batch of {}", requests.size());
+        return requests.stream().map(request -> failed(request, preferred)).toList();
+    }
+
+    /**
+     * Retry one message a batch provider failed on the remaining providers, keeping
+     * its failed response when none of them answers
+     */
+    private EmailResponse failOver(EmailRequest request, EmailProvider preferred, EmailProvider failed,
+                                   EmailResponse response) {
+        List<EmailProvider> others = candidates(preferred);
+        others.remove(failed);
+        log.warn("Email provider {} failed for {} in a batch, trying next provider", failed, request.getTo());
+        return sendInTurn(request, others, response);
+    }
+
+    /**
+     * Configured providers whose circuit admits calls, best first. The preferred
+     * provider keeps first place as long as it is healthy.
+     */
+    List<EmailProvider> candidates(EmailProvider preferred) {
+        List<EmailProvider> result = new ArrayList<>();
+        for (Map.Entry<EmailProvider, EmailSender> entry : senders.entrySet()) {
+            if (entry.getValue().isConfigured() && health.get(entry.getKey()).admitsCalls(config)) {
+                result.add(entry.getKey());
+            }
+        }
+        result.sort(Comparator.comparingDouble(p -> health.get(p).score()));
+        if (result.remove(preferred)) {
+            int position = health.get(preferred).isHealthy(config) ? 0 : result.size();
+            result.add(position, preferred);
+        }
+        return result;
+    }
+
+    private EmailResponse sendHedged(EmailRequest request, List<EmailProvider> candidates) {
+        EmailProvider primary = candidates.get(0);
+        if (!health.get(primary).tryAcquire(config)) {
+            return send(request, candidates.get(1));
+        }
+        CompletableFuture<EmailResponse> first;
+        try {
+            first = CompletableFuture.supplyAsync(() -> invoke(primary, request), executor);
+        } catch (RejectedExecutionException e) {
+            // Routing pool saturated: send on the caller's thread and fail over without hedging
+            log.warn("Email routing pool saturated, sending to {} without hedging", request.getTo());
+            EmailResponse response = invoke(primary, request);
+            if (isAnswered(response)) {
+                return response;
+            }
+            response = sendInTurn(request, candidates.subList(1, candidates.size()), response);
+            return response != null ? response : failed(request, primary);
+        }
+
+        long hedgeDelay = Math.max(config.getHedgeMinDelayMs(),
+                (long) (health.get(primary).averageLatencyMs() * config.getHedgeLatencyMultiplier()));
+        try {
+            EmailResponse response = first.get(hedgeDelay, TimeUnit.MILLISECONDS);
+            if (isAnswered(response)) {
+                return response;
+            }
+        } catch (TimeoutException e) {
+            log.info("Email provider {} slower than {}ms, hedging", primary, hedgeDelay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(request, primary);
+        } catch (ExecutionException e) {
+            log.warn("Email provider {} threw: {}", primary, e.getCause().getMessage());
+        }
+
+        EmailProvider secondary = candidates.get(1);
+        if (!health.get(secondary).tryAcquire(config)) {
+            return first.join();
+        }
+        CompletableFuture<EmailResponse> second = invokeHedge(secondary, request);
+
+        // Take the first successful answer; if both fail, report the primary's failure
+        CompletableFuture<EmailResponse> winner = new CompletableFuture<>();
+        first.thenAccept(r -> { if (isSuccess(r)) winner.complete(r); });
+        second.thenAccept(r -> { if (isSuccess(r)) winner.complete(r); });
+        CompletableFuture.allOf(first, second).whenComplete((v, ex) -> {
+            EmailResponse hedged = second.getNow(null);
+            winner.complete(isSuccess(hedged) ? hedged : first.getNow(null));
+        });
+        EmailResponse response = winner.join();
+        return response != null ? response : failed(request, primary);
+    }
+
+    private CompletableFuture<EmailResponse> invokeHedge(EmailProvider provider, EmailRequest request) {
+        try {
+            return CompletableFuture.supplyAsync(() -> invoke(provider, request), executor);
+        } catch (RejectedExecutionException e) {
+            // The provider's circuit slot is already claimed, so make the call here rather than leak it
+            return CompletableFuture.completedFuture(invoke(provider, request));
+        }
+    }
+
+    private EmailResponse invoke(EmailProvider provider, EmailRequest request) {
+        ProviderHealth providerHealth = health.get(provider);
+        long start = System.nanoTime();
+        EmailResponse response;
+        try {
+            response = senders.get(provider).send(request);
+        } catch (RuntimeException e) {
+            log.error("Email provider {} threw: {}", provider, e.getMessage());
+            response = failed(request, provider);
+        }
+        recordHealth(providerHealth, response, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return response;
+    }
+
+    /**
+     * A throttled call never reached the provider's delivery path, so it neither helps nor
+     * hurts the circuit; it only gives back a half-open probe slot
+     */
+    private void recordHealth(ProviderHealth providerHealth, EmailResponse response, long elapsedMs) {
+        if (response != null && EmailSender.STATUS_THROTTLED.equals(response.getStatus())) {
+            providerHealth.releaseProbe();
+        } else {
+            providerHealth.record(isAnswered(response), elapsedMs, config);
+        }
+    }
+
+    public List<EmailProviderHealth> getHealth() {
+        List<EmailProviderHealth> result = new ArrayList<>();
+        senders.forEach((provider, sender) -> {
+            ProviderHealth h = health.get(provider);
+            result.add(EmailProviderHealth.builder()
+                    .provider(provider.name())
+                    .configured(sender.isConfigured())
+                    .circuitState(h.state(config).name())
+                    .averageLatencyMs(h.averageLatencyMs())
+                    .errorRate(h.errorRate())
+                    .totalCalls(h.calls())
+                    .build());
+        });
+        return result;
+    }
+
+    private boolean isSuccess(EmailResponse response) {
+        return response != null && "SENT".equals(response.getStatus());
+    }
+
+    /**
+     * The provider did its job: it delivered, or the recipient's server deferred or refused the
+     * message, which another provider would hit too. A throttled provider did not, so the message
+     * fails over.
+     */
+    private boolean isAnswered(EmailResponse response) {
+        return isSuccess(response) || (response != null
+                && (DomainThrottle.STATUS_DEFERRED.equals(response.getStatus())
+                || EmailSender.STATUS_REJECTED.equals(response.getStatus())));
+    }
+
+    private EmailResponse failed(EmailRequest request, EmailProvider provider) {
+        return EmailResponse.builder()
+                .status("FAILED")
+                .recipient(request.getTo())
+                .sentAt(LocalDateTime.now())
+                .provider(provider != null ? provider.name() : null)
+                .build();
+    }
+
+    /**
+     * Rolling health of one provider, including its circuit breaker
+     */
+    private static class ProviderHealth {
+        private double latencyMs;
+        private double errorRate;
+        private long calls;
+        private int consecutiveFailures;
+        private CircuitState state = CircuitState.CLOSED;
+        private long openedAt;
+        private final AtomicBoolean probeInFlight = new AtomicBoolean(false);
+
+        synchronized void record(boolean success, long elapsedMs, EmailRoutingConfig config) {
+            double alpha = config.getEwmaAlpha();
+            latencyMs = calls == 0 ? elapsedMs : alpha * elapsedMs + (1 - alpha) * latencyMs;
+            errorRate = alpha * (success ? 0 : 1) + (1 - alpha) * errorRate;
+            calls++;
+            consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+
+            if (state == CircuitState.HALF_OPEN) {
+                probeInFlight.set(false);
+                if (success) {
+                    state = CircuitState.CLOSED;
+                    errorRate = 0;
+                } else {
+                    open();
+                }
+            } else if (!success && (consecutiveFailures >= config.getConsecutiveFailures()
+                    || (calls >= config.getMinimumCalls() && errorRate >= config.getFailureRateThreshold()))) {
+                open();
+            }
+        }
+
+        private void open() {
+            state = CircuitState.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        synchronized CircuitState state(EmailRoutingConfig config) {
+            if (state == CircuitState.OPEN
+                    && System.currentTimeMillis() - openedAt >= config.getOpenSeconds() * 1000L) {
+                state = CircuitState.HALF_OPEN;
+            }
+            return state;
+        }
+
+        boolean admitsCalls(EmailRoutingConfig config) {
+            CircuitState current = state(config);
+            return current == CircuitState.CLOSED || (current == CircuitState.HALF_OPEN && !probeInFlight.get());
+        }
+
+        void releaseProbe() {
+            probeInFlight.set(false);
+        }
+
+        /**
+         * Claim permission to call; in half-open state only a single probe is let through
+         */
+        boolean tryAcquire(EmailRoutingConfig config) {
+            CircuitState current = state(config);
+            if (current == CircuitState.CLOSED) {
+                return true;
+            }
+            return current == CircuitState.HALF_OPEN && probeInFlight.compareAndSet(false, true);
+        }
+
+        synchronized boolean isHealthy(EmailRoutingConfig config) {
+            return state == CircuitState.CLOSED
+                    && latencyMs < config.getSlowCallMs()
+                    && (calls < config.getMinimumCalls() || errorRate < config.getFailureRateThreshold());
+        }
+
+        synchronized double score() {
+            return latencyMs * (1 + 10 * errorRate);
+        }
+
+        synchronized double averageLatencyMs() {
+            return latencyMs;
+        }
+
+        synchronized double errorRate() {
+            return errorRate;
+        }
+
+        synchronized long calls() {
+            return calls;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.confiance.notification.service.email;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "email.retry")
+public class EmailRetryConfig {
+
+    private boolean enabled = true;
+    private int maxAttempts = 6;                 // Total attempts including the first send
+    private int baseDelaySeconds = 30;           // Delay before the first retry, doubled per attempt
+    private int maxDelaySeconds = 3600;          // Cap on the backoff delay
+    private int batchSize = 100;                 // Rows read per keyset page
+    private int ratePerSecond = 20;              // Retries dispatched per second per node
+    private int leaseSeconds = 300;              // How long a claimed retry is hidden from other nodes
+}
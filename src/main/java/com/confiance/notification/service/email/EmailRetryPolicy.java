@@ -0,0 +1,49 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter for failed email deliveries
+ */
+@Component
+@RequiredArgsConstructor
+public class EmailRetryPolicy {
+
+    private final EmailRetryConfig config;
+
+    /**
+     * Statuses the retry scheduler picks up again
+     */
+    public boolean isRetryable(String status) {
+        return "FAILED".equals(status) || DomainThrottle.STATUS_DEFERRED.equals(status)
+                || EmailSender.STATUS_THROTTLED.equals(status);
+    }
+
+    /**
+     * Inline attachment bytes are not retained after the first attempt; referenced ones are
+     */
+    public boolean canRetry(EmailRequest request) {
+        return config.isEnabled() && (request.getAttachments() == null
+                || request.getAttachments().stream().allMatch(att -> att.getContent() == null));
+    }
+
+    public boolean hasAttemptsLeft(int attemptsMade) {
+        return attemptsMade < config.getMaxAttempts();
+    }
+
+    /**
+     * Half the exponential delay is fixed and half is random, so retries of a
+     * provider outage spread out instead of all landing at the same instant.
+     */
+    public LocalDateTime nextAttemptAt(int attemptsMade) {
+        long exponential = (long) config.getBaseDelaySeconds() << Math.min(Math.max(attemptsMade - 1, 0), 20);
+        long delay = Math.min(exponential, config.getMaxDelaySeconds());
+        long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        return LocalDateTime.now().plusSeconds(jittered);
+    }
+}
@@ -0,0 +1,116 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.entity.EmailLog;
+import com.confiance.notification.repository.EmailLogRepository;
+import com.confiance.notification.service.EmailService;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Picks up failed deliveries whose backoff has elapsed and re-sends them.
+ * Due rows are read with a keyset scan on (nextAttemptAt, id) and claimed with a
+ * conditional update, so several instances can poll the same table safely.
+ */
+@Component
+@Slf4j
+public class EmailRetryScheduler {
+
+    private static final LocalDateTime SCAN_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final EmailLogRepository emailLogRepository;
+    private final EmailService emailService;
+    private final EmailRetryConfig config;
+    private final Executor retryExecutor;
+    private final Bucket rateBudget;
+
+    public EmailRetryScheduler(EmailLogRepository emailLogRepository, EmailService emailService,
+                               EmailRetryConfig config,
+                               @Qualifier("emailRetryExecutor") Executor retryExecutor) {
+        this.emailLogRepository = emailLogRepository;
+        this.emailService = emailService;
+        this.config = config;
+        this.retryExecutor = retryExecutor;
+        int rate = Math.max(config.getRatePerSecond(), 1);
+        this.rateBudget = Bucket.builder()
+                .addLimit(Bandwidth.classic(rate, Refill.greedy(rate, Duration.ofSeconds(1))))
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${email.retry.poll-interval-ms:1000}",
+            initialDelayString = "${email.retry.initial-delay-ms:30000}")
+    public void dispatchDueRetries() {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cursorAt = SCAN_START;
+        long cursorId = 0L;
+        int dispatched = 0;
+
+        try {
+            scan:
+            while (true) {
+                List<EmailLog> due = emailLogRepository.findDueForRetry(
+                        now, cursorAt, cursorId, PageRequest.of(0, config.getBatchSize()));
+                if (due.isEmpty()) {
+                    break;
+                }
+
+                for (EmailLog emailLog : due) {
+                    // Spread retries out so a recovered provider isn't hit with the whole backlog at once;
+                    // the rest stay due and are picked up by the next poll
+                    if (!rateBudget.tryConsume(1)) {
+                        break scan;
+                    }
+                    if (claim(emailLog, now)) {
+                        retryExecutor.execute(() -> retry(emailLog));
+                        dispatched++;
+                    }
+                }
+
+                EmailLog last = due.get(due.size() - 1);
+                cursorAt = last.getNextAttemptAt();
+                cursorId = last.getId();
+                if (due.size() < config.getBatchSize()) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Email retry scan failed: {}", e.getMessage());
+        }
+
+        if (dispatched > 0) {
+            log.info("Dispatched {} email retries", dispatched);
+        }
+    }
+
+    /**
+     * Push nextAttemptAt out by the lease so other instances skip the row.
+     * If this instance dies mid-send the row becomes due again when the lease runs out.
+     */
+    private boolean claim(EmailLog emailLog, LocalDateTime now) {
+        LocalDateTime leaseUntil = now.plusSeconds(config.getLeaseSeconds());
+        return emailLogRepository.claimForRetry(emailLog.getId(), emailLog.getNextAttemptAt(), leaseUntil) == 1;
+    }
+
+    private void retry(EmailLog emailLog) {
+        try {
+            emailService.retryDelivery(emailLog);
+        } catch (Exception e) {
+            // The lease stays in place, so the row is picked up again once it expires
+            log.error("Retry of email log {} failed: {}", emailLog.getId(), e.getMessage());
+        }
+    }
+}
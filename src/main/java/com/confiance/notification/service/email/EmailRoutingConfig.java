@@ -0,0 +1,24 @@
+package com.confiance.notification.service.email;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "email.routing")
+public class EmailRoutingConfig {
+
+    private double ewmaAlpha = 0.2;              // Weight of the newest sample in latency/error averages
+    private long slowCallMs = 5000;              // Providers averaging above this are not preferred
+    private double failureRateThreshold = 0.5;   // EWMA error rate that opens the circuit
+    private int consecutiveFailures = 5;         // Consecutive failures that open the circuit
+    private int minimumCalls = 10;               // Calls needed before the error rate is trusted
+    private int openSeconds = 30;                // How long an open circuit rejects calls before a probe
+
+    // Hedging sends the same email through a second provider when the first is slow.
+    // The recipient may get two copies if both eventually succeed, so it is off by default.
+    private boolean hedgeEnabled = false;
+    private long hedgeMinDelayMs = 1500;         // Never hedge earlier than this
+    private double hedgeLatencyMultiplier = 3.0; // Hedge once the primary exceeds N x its average latency
+}
@@ -4,10 +4,33 @@ import com.confiance.notification.dto.EmailRequest;
 import com.confiance.notification.dto.EmailResponse;
 import com.confiance.notification.enums.EmailProvider;
 
+import java.util.List;
+
 public interface EmailSender {
 
+    /**
+     * The recipient was refused for good (bad address, unknown mailbox). Says nothing about the
+     * provider's health and is neither retried nor failed over.
+     */
+    String STATUS_REJECTED = "REJECTED";
+
+    /**
+     * Our budget or concurrency limit for the provider is spent, or the provider itself rate
+     * limited us. Nothing to do with the recipient's domain: another provider may take the
+     * message now, and the retry scheduler picks it up otherwise.
+     */
+    String STATUS_THROTTLED = "THROTTLED";
+
     EmailResponse send(EmailRequest request);
 
+    /**
+     * Send several emails, returning one response per request in the same order.
+     * Providers that can reuse a connection across messages override this.
+     */
+    default List<EmailResponse> sendBatch(List<EmailRequest> requests) {
+        return requests.stream().map(this::send).toList();
+    }
+
     EmailProvider getProvider();
 
     boolean isConfigured();
@@ -0,0 +1,203 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.common.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Email counts by creation day and current status, kept in one Redis hash per day.
+ * A row is counted when logged and moved between statuses when a retry, dead letter
+ * or re-drive changes it, so range counts never scan email_logs.
+ * <p>
+ * The counters are rebuilt from email_logs one day at a time: days with no hash are
+ * backfilled at startup, recent days are recomputed nightly, and a day whose update
+ * failed is recomputed on the next reconcile pass.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailStatsService {
+
+    private static final String KEY_PREFIX = "email:stats:";
+    private static final Duration RETENTION = Duration.ofDays(400);
+    private static final int MAX_RANGE_DAYS = 366;
+
+    // Replace a day's counts in one step so readers never see a half-written hash
+    // ARGV[1] ttl seconds, ARGV[2..] status, count pairs
+    private static final DefaultRedisScript<Long> REPLACE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[1])
+            for i = 2, #ARGV, 2 do
+              redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Days whose counter update failed; recomputed from email_logs by reconcileDirty
+    private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+
+    @Value("${email.stats.reconcile-days:2}")
+    private int reconcileDays;
+
+    @Value("${email.stats.backfill-days:90}")
+    private int backfillDays;
+
+    public void recordNew(LocalDateTime createdAt, String status) {
+        recordTransition(createdAt, null, status);
+    }
+
+    public void recordTransition(LocalDateTime createdAt, String from, String to) {
+        if (createdAt == null || Objects.equals(from, to)) {
+            return;
+        }
+        String key = KEY_PREFIX + createdAt.toLocalDate();
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    if (from != null) {
+                        operations.opsForHash().increment(key, from, -1);
+                    }
+                    if (to != null) {
+                        operations.opsForHash().increment(key, to, 1);
+                    }
+                    operations.expire(key, RETENTION);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // Never fail a send over the counters; the day is rebuilt from email_logs instead
+            dirtyDays.add(createdAt.toLocalDate());
+            log.error("Could not update email stats for {}, marked for reconcile: {}",
+                    createdAt.toLocalDate(), e.getMessage());
+        }
+    }
+
+    /**
+     * Build counters for days inside the backfill window that have none, such as days
+     * before the counters existed or after Redis lost its data
+     */
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        LocalDate today = LocalDate.now();
+        int rebuilt = 0;
+        try {
+            for (LocalDate day = today.minusDays(backfillDays - 1L); !day.isAfter(today); day = day.plusDays(1)) {
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + day))) {
+                    reconcile(day);
+                    rebuilt++;
+                }
+            }
+            if (rebuilt > 0) {
+                log.info("Backfilled email stats for {} days", rebuilt);
+            }
+        } catch (Exception e) {
+            log.error("Email stats backfill failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute the most recent days; covers the partial day counters started on and any
+     * drift from updates racing a reconcile
+     */
+    @Scheduled(cron = "${email.stats.reconcile-cron:0 20 0 * * *}")
+    public void reconcileRecent() {
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = today.minusDays(reconcileDays); !day.isAfter(today); day = day.plusDays(1)) {
+            dirtyDays.remove(day);
+            reconcileQuietly(day);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.stats.reconcile-interval-ms:60000}")
+    public void reconcileDirty() {
+        for (LocalDate day : new ArrayList<>(dirtyDays)) {
+            dirtyDays.remove(day);
+            reconcileQuietly(day);
+        }
+    }
+
+    /**
+     * Rewrite one day's counters from a GROUP BY over its email_logs rows
+     */
+    public void reconcile(LocalDate day) {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(RETENTION.toSeconds()));
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM email_logs "
+                        + "WHERE created_at >= ? AND created_at < ? AND status IS NOT NULL GROUP BY status",
+                rs -> {
+                    args.add(rs.getString(1));
+                    args.add(String.valueOf(rs.getLong(2)));
+                },
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        redisTemplate.execute(REPLACE_SCRIPT, List.of(KEY_PREFIX + day), args.toArray());
+    }
+
+    private void reconcileQuietly(LocalDate day) {
+        try {
+            reconcile(day);
+        } catch (Exception e) {
+            dirtyDays.add(day);
+            log.error("Could not reconcile email stats for {}: {}", day, e.getMessage());
+        }
+    }
+
+    /**
+     * Counts by status for emails created between the two days, inclusive
+     */
+    public Map<String, Long> countsBetween(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > MAX_RANGE_DAYS) {
+            throw new BadRequestException("Date range must cover 1 to " + MAX_RANGE_DAYS + " days");
+        }
+
+        List<Object> dailyCounts = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                    operations.opsForHash().entries(KEY_PREFIX + day);
+                }
+                return null;
+            }
+        });
+
+        Map<String, Long> totals = new TreeMap<>();
+        for (Object daily : dailyCounts) {
+            if (daily instanceof Map<?, ?> counts) {
+                counts.forEach((status, count) ->
+                        totals.merge(String.valueOf(status), Long.parseLong(String.valueOf(count)), Long::sum));
+            }
+        }
+        return totals;
+    }
+}
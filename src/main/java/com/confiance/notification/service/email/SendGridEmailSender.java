@@ -3,90 +3,135 @@ package com.confiance.notification.service.email;
 import com.confiance.notification.dto.EmailRequest;
 import com.confiance.notification.dto.EmailResponse;
 import com.confiance.notification.enums.EmailProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.http.OutboundHttp;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
-@ConditionalOnProperty(name = "email.provider", havingValue = "sendgrid")
 public class SendGridEmailSender implements EmailSender {
 
+    private final AttachmentResolver attachmentResolver;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final OutboundHttp outboundHttp;
+
     @Value("${sendgrid.api-key:}")
     private String apiKey;
 
+    @Value("${sendgrid.request-timeout-ms:60000}")
+    private long requestTimeoutMs;
+
     @Value("${email.from.address:noreply@confiance.com}")
     private String fromAddress;
 
     @Value("${email.from.name:Confiance Financial}")
     private String fromName;
 
-    private static final String SENDGRID_API_URL = "https://api.sendgrid.com/v3/mail/send";
+    private static final URI SENDGRID_API_URI = URI.create("https://api.sendgrid.com/v3/mail/send");
+
+    // A 400 naming a personalization address is about the recipient, not SendGrid
+    private static final Pattern INVALID_RECIPIENT =
+            Pattern.compile("\"field\"\\s*:\\s*\"personalizations\\.\\d+\\.(to|cc|bcc)\\.\\d+\\.email\"");
 
     @Override
     public EmailResponse send(EmailRequest request) {
         String messageId = UUID.randomUUID().toString();
 
-        try {
-            String jsonPayload = buildJsonPayload(request);
+        if (!providerThrottle.acquire(ProviderThrottle.SENDGRID)) {
+            // Over our SendGrid budget: another provider or the retry scheduler takes it
+            log.warn("SendGrid budget exhausted, throttling email to: {}", request.getTo());
+            return response(request, messageId, STATUS_THROTTLED);
+        }
+
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.SENDGRID);
+        if (permit == null) {
+            return response(request, messageId, STATUS_THROTTLED);
+        }
 
-            URL url = new URL(SENDGRID_API_URL);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
+        try (AttachmentResolver.Attachments attachments = attachmentResolver.resolveAll(request.getAttachments())) {
 
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonPayload.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+            // Sent over the shared client, so the call reuses a warm, already-handshaken connection
+            HttpRequest httpRequest = HttpRequest.newBuilder(SENDGRID_API_URI)
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .header("Authorization", "Bearer " + apiKey)
+                    .header("Content-Type", "application/json")
+                    .POST(jsonPayload(request, attachments.list()))
+                    .build();
+            HttpResponse<String> httpResponse = outboundHttp.client().send(httpRequest, HttpResponse.BodyHandlers.ofString());
 
-            int responseCode = conn.getResponseCode();
+            int responseCode = httpResponse.statusCode();
 
             if (responseCode >= 200 && responseCode < 300) {
+                providerThrottle.onSuccess(ProviderThrottle.SENDGRID);
                 log.info("Email sent successfully via SendGrid to: {}", request.getTo());
-                return EmailResponse.builder()
-                        .messageId(messageId)
-                        .status("SENT")
-                        .recipient(request.getTo())
-                        .sentAt(LocalDateTime.now())
-                        .provider(getProvider().name())
-                        .build();
+                return response(request, messageId, "SENT");
+            } else if (responseCode == 429) {
+                permit.dropped();
+                // Rate limited: every sender on this node waits out Retry-After, the email goes elsewhere or later
+                providerThrottle.onThrottled(ProviderThrottle.SENDGRID,
+                        ProviderThrottle.parseRetryAfter(httpResponse.headers().firstValue("Retry-After").orElse(null)));
+                return response(request, messageId, STATUS_THROTTLED);
+            } else if (responseCode == 400 && INVALID_RECIPIENT.matcher(httpResponse.body()).find()) {
+                log.warn("SendGrid refused recipient {}: {}", request.getTo(), httpResponse.body());
+                return response(request, messageId, STATUS_REJECTED);
             } else {
                 log.error("Failed to send email via SendGrid. Response code: {}", responseCode);
-                return EmailResponse.builder()
-                        .messageId(messageId)
-                        .status("FAILED")
-                        .recipient(request.getTo())
-                        .sentAt(LocalDateTime.now())
-                        .provider(getProvider().name())
-                        .build();
+                return response(request, messageId, "FAILED");
             }
 
+        } catch (HttpTimeoutException e) {
+            permit.dropped();
+            log.error("SendGrid timed out sending email to {}: {}", request.getTo(), e.getMessage());
+            return response(request, messageId, "FAILED");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return response(request, messageId, STATUS_THROTTLED);
         } catch (Exception e) {
             log.error("Error sending email via SendGrid: {}", e.getMessage());
-            return EmailResponse.builder()
-                    .messageId(messageId)
-                    .status("FAILED")
-                    .recipient(request.getTo())
-                    .sentAt(LocalDateTime.now())
-                    .provider(getProvider().name())
-                    .build();
+            return response(request, messageId, "FAILED");
+        } finally {
+            permit.close();
         }
     }
 
-    private String buildJsonPayload(EmailRequest request) {
+    private EmailResponse response(EmailRequest request, String messageId, String status) {
+        return EmailResponse.builder()
+                .messageId(messageId)
+                .status(status)
+                .recipient(request.getTo())
+                .sentAt(LocalDateTime.now())
+                .provider(getProvider().name())
+                .build();
+    }
+
+    /**
+     * The JSON body as a sequence of parts. Attachment content is base64-encoded while the
+     * request is written, so files stream from storage instead of being held in memory.
+     */
+    private HttpRequest.BodyPublisher jsonPayload(EmailRequest request,
+                                                  List<AttachmentResolver.ResolvedAttachment> attachments) {
         StringBuilder json = new StringBuilder();
         json.append("{");
         json.append("\"personalizations\": [{\"to\": [{\"email\": \"").append(escapeJson(request.getTo())).append("\"}]");
@@ -105,20 +150,90 @@ public class SendGridEmailSender implements EmailSender {
         json.append("\"subject\": \"").append(escapeJson(request.getSubject())).append("\",");
         json.append("\"content\": [{\"type\": \"").append(request.isHtml() ? "text/html" : "text/plain").append("\", \"value\": \"").append(escapeJson(request.getBody())).append("\"}]");
 
-        if (request.getAttachments() != null && !request.getAttachments().isEmpty()) {
-            json.append(",\"attachments\": [");
-            for (int i = 0; i < request.getAttachments().size(); i++) {
-                EmailRequest.EmailAttachment att = request.getAttachments().get(i);
-                if (i > 0) json.append(",");
-                json.append("{\"content\": \"").append(Base64.getEncoder().encodeToString(att.getContent())).append("\",");
-                json.append("\"filename\": \"").append(escapeJson(att.getFileName())).append("\",");
-                json.append("\"type\": \"").append(escapeJson(att.getContentType())).append("\"}");
+        if (attachments.isEmpty()) {
+            return HttpRequest.BodyPublishers.ofString(json.append("}").toString());
+        }
+
+        List<HttpRequest.BodyPublisher> parts = new ArrayList<>();
+        json.append(",\"attachments\": [");
+        for (int i = 0; i < attachments.size(); i++) {
+            AttachmentResolver.ResolvedAttachment att = attachments.get(i);
+            if (i > 0) json.append(",");
+            json.append("{\"content\": \"");
+            parts.add(HttpRequest.BodyPublishers.ofString(json.toString()));
+            json.setLength(0);
+            // Base64 characters need no JSON escaping
+            parts.add(HttpRequest.BodyPublishers.ofInputStream(() -> {
+                try {
+                    return new Base64EncodingInputStream(att.source().getInputStream());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            json.append("\",\"filename\": \"").append(escapeJson(att.fileName())).append("\",")
+                    .append("\"type\": \"").append(escapeJson(att.contentType())).append("\"}");
+        }
+        json.append("]}");
+        parts.add(HttpRequest.BodyPublishers.ofString(json.toString()));
+        return HttpRequest.BodyPublishers.concat(parts.toArray(new HttpRequest.BodyPublisher[0]));
+    }
+
+    /**
+     * Base64 of the wrapped stream, encoded a block at a time. Blocks are a multiple of three
+     * bytes, so only the last one carries padding and the output equals a one-shot encoding.
+     */
+    private static final class Base64EncodingInputStream extends InputStream {
+        private static final int BLOCK_SIZE = 48 * 1024;
+
+        private final InputStream source;
+        private byte[] encoded = new byte[0];
+        private int position;
+        private boolean exhausted;
+
+        Base64EncodingInputStream(InputStream source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= encoded.length && !fill()) {
+                return -1;
             }
-            json.append("]");
+            return encoded[position++] & 0xff;
         }
 
-        json.append("}");
-        return json.toString();
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= encoded.length && !fill()) {
+                return -1;
+            }
+            int count = Math.min(len, encoded.length - position);
+            System.arraycopy(encoded, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        private boolean fill() throws IOException {
+            if (exhausted) {
+                return false;
+            }
+            byte[] raw = source.readNBytes(BLOCK_SIZE);
+            exhausted = raw.length < BLOCK_SIZE;
+            if (raw.length == 0) {
+                return false;
+            }
+            encoded = Base64.getEncoder().encode(raw);
+            position = 0;
+            return true;
+        }
     }
 
     private String escapeJson(String value) {
@@ -0,0 +1,126 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.notification.enums.SuppressionReason;
+import com.confiance.notification.service.EmailSuppressionService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles SendGrid Event Webhook posts: verifies the signature and turns hard
+ * bounces, spam reports and unsubscribes into suppressions. Without a
+ * verification key every post is rejected, since anyone could otherwise
+ * suppress arbitrary addresses.
+ */
+@Component
+@Slf4j
+public class SendGridEventProcessor {
+
+    private static final TypeReference<List<Map<String, Object>>> EVENTS_TYPE = new TypeReference<>() {};
+    private static final String SOURCE = "SENDGRID";
+
+    private final EmailSuppressionService suppressionService;
+    private final ObjectMapper objectMapper;
+    private final PublicKey verificationKey;
+
+    public SendGridEventProcessor(EmailSuppressionService suppressionService, ObjectMapper objectMapper,
+                                  @Value("${sendgrid.webhook.verification-key:}") String verificationKey) {
+        this.suppressionService = suppressionService;
+        this.objectMapper = objectMapper;
+        this.verificationKey = parseKey(verificationKey);
+        if (this.verificationKey == null) {
+            log.warn("SendGrid webhook verification key not set - event webhook posts will be rejected");
+        }
+    }
+
+    /**
+     * SendGrid signs timestamp + raw body with ECDSA (P-256, SHA-256)
+     */
+    public boolean verify(byte[] payload, String signature, String timestamp) {
+        if (verificationKey == null) {
+            return false;
+        }
+        if (!StringUtils.hasText(signature) || !StringUtils.hasText(timestamp)) {
+            return false;
+        }
+        try {
+            Signature verifier = Signature.getInstance("SHA256withECDSA");
+            verifier.initVerify(verificationKey);
+            verifier.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            verifier.update(payload);
+            return verifier.verify(Base64.getDecoder().decode(signature));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.warn("SendGrid webhook signature check failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of addresses suppressed
+     */
+    public int process(byte[] payload) {
+        List<Map<String, Object>> events;
+        try {
+            events = objectMapper.readValue(payload, EVENTS_TYPE);
+        } catch (IOException e) {
+            throw new BadRequestException("Invalid SendGrid event payload");
+        }
+
+        int suppressed = 0;
+        for (Map<String, Object> event : events) {
+            String email = asString(event.get("email"));
+            SuppressionReason reason = reasonFor(event);
+            if (email == null || reason == null) {
+                continue;
+            }
+            suppressionService.suppress(email, reason, SOURCE, asString(event.get("reason")));
+            suppressed++;
+        }
+        return suppressed;
+    }
+
+    private SuppressionReason reasonFor(Map<String, Object> event) {
+        String type = asString(event.get("event"));
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            // "blocked" bounces are temporary; only "bounce" type is a hard bounce
+            case "bounce" -> "blocked".equals(asString(event.get("type"))) ? null : SuppressionReason.HARD_BOUNCE;
+            case "spamreport" -> SuppressionReason.COMPLAINT;
+            case "unsubscribe", "group_unsubscribe" -> SuppressionReason.UNSUBSCRIBE;
+            default -> null;
+        };
+    }
+
+    private static String asString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static PublicKey parseKey(String key) {
+        if (!StringUtils.hasText(key)) {
+            return null;
+        }
+        try {
+            return KeyFactory.getInstance("EC")
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key.trim())));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid sendgrid.webhook.verification-key", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.confiance.notification.service.email;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "aws.ses")
+public class SesConfig {
+
+    private String region = "ap-south-1";
+    private String accessKey;
+    private String secretKey;
+    private String endpoint;                     // Overrides https://email.<region>.amazonaws.com, e.g. a local SES stand-in
+    private String configurationSet;             // Optional SES configuration set for event publishing
+    private String templatePrefix = "confiance-"; // DB templates are mirrored to SES under this prefix
+    private int maxBulkDestinations = 50;        // SES limit for SendBulkEmail
+    private int templateCacheSeconds = 60;       // How long a template lookup (or a failed sync) is reused
+    private long requestTimeoutMs = 15000;
+
+    public String endpointUrl() {
+        return StringUtils.hasText(endpoint) ? endpoint.replaceAll("/+$", "")
+                : "https://email." + region + ".amazonaws.com";
+    }
+}
@@ -0,0 +1,83 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.confiance.notification.enums.EmailProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.simulation.ProviderSimulator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Email provider with no outside calls, for load and chaos testing (email.provider=simulated).
+ * Latency, errors and 429s follow simulation.providers.simulated-email.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "email.provider", havingValue = "simulated")
+public class SimulatedEmailSender implements EmailSender {
+
+    private final ProviderSimulator simulator;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+
+    @Override
+    public EmailResponse send(EmailRequest request) {
+        String messageId = UUID.randomUUID().toString();
+
+        if (!providerThrottle.acquire(ProviderSimulator.EMAIL)) {
+            return response(request, messageId, STATUS_THROTTLED);
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderSimulator.EMAIL);
+        if (permit == null) {
+            return response(request, messageId, STATUS_THROTTLED);
+        }
+
+        try {
+            ProviderSimulator.Call call = simulator.call(ProviderSimulator.EMAIL);
+            if (call.ok()) {
+                providerThrottle.onSuccess(ProviderSimulator.EMAIL);
+                log.debug("Simulated email to {} sent in {}ms", request.getTo(), call.latencyMs());
+                return response(request, messageId, "SENT");
+            }
+            if (call.throttled()) {
+                permit.dropped();
+                providerThrottle.onThrottled(ProviderSimulator.EMAIL, (long) call.retryAfterSeconds());
+                return response(request, messageId, STATUS_THROTTLED);
+            }
+            return response(request, messageId, "FAILED");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return response(request, messageId, STATUS_THROTTLED);
+        } finally {
+            permit.close();
+        }
+    }
+
+    private EmailResponse response(EmailRequest request, String messageId, String status) {
+        return EmailResponse.builder()
+                .messageId(messageId)
+                .status(status)
+                .recipient(request.getTo())
+                .sentAt(LocalDateTime.now())
+                .provider(getProvider().name())
+                .build();
+    }
+
+    @Override
+    public EmailProvider getProvider() {
+        return EmailProvider.SIMULATED;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+}
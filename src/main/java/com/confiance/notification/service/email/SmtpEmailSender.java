@@ -3,28 +3,42 @@ package com.confiance.notification.service.email;
 import com.confiance.notification.dto.EmailRequest;
 import com.confiance.notification.dto.EmailResponse;
 import com.confiance.notification.enums.EmailProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
 import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.io.UnsupportedEncodingException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
-@ConditionalOnProperty(name = "email.provider", havingValue = "smtp", matchIfMissing = true)
 public class SmtpEmailSender implements EmailSender {
 
     private final JavaMailSender mailSender;
+    private final AttachmentResolver attachmentResolver;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
 
     @Value("${email.from.address:noreply@confiance.com}")
     private String fromAddress;
@@ -38,69 +52,205 @@ public class SmtpEmailSender implements EmailSender {
     @Override
     public EmailResponse send(EmailRequest request) {
         String messageId = UUID.randomUUID().toString();
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        if (!providerThrottle.acquire(ProviderThrottle.SMTP)) {
+            log.warn("SMTP relay budget exhausted, throttling email to: {}", request.getTo());
+            return response(request, messageId, STATUS_THROTTLED);
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.SMTP);
+        if (permit == null) {
+            return response(request, messageId, STATUS_THROTTLED);
+        }
+        try (AttachmentResolver.Attachments attachments = attachmentResolver.resolveAll(request.getAttachments())) {
+            mailSender.send(buildMessage(request, attachments));
 
-            helper.setFrom(fromAddress, fromName);
-            helper.setTo(request.getTo());
-            helper.setSubject(request.getSubject());
+            log.info("Email sent successfully via SMTP to: {}", request.getTo());
+            return response(request, messageId, "SENT");
 
-            if (request.getCc() != null && !request.getCc().isEmpty()) {
-                helper.setCc(request.getCc().toArray(new String[0]));
+        } catch (MessagingException e) {
+            log.error("Failed to send email via SMTP: {}", e.getMessage());
+            return response(request, messageId, statusFor(e));
+        } catch (Exception e) {
+            log.error("Unexpected error sending email via SMTP: {}", e.getMessage());
+            String status = statusFor(e);
+            if (DomainThrottle.STATUS_DEFERRED.equals(status)) {
+                permit.dropped();
             }
+            return response(request, messageId, status);
+        } finally {
+            permit.close();
+        }
+    }
 
-            if (request.getBcc() != null && !request.getBcc().isEmpty()) {
-                helper.setBcc(request.getBcc().toArray(new String[0]));
+    /**
+     * Sends all messages over a single SMTP connection
+     */
+    @Override
+    public List<EmailResponse> sendBatch(List<EmailRequest> requests) {
+        EmailResponse[] responses = new EmailResponse[requests.size()];
+        List<MimeMessage> messages = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        List<AttachmentResolver.Attachments> leases = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            AttachmentResolver.Attachments attachments = null;
+            try {
+                attachments = attachmentResolver.resolveAll(requests.get(i).getAttachments());
+                messages.add(buildMessage(requests.get(i), attachments));
+                leases.add(attachments);
+                positions.add(i);
+            } catch (Exception e) {
+                if (attachments != null) {
+                    attachments.close();
+                }
+                log.error("Failed to build email to {}: {}", requests.get(i).getTo(), e.getMessage());
+                responses[i] = response(requests.get(i), UUID.randomUUID().toString(), "FAILED");
             }
+        }
 
-            if (request.isHtml()) {
-                helper.setText(request.getBody(), true);
+        try {
+            return sendBuilt(requests, responses, messages, positions);
+        } finally {
+            leases.forEach(AttachmentResolver.Attachments::close);
+        }
+    }
+
+    private List<EmailResponse> sendBuilt(List<EmailRequest> requests, EmailResponse[] responses,
+                                          List<MimeMessage> messages, List<Integer> positions) {
+        Map<Object, Exception> failedMessages = Map.of();
+        MailException batchFailure = null;
+        if (!messages.isEmpty() && !providerThrottle.acquire(ProviderThrottle.SMTP, messages.size())) {
+            log.warn("SMTP relay budget exhausted, throttling batch of {} emails", messages.size());
+            for (int i : positions) {
+                responses[i] = response(requests.get(i), UUID.randomUUID().toString(), STATUS_THROTTLED);
+            }
+            return Arrays.asList(responses);
+        }
+        ProviderConcurrencyLimiter.Permit permit = messages.isEmpty() ? null : concurrencyLimiter.tryAcquire(ProviderThrottle.SMTP);
+        if (!messages.isEmpty() && permit == null) {
+            for (int i : positions) {
+                responses[i] = response(requests.get(i), UUID.randomUUID().toString(), STATUS_THROTTLED);
+            }
+            return Arrays.asList(responses);
+        }
+        if (!messages.isEmpty()) {
+            // The batch holds one connection; its duration grows with size, so it does not tune the limit
+            permit.ignore();
+            try {
+                mailSender.send(messages.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                // Holds each rejected message; empty when the connection itself failed
+                failedMessages = e.getFailedMessages();
+                batchFailure = failedMessages.isEmpty() ? e : null;
+            } catch (MailException e) {
+                batchFailure = e;
+            } finally {
+                permit.close();
+            }
+        }
+
+        for (int j = 0; j < messages.size(); j++) {
+            int i = positions.get(j);
+            Exception failure = batchFailure != null ? batchFailure : failedMessages.get(messages.get(j));
+            if (failure != null) {
+                log.error("Failed to send email via SMTP to {}: {}", requests.get(i).getTo(), failure.getMessage());
+                responses[i] = response(requests.get(i), UUID.randomUUID().toString(), statusFor(failure));
             } else {
-                helper.setText(request.getBody());
+                responses[i] = response(requests.get(i), UUID.randomUUID().toString(), "SENT");
             }
+        }
 
-            if (request.getAttachments() != null) {
-                for (EmailRequest.EmailAttachment attachment : request.getAttachments()) {
-                    if (attachment.getContent() != null) {
-                        helper.addAttachment(attachment.getFileName(),
-                                new ByteArrayResource(attachment.getContent()),
-                                attachment.getContentType());
+        log.info("SMTP batch of {} emails sent over one connection", messages.size());
+        return Arrays.asList(responses);
+    }
+
+    private MimeMessage buildMessage(EmailRequest request, AttachmentResolver.Attachments attachments)
+            throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setFrom(fromAddress, fromName);
+        helper.setTo(request.getTo());
+        helper.setSubject(request.getSubject());
+
+        if (request.getCc() != null && !request.getCc().isEmpty()) {
+            helper.setCc(request.getCc().toArray(new String[0]));
+        }
+
+        if (request.getBcc() != null && !request.getBcc().isEmpty()) {
+            helper.setBcc(request.getBcc().toArray(new String[0]));
+        }
+
+        if (request.isHtml()) {
+            helper.setText(request.getBody(), true);
+        } else {
+            helper.setText(request.getBody());
+        }
+
+        // Sources are opened when the message is written, so file content streams into the MIME part
+        for (AttachmentResolver.ResolvedAttachment attachment : attachments) {
+            helper.addAttachment(attachment.fileName(), attachment.source(), attachment.contentType());
+        }
+        return message;
+    }
+
+    /**
+     * REJECTED when every recipient was refused outright, DEFERRED for temporary (4xx) rejections
+     * anywhere in the cause chain, otherwise FAILED
+     */
+    private String statusFor(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof AddressException || (t instanceof SendFailedException sfe && rejectsEveryRecipient(sfe))) {
+                return STATUS_REJECTED;
+            }
+            if (t instanceof MailSendException mse) {
+                // JavaMailSender reports per-message failures here rather than as the cause
+                for (Exception nested : mse.getMessageExceptions()) {
+                    String status = statusFor(nested);
+                    if (!"FAILED".equals(status)) {
+                        return status;
                     }
                 }
             }
+            if (isTransient(t) || (t instanceof MessagingException me
+                    && me.getNextException() != t.getCause() && isTransient(me.getNextException()))) {
+                return DomainThrottle.STATUS_DEFERRED;
+            }
+        }
+        return "FAILED";
+    }
 
-            mailSender.send(message);
-
-            log.info("Email sent successfully via SMTP to: {}", request.getTo());
+    /**
+     * SMTP 4xx replies are temporary: the receiver asks us to come back later
+     */
+    private static boolean isTransient(Throwable t) {
+        int code = -1;
+        if (t instanceof SMTPAddressFailedException e) {
+            code = e.getReturnCode();
+        } else if (t instanceof SMTPSendFailedException e) {
+            code = e.getReturnCode();
+        } else if (t instanceof SMTPSenderFailedException e) {
+            code = e.getReturnCode();
+        }
+        return code >= 400 && code < 500;
+    }
 
-            return EmailResponse.builder()
-                    .messageId(messageId)
-                    .status("SENT")
-                    .recipient(request.getTo())
-                    .sentAt(LocalDateTime.now())
-                    .provider(getProvider().name())
-                    .build();
+    /**
+     * The server answered RCPT with a permanent refusal for every address; 4xx ones land in validUnsent
+     */
+    private boolean rejectsEveryRecipient(SendFailedException e) {
+        return e.getInvalidAddresses() != null && e.getInvalidAddresses().length > 0
+                && (e.getValidSentAddresses() == null || e.getValidSentAddresses().length == 0)
+                && (e.getValidUnsentAddresses() == null || e.getValidUnsentAddresses().length == 0);
+    }
 
-        } catch (MessagingException e) {
-            log.error("Failed to send email via SMTP: {}", e.getMessage());
-            return EmailResponse.builder()
-                    .messageId(messageId)
-                    .status("FAILED")
-                    .recipient(request.getTo())
-                    .sentAt(LocalDateTime.now())
-                    .provider(getProvider().name())
-                    .build();
-        } catch (Exception e) {
-            log.error("Unexpected error sending email via SMTP: {}", e.getMessage());
-            return EmailResponse.builder()
-                    .messageId(messageId)
-                    .status("FAILED")
-                    .recipient(request.getTo())
-                    .sentAt(LocalDateTime.now())
-                    .provider(getProvider().name())
-                    .build();
-        }
+    private EmailResponse response(EmailRequest request, String messageId, String status) {
+        return EmailResponse.builder()
+                .messageId(messageId)
+                .status(status)
+                .recipient(request.getTo())
+                .sentAt(LocalDateTime.now())
+                .provider(getProvider().name())
+                .build();
     }
 
     @Override
@@ -0,0 +1,235 @@
+package com.confiance.notification.service.http;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.BasicHttpContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared outbound HTTP layer for provider calls. One JDK {@link HttpClient} serves the
+ * providers we call directly; Apache-based SDKs get pools from {@link #pool}. Provider
+ * hosts are resolved and connected at startup and pinged while idle, so the first call
+ * after startup or a quiet period skips DNS, TCP and the full TLS handshake. Everything
+ * uses the JVM default SSL context, whose session cache lets new connections resume TLS,
+ * including those opened by SDKs we cannot hand a client to.
+ */
+@Component
+@Slf4j
+public class OutboundHttp {
+
+    private final OutboundHttpConfig config;
+    private final HttpClient client;
+    private final Map<String, CachedAddress> dnsCache = new ConcurrentHashMap<>();
+    private final Map<String, PoolingHttpClientConnectionManager> pools = new ConcurrentHashMap<>();
+    private final Set<String> hosts = ConcurrentHashMap.newKeySet();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Executor dnsRefreshExecutor;
+    private final DnsResolver dnsResolver = this::resolve;
+
+    private record CachedAddress(InetAddress[] addresses, long resolvedAt) {}
+
+    public OutboundHttp(OutboundHttpConfig config, @Qualifier("dnsRefreshExecutor") Executor dnsRefreshExecutor) {
+        this.config = config;
+        this.dnsRefreshExecutor = dnsRefreshExecutor;
+        this.hosts.addAll(config.getHosts());
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .build();
+    }
+
+    public HttpClient client() {
+        return client;
+    }
+
+    /**
+     * Keep a host warm alongside the configured ones, e.g. an endpoint that depends on region
+     */
+    public void register(String host) {
+        if (host != null && hosts.add(host) && config.isWarmupEnabled()) {
+            warm(host);
+        }
+    }
+
+    /**
+     * A pooled connection manager for an Apache HttpClient 4 based SDK, using the cached
+     * resolver; the pool is pre-connected to {@code host} and kept warm with the rest
+     */
+    public HttpClientConnectionManager pool(String host) {
+        register(host);
+        PoolingHttpClientConnectionManager existing = pools.get(host);
+        if (existing != null) {
+            return existing;
+        }
+        PoolingHttpClientConnectionManager created = pools.computeIfAbsent(host, h -> {
+            PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                    RegistryBuilder.<ConnectionSocketFactory>create()
+                            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                            .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+                            .build(),
+                    dnsResolver);
+            pool.setMaxTotal(config.getMaxConnectionsPerHost());
+            pool.setDefaultMaxPerRoute(config.getMaxConnectionsPerHost());
+            pool.setValidateAfterInactivity(2000);
+            return pool;
+        });
+        preconnect(host, created);
+        return created;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!config.isWarmupEnabled()) {
+            return;
+        }
+        hosts.forEach(this::warm);
+        log.info("Pre-warmed connections to {}", hosts);
+    }
+
+    /**
+     * Idle connections are closed by provider load balancers after a minute or so; a
+     * lightweight request on each keeps one ready
+     */
+    @Scheduled(fixedDelayString = "${outbound-http.ping-interval-ms:30000}",
+            initialDelayString = "${outbound-http.ping-interval-ms:30000}")
+    public void keepAlive() {
+        if (!config.isWarmupEnabled()) {
+            return;
+        }
+        hosts.forEach(this::ping);
+        pools.forEach((host, pool) -> {
+            pool.closeExpiredConnections();
+            if (pool.getTotalStats().getAvailable() == 0 && pool.getTotalStats().getLeased() == 0) {
+                preconnect(host, pool);
+            }
+        });
+    }
+
+    /**
+     * Re-resolve cached hosts as soon as the JVM's entry has lapsed; any earlier and the lookup
+     * is answered from that same cache. The fresh answer refills the JVM cache too, so request
+     * path lookups are cache hits again within one refresh tick. Lookups can block for
+     * seconds, so they run on their own pool rather than the shared scheduler.
+     */
+    @Scheduled(fixedDelayString = "${outbound-http.dns-refresh-interval-ms:500}")
+    public void refreshDns() {
+        long refreshAfterMs = TimeUnit.SECONDS.toMillis(config.getDnsTtlSeconds());
+        long now = System.currentTimeMillis();
+        for (String host : hosts) {
+            CachedAddress cached = dnsCache.get(host);
+            if ((cached == null || now - cached.resolvedAt() >= refreshAfterMs) && refreshing.add(host)) {
+                try {
+                    dnsRefreshExecutor.execute(() -> refresh(host));
+                } catch (TaskRejectedException e) {
+                    // Picked up again on the next tick
+                    refreshing.remove(host);
+                }
+            }
+        }
+    }
+
+    private void refresh(String host) {
+        try {
+            lookup(host);
+        } catch (UnknownHostException e) {
+            // Keep serving the previous addresses until the host resolves again
+            log.warn("DNS refresh failed for {}: {}", host, e.getMessage());
+        } finally {
+            refreshing.remove(host);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(PoolingHttpClientConnectionManager::shutdown);
+    }
+
+    private InetAddress[] resolve(String host) throws UnknownHostException {
+        CachedAddress cached = dnsCache.get(host);
+        if (cached != null && System.currentTimeMillis() - cached.resolvedAt()
+                < TimeUnit.SECONDS.toMillis(config.getDnsTtlSeconds() + config.getDnsRefreshGraceSeconds())) {
+            return cached.addresses();
+        }
+        return lookup(host);
+    }
+
+    private InetAddress[] lookup(String host) throws UnknownHostException {
+        InetAddress[] addresses = InetAddress.getAllByName(host);
+        dnsCache.put(host, new CachedAddress(addresses, System.currentTimeMillis()));
+        return addresses;
+    }
+
+    private void warm(String host) {
+        try {
+            lookup(host);
+        } catch (UnknownHostException e) {
+            log.warn("Could not resolve provider host {}: {}", host, e.getMessage());
+            return;
+        }
+        ping(host);
+    }
+
+    private void ping(String host) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("https://" + host + "/"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .build();
+        // Any status will do; the point is the pooled TLS connection
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .exceptionally(e -> {
+                    log.debug("Warm-up ping to {} failed: {}", host, e.getMessage());
+                    return null;
+                });
+    }
+
+    private void preconnect(String host, PoolingHttpClientConnectionManager pool) {
+        if (!config.isWarmupEnabled()) {
+            return;
+        }
+        HttpRoute route = new HttpRoute(new HttpHost(host, 443, "https"), null, true);
+        try {
+            ConnectionRequest request = pool.requestConnection(route, null);
+            var connection = request.get(config.getConnectTimeoutMs(), TimeUnit.MILLISECONDS);
+            boolean reusable = false;
+            try {
+                if (!connection.isOpen()) {
+                    // Opens the socket and completes the TLS handshake
+                    pool.connect(connection, route, (int) config.getConnectTimeoutMs(), new BasicHttpContext());
+                    pool.routeComplete(connection, route, new BasicHttpContext());
+                }
+                reusable = true;
+            } finally {
+                pool.releaseConnection(connection, null, reusable ? config.getPingIntervalMs() * 2 : 0, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            log.debug("Could not pre-connect to {}: {}", host, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.confiance.notification.service.http;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "outbound-http")
+public class OutboundHttpConfig {
+
+    private boolean warmupEnabled = true;
+    private List<String> hosts = new ArrayList<>();      // Provider API hosts to pre-connect and keep warm
+    private long connectTimeoutMs = 5000;
+    private long pingIntervalMs = 30000;                 // Below the idle timeout of the provider load balancers
+    private int dnsTtlSeconds = 60;                      // JVM DNS cache TTL, applied at startup
+    private int dnsRefreshGraceSeconds = 5;              // Cached entries outlive the TTL this long while the refresh runs
+    private long dnsRefreshIntervalMs = 500;             // How often cached hosts are checked for a lapsed entry
+    private int maxConnectionsPerHost = 20;              // For pools we manage ourselves (Apache-based SDKs)
+}
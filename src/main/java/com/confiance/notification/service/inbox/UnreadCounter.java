@@ -0,0 +1,190 @@
+package com.confiance.notification.service.inbox;
+
+import com.confiance.notification.repository.UserNotificationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user unread counts kept in Redis and adjusted as notifications are created, read and
+ * deleted, so the unread-count endpoint never touches MySQL while the counter is warm. A
+ * missing counter is rebuilt from the table on first read; adjustments to a missing counter
+ * are skipped since the rebuild will count them.
+ * <p>
+ * Every adjustment also marks the user as touched. Once a touched user has been quiet for a
+ * few seconds the reconciler compares their counter with the table and fixes drift left by
+ * races between concurrent writes and rebuilds.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadCounter {
+
+    private static final String KEY_PREFIX = "notif:unread:";
+    private static final String TOUCHED_KEY = "notif:unread:touched";
+
+    // ARGV: delta. Returns the new count, or -1 when there is no counter to adjust
+    private static final DefaultRedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return -1
+            end
+            local count = redis.call('INCRBY', KEYS[1], ARGV[1])
+            if count < 0 then
+                redis.call('SET', KEYS[1], 0, 'KEEPTTL')
+                count = 0
+            end
+            return count
+            """, Long.class);
+
+    // ARGV: value read before counting, corrected value. 1 when set, 0 when the counter expired,
+    // -1 when it moved in the meantime
+    private static final DefaultRedisScript<Long> CORRECT_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if not current then
+                return 0
+            end
+            if current ~= ARGV[1] then
+                return -1
+            end
+            redis.call('SET', KEYS[1], ARGV[2], 'KEEPTTL')
+            return 1
+            """, Long.class);
+
+    // ARGV: touched at or before, batch size. Claims users quiet since then, so each goes to one node
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_TOUCHED_SCRIPT = new DefaultRedisScript<>("""
+            local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+            if #ids > 0 then
+                redis.call('ZREM', KEYS[1], unpack(ids))
+            end
+            return ids
+            """, List.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final UserNotificationRepository notificationRepository;
+
+    @Value("${notification.unread-count.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${notification.unread-count.reconcile-settle-ms:5000}")
+    private long settleMs;
+
+    @Value("${notification.unread-count.reconcile-batch:500}")
+    private int reconcileBatch;
+
+    public long get(Long userId) {
+        String key = key(userId);
+        try {
+            // Reading extends the TTL, so counters of active users stay warm
+            String cached = redisTemplate.opsForValue().getAndExpire(key, Duration.ofSeconds(ttlSeconds));
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+            long count = notificationRepository.countByUserIdAndIsRead(userId, false);
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(key, String.valueOf(count), Duration.ofSeconds(ttlSeconds)))) {
+                String current = redisTemplate.opsForValue().get(key);
+                return current != null ? Long.parseLong(current) : count;
+            }
+            // An adjustment skipped while the count was read is caught by reconciliation
+            touch(userId);
+            return count;
+        } catch (Exception e) {
+            log.warn("Unread counter unavailable for user {}: {}", userId, e.getMessage());
+            return notificationRepository.countByUserIdAndIsRead(userId, false);
+        }
+    }
+
+    /**
+     * Apply a committed change to the user's unread count; returns the new count, or -1 when
+     * the counter is cold
+     */
+    public long adjust(Long userId, long delta) {
+        if (delta == 0) {
+            return -1;
+        }
+        try {
+            Long count = redisTemplate.execute(ADJUST_SCRIPT, List.of(key(userId)), String.valueOf(delta));
+            touch(userId);
+            return count != null ? count : -1;
+        } catch (Exception e) {
+            // Drop the counter so the next read rebuilds it rather than serving a stale value
+            log.warn("Could not adjust unread counter for user {}: {}", userId, e.getMessage());
+            try {
+                redisTemplate.delete(key(userId));
+            } catch (Exception ignored) {
+                // Redis is down; the counter's TTL bounds how long it can be wrong
+            }
+            return -1;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.unread-count.reconcile-interval-ms:10000}")
+    @SuppressWarnings("unchecked")
+    public void reconcile() {
+        try {
+            List<String> claimed;
+            int corrected = 0;
+            do {
+                claimed = redisTemplate.execute(CLAIM_TOUCHED_SCRIPT, List.of(TOUCHED_KEY),
+                        String.valueOf(System.currentTimeMillis() - settleMs), String.valueOf(reconcileBatch));
+                if (claimed == null || claimed.isEmpty()) {
+                    break;
+                }
+                corrected += reconcile(claimed.stream().map(Long::valueOf).toList());
+            } while (claimed.size() == reconcileBatch);
+            if (corrected > 0) {
+                log.info("Corrected {} drifted unread counters", corrected);
+            }
+        } catch (Exception e) {
+            log.error("Unread counter reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private int reconcile(List<Long> userIds) {
+        // Read the counters before the table, so a change landing in between fails the compare-and-set
+        List<String> cached = redisTemplate.opsForValue().multiGet(userIds.stream().map(UnreadCounter::key).toList());
+        Map<Long, Long> actual = new HashMap<>();
+        for (Object[] row : notificationRepository.countUnreadByUserIds(userIds)) {
+            actual.put((Long) row[0], (Long) row[1]);
+        }
+
+        int corrected = 0;
+        for (int i = 0; i < userIds.size(); i++) {
+            String seen = cached != null ? cached.get(i) : null;
+            if (seen == null) {
+                continue;
+            }
+            Long userId = userIds.get(i);
+            String expected = String.valueOf(actual.getOrDefault(userId, 0L));
+            if (seen.equals(expected)) {
+                continue;
+            }
+            Long result = redisTemplate.execute(CORRECT_SCRIPT, List.of(key(userId)), seen, expected);
+            if (result != null && result == 1) {
+                log.debug("Unread counter for user {} drifted: {} instead of {}", userId, seen, expected);
+                corrected++;
+            } else if (result != null && result == -1) {
+                touch(userId);
+            }
+        }
+        return corrected;
+    }
+
+    private void touch(Long userId) {
+        redisTemplate.opsForZSet().add(TOUCHED_KEY, String.valueOf(userId), System.currentTimeMillis());
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+}
@@ -0,0 +1,69 @@
+package com.confiance.notification.service.inbox;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One-off copy of createdAt into lastEventAt for notifications written before the column
+ * existed, so they sort and replay with the rest. Runs in the background after startup on
+ * whichever node takes the lock, and does nothing once done.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserNotificationBackfill {
+
+    private static final int PAGE_SIZE = 500;
+    private static final String LOCK_KEY = "notif:backfill:lock";
+    // Longer than a backfill runs; a node that dies holding it only delays the next attempt
+    private static final Duration LOCK_TTL = Duration.ofHours(1);
+
+    // Delete the lock only if this node still holds it
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        String owner = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, owner, LOCK_TTL))) {
+            log.debug("Notification backfill is running on another node");
+            return;
+        }
+        try {
+            int copied = 0;
+            while (true) {
+                // Small batches keep row locks short
+                int updated = jdbcTemplate.update("UPDATE user_notifications SET last_event_at = created_at "
+                        + "WHERE last_event_at IS NULL LIMIT " + PAGE_SIZE);
+                copied += updated;
+                if (updated < PAGE_SIZE) {
+                    break;
+                }
+            }
+            if (copied > 0) {
+                log.info("Set lastEventAt on {} notifications", copied);
+            }
+        } catch (Exception e) {
+            // Picked up again on the next start; those rows sort last until then
+            log.error("Notification backfill failed: {}", e.getMessage());
+        } finally {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY), owner);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.enums.OtpProvider;
+import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.FeatureService;
+import com.confiance.notification.service.email.AwsRequestSigner;
+import com.confiance.notification.service.http.OutboundHttp;
+import com.confiance.notification.service.sms.PhoneNumbers;
+import com.confiance.notification.service.sms.SmsConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional SMS through the SNS Publish API, signed the same way as our SES calls.
+ * SNS reports delivery only to CloudWatch, so hedging off this channel relies on verify.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AwsSnsOtpChannel implements OtpChannel {
+
+    public static final String NAME = "aws-sns";
+    private static final String CONTENT_TYPE = "application/x-www-form-urlencoded; charset=utf-8";
+    private static final Pattern MESSAGE_ID = Pattern.compile("<MessageId>([^<]+)</MessageId>");
+
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final OutboundHttp outboundHttp;
+    private final SmsConfig smsConfig;
+
+    @Value("${aws.sns.region:${aws.ses.region:ap-south-1}}")
+    private String region;
+
+    @Value("${aws.sns.access-key:${aws.ses.access-key:}}")
+    private String accessKey;
+
+    @Value("${aws.sns.secret-key:${aws.ses.secret-key:}}")
+    private String secretKey;
+
+    @Value("${aws.sns.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.sns.sender-id:}")
+    private String senderId;
+
+    @Value("${aws.sns.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    @Value("${otp.expiry-minutes:5}")
+    private int expiryMinutes;
+
+    private URI uri;
+    private AwsRequestSigner signer;
+
+    @PostConstruct
+    public void init() {
+        uri = URI.create(StringUtils.hasText(endpoint) ? endpoint.replaceAll("/+$", "") + "/"
+                : "https://sns." + region + ".amazonaws.com/");
+        if (isConfigured()) {
+            signer = new AwsRequestSigner(accessKey, secretKey, region, "sns");
+            outboundHttp.register(uri.getHost());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OtpProvider getProvider() {
+        return OtpProvider.AWS_SNS;
+    }
+
+    @Override
+    public String getFeature() {
+        return FeatureService.FEATURE_SMS;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return StringUtils.hasText(accessKey) && StringUtils.hasText(secretKey);
+    }
+
+    @Override
+    public boolean supports(String identifier) {
+        return !OtpChannel.isEmail(identifier);
+    }
+
+    @Override
+    public Delivery deliver(String identifier, String countryCode, OtpPurpose purpose, String code) {
+        if (!providerThrottle.acquire(ProviderThrottle.AWS_SNS)) {
+            log.warn("SNS budget exhausted, not sending OTP SMS to {}", identifier);
+            return Delivery.rejected();
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.AWS_SNS);
+        if (permit == null) {
+            return Delivery.rejected();
+        }
+
+        try {
+            String to = PhoneNumbers.toE164(identifier, countryCode, smsConfig.getDefaultCountryCode());
+            byte[] body = formBody(to, OtpChannel.smsText(code, expiryMinutes));
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            signer.sign("POST", uri, CONTENT_TYPE, body).forEach(builder::header);
+            HttpResponse<String> response = outboundHttp.client().send(builder.build(), HttpResponse.BodyHandlers.ofString());
+
+            int status = response.statusCode();
+            if (status / 100 == 2) {
+                providerThrottle.onSuccess(ProviderThrottle.AWS_SNS);
+                Matcher matcher = MESSAGE_ID.matcher(response.body());
+                String messageId = matcher.find() ? matcher.group(1) : null;
+                log.info("OTP SMS sent to {} via SNS: {}", identifier, messageId);
+                return Delivery.accepted(messageId);
+            }
+            if (status == 429 || response.body().contains("<Code>Throttling</Code>")) {
+                permit.dropped();
+                providerThrottle.onThrottled(ProviderThrottle.AWS_SNS,
+                        ProviderThrottle.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)));
+            }
+            log.error("Failed to send OTP SMS via SNS. Response code: {}", status);
+            return Delivery.rejected();
+        } catch (HttpTimeoutException e) {
+            permit.dropped();
+            log.error("SNS timed out sending OTP SMS to {}", identifier);
+            return Delivery.rejected();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Delivery.rejected();
+        } catch (Exception e) {
+            log.error("Failed to send OTP SMS via SNS: {}", e.getMessage());
+            return Delivery.rejected();
+        } finally {
+            permit.close();
+        }
+    }
+
+    private byte[] formBody(String phoneNumber, String message) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("Action", "Publish");
+        params.put("Version", "2010-03-31");
+        params.put("PhoneNumber", phoneNumber);
+        params.put("Message", message);
+        params.put("MessageAttributes.entry.1.Name", "AWS.SNS.SMS.SMSType");
+        params.put("MessageAttributes.entry.1.Value.DataType", "String");
+        params.put("MessageAttributes.entry.1.Value.StringValue", "Transactional");
+        if (StringUtils.hasText(senderId)) {
+            params.put("MessageAttributes.entry.2.Name", "AWS.SNS.SMS.SenderID");
+            params.put("MessageAttributes.entry.2.Value.DataType", "String");
+            params.put("MessageAttributes.entry.2.Value.StringValue", senderId);
+        }
+        return params.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
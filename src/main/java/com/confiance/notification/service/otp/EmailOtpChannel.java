@@ -0,0 +1,86 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.confiance.notification.enums.EmailPriority;
+import com.confiance.notification.enums.OtpProvider;
+import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.FeatureService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * OTP codes for email identifiers, rendered from the "otp" template and sent straight through
+ * the provider router (no digest, no schedule). Only ever reaches the identifier itself, so
+ * it never turns a phone OTP into an email one.
+ */
+@Component
+@Slf4j
+public class EmailOtpChannel implements OtpChannel {
+
+    public static final String NAME = "email";
+
+    private final EmailService emailService;
+
+    @Value("${otp.expiry-minutes:5}")
+    private int expiryMinutes;
+
+    public EmailOtpChannel(@Lazy EmailService emailService) {
+        this.emailService = emailService;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OtpProvider getProvider() {
+        return null;
+    }
+
+    @Override
+    public String getFeature() {
+        return FeatureService.FEATURE_EMAIL;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    @Override
+    public boolean supports(String identifier) {
+        return OtpChannel.isEmail(identifier);
+    }
+
+    @Override
+    public Delivery deliver(String identifier, String countryCode, OtpPurpose purpose, String code) {
+        EmailRequest request = EmailRequest.builder()
+                .to(identifier)
+                .templateName("otp")
+                .templateVariables(Map.of(
+                        "otp", code,
+                        "purpose", purpose.name(),
+                        "expiryMinutes", expiryMinutes))
+                .isHtml(true)
+                .category("otp")
+                .priority(EmailPriority.TRANSACTIONAL)
+                .build();
+        try {
+            EmailResponse response = emailService.sendImmediately(request, null);
+            if ("SENT".equals(response.getStatus())) {
+                return Delivery.accepted(response.getMessageId());
+            }
+            log.warn("OTP email to {} not sent: {}", identifier, response.getStatus());
+        } catch (Exception e) {
+            log.error("Failed to send OTP email to {}: {}", identifier, e.getMessage());
+        }
+        return Delivery.rejected();
+    }
+}
@@ -0,0 +1,18 @@
+package com.confiance.notification.service.otp;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "otp.audit")
+public class OtpAuditConfig {
+
+    private int queueCapacity = 20_000;          // Events buffered in memory; further events are dropped, not blocked on
+    private int batchSize = 500;                 // Rows per batched insert
+    private long flushIntervalMs = 1000;
+    private int retentionDays = 90;              // Day partitions older than this are dropped
+    private int precreateDays = 7;               // Day partitions kept ready ahead of today
+    private String maintenanceCron = "0 15 0 * * *";
+}
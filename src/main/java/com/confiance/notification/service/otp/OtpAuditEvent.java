@@ -0,0 +1,19 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.enums.OtpProvider;
+import com.confiance.notification.enums.OtpPurpose;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the OTP audit trail. Sends and verifications are separate events, so the
+ * table is append-only.
+ */
+public record OtpAuditEvent(String identifier, OtpPurpose purpose, OtpProvider provider, String status,
+                            Long userId, LocalDateTime expiresAt, LocalDateTime createdAt) {
+
+    public static OtpAuditEvent of(String identifier, OtpPurpose purpose, OtpProvider provider, String status,
+                                   Long userId, LocalDateTime expiresAt) {
+        return new OtpAuditEvent(identifier, purpose, provider, status, userId, expiresAt, LocalDateTime.now());
+    }
+}
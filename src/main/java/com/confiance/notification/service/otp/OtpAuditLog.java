@@ -0,0 +1,88 @@
+package com.confiance.notification.service.otp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only OTP audit trail. Request threads only enqueue; a scheduled flush drains the
+ * queue into batched inserts, so each OTP costs a fraction of one insert and never waits
+ * on the database. When the queue is full events are dropped and counted rather than
+ * slowing OTP delivery down.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OtpAuditLog {
+
+    static final String TABLE = "otp_events";
+
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE
+            + " (identifier, purpose, provider, status, user_id, expires_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OtpAuditConfig config;
+    private final AtomicLong dropped = new AtomicLong();
+    private BlockingQueue<OtpAuditEvent> queue;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+    }
+
+    public void record(OtpAuditEvent event) {
+        if (!queue.offer(event)) {
+            long total = dropped.incrementAndGet();
+            if (total % 1000 == 1) {
+                log.warn("OTP audit queue full, {} events dropped so far", total);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${otp.audit.flush-interval-ms:1000}")
+    public void flush() {
+        List<OtpAuditEvent> batch = new ArrayList<>(config.getBatchSize());
+        while (queue.drainTo(batch, config.getBatchSize()) > 0) {
+            try {
+                insert(batch);
+            } catch (Exception e) {
+                // Audit rows are best effort; a failed batch is logged and skipped
+                log.error("Failed to write {} OTP audit events: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void insert(List<OtpAuditEvent> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+            ps.setString(1, event.identifier());
+            ps.setString(2, event.purpose().name());
+            ps.setString(3, event.provider() != null ? event.provider().name() : null);
+            ps.setString(4, event.status());
+            if (event.userId() != null) {
+                ps.setLong(5, event.userId());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+            ps.setTimestamp(6, event.expiresAt() != null ? Timestamp.valueOf(event.expiresAt()) : null);
+            ps.setTimestamp(7, Timestamp.valueOf(event.createdAt()));
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package com.confiance.notification.service.otp;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the OTP audit table partitioned by day: partitions for the next few days are
+ * created ahead of time and those past the retention period are dropped, which removes
+ * old rows without a DELETE scan. Every node runs this; the statements are safe to race.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OtpAuditPartitions {
+
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String CATCH_ALL = "pmax";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OtpAuditConfig config;
+
+    @PostConstruct
+    public void init() {
+        try {
+            createTable();
+            maintain();
+        } catch (Exception e) {
+            log.error("OTP audit table setup failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${otp.audit.maintenance-cron:0 15 0 * * *}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> existing = existingDays();
+
+        LocalDate newest = existing.isEmpty() ? today.minusDays(1) : existing.get(existing.size() - 1);
+        for (LocalDate day = newest.plusDays(1); !day.isAfter(today.plusDays(config.getPrecreateDays())); day = day.plusDays(1)) {
+            addPartition(day);
+        }
+
+        LocalDate cutoff = today.minusDays(config.getRetentionDays());
+        List<String> expired = existing.stream()
+                .filter(day -> day.isBefore(cutoff))
+                .map(this::partitionName)
+                .toList();
+        if (!expired.isEmpty()) {
+            execute("ALTER TABLE " + OtpAuditLog.TABLE + " DROP PARTITION " + String.join(", ", expired));
+            log.info("Dropped {} expired OTP audit partitions", expired.size());
+        }
+    }
+
+    private void createTable() {
+        // The partitioning column has to be part of the primary key
+        LocalDate today = LocalDate.now();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + OtpAuditLog.TABLE + " ("
+                + "id BIGINT NOT NULL AUTO_INCREMENT, "
+                + "identifier VARCHAR(255) NOT NULL, "
+                + "purpose VARCHAR(50) NOT NULL, "
+                + "provider VARCHAR(50), "
+                + "status VARCHAR(50) NOT NULL, "
+                + "user_id BIGINT, "
+                + "expires_at DATETIME(6), "
+                + "created_at DATETIME(6) NOT NULL, "
+                + "PRIMARY KEY (id, created_at), "
+                + "KEY idx_otp_events_identifier (identifier, purpose, created_at), "
+                + "KEY idx_otp_events_user (user_id, created_at)"
+                + ") PARTITION BY RANGE (TO_DAYS(created_at)) ("
+                + partitionDefinition(today) + ", "
+                + "PARTITION " + CATCH_ALL + " VALUES LESS THAN MAXVALUE)");
+    }
+
+    private void addPartition(LocalDate day) {
+        // Split the catch-all so rows already written for that day move into their own partition
+        execute("ALTER TABLE " + OtpAuditLog.TABLE + " REORGANIZE PARTITION " + CATCH_ALL + " INTO ("
+                + partitionDefinition(day) + ", PARTITION " + CATCH_ALL + " VALUES LESS THAN MAXVALUE)");
+    }
+
+    private List<LocalDate> existingDays() {
+        return jdbcTemplate.queryForList(
+                        "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                        String.class, OtpAuditLog.TABLE).stream()
+                .filter(name -> !CATCH_ALL.equals(name))
+                .map(name -> LocalDate.parse(name.substring(1), PARTITION_DAY))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private String partitionDefinition(LocalDate day) {
+        return "PARTITION " + partitionName(day) + " VALUES LESS THAN (TO_DAYS('" + day.plusDays(1) + "'))";
+    }
+
+    private String partitionName(LocalDate day) {
+        return "p" + day.format(PARTITION_DAY);
+    }
+
+    private void execute(String ddl) {
+        try {
+            jdbcTemplate.execute(ddl);
+        } catch (Exception e) {
+            // Usually another node got there first
+            log.warn("OTP audit partition change skipped: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.enums.OtpProvider;
+import com.confiance.notification.enums.OtpPurpose;
+
+/**
+ * Delivers a code generated by this service. Unlike {@link OtpSender} the channel never owns
+ * the code, so the same code can go out on a second channel when the first is slow.
+ */
+public interface OtpChannel {
+
+    /**
+     * Name used in otp.routing.channels and in latency stats
+     */
+    String getName();
+
+    /**
+     * Provider recorded in the audit trail, or null when the channel is not an OTP gateway
+     */
+    OtpProvider getProvider();
+
+    /**
+     * Feature flag that switches the channel off
+     */
+    String getFeature();
+
+    boolean isConfigured();
+
+    /**
+     * Whether the channel can reach this identifier (a phone number or an email address)
+     */
+    boolean supports(String identifier);
+
+    /**
+     * Whether an accepted delivery is later confirmed through a status callback
+     */
+    default boolean reportsDelivery() {
+        return false;
+    }
+
+    Delivery deliver(String identifier, String countryCode, OtpPurpose purpose, String code);
+
+    record Delivery(boolean accepted, String messageId) {
+        public static Delivery accepted(String messageId) {
+            return new Delivery(true, messageId);
+        }
+
+        public static Delivery rejected() {
+            return new Delivery(false, null);
+        }
+    }
+
+    static boolean isEmail(String identifier) {
+        return identifier != null && identifier.contains("@");
+    }
+
+    static String smsText(String code, int expiryMinutes) {
+        return code + " is your Confiance verification code. It expires in " + expiryMinutes
+                + " minutes. Do not share it with anyone.";
+    }
+}
@@ -0,0 +1,167 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.dto.OtpRequest;
+import com.confiance.notification.service.FeatureService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the channels that can reach an identifier, fastest p95 time-to-verify first for its
+ * country, and delivers a code on the first that accepts it. If neither a delivery receipt nor
+ * a verify arrives within the SLO, the same code goes out on the next channel, so whichever
+ * message lands first works.
+ */
+@Component
+@Slf4j
+public class OtpChannelRouter {
+
+    private final Map<String, OtpChannel> channels;
+    private final TwilioSmsOtpChannel twilioSmsChannel;
+    private final OtpRoutingConfig config;
+    private final OtpRouteStats routeStats;
+    private final OtpStateStore otpStateStore;
+    private final OtpAuditLog otpAuditLog;
+    private final FeatureService featureService;
+    private final TaskScheduler taskScheduler;
+    private final Executor executor;
+
+    public OtpChannelRouter(List<OtpChannel> channels, TwilioSmsOtpChannel twilioSmsChannel, OtpRoutingConfig config,
+                            OtpRouteStats routeStats, OtpStateStore otpStateStore, OtpAuditLog otpAuditLog,
+                            FeatureService featureService, TaskScheduler taskScheduler,
+                            @Qualifier("taskExecutor") Executor executor) {
+        this.channels = channels.stream().collect(Collectors.toMap(OtpChannel::getName, Function.identity()));
+        this.twilioSmsChannel = twilioSmsChannel;
+        this.config = config;
+        this.routeStats = routeStats;
+        this.otpStateStore = otpStateStore;
+        this.otpAuditLog = otpAuditLog;
+        this.featureService = featureService;
+        this.taskScheduler = taskScheduler;
+        this.executor = executor;
+    }
+
+    /**
+     * Channels to try for this identifier, best first. Channels without enough samples keep
+     * their configured order behind the measured ones.
+     */
+    public List<OtpChannel> route(String identifier, String countryCode) {
+        List<OtpChannel> route = config.getChannels().stream()
+                .map(channels::get)
+                .filter(Objects::nonNull)
+                .filter(channel -> channel.isConfigured() && channel.supports(identifier)
+                        && featureService.isEnabled(channel.getFeature()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (route.size() < 2) {
+            return route;
+        }
+
+        Map<OtpChannel, Long> p95 = new HashMap<>();
+        route.forEach(channel -> {
+            long value = routeStats.p95(channel.getName(), countryCode);
+            p95.put(channel, value < 0 ? Long.MAX_VALUE : value);
+        });
+        route.sort(Comparator.comparingLong(p95::get));
+
+        if (ThreadLocalRandom.current().nextInt(100) < config.getExplorePercent()) {
+            route.add(0, route.remove(1 + ThreadLocalRandom.current().nextInt(route.size() - 1)));
+        }
+        return route;
+    }
+
+    /**
+     * Deliver on the first channel that accepts the code and arm the hedge behind it.
+     * Returns that channel, or null when none did.
+     */
+    public OtpChannel deliver(List<OtpChannel> route, OtpRequest request, long nonce, String code) {
+        for (int i = 0; i < route.size(); i++) {
+            OtpChannel channel = route.get(i);
+            if (i > 0 && !otpStateStore.switchChannel(request.getIdentifier(), request.getPurpose(), nonce,
+                    channel.getName(), false)) {
+                return null;
+            }
+            if (send(channel, request, nonce, code)) {
+                scheduleHedge(route, i + 1, request, nonce, code, config.getMaxHedges());
+                return channel;
+            }
+            log.warn("OTP channel {} rejected code for {}, failing over", channel.getName(), request.getIdentifier());
+        }
+        return null;
+    }
+
+    /**
+     * Twilio status callback; a delivered message stops its OTP from being hedged
+     */
+    public boolean onTwilioStatus(Map<String, String> params, String signature) {
+        if (!twilioSmsChannel.isValidCallback(params, signature)) {
+            return false;
+        }
+        String messageId = params.get("MessageSid");
+        String status = params.get("MessageStatus");
+        if (messageId != null && "delivered".equals(status)) {
+            otpStateStore.markDelivered(messageId);
+        } else if ("failed".equals(status) || "undelivered".equals(status)) {
+            log.warn("OTP SMS {} {}: error {}", messageId, status, params.get("ErrorCode"));
+        }
+        return true;
+    }
+
+    private boolean send(OtpChannel channel, OtpRequest request, long nonce, String code) {
+        OtpChannel.Delivery delivery = channel.deliver(request.getIdentifier(), request.getCountryCode(),
+                request.getPurpose(), code);
+        if (delivery.accepted() && delivery.messageId() != null && channel.reportsDelivery()) {
+            otpStateStore.trackMessage(delivery.messageId(), request.getIdentifier(), request.getPurpose(), nonce);
+        }
+        return delivery.accepted();
+    }
+
+    /**
+     * The code is held only by the scheduled task, for the length of the SLO
+     */
+    private void scheduleHedge(List<OtpChannel> route, int next, OtpRequest request, long nonce, String code,
+                               int hedgesLeft) {
+        if (hedgesLeft <= 0 || next >= route.size()) {
+            return;
+        }
+        taskScheduler.schedule(() -> {
+            try {
+                executor.execute(() -> hedge(route, next, request, nonce, code, hedgesLeft));
+            } catch (TaskRejectedException e) {
+                log.warn("OTP hedge for {} dropped: executor saturated", request.getIdentifier());
+            }
+        }, Instant.now().plusMillis(config.getHedgeAfterMs()));
+    }
+
+    private void hedge(List<OtpChannel> route, int next, OtpRequest request, long nonce, String code, int hedgesLeft) {
+        for (int i = next; i < route.size(); i++) {
+            OtpChannel channel = route.get(i);
+            // Verified, confirmed delivered or replaced by a newer send: nothing to hedge
+            if (!otpStateStore.switchChannel(request.getIdentifier(), request.getPurpose(), nonce,
+                    channel.getName(), true)) {
+                return;
+            }
+            if (send(channel, request, nonce, code)) {
+                log.info("OTP for {} missed the {}ms SLO, hedged via {}", request.getIdentifier(),
+                        config.getHedgeAfterMs(), channel.getName());
+                otpAuditLog.record(OtpAuditEvent.of(request.getIdentifier(), request.getPurpose(),
+                        channel.getProvider(), "HEDGED", request.getUserId(), null));
+                scheduleHedge(route, i + 1, request, nonce, code, hedgesLeft - 1);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.enums.OtpPurpose;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Codes for OTPs generated by this service. In stateless mode a code is derived TOTP-style as
+ * HMAC(secret, identifier, purpose, time step, nonce) and recomputed on verify, so no code is
+ * ever written to Redis; the nonce and the issue time come from the OTP state and change on
+ * every send, so exactly one code is valid per OTP.
+ * Otherwise codes are drawn from a SecureRandom and stored hashed.
+ */
+@Component
+@Slf4j
+public class OtpCodeGenerator {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${otp.length:6}")
+    private int otpLength;
+
+    @Value("${otp.stateless.enabled:false}")
+    private boolean stateless;
+
+    @Value("${otp.stateless.secret:}")
+    private String secret;
+
+    @Value("${otp.stateless.step-seconds:30}")
+    private int stepSeconds;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    public void init() {
+        if (otpLength < 4 || otpLength > 8) {
+            throw new IllegalStateException("otp.length must be between 4 and 8");
+        }
+        if (stateless) {
+            if (!StringUtils.hasText(secret) || secret.length() < 32) {
+                throw new IllegalStateException("otp.stateless.secret must be at least 32 characters");
+            }
+            key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+            log.info("Stateless OTP codes enabled ({}s steps)", stepSeconds);
+        }
+    }
+
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    public String randomCode() {
+        return format(random.nextInt(POWERS_OF_TEN[otpLength]));
+    }
+
+    /**
+     * Code for the time step the OTP was issued in
+     */
+    public String derive(String identifier, OtpPurpose purpose, long nonce, long issuedAt) {
+        return derive(identifier, purpose, stepAt(issuedAt), nonce);
+    }
+
+    /**
+     * Whether the code is the one issued at issuedAt. Expiry is enforced by the OTP state; the
+     * step is taken from the stored issue time, so no other step's code is accepted.
+     */
+    public boolean matches(String identifier, OtpPurpose purpose, long nonce, long issuedAt, String code) {
+        if (code == null || code.length() != otpLength || issuedAt <= 0) {
+            return false;
+        }
+        return MessageDigest.isEqual(code.getBytes(StandardCharsets.UTF_8),
+                derive(identifier, purpose, nonce, issuedAt).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String derive(String identifier, OtpPurpose purpose, long step, long nonce) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            mac.update((identifier + ":" + purpose + ":").getBytes(StandardCharsets.UTF_8));
+            mac.update(ByteBuffer.allocate(16).putLong(step).putLong(nonce).array());
+            byte[] hash = mac.doFinal();
+            // Dynamic truncation as in RFC 4226
+            int offset = hash[hash.length - 1] & 0x0f;
+            int binary = ((hash[offset] & 0x7f) << 24)
+                    | ((hash[offset + 1] & 0xff) << 16)
+                    | ((hash[offset + 2] & 0xff) << 8)
+                    | (hash[offset + 3] & 0xff);
+            return format(binary % POWERS_OF_TEN[otpLength]);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not derive OTP", e);
+        }
+    }
+
+    private long stepAt(long epochMillis) {
+        return epochMillis / 1000 / stepSeconds;
+    }
+
+    private String format(int value) {
+        return String.format("%0" + otpLength + "d", value);
+    }
+}
@@ -0,0 +1,102 @@
+package com.confiance.notification.service.otp;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time from send to successful verify, per channel and country code, over a sliding window of
+ * recent OTPs. Kept per node: each node ranks routes from the traffic it sends itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class OtpRouteStats {
+
+    /**
+     * Channel name for time-to-verify as the user sees it, across hedges
+     */
+    public static final String ALL_CHANNELS = "all";
+
+    private final OtpRoutingConfig config;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Ring buffer of the latest samples
+     */
+    private static final class Window {
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        Window(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    public void record(String channel, String countryCode, long millis) {
+        if (channel == null || channel.isEmpty() || millis < 0) {
+            return;
+        }
+        windows.computeIfAbsent(key(channel, countryCode), k -> new Window(config.getSampleWindow())).add(millis);
+    }
+
+    /**
+     * p95 time-to-verify in ms, or -1 until the channel has enough samples for this country
+     */
+    public long p95(String channel, String countryCode) {
+        Window window = windows.get(key(channel, countryCode));
+        if (window == null) {
+            return -1;
+        }
+        long[] sorted = window.sorted();
+        return sorted.length < config.getMinSamples() ? -1 : percentile(sorted, 95);
+    }
+
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> routes = new ArrayList<>();
+        windows.forEach((key, window) -> {
+            long[] sorted = window.sorted();
+            if (sorted.length == 0) {
+                return;
+            }
+            String[] parts = key.split("\\|", 2);
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("channel", parts[0]);
+            route.put("countryCode", parts[1]);
+            route.put("samples", sorted.length);
+            route.put("p50Ms", percentile(sorted, 50));
+            route.put("p95Ms", percentile(sorted, 95));
+            routes.add(route);
+        });
+        return routes;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static String key(String channel, String countryCode) {
+        String country = countryCode == null || countryCode.isBlank() ? "default" : countryCode.replace("+", "").trim();
+        return channel + "|" + country;
+    }
+}
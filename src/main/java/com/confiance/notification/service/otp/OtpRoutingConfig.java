@@ -0,0 +1,22 @@
+package com.confiance.notification.service.otp;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "otp.routing")
+public class OtpRoutingConfig {
+
+    private boolean enabled = false;
+    private List<String> channels = new ArrayList<>(List.of(TwilioSmsOtpChannel.NAME, AwsSnsOtpChannel.NAME, EmailOtpChannel.NAME));
+    private long hedgeAfterMs = 15000;   // Delivery-time SLO: no receipt or verify by then sends the same code on the next channel
+    private int maxHedges = 1;
+    private int sampleWindow = 200;      // Most recent time-to-verify samples kept per channel and country
+    private int minSamples = 20;         // Below this a channel keeps its configured position
+    private int explorePercent = 5;      // Sends that lead with a random other channel so its stats stay current
+}
@@ -0,0 +1,318 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.ratelimit.RateLimitConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * OTP lifecycle for one identifier and purpose, held in a single Redis hash: code hash,
+ * expiry, verify attempts, send cooldown, the minute/hour/day send windows and the channel
+ * the code went out on. Send and verify are each one Lua script, so a request checks its
+ * limits and moves the state in a single round trip with no database reads.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OtpStateStore {
+
+    private static final String STATE_KEY_PREFIX = "otp:state:";
+    private static final String MESSAGE_KEY_PREFIX = "otp:msg:";
+    private static final long MINUTE_MS = 60_000L;
+    private static final long HOUR_MS = 3_600_000L;
+    private static final long DAY_MS = 86_400_000L;
+    // Per-OTP fields a rolled-back send restores; 'nonce' must stay sixth, the send script reads it by position
+    private static final String OTP_FIELDS =
+            "[\"st\",\"exp\",\"att\",\"code\",\"mode\",\"nonce\",\"cd\",\"ch\",\"cc\",\"req\",\"sent\",\"dlv\",\"hdg\"]";
+
+    // ARGV: now, code mode, code hash ('' unless the mode is HASHED), expiry ms, cooldown ms, per-minute, per-hour, per-day limits,
+    // channel, country code, restored fields (JSON array). Returns {outcome, retry-after ms, nonce}. The OTP being replaced
+    // is kept in 'prev' so a send no provider accepted can be rolled back
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SEND_SCRIPT = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            local cooldown = tonumber(redis.call('HGET', KEYS[1], 'cd') or '0')
+            if now < cooldown then
+                return {'COOLDOWN', cooldown - now, 0}
+            end
+            local windows = {{'m', 60000, tonumber(ARGV[6])}, {'h', 3600000, tonumber(ARGV[7])}, {'d', 86400000, tonumber(ARGV[8])}}
+            local counts = {}
+            for i, w in ipairs(windows) do
+                local started = tonumber(redis.call('HGET', KEYS[1], w[1] .. 's') or '0')
+                local count = tonumber(redis.call('HGET', KEYS[1], w[1] .. 'n') or '0')
+                if now - started >= w[2] then
+                    started = now
+                    count = 0
+                end
+                if count >= w[3] then
+                    return {string.upper(w[1]), started + w[2] - now, 0}
+                end
+                counts[i] = {started, count + 1}
+            end
+            local prev = redis.call('HMGET', KEYS[1], unpack(cjson.decode(ARGV[11])))
+            local nonce = math.max(tonumber(redis.call('HGET', KEYS[1], 'seq') or '0'), tonumber(prev[6] or '0')) + 1
+            redis.call('HSET', KEYS[1], 'seq', nonce, 'nonce', nonce, 'prev', cjson.encode(prev))
+            redis.call('HSET', KEYS[1], 'mode', ARGV[2], 'code', ARGV[3], 'exp', now + tonumber(ARGV[4]), 'att', 0,
+                'st', 'PENDING', 'cd', now + tonumber(ARGV[5]),
+                'ms', counts[1][1], 'mn', counts[1][2], 'hs', counts[2][1], 'hn', counts[2][2],
+                'ds', counts[3][1], 'dn', counts[3][2],
+                'ch', ARGV[9], 'cc', ARGV[10], 'req', now, 'sent', now, 'dlv', 0, 'hdg', 0)
+            redis.call('PEXPIRE', KEYS[1], math.max(tonumber(ARGV[4]), counts[3][1] + 86400000 - now))
+            return {'OK', 0, nonce}
+            """, List.class);
+
+    // ARGV: now, code hash, max attempts. HASHED codes are compared here; for other modes the
+    // attempt is only reserved and the caller checks the code.
+    // Returns {outcome, attempts left, mode, nonce, channel, channel sent at, country code, requested at, hedged}
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> VERIFY_SCRIPT = new DefaultRedisScript<>("""
+            local state = redis.call('HMGET', KEYS[1], 'st', 'exp', 'att', 'code', 'mode', 'nonce', 'ch', 'sent', 'cc', 'req', 'hdg')
+            if state[1] ~= 'PENDING' then
+                return {'NO_OTP', 0, '', 0, '', 0, '', 0, 0}
+            end
+            if tonumber(ARGV[1]) > tonumber(state[2]) then
+                return {'EXPIRED', 0, '', 0, '', 0, '', 0, 0}
+            end
+            local max = tonumber(ARGV[3])
+            local attempts = tonumber(state[3])
+            if attempts >= max then
+                return {'LOCKED', 0, '', 0, '', 0, '', 0, 0}
+            end
+            redis.call('HINCRBY', KEYS[1], 'att', 1)
+            local ch, sent, cc, req = state[7] or '', tonumber(state[8] or '0'), state[9] or '', tonumber(state[10] or '0')
+            local hedged = tonumber(state[11] or '0')
+            if state[5] == 'HASHED' then
+                if state[4] == ARGV[2] then
+                    redis.call('HSET', KEYS[1], 'st', 'VERIFIED', 'code', '')
+                    return {'VERIFIED', max - attempts, state[5], 0, ch, sent, cc, req, hedged}
+                end
+                return {'INVALID', max - attempts - 1, state[5], 0, '', 0, '', 0, 0}
+            end
+            return {'RESERVED', max - attempts - 1, state[5], tonumber(state[6]), ch, sent, cc, req, hedged}
+            """, List.class);
+
+    private static final DefaultRedisScript<Long> MARK_VERIFIED_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'st') ~= 'PENDING' then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'st', 'VERIFIED', 'code', '')
+            return 1
+            """, Long.class);
+
+    // ARGV: nonce, channel, now, hedge ('1' when the earlier channel's code is still live). Moves a
+    // still-pending, unconfirmed OTP to another channel; 0 once it was verified, confirmed delivered
+    // or replaced by a newer send
+    private static final DefaultRedisScript<Long> SWITCH_CHANNEL_SCRIPT = new DefaultRedisScript<>("""
+            local state = redis.call('HMGET', KEYS[1], 'st', 'nonce', 'dlv')
+            if state[1] ~= 'PENDING' or state[2] ~= ARGV[1] or state[3] == '1' then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'ch', ARGV[2], 'sent', ARGV[3])
+            if ARGV[4] == '1' then
+                redis.call('HSET', KEYS[1], 'hdg', 1)
+            end
+            return 1
+            """, Long.class);
+
+    // ARGV: nonce, restored fields (JSON array, as in the send script). Puts back the OTP and cooldown a send replaced
+    // and returns its window slots; 0 when that send is no longer the current one
+    private static final DefaultRedisScript<Long> ROLLBACK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'nonce') ~= ARGV[1] or redis.call('HGET', KEYS[1], 'st') ~= 'PENDING' then
+                return 0
+            end
+            local prev = cjson.decode(redis.call('HGET', KEYS[1], 'prev') or '[]')
+            for i, field in ipairs(cjson.decode(ARGV[2])) do
+                if type(prev[i]) == 'string' then
+                    redis.call('HSET', KEYS[1], field, prev[i])
+                else
+                    redis.call('HDEL', KEYS[1], field)
+                end
+            end
+            for _, window in ipairs({'mn', 'hn', 'dn'}) do
+                if tonumber(redis.call('HGET', KEYS[1], window) or '0') > 0 then
+                    redis.call('HINCRBY', KEYS[1], window, -1)
+                end
+            end
+            redis.call('HDEL', KEYS[1], 'prev')
+            return 1
+            """, Long.class);
+
+    // ARGV: nonce. Records a delivery receipt for the send it belongs to
+    private static final DefaultRedisScript<Long> MARK_DELIVERED_SCRIPT = new DefaultRedisScript<>("""
+            local state = redis.call('HMGET', KEYS[1], 'st', 'nonce')
+            if state[1] ~= 'PENDING' or state[2] ~= ARGV[1] then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'dlv', 1)
+            return 1
+            """, Long.class);
+
+    public enum SendOutcome { OK, COOLDOWN, MINUTE_LIMIT, HOUR_LIMIT, DAY_LIMIT }
+
+    public enum VerifyOutcome { VERIFIED, INVALID, RESERVED, EXPIRED, LOCKED, NO_OTP }
+
+    /**
+     * Who holds the code: the provider, this hash (as a digest) or nobody (derived again on verify)
+     */
+    public enum CodeMode { PROVIDER, HASHED, DERIVED }
+
+    /**
+     * issuedAt is the send time stored as the OTP's requested-at; DERIVED codes use its time step
+     */
+    public record SendResult(SendOutcome outcome, long retryAfterMs, long nonce, long issuedAt) {
+        public int retryAfterSeconds() {
+            return (int) Math.max(1, (retryAfterMs + 999) / 1000);
+        }
+    }
+
+    /**
+     * The channel fields describe the last channel the code went out on; empty unless the code
+     * was accepted. hedged means the code was live on more than one channel, so the last one
+     * cannot be credited with the verify.
+     */
+    public record VerifyResult(VerifyOutcome outcome, int remainingAttempts, CodeMode mode, long nonce,
+                               String channel, long channelSentAt, String countryCode, long requestedAt,
+                               boolean hedged) {}
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RateLimitConfig rateLimitConfig;
+
+    @Value("${otp.expiry-minutes:5}")
+    private int expiryMinutes;
+
+    /**
+     * Check cooldown and send windows and, if allowed, start a fresh OTP with zero attempts.
+     * Only HASHED codes are stored; the returned nonce feeds DERIVED codes.
+     */
+    public SendResult startSend(String identifier, OtpPurpose purpose, CodeMode mode, String code,
+                                String channel, String countryCode) {
+        RateLimitConfig.OtpLimits limits = rateLimitConfig.getOtp();
+        boolean limited = rateLimitConfig.isEnabled();
+        long now = System.currentTimeMillis();
+        @SuppressWarnings("unchecked")
+        List<Object> result = redisTemplate.execute(SEND_SCRIPT, List.of(key(identifier, purpose)),
+                String.valueOf(now),
+                mode.name(),
+                mode == CodeMode.HASHED ? hash(identifier, purpose, code) : "",
+                String.valueOf(expiryMinutes * MINUTE_MS),
+                String.valueOf(limited ? limits.getCooldownSeconds() * 1000L : 0),
+                String.valueOf(limited ? limits.getSendPerMinute() : Integer.MAX_VALUE),
+                String.valueOf(limited ? limits.getSendPerHour() : Integer.MAX_VALUE),
+                String.valueOf(limited ? limits.getSendPerDay() : Integer.MAX_VALUE),
+                channel,
+                countryCode != null ? countryCode : "",
+                OTP_FIELDS);
+
+        String outcome = String.valueOf(result.get(0));
+        long retryAfterMs = ((Number) result.get(1)).longValue();
+        long nonce = ((Number) result.get(2)).longValue();
+        return switch (outcome) {
+            case "OK" -> new SendResult(SendOutcome.OK, 0, nonce, now);
+            case "COOLDOWN" -> new SendResult(SendOutcome.COOLDOWN, retryAfterMs, 0, 0);
+            case "M" -> new SendResult(SendOutcome.MINUTE_LIMIT, Math.min(retryAfterMs, MINUTE_MS), 0, 0);
+            case "H" -> new SendResult(SendOutcome.HOUR_LIMIT, Math.min(retryAfterMs, HOUR_MS), 0, 0);
+            default -> new SendResult(SendOutcome.DAY_LIMIT, Math.min(retryAfterMs, DAY_MS), 0, 0);
+        };
+    }
+
+    /**
+     * Undo a send that no channel or provider accepted: the previous OTP stays valid, the
+     * cooldown is what it was and the send does not count towards the windows
+     */
+    public boolean rollbackSend(String identifier, OtpPurpose purpose, long nonce) {
+        Long rolledBack = redisTemplate.execute(ROLLBACK_SCRIPT, List.of(key(identifier, purpose)),
+                String.valueOf(nonce), OTP_FIELDS);
+        return rolledBack != null && rolledBack == 1;
+    }
+
+    /**
+     * Count the attempt and, for HASHED codes, check the code. Other modes come back RESERVED
+     * with the nonce; the caller checks the code and confirms a match with {@link #markVerified},
+     * which also serves as the used-marker against replay.
+     */
+    public VerifyResult verify(String identifier, OtpPurpose purpose, String code) {
+        @SuppressWarnings("unchecked")
+        List<Object> result = redisTemplate.execute(VERIFY_SCRIPT, List.of(key(identifier, purpose)),
+                String.valueOf(System.currentTimeMillis()),
+                hash(identifier, purpose, code),
+                String.valueOf(rateLimitConfig.getOtp().getVerifyAttemptsPerOtp()));
+        String mode = String.valueOf(result.get(2));
+        return new VerifyResult(VerifyOutcome.valueOf(String.valueOf(result.get(0))),
+                ((Number) result.get(1)).intValue(),
+                mode.isEmpty() ? null : CodeMode.valueOf(mode),
+                ((Number) result.get(3)).longValue(),
+                String.valueOf(result.get(4)),
+                ((Number) result.get(5)).longValue(),
+                String.valueOf(result.get(6)),
+                ((Number) result.get(7)).longValue(),
+                ((Number) result.get(8)).longValue() == 1);
+    }
+
+    /**
+     * The code checked out outside Redis; false when another request already used this OTP
+     */
+    public boolean markVerified(String identifier, OtpPurpose purpose) {
+        Long marked = redisTemplate.execute(MARK_VERIFIED_SCRIPT, List.of(key(identifier, purpose)));
+        return marked != null && marked == 1;
+    }
+
+    /**
+     * Point the OTP at a failover or hedge channel. False means no further channel should be
+     * tried: the OTP was verified, its delivery confirmed, or a newer send replaced it.
+     */
+    public boolean switchChannel(String identifier, OtpPurpose purpose, long nonce, String channel, boolean hedge) {
+        Long switched = redisTemplate.execute(SWITCH_CHANNEL_SCRIPT, List.of(key(identifier, purpose)),
+                String.valueOf(nonce), channel, String.valueOf(System.currentTimeMillis()), hedge ? "1" : "0");
+        return switched != null && switched == 1;
+    }
+
+    /**
+     * Remember which OTP a provider message belongs to until its delivery receipt arrives
+     */
+    public void trackMessage(String messageId, String identifier, OtpPurpose purpose, long nonce) {
+        redisTemplate.opsForValue().set(MESSAGE_KEY_PREFIX + messageId, purpose + ":" + nonce + ":" + identifier,
+                Duration.ofMinutes(expiryMinutes));
+    }
+
+    /**
+     * Delivery receipt for a tracked message; a confirmed OTP is not hedged
+     */
+    public boolean markDelivered(String messageId) {
+        String tracked = redisTemplate.opsForValue().getAndDelete(MESSAGE_KEY_PREFIX + messageId);
+        if (tracked == null) {
+            return false;
+        }
+        String[] parts = tracked.split(":", 3);
+        Long marked = redisTemplate.execute(MARK_DELIVERED_SCRIPT,
+                List.of(key(parts[2], OtpPurpose.valueOf(parts[0]))), parts[1]);
+        return marked != null && marked == 1;
+    }
+
+    private String key(String identifier, OtpPurpose purpose) {
+        return STATE_KEY_PREFIX + identifier.replaceAll("[^a-zA-Z0-9+@._-]", "_") + ":" + purpose;
+    }
+
+    /**
+     * Codes are stored hashed with their identifier and purpose so a Redis dump does not reveal live codes
+     */
+    private String hash(String identifier, OtpPurpose purpose, String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashed = digest.digest((identifier + ":" + purpose + ":" + code).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hashed);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
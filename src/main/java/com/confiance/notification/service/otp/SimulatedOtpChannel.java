@@ -0,0 +1,82 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.enums.OtpProvider;
+import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.FeatureService;
+import com.confiance.notification.service.simulation.ProviderSimulator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Routed-OTP channel with no outside calls; list "simulated" in otp.routing.channels to use it.
+ * The code itself goes nowhere, so routed load tests exercise send, routing and hedging.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "otp.provider", havingValue = "simulated")
+public class SimulatedOtpChannel implements OtpChannel {
+
+    public static final String NAME = "simulated";
+
+    private final ProviderSimulator simulator;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OtpProvider getProvider() {
+        return OtpProvider.SIMULATED;
+    }
+
+    @Override
+    public String getFeature() {
+        return FeatureService.FEATURE_OTP;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    @Override
+    public boolean supports(String identifier) {
+        return true;
+    }
+
+    @Override
+    public Delivery deliver(String identifier, String countryCode, OtpPurpose purpose, String code) {
+        if (!providerThrottle.acquire(ProviderSimulator.OTP)) {
+            return Delivery.rejected();
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderSimulator.OTP);
+        if (permit == null) {
+            return Delivery.rejected();
+        }
+        try {
+            ProviderSimulator.Call call = simulator.call(ProviderSimulator.OTP);
+            if (call.ok()) {
+                providerThrottle.onSuccess(ProviderSimulator.OTP);
+                return Delivery.accepted(UUID.randomUUID().toString());
+            }
+            if (call.throttled()) {
+                permit.dropped();
+                providerThrottle.onThrottled(ProviderSimulator.OTP, (long) call.retryAfterSeconds());
+            }
+            return Delivery.rejected();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Delivery.rejected();
+        } finally {
+            permit.close();
+        }
+    }
+}
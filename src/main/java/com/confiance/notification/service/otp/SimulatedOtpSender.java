@@ -0,0 +1,122 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.dto.OtpResponse;
+import com.confiance.notification.enums.OtpProvider;
+import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.simulation.ProviderSimulator;
+import com.confiance.notification.service.simulation.SimulationConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Verify-style OTP provider with no outside calls (otp.provider=simulated). Every send
+ * "delivers" simulation.otp-code, so load-test clients know which code to submit. Since that
+ * code opens every account, the application refuses to start with it outside a non-prod profile.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "otp.provider", havingValue = "simulated")
+public class SimulatedOtpSender implements OtpSender {
+
+    private final ProviderSimulator simulator;
+    private final SimulationConfig simulationConfig;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final Environment environment;
+
+    @Value("${otp.expiry-minutes:5}")
+    private int expiryMinutes;
+
+    @PostConstruct
+    public void checkProfile() {
+        List<String> active = List.of(environment.getActiveProfiles());
+        List<String> allowed = simulationConfig.getAllowedProfiles();
+        if (active.contains("prod") || active.contains("production") || active.stream().noneMatch(allowed::contains)) {
+            throw new IllegalStateException("otp.provider=simulated accepts a fixed code and may only run with one of the "
+                    + "profiles " + allowed + " active; active profiles: " + active);
+        }
+        log.warn("Simulated OTP provider active (profiles {}): every OTP verifies with the configured code", active);
+    }
+
+    @Override
+    public OtpResponse sendOtp(String identifier, OtpPurpose purpose, String countryCode) {
+        ProviderSimulator.Call call = simulate(identifier);
+        if (call == null || !call.ok()) {
+            return response(identifier, "FAILED", call == null || call.throttled()
+                    ? "OTP service is busy, please try again shortly"
+                    : "Failed to send OTP: simulated provider error");
+        }
+        OtpResponse response = response(identifier, "SENT", "OTP sent successfully");
+        response.setExpiresAt(LocalDateTime.now().plusMinutes(expiryMinutes));
+        return response;
+    }
+
+    @Override
+    public OtpResponse verifyOtp(String identifier, String otp, OtpPurpose purpose) {
+        ProviderSimulator.Call call = simulate(identifier);
+        if (call == null || !call.ok()) {
+            return response(identifier, "FAILED", "Failed to verify OTP: simulated provider error");
+        }
+        return simulationConfig.getOtpCode().equals(otp)
+                ? response(identifier, "VERIFIED", "OTP verified successfully")
+                : response(identifier, "FAILED", "Invalid OTP");
+    }
+
+    /**
+     * One provider call through the real budget and concurrency limit; null when shed locally
+     */
+    private ProviderSimulator.Call simulate(String identifier) {
+        if (!providerThrottle.acquire(ProviderSimulator.OTP)) {
+            return null;
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderSimulator.OTP);
+        if (permit == null) {
+            return null;
+        }
+        try {
+            ProviderSimulator.Call call = simulator.call(ProviderSimulator.OTP);
+            if (call.ok()) {
+                providerThrottle.onSuccess(ProviderSimulator.OTP);
+            } else if (call.throttled()) {
+                permit.dropped();
+                providerThrottle.onThrottled(ProviderSimulator.OTP, (long) call.retryAfterSeconds());
+            }
+            log.debug("Simulated OTP call for {}: {} in {}ms", identifier, call.outcome(), call.latencyMs());
+            return call;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            permit.close();
+        }
+    }
+
+    private OtpResponse response(String identifier, String status, String message) {
+        return OtpResponse.builder()
+                .identifier(identifier)
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    @Override
+    public OtpProvider getProvider() {
+        return OtpProvider.SIMULATED;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+}
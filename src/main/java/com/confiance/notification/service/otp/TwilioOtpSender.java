@@ -3,11 +3,21 @@ package com.confiance.notification.service.otp;
 import com.confiance.notification.dto.OtpResponse;
 import com.confiance.notification.enums.OtpProvider;
 import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.http.OutboundHttp;
+import com.confiance.notification.service.sms.PhoneNumbers;
+import com.confiance.notification.service.sms.SmsConfig;
 import com.twilio.Twilio;
+import com.twilio.exception.ApiException;
+import com.twilio.http.NetworkHttpClient;
+import com.twilio.http.TwilioRestClient;
 import com.twilio.rest.verify.v2.service.Verification;
 import com.twilio.rest.verify.v2.service.VerificationCheck;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
@@ -16,10 +26,18 @@ import org.springframework.util.StringUtils;
 import java.time.LocalDateTime;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 @ConditionalOnProperty(name = "otp.provider", havingValue = "twilio", matchIfMissing = true)
 public class TwilioOtpSender implements OtpSender {
 
+    private static final String VERIFY_HOST = "verify.twilio.com";
+
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final OutboundHttp outboundHttp;
+    private final SmsConfig smsConfig;
+
     @Value("${twilio.account-sid:}")
     private String accountSid;
 
@@ -36,6 +54,13 @@ public class TwilioOtpSender implements OtpSender {
     public void init() {
         if (isConfigured()) {
             Twilio.init(accountSid, authToken);
+            // Verify calls go through a shared, pre-connected pool instead of the SDK's own
+            HttpClientBuilder clientBuilder = HttpClientBuilder.create()
+                    .setConnectionManager(outboundHttp.pool(VERIFY_HOST))
+                    .setConnectionManagerShared(true);
+            Twilio.setRestClient(new TwilioRestClient.Builder(accountSid, authToken)
+                    .httpClient(new NetworkHttpClient(clientBuilder))
+                    .build());
             log.info("Twilio OTP service initialized");
         } else {
             log.warn("Twilio OTP service not configured - missing credentials");
@@ -53,8 +78,18 @@ public class TwilioOtpSender implements OtpSender {
                     .build();
         }
 
+        if (!providerThrottle.acquire(ProviderThrottle.TWILIO)) {
+            log.warn("Twilio budget exhausted, not sending OTP to {}", identifier);
+            return busy(identifier);
+        }
+
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.TWILIO);
+        if (permit == null) {
+            return busy(identifier);
+        }
+
         try {
-            String formattedNumber = formatPhoneNumber(identifier, countryCode);
+            String formattedNumber = PhoneNumbers.toE164(identifier, countryCode, smsConfig.getDefaultCountryCode());
 
             Verification verification = Verification.creator(
                     verifyServiceSid,
@@ -62,6 +97,7 @@ public class TwilioOtpSender implements OtpSender {
                     "sms"
             ).create();
 
+            providerThrottle.onSuccess(ProviderThrottle.TWILIO);
             log.info("OTP sent successfully to {} via Twilio. Status: {}", identifier, verification.getStatus());
 
             return OtpResponse.builder()
@@ -72,12 +108,19 @@ public class TwilioOtpSender implements OtpSender {
                     .build();
 
         } catch (Exception e) {
+            if (e instanceof ApiException apiException && Integer.valueOf(429).equals(apiException.getStatusCode())) {
+                // The SDK does not surface Retry-After, so the configured backoff applies
+                providerThrottle.onThrottled(ProviderThrottle.TWILIO, null);
+                permit.dropped();
+            }
             log.error("Failed to send OTP via Twilio: {}", e.getMessage());
             return OtpResponse.builder()
                     .identifier(identifier)
                     .status("FAILED")
                     .message("Failed to send OTP: " + e.getMessage())
                     .build();
+        } finally {
+            permit.close();
         }
     }
 
@@ -92,6 +135,11 @@ public class TwilioOtpSender implements OtpSender {
                     .build();
         }
 
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.TWILIO);
+        if (permit == null) {
+            return busy(identifier);
+        }
+
         try {
             VerificationCheck verificationCheck = VerificationCheck.creator(verifyServiceSid)
                     .setTo(identifier)
@@ -121,18 +169,17 @@ public class TwilioOtpSender implements OtpSender {
                     .status("FAILED")
                     .message("Failed to verify OTP: " + e.getMessage())
                     .build();
+        } finally {
+            permit.close();
         }
     }
 
-    private String formatPhoneNumber(String phoneNumber, String countryCode) {
-        if (phoneNumber.startsWith("+")) {
-            return phoneNumber;
-        }
-        if (countryCode != null && !countryCode.isEmpty()) {
-            String code = countryCode.startsWith("+") ? countryCode : "+" + countryCode;
-            return code + phoneNumber;
-        }
-        return "+91" + phoneNumber;
+    private OtpResponse busy(String identifier) {
+        return OtpResponse.builder()
+                .identifier(identifier)
+                .status("FAILED")
+                .message("OTP service is busy, please try again shortly")
+                .build();
     }
 
     @Override
@@ -0,0 +1,86 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.dto.SmsResponse;
+import com.confiance.notification.enums.OtpProvider;
+import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.service.FeatureService;
+import com.confiance.notification.service.sms.SmsEncoding;
+import com.confiance.notification.service.sms.SmsMessage;
+import com.confiance.notification.service.sms.TwilioSmsSender;
+import com.confiance.notification.service.sms.PhoneNumbers;
+import com.confiance.notification.service.sms.SmsConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Our own code as a plain SMS through Twilio Messaging. Goes through the shared SMS sender, so
+ * it uses the same pooled client and Twilio budget as Verify and regular SMS.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TwilioSmsOtpChannel implements OtpChannel {
+
+    public static final String NAME = "twilio-sms";
+
+    private final TwilioSmsSender smsSender;
+    private final SmsConfig smsConfig;
+
+    @Value("${otp.expiry-minutes:5}")
+    private int expiryMinutes;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OtpProvider getProvider() {
+        return OtpProvider.TWILIO;
+    }
+
+    @Override
+    public String getFeature() {
+        return FeatureService.FEATURE_SMS;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return smsSender.isConfigured();
+    }
+
+    @Override
+    public boolean supports(String identifier) {
+        return !OtpChannel.isEmail(identifier);
+    }
+
+    @Override
+    public boolean reportsDelivery() {
+        return smsSender.reportsDelivery();
+    }
+
+    @Override
+    public Delivery deliver(String identifier, String countryCode, OtpPurpose purpose, String code) {
+        String to = PhoneNumbers.toE164(identifier, countryCode, smsConfig.getDefaultCountryCode());
+        SmsMessage message = new SmsMessage(to, SmsEncoding.encode(OtpChannel.smsText(code, expiryMinutes), true),
+                true, false);
+        SmsResponse response = smsSender.send(message);
+        if (!"SENT".equals(response.getStatus())) {
+            log.warn("OTP SMS to {} not sent via Twilio: {}", identifier, response.getStatus());
+            return Delivery.rejected();
+        }
+        log.info("OTP SMS sent to {} via Twilio: {}", identifier, response.getMessageId());
+        return Delivery.accepted(response.getMessageId());
+    }
+
+    /**
+     * Checks X-Twilio-Signature on a status callback posted to the configured URL
+     */
+    public boolean isValidCallback(Map<String, String> params, String signature) {
+        return smsSender.isValidCallback(params, signature);
+    }
+}
@@ -0,0 +1,24 @@
+package com.confiance.notification.service.payment;
+
+import com.razorpay.Order;
+import com.razorpay.RazorpayException;
+import com.razorpay.Refund;
+import org.json.JSONObject;
+
+/**
+ * Order and refund calls to the payment gateway. Requests and results keep Razorpay's shape,
+ * which is what checkout and signature verification are built on.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Name used for provider limits under rate-limit.providers
+     */
+    String getName();
+
+    boolean isConfigured();
+
+    Order createOrder(JSONObject orderRequest) throws RazorpayException;
+
+    Refund refund(String paymentId, JSONObject refundRequest) throws RazorpayException;
+}
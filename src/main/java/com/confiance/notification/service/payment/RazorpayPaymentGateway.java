@@ -0,0 +1,42 @@
+package com.confiance.notification.service.payment;
+
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.razorpay.Order;
+import com.razorpay.RazorpayClient;
+import com.razorpay.RazorpayException;
+import com.razorpay.Refund;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "payment.provider", havingValue = "razorpay", matchIfMissing = true)
+public class RazorpayPaymentGateway implements PaymentGateway {
+
+    private final RazorpayClient razorpayClient;
+
+    public RazorpayPaymentGateway(@Autowired(required = false) RazorpayClient razorpayClient) {
+        this.razorpayClient = razorpayClient;
+    }
+
+    @Override
+    public String getName() {
+        return ProviderThrottle.RAZORPAY;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return razorpayClient != null;
+    }
+
+    @Override
+    public Order createOrder(JSONObject orderRequest) throws RazorpayException {
+        return razorpayClient.orders.create(orderRequest);
+    }
+
+    @Override
+    public Refund refund(String paymentId, JSONObject refundRequest) throws RazorpayException {
+        return razorpayClient.payments.refund(paymentId, refundRequest);
+    }
+}
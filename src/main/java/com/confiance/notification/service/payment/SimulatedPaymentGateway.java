@@ -0,0 +1,91 @@
+package com.confiance.notification.service.payment;
+
+import com.confiance.notification.service.simulation.ProviderSimulator;
+import com.razorpay.Order;
+import com.razorpay.RazorpayException;
+import com.razorpay.Refund;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Payment gateway with no outside calls (payment.provider=simulated). Orders and refunds come
+ * back in Razorpay's shape; checkout signatures still verify against razorpay.key-secret.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "payment.provider", havingValue = "simulated")
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final ProviderSimulator simulator;
+
+    @Override
+    public String getName() {
+        return ProviderSimulator.PAYMENT;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    @Override
+    public Order createOrder(JSONObject orderRequest) throws RazorpayException {
+        simulate();
+        long amount = orderRequest.getLong("amount");
+        JSONObject order = new JSONObject();
+        order.put("id", "order_sim" + randomId());
+        order.put("entity", "order");
+        order.put("amount", amount);
+        order.put("amount_paid", 0L);
+        order.put("amount_due", amount);
+        order.put("currency", orderRequest.optString("currency", "INR"));
+        order.put("receipt", orderRequest.optString("receipt"));
+        order.put("status", "created");
+        order.put("attempts", 0);
+        order.put("created_at", Instant.now().getEpochSecond());
+        return new Order(order);
+    }
+
+    @Override
+    public Refund refund(String paymentId, JSONObject refundRequest) throws RazorpayException {
+        simulate();
+        JSONObject refund = new JSONObject();
+        refund.put("id", "rfnd_sim" + randomId());
+        refund.put("entity", "refund");
+        refund.put("payment_id", paymentId);
+        refund.put("amount", refundRequest.optLong("amount"));
+        refund.put("status", "processed");
+        refund.put("created_at", Instant.now().getEpochSecond());
+        return new Refund(refund);
+    }
+
+    /**
+     * Failures surface as the SDK reports them: a RazorpayException carrying the API message
+     */
+    private void simulate() throws RazorpayException {
+        try {
+            ProviderSimulator.Call call = simulator.call(ProviderSimulator.PAYMENT);
+            if (call.throttled()) {
+                throw new RazorpayException("Too many requests (simulated 429)");
+            }
+            if (!call.ok()) {
+                throw new RazorpayException("Simulated gateway error");
+            }
+            log.debug("Simulated payment gateway call in {}ms", call.latencyMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RazorpayException("Simulated gateway call interrupted");
+        }
+    }
+
+    private static String randomId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 11);
+    }
+}
@@ -0,0 +1,273 @@
+package com.confiance.notification.service.push;
+
+import com.confiance.notification.enums.DevicePlatform;
+import com.confiance.notification.enums.PushProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.http.OutboundHttp;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Firebase Cloud Messaging HTTP v1. FCM has no batch endpoint any more, so a batch is many
+ * concurrent requests multiplexed as HTTP/2 streams over the shared client's connection; the
+ * adaptive concurrency limit keeps the stream count within what FCM accepts. Access tokens
+ * are minted from the service account key with the JDK and cached until shortly before expiry.
+ */
+@Component
+@Slf4j
+public class FcmPushGateway implements PushGateway {
+
+    private static final String SCOPE = "https://www.googleapis.com/auth/firebase.messaging";
+    private static final long TOKEN_REFRESH_MARGIN_MS = 300_000;
+
+    private final PushConfig.Fcm config;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final ObjectMapper objectMapper;
+    private final OutboundHttp outboundHttp;
+    private final HttpClient httpClient;
+
+    private PrivateKey privateKey;
+    private volatile String accessToken;
+    private volatile long accessTokenExpiresAt;
+
+    public FcmPushGateway(PushConfig pushConfig, ProviderThrottle providerThrottle,
+                          ProviderConcurrencyLimiter concurrencyLimiter, ObjectMapper objectMapper,
+                          OutboundHttp outboundHttp) {
+        this.config = pushConfig.getFcm();
+        this.providerThrottle = providerThrottle;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.objectMapper = objectMapper;
+        this.outboundHttp = outboundHttp;
+        this.httpClient = outboundHttp.client();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!StringUtils.hasText(config.getProjectId()) || !StringUtils.hasText(config.getClientEmail())
+                || !StringUtils.hasText(config.getPrivateKey())) {
+            log.warn("FCM not configured - missing project id or service account");
+            return;
+        }
+        try {
+            String pem = config.getPrivateKey()
+                    .replace("\\n", "\n")
+                    .replaceAll("-----(BEGIN|END) PRIVATE KEY-----", "")
+                    .replaceAll("\\s", "");
+            privateKey = KeyFactory.getInstance("RSA")
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(pem)));
+            outboundHttp.register(URI.create(config.getEndpoint()).getHost());
+            outboundHttp.register(URI.create(config.getTokenUri()).getHost());
+        } catch (Exception e) {
+            log.error("Invalid FCM service account key: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<PushResult> send(PushTokenRegistry.Device device, PushMessage message) {
+        if (!providerThrottle.acquire(ProviderThrottle.FCM)) {
+            return CompletableFuture.completedFuture(PushResult.of(device.token(), PushResult.STATUS_SHED));
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.FCM);
+        if (permit == null) {
+            return CompletableFuture.completedFuture(PushResult.of(device.token(), PushResult.STATUS_SHED));
+        }
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(config.getEndpoint() + "/v1/projects/"
+                            + config.getProjectId() + "/messages:send"))
+                    .timeout(Duration.ofMillis(config.getRequestTimeoutMs()))
+                    .header("Authorization", "Bearer " + accessToken())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            objectMapper.writeValueAsBytes(Map.of("message", payload(device, message)))))
+                    .build();
+        } catch (Exception e) {
+            permit.close();
+            log.error("Failed to build FCM request: {}", e.getMessage());
+            return CompletableFuture.completedFuture(PushResult.of(device.token(), "FAILED"));
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, e) -> {
+                    if (e != null || response.statusCode() == 429) {
+                        permit.dropped();
+                    }
+                    permit.close();
+                })
+                .thenApply(response -> result(device, response))
+                .exceptionally(e -> {
+                    log.warn("FCM send failed: {}", e.getMessage());
+                    return PushResult.of(device.token(), "DEFERRED");
+                });
+    }
+
+    private Map<String, Object> payload(PushTokenRegistry.Device device, PushMessage message) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("token", device.token());
+        if (message.title() != null || message.body() != null) {
+            Map<String, String> notification = new HashMap<>();
+            notification.put("title", message.title());
+            notification.put("body", message.body());
+            payload.put("notification", notification);
+        }
+        if (message.data() != null && !message.data().isEmpty()) {
+            payload.put("data", message.data());
+        }
+
+        if (device.platform() == DevicePlatform.ANDROID) {
+            Map<String, Object> android = new HashMap<>();
+            android.put("priority", "high");
+            if (message.collapseKey() != null) {
+                android.put("collapse_key", message.collapseKey());
+            }
+            if (message.badge() != null) {
+                android.put("notification", Map.of("notification_count", message.badge()));
+            }
+            payload.put("android", android);
+        } else if (device.platform() == DevicePlatform.IOS) {
+            Map<String, Object> aps = new HashMap<>();
+            if (message.badge() != null) {
+                aps.put("badge", message.badge());
+            }
+            Map<String, Object> apns = new HashMap<>();
+            apns.put("payload", Map.of("aps", aps));
+            if (message.collapseKey() != null) {
+                apns.put("headers", Map.of("apns-collapse-id", message.collapseKey()));
+            }
+            payload.put("apns", apns);
+        } else if (message.collapseKey() != null) {
+            payload.put("webpush", Map.of("headers", Map.of("Topic", message.collapseKey())));
+        }
+        return payload;
+    }
+
+    /**
+     * UNREGISTERED and malformed tokens are reported for pruning; throttling, auth expiry
+     * and server errors are worth another try
+     */
+    private PushResult result(PushTokenRegistry.Device device, HttpResponse<String> response) {
+        int code = response.statusCode();
+        if (code / 100 == 2) {
+            providerThrottle.onSuccess(ProviderThrottle.FCM);
+            return PushResult.sent(device.token(), readTree(response.body()).path("name").asText(null));
+        }
+
+        String errorCode = errorCode(response.body());
+        if (code == 404 || "UNREGISTERED".equals(errorCode)
+                || (code == 400 && response.body().contains("registration token"))) {
+            return PushResult.of(device.token(), PushResult.STATUS_INVALID_TOKEN);
+        }
+        if (code == 429) {
+            providerThrottle.onThrottled(ProviderThrottle.FCM,
+                    response.headers().firstValue("Retry-After").map(ProviderThrottle::parseRetryAfter).orElse(null));
+            return PushResult.of(device.token(), "DEFERRED");
+        }
+        if (code == 401) {
+            accessTokenExpiresAt = 0;
+            return PushResult.of(device.token(), "DEFERRED");
+        }
+        if (code >= 500) {
+            return PushResult.of(device.token(), "DEFERRED");
+        }
+        log.error("FCM rejected push: {} {}", code, response.body());
+        return PushResult.of(device.token(), "FAILED");
+    }
+
+    private String errorCode(String body) {
+        for (JsonNode detail : readTree(body).path("error").path("details")) {
+            if (detail.has("errorCode")) {
+                return detail.get("errorCode").asText();
+            }
+        }
+        return null;
+    }
+
+    private String accessToken() throws Exception {
+        if (accessToken != null && System.currentTimeMillis() < accessTokenExpiresAt - TOKEN_REFRESH_MARGIN_MS) {
+            return accessToken;
+        }
+        synchronized (this) {
+            if (accessToken == null || System.currentTimeMillis() >= accessTokenExpiresAt - TOKEN_REFRESH_MARGIN_MS) {
+                refreshAccessToken();
+            }
+            return accessToken;
+        }
+    }
+
+    private void refreshAccessToken() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String claims = encoder.encodeToString(objectMapper.writeValueAsBytes(Map.of(
+                "iss", config.getClientEmail(),
+                "scope", SCOPE,
+                "aud", config.getTokenUri(),
+                "iat", now,
+                "exp", now + 3600)));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(privateKey);
+        signature.update((header + "." + claims).getBytes(StandardCharsets.UTF_8));
+        String assertion = header + "." + claims + "." + encoder.encodeToString(signature.sign());
+
+        String form = "grant_type=" + URLEncoder.encode("urn:ietf:params:oauth:grant-type:jwt-bearer", StandardCharsets.UTF_8)
+                + "&assertion=" + assertion;
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(config.getTokenUri()))
+                        .timeout(Duration.ofMillis(config.getRequestTimeoutMs()))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("FCM token request failed: " + response.statusCode());
+        }
+        JsonNode token = readTree(response.body());
+        accessToken = token.path("access_token").asText();
+        accessTokenExpiresAt = System.currentTimeMillis() + token.path("expires_in").asLong(3600) * 1000;
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (Exception e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    @Override
+    public PushProvider getProvider() {
+        return PushProvider.FCM;
+    }
+
+    @Override
+    public String getThrottleKey() {
+        return ProviderThrottle.FCM;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return privateKey != null;
+    }
+}
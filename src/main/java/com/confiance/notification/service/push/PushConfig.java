@@ -0,0 +1,29 @@
+package com.confiance.notification.service.push;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "push")
+public class PushConfig {
+
+    private String provider = "fcm";
+    private int maxDevicesPerUser = 10;          // Oldest-seen tokens are dropped past this
+    private long cacheTtlSeconds = 3600;         // Per-user token cache in Redis
+    private int queueCapacity = 20000;
+    private int batchSize = 500;                 // Messages handed to the gateway per flush
+    private int maxAttempts = 3;                 // Sends deferred by the gateway are re-queued until this
+    private Fcm fcm = new Fcm();
+
+    @Data
+    public static class Fcm {
+        private String projectId;
+        private String clientEmail;              // Service account used to mint OAuth access tokens
+        private String privateKey;               // PKCS#8 PEM of the service account key
+        private String endpoint = "https://fcm.googleapis.com";
+        private String tokenUri = "https://oauth2.googleapis.com/token";
+        private long requestTimeoutMs = 10000;
+    }
+}
@@ -0,0 +1,170 @@
+package com.confiance.notification.service.push;
+
+import com.confiance.notification.enums.PushProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Queue between notification writes and the push gateway. Each flush hands a batch to the
+ * gateway all at once so the requests share one multiplexed connection, then prunes the
+ * tokens it reported invalid and re-queues deferred sends. Batches are sized to the provider's
+ * current concurrency limit, and pushes the gateway shed locally go back to the front of the
+ * queue without counting as an attempt. Flushes wait on the gateway, so they run on their own
+ * thread rather than the shared scheduler.
+ */
+@Component
+@Slf4j
+public class PushDispatcher {
+
+    private record QueuedPush(PushTokenRegistry.Device device, PushMessage message, int attempts) {}
+
+    private final Map<PushProvider, PushGateway> gateways;
+    private final PushTokenRegistry tokenRegistry;
+    private final PushConfig config;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final Executor flushExecutor;
+    private final Deque<QueuedPush> queue = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong pruned = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public PushDispatcher(List<PushGateway> gateways, PushTokenRegistry tokenRegistry, PushConfig config,
+                          ProviderConcurrencyLimiter concurrencyLimiter,
+                          @Qualifier("pushDispatchExecutor") Executor flushExecutor) {
+        this.gateways = gateways.stream().collect(Collectors.toMap(PushGateway::getProvider, gateway -> gateway));
+        this.tokenRegistry = tokenRegistry;
+        this.config = config;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.flushExecutor = flushExecutor;
+    }
+
+    /**
+     * Queue a push; returns false when the queue is full and the push was dropped
+     */
+    public boolean enqueue(PushTokenRegistry.Device device, PushMessage message) {
+        return offer(new QueuedPush(device, message, 0));
+    }
+
+    private boolean offer(QueuedPush push) {
+        if (queued.incrementAndGet() > config.getQueueCapacity()) {
+            queued.decrementAndGet();
+            return false;
+        }
+        queue.addLast(push);
+        return true;
+    }
+
+    /**
+     * Hands the flush to its own thread; a flush still running is not started twice
+     */
+    @Scheduled(fixedDelayString = "${push.flush-interval-ms:100}")
+    public void scheduleFlush() {
+        if (queue.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            flushExecutor.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushing.set(false);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            flushing.set(false);
+        }
+    }
+
+    private void flush() {
+        PushGateway gateway = gateways.get(PushProvider.valueOf(config.getProvider().toUpperCase()));
+        if (gateway == null || !gateway.isConfigured()) {
+            return;
+        }
+        try {
+            while (!queue.isEmpty()) {
+                // Only as many as the provider takes concurrently; the rest would just be shed
+                int size = Math.max(1, Math.min(config.getBatchSize(),
+                        concurrencyLimiter.currentLimit(gateway.getThrottleKey())));
+                List<QueuedPush> batch = new ArrayList<>(size);
+                QueuedPush push;
+                while (batch.size() < size && (push = queue.pollFirst()) != null) {
+                    queued.decrementAndGet();
+                    batch.add(push);
+                }
+                if (!send(gateway, batch)) {
+                    // The provider or the local limits are pushing back; leave the rest for the next flush
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Push flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns false when the flush should stop: something was shed locally, or every push in
+     * the batch was deferred
+     */
+    private boolean send(PushGateway gateway, List<QueuedPush> batch) {
+        List<CompletableFuture<PushResult>> calls = batch.stream()
+                .map(push -> gateway.send(push.device(), push.message()))
+                .toList();
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+
+        List<String> invalid = new ArrayList<>();
+        List<QueuedPush> retry = new ArrayList<>();
+        List<QueuedPush> shed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PushResult result = calls.get(i).join();
+            switch (result.status()) {
+                case "SENT" -> sent.incrementAndGet();
+                case PushResult.STATUS_INVALID_TOKEN -> invalid.add(result.token());
+                case PushResult.STATUS_SHED -> shed.add(batch.get(i));
+                case "DEFERRED" -> retry.add(batch.get(i));
+                default -> failed.incrementAndGet();
+            }
+        }
+
+        if (!invalid.isEmpty()) {
+            pruned.addAndGet(tokenRegistry.prune(invalid));
+        }
+        // Never reached the provider: back to the front, in order, with the same attempt count
+        for (int i = shed.size() - 1; i >= 0; i--) {
+            queued.incrementAndGet();
+            queue.addFirst(shed.get(i));
+        }
+        for (QueuedPush push : retry) {
+            if (push.attempts() + 1 >= config.getMaxAttempts()
+                    || !offer(new QueuedPush(push.device(), push.message(), push.attempts() + 1))) {
+                failed.incrementAndGet();
+            }
+        }
+        return shed.isEmpty() && retry.size() < batch.size();
+    }
+
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "queued", (long) queued.get(),
+                "sent", sent.get(),
+                "pruned", pruned.get(),
+                "failed", failed.get());
+    }
+}
@@ -0,0 +1,23 @@
+package com.confiance.notification.service.push;
+
+import com.confiance.notification.enums.PushProvider;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface PushGateway {
+
+    /**
+     * Start sending one push. Calls are expected to run concurrently, so implementations must
+     * not block the caller on the network.
+     */
+    CompletableFuture<PushResult> send(PushTokenRegistry.Device device, PushMessage message);
+
+    PushProvider getProvider();
+
+    /**
+     * Key of the provider throttle and concurrency limit the gateway sends under
+     */
+    String getThrottleKey();
+
+    boolean isConfigured();
+}
@@ -0,0 +1,11 @@
+package com.confiance.notification.service.push;
+
+import java.util.Map;
+
+/**
+ * What a device shows; data travels to the app untouched
+ *
+ * @param collapseKey a newer message with the same key replaces an undelivered older one
+ * @param badge       unread count for the app icon, or null to leave it alone
+ */
+public record PushMessage(String title, String body, Map<String, String> data, String collapseKey, Integer badge) {}
@@ -0,0 +1,19 @@
+package com.confiance.notification.service.push;
+
+/**
+ * Outcome of one push: SENT, INVALID_TOKEN (the token should be pruned), DEFERRED (retry
+ * later), SHED (not attempted; a local rate or concurrency limit was reached) or FAILED
+ */
+public record PushResult(String token, String status, String messageId) {
+
+    public static final String STATUS_INVALID_TOKEN = "INVALID_TOKEN";
+    public static final String STATUS_SHED = "SHED";
+
+    public static PushResult sent(String token, String messageId) {
+        return new PushResult(token, "SENT", messageId);
+    }
+
+    public static PushResult of(String token, String status) {
+        return new PushResult(token, status, null);
+    }
+}
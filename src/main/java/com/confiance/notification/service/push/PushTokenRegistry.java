@@ -0,0 +1,156 @@
+package com.confiance.notification.service.push;
+
+import com.confiance.common.exception.ResourceNotFoundException;
+import com.confiance.notification.dto.DeviceTokenResponse;
+import com.confiance.notification.entity.DeviceToken;
+import com.confiance.notification.enums.DevicePlatform;
+import com.confiance.notification.repository.DeviceTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Device tokens per user. The table is the source of truth; each user's tokens are cached in
+ * their own Redis hash whose key is hash-tagged by userId, so in a cluster one user's entries
+ * live on one shard and a lookup is a single HGETALL. Users without devices are cached too.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PushTokenRegistry {
+
+    private static final String CACHE_PREFIX = "push:tokens:";
+    private static final String NO_DEVICES = "-";
+
+    private final DeviceTokenRepository deviceTokenRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final PushConfig config;
+
+    public record Device(Long userId, String token, DevicePlatform platform) {}
+
+    @Transactional
+    public DeviceTokenResponse register(Long userId, String token, DevicePlatform platform, String appVersion) {
+        DeviceToken device = deviceTokenRepository.findByToken(token).orElse(null);
+        if (device != null && !device.getUserId().equals(userId)) {
+            // Same install, new account: the previous user must stop receiving its pushes
+            evictAfterCommit(device.getUserId());
+            device.setUserId(userId);
+        }
+        if (device == null) {
+            device = DeviceToken.builder().userId(userId).token(token).build();
+        }
+        device.setPlatform(platform);
+        device.setAppVersion(appVersion);
+        device.setLastSeenAt(LocalDateTime.now());
+        DeviceToken saved = deviceTokenRepository.save(device);
+
+        List<DeviceToken> devices = deviceTokenRepository.findByUserIdOrderByLastSeenAtDesc(userId);
+        if (devices.size() > config.getMaxDevicesPerUser()) {
+            deviceTokenRepository.deleteAll(devices.subList(config.getMaxDevicesPerUser(), devices.size()));
+        }
+        evictAfterCommit(userId);
+        return toResponse(saved);
+    }
+
+    @Transactional
+    public void unregister(String token) {
+        DeviceToken device = deviceTokenRepository.findByToken(token)
+                .orElseThrow(() -> new ResourceNotFoundException("Device token", "token", token));
+        deviceTokenRepository.delete(device);
+        evictAfterCommit(device.getUserId());
+    }
+
+    public List<DeviceTokenResponse> getDevices(Long userId) {
+        return deviceTokenRepository.findByUserIdOrderByLastSeenAtDesc(userId).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    /**
+     * Tokens to push to, from the cache when present
+     */
+    public List<Device> devicesFor(Long userId) {
+        String key = cacheKey(userId);
+        Map<Object, Object> cached = redisTemplate.opsForHash().entries(key);
+        if (!cached.isEmpty()) {
+            List<Device> devices = new ArrayList<>();
+            cached.forEach((token, platform) -> {
+                if (!NO_DEVICES.equals(token)) {
+                    devices.add(new Device(userId, (String) token, DevicePlatform.valueOf((String) platform)));
+                }
+            });
+            return devices;
+        }
+
+        List<Device> devices = deviceTokenRepository.findByUserIdOrderByLastSeenAtDesc(userId).stream()
+                .map(d -> new Device(userId, d.getToken(), d.getPlatform()))
+                .toList();
+        Map<String, String> entries = new HashMap<>();
+        devices.forEach(d -> entries.put(d.token(), d.platform().name()));
+        if (entries.isEmpty()) {
+            entries.put(NO_DEVICES, "");
+        }
+        redisTemplate.opsForHash().putAll(key, entries);
+        redisTemplate.expire(key, Duration.ofSeconds(config.getCacheTtlSeconds()));
+        return devices;
+    }
+
+    /**
+     * Drop tokens the gateway reported as unregistered or invalid
+     */
+    @Transactional
+    public int prune(Collection<String> tokens) {
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+        List<DeviceToken> devices = deviceTokenRepository.findByTokenIn(tokens);
+        int removed = deviceTokenRepository.deleteByTokenIn(tokens);
+        devices.stream().map(DeviceToken::getUserId).distinct().forEach(this::evictAfterCommit);
+        log.info("Pruned {} invalid push tokens", removed);
+        return removed;
+    }
+
+    /**
+     * Evicting before the commit would let a concurrent lookup cache the old rows again
+     */
+    private void evictAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            redisTemplate.delete(cacheKey(userId));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                redisTemplate.delete(cacheKey(userId));
+            }
+        });
+    }
+
+    private static String cacheKey(Long userId) {
+        return CACHE_PREFIX + "{" + userId + "}";
+    }
+
+    private DeviceTokenResponse toResponse(DeviceToken device) {
+        return DeviceTokenResponse.builder()
+                .id(device.getId())
+                .userId(device.getUserId())
+                .token(device.getToken())
+                .platform(device.getPlatform().name())
+                .appVersion(device.getAppVersion())
+                .createdAt(device.getCreatedAt())
+                .lastSeenAt(device.getLastSeenAt())
+                .build();
+    }
+}
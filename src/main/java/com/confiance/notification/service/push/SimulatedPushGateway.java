@@ -0,0 +1,90 @@
+package com.confiance.notification.service.push;
+
+import com.confiance.notification.enums.PushProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.simulation.ProviderSimulator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Local stand-in for the push gateway (push.provider=simulated). Tokens starting with
+ * "invalid" are reported as unregistered, so pruning can be exercised end to end.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "push.provider", havingValue = "simulated")
+public class SimulatedPushGateway implements PushGateway {
+
+    private static final String INVALID_PREFIX = "invalid";
+
+    private final ProviderSimulator simulator;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final Executor executor;
+
+    public SimulatedPushGateway(ProviderSimulator simulator, ProviderThrottle providerThrottle,
+                                ProviderConcurrencyLimiter concurrencyLimiter,
+                                @Qualifier("pushExecutor") Executor executor) {
+        this.simulator = simulator;
+        this.providerThrottle = providerThrottle;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<PushResult> send(PushTokenRegistry.Device device, PushMessage message) {
+        if (!providerThrottle.acquire(ProviderSimulator.PUSH)) {
+            return CompletableFuture.completedFuture(PushResult.of(device.token(), PushResult.STATUS_SHED));
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderSimulator.PUSH);
+        if (permit == null) {
+            return CompletableFuture.completedFuture(PushResult.of(device.token(), PushResult.STATUS_SHED));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ProviderSimulator.Call call = simulator.call(ProviderSimulator.PUSH);
+                if (call.throttled()) {
+                    permit.dropped();
+                    providerThrottle.onThrottled(ProviderSimulator.PUSH, (long) call.retryAfterSeconds());
+                    return PushResult.of(device.token(), "DEFERRED");
+                }
+                if (!call.ok()) {
+                    return PushResult.of(device.token(), "FAILED");
+                }
+                providerThrottle.onSuccess(ProviderSimulator.PUSH);
+                if (device.token().startsWith(INVALID_PREFIX)) {
+                    return PushResult.of(device.token(), PushResult.STATUS_INVALID_TOKEN);
+                }
+                log.debug("Simulated push to user {} sent in {}ms", device.userId(), call.latencyMs());
+                return PushResult.sent(device.token(), UUID.randomUUID().toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return PushResult.of(device.token(), "DEFERRED");
+            } finally {
+                permit.close();
+            }
+        }, executor);
+    }
+
+    @Override
+    public PushProvider getProvider() {
+        return PushProvider.SIMULATED;
+    }
+
+    @Override
+    public String getThrottleKey() {
+        return ProviderSimulator.PUSH;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+}
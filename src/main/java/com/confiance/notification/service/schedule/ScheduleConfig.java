@@ -0,0 +1,29 @@
+package com.confiance.notification.service.schedule;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "schedule")
+public class ScheduleConfig {
+
+    private long tickMs = 10;                    // Resolution of the local timing wheel
+    private int wheelSize = 100;                 // Slots per wheel level
+    private int wheelLevels = 3;                 // 10ms x 100^3 covers ~2.7 hours
+    private long lookaheadMs = 2000;             // Items due this far ahead are claimed onto the local wheel
+    private long pollIntervalMs = 1000;
+    private int claimBatch = 1000;               // Items claimed from Redis per round trip
+    private int leaseSeconds = 60;               // Claimed items reappear for other nodes after this
+    private int maxAttempts = 5;
+    private int deadLetterMax = 10000;           // Items that exhausted their attempts, newest kept
+
+    private PaymentReminder paymentReminder = new PaymentReminder();
+
+    @Data
+    public static class PaymentReminder {
+        private boolean enabled = true;
+        private int delayHours = 24;             // Reminder if an order is still CREATED after this long
+    }
+}
@@ -0,0 +1,481 @@
+package com.confiance.notification.service.schedule;
+
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.common.exception.InternalServerException;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.FileUploadResponse;
+import com.confiance.notification.dto.SmsRequest;
+import com.confiance.notification.dto.SmsResponse;
+import com.confiance.notification.entity.Payment;
+import com.confiance.notification.enums.PaymentStatus;
+import com.confiance.notification.enums.ScheduledItemType;
+import com.confiance.notification.repository.PaymentRepository;
+import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.FileUploadService;
+import com.confiance.notification.service.SmsService;
+import com.confiance.notification.service.UserNotificationService;
+import com.confiance.notification.service.email.DomainThrottle;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Delayed delivery. Items live in a Redis sorted set scored by due time, with
+ * the payload in a hash. Each node claims items due within a short lookahead
+ * under a lease and fires them from a local hierarchical timing wheel, so
+ * items go out on time without every node polling at fine granularity.
+ * An item whose node dies is claimed again once its lease runs out.
+ * <p>
+ * Delivery first marks the item running, which fails if it was cancelled or another
+ * node is already delivering it; cancel in turn refuses an item that is running.
+ * Items that exhaust their attempts go to a capped dead-letter list.
+ */
+@Service
+@Slf4j
+public class ScheduledDeliveryService {
+
+    public static final String STATUS_SCHEDULED = "SCHEDULED";
+
+    private static final String DUE_KEY = "schedule:due";
+    private static final String PAYLOAD_KEY = "schedule:payload";
+    // id -> epoch ms until which a node is delivering the item
+    private static final String RUNNING_KEY = "schedule:running";
+    private static final String DEAD_KEY = "schedule:dead";
+    // FileUpload entityType of inline attachments stored for a scheduled email
+    private static final String ATTACHMENT_ENTITY = "scheduled-email";
+
+    // Returns id, due score and payload for each claimed item; claimed items are pushed out to the lease
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[3]))
+            local out = {}
+            for _, id in ipairs(ids) do
+                local score = redis.call('ZSCORE', KEYS[1], id)
+                redis.call('ZADD', KEYS[1], 'XX', ARGV[2], id)
+                table.insert(out, id)
+                table.insert(out, score)
+                table.insert(out, redis.call('HGET', KEYS[2], id) or '')
+            end
+            return out
+            """, List.class);
+
+    // Mark an item running before it is delivered; 0 if it was cancelled or another node is delivering it
+    // ARGV[1] id, ARGV[2] lease until (ms), ARGV[3] now (ms)
+    private static final DefaultRedisScript<Long> START_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[2], ARGV[1]) == 0 then
+                return 0
+            end
+            if tonumber(redis.call('HGET', KEYS[3], ARGV[1]) or '0') > tonumber(ARGV[3]) then
+                return 0
+            end
+            redis.call('ZADD', KEYS[1], 'XX', ARGV[2], ARGV[1])
+            redis.call('HSET', KEYS[3], ARGV[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // Remove an item that is not running; returns its payload, or nil if it is gone or being delivered
+    // ARGV[1] id, ARGV[2] now (ms)
+    private static final DefaultRedisScript<String> CANCEL_SCRIPT = new DefaultRedisScript<>("""
+            if tonumber(redis.call('HGET', KEYS[3], ARGV[1]) or '0') > tonumber(ARGV[2]) then
+                return false
+            end
+            local payload = redis.call('HGET', KEYS[2], ARGV[1])
+            if not payload then
+                return false
+            end
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            redis.call('HDEL', KEYS[3], ARGV[1])
+            return payload
+            """, String.class);
+
+    private static final DefaultRedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('HDEL', KEYS[3], ARGV[1])
+            return redis.call('HDEL', KEYS[2], ARGV[1])
+            """, Long.class);
+
+    // ARGV[1] id, ARGV[2] dead-letter record, ARGV[3] records kept
+    private static final DefaultRedisScript<Long> DEAD_LETTER_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            redis.call('HDEL', KEYS[3], ARGV[1])
+            redis.call('LPUSH', KEYS[4], ARGV[2])
+            redis.call('LTRIM', KEYS[4], 0, tonumber(ARGV[3]) - 1)
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ScheduleConfig config;
+    private final EmailService emailService;
+    private final UserNotificationService userNotificationService;
+    private final SmsService smsService;
+    private final PaymentRepository paymentRepository;
+    private final FileUploadService fileUploadService;
+    private final Executor executor;
+    private final TimingWheel<ScheduledItem> wheel;
+    private Thread wheelThread;
+    private volatile boolean running = true;
+
+    public ScheduledDeliveryService(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper,
+                                    ScheduleConfig config, @Lazy EmailService emailService,
+                                    @Lazy UserNotificationService userNotificationService,
+                                    @Lazy SmsService smsService,
+                                    PaymentRepository paymentRepository,
+                                    FileUploadService fileUploadService,
+                                    @Qualifier("scheduledDeliveryExecutor") Executor executor) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.emailService = emailService;
+        this.userNotificationService = userNotificationService;
+        this.smsService = smsService;
+        this.paymentRepository = paymentRepository;
+        this.fileUploadService = fileUploadService;
+        this.executor = executor;
+        this.wheel = new TimingWheel<>(config.getTickMs(), config.getWheelSize(), config.getWheelLevels(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Stored form of a scheduled item
+     */
+    public record ScheduledItem(String id, ScheduledItemType type, int attempts, Map<String, Object> payload) {}
+
+    /**
+     * An item that exhausted its attempts, with the last error
+     */
+    public record DeadLetter(ScheduledItem item, String error, Instant failedAt) {}
+
+    // ==================== Scheduling ====================
+
+    /**
+     * Inline attachment bytes are stored as file uploads first; the payload keeps only their publicIds
+     */
+    public String scheduleEmail(EmailRequest request, Long userId, Instant sendAt) {
+        List<String> uploads = new ArrayList<>();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("request", withStoredAttachments(request, userId, uploads));
+        payload.put("userId", userId);
+        if (!uploads.isEmpty()) {
+            // Deleted again if the email is cancelled
+            payload.put("uploads", uploads);
+        }
+        return schedule(ScheduledItemType.EMAIL, payload, sendAt);
+    }
+
+    private EmailRequest withStoredAttachments(EmailRequest request, Long userId, List<String> uploads) {
+        if (request.getAttachments() == null
+                || request.getAttachments().stream().allMatch(attachment -> attachment.getContent() == null)) {
+            return request;
+        }
+        EmailRequest copy = objectMapper.convertValue(request, EmailRequest.class);
+        copy.setAttachments(request.getAttachments().stream()
+                .map(attachment -> attachment.getContent() == null ? attachment : upload(attachment, userId, uploads))
+                .toList());
+        return copy;
+    }
+
+    private EmailRequest.EmailAttachment upload(EmailRequest.EmailAttachment attachment, Long userId,
+                                                List<String> uploads) {
+        FileUploadResponse stored = fileUploadService.uploadBytes(attachment.getContent(), attachment.getFileName(),
+                attachment.getContentType(), userId, ATTACHMENT_ENTITY);
+        uploads.add(stored.getPublicId());
+        return EmailRequest.EmailAttachment.builder()
+                .fileName(attachment.getFileName())
+                .contentType(attachment.getContentType())
+                .publicId(stored.getPublicId())
+                .build();
+    }
+
+    public String scheduleNotification(Long userId, String title, String message, String type,
+                                       String actionUrl, String icon, Instant sendAt) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("title", title);
+        payload.put("message", message);
+        payload.put("type", type);
+        payload.put("actionUrl", actionUrl);
+        payload.put("icon", icon);
+        return schedule(ScheduledItemType.NOTIFICATION, payload, sendAt);
+    }
+
+    public String scheduleSms(SmsRequest request, Instant sendAt) {
+        return scheduleSms(request, sendAt, false);
+    }
+
+    /**
+     * bulk keeps a deferred bulk recipient under the provider's bulk budget when it is retried
+     */
+    public String scheduleSms(SmsRequest request, Instant sendAt, boolean bulk) {
+        return schedule(ScheduledItemType.SMS, Map.of("request", request, "bulk", bulk), sendAt);
+    }
+
+    public String schedulePaymentReminder(String orderId, Instant sendAt) {
+        return schedule(ScheduledItemType.PAYMENT_REMINDER, Map.of("orderId", orderId), sendAt);
+    }
+
+    public String schedule(ScheduledItemType type, Map<String, Object> payload, Instant sendAt) {
+        String id = UUID.randomUUID().toString();
+        store(new ScheduledItem(id, type, 0, payload), sendAt.toEpochMilli());
+        log.debug("Scheduled {} {} for {}", type, id, sendAt);
+        return id;
+    }
+
+    /**
+     * False if the item already went out, was cancelled, or is being delivered right now
+     */
+    public boolean cancel(String id) {
+        String json = redisTemplate.execute(CANCEL_SCRIPT, List.of(DUE_KEY, PAYLOAD_KEY, RUNNING_KEY),
+                id, String.valueOf(System.currentTimeMillis()));
+        if (json == null) {
+            return false;
+        }
+        deleteStoredAttachments(json);
+        return true;
+    }
+
+    /**
+     * Most recent dead letters first
+     */
+    public List<DeadLetter> getDeadLetters(int limit) {
+        List<String> records = redisTemplate.opsForList().range(DEAD_KEY, 0, limit - 1L);
+        if (records == null) {
+            return List.of();
+        }
+        List<DeadLetter> deadLetters = new ArrayList<>();
+        for (String record : records) {
+            try {
+                deadLetters.add(objectMapper.readValue(record, DeadLetter.class));
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping unreadable scheduled dead letter: {}", e.getMessage());
+            }
+        }
+        return deadLetters;
+    }
+
+    private void deleteStoredAttachments(String json) {
+        try {
+            ScheduledItem item = objectMapper.readValue(json, ScheduledItem.class);
+            if (item.payload().get("uploads") instanceof List<?> uploads) {
+                for (Object publicId : uploads) {
+                    fileUploadService.deleteFile(String.valueOf(publicId));
+                }
+            }
+        } catch (Exception e) {
+            // The item is cancelled either way; an orphaned upload is only storage
+            log.warn("Could not delete attachments of cancelled scheduled email: {}", e.getMessage());
+        }
+    }
+
+    private void store(ScheduledItem item, long dueAtMs) {
+        try {
+            redisTemplate.opsForHash().put(PAYLOAD_KEY, item.id(), objectMapper.writeValueAsString(item));
+            redisTemplate.opsForZSet().add(DUE_KEY, item.id(), dueAtMs);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Could not schedule " + item.type() + ": " + e.getOriginalMessage());
+        }
+    }
+
+    // ==================== Claiming ====================
+
+    @PostConstruct
+    public void startWheel() {
+        wheelThread = new Thread(this::runWheel, "TimingWheel");
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+    }
+
+    @PreDestroy
+    public void stopWheel() {
+        running = false;
+        if (wheelThread != null) {
+            wheelThread.interrupt();
+        }
+        // Items still on the wheel keep their lease and are picked up elsewhere when it expires
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.poll-interval-ms:1000}")
+    @SuppressWarnings("unchecked")
+    public void claimDue() {
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                List<String> claimed = redisTemplate.execute(CLAIM_SCRIPT, List.of(DUE_KEY, PAYLOAD_KEY),
+                        String.valueOf(now + config.getLookaheadMs()),
+                        String.valueOf(now + config.getLeaseSeconds() * 1000L),
+                        String.valueOf(config.getClaimBatch()));
+                if (claimed == null || claimed.isEmpty()) {
+                    return;
+                }
+                for (int i = 0; i + 2 < claimed.size(); i += 3) {
+                    enqueue(claimed.get(i), (long) Double.parseDouble(claimed.get(i + 1)), claimed.get(i + 2));
+                }
+                if (claimed.size() / 3 < config.getClaimBatch()) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Claiming scheduled items failed: {}", e.getMessage());
+        }
+    }
+
+    private void enqueue(String id, long dueAtMs, String json) {
+        if (json.isEmpty()) {
+            // Cancelled between scoring and payload removal
+            redisTemplate.opsForZSet().remove(DUE_KEY, id);
+            return;
+        }
+        ScheduledItem item;
+        try {
+            item = objectMapper.readValue(json, ScheduledItem.class);
+        } catch (JsonProcessingException e) {
+            log.error("Dropping unreadable scheduled item {}: {}", id, e.getMessage());
+            complete(id);
+            return;
+        }
+
+        TimingWheel.Entry<ScheduledItem> entry = new TimingWheel.Entry<>(dueAtMs, item);
+        boolean onWheel;
+        synchronized (wheel) {
+            onWheel = wheel.add(entry);
+        }
+        if (!onWheel) {
+            fire(entry);
+        }
+    }
+
+    private void runWheel() {
+        while (running) {
+            try {
+                Thread.sleep(config.getTickMs());
+                List<TimingWheel.Entry<ScheduledItem>> expired = new ArrayList<>();
+                synchronized (wheel) {
+                    wheel.advanceTo(System.currentTimeMillis(), expired::add);
+                }
+                // Hand off outside the lock; a saturated executor runs items on this thread
+                expired.forEach(this::fire);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Timing wheel error: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void fire(TimingWheel.Entry<ScheduledItem> entry) {
+        executor.execute(() -> deliver(entry.value()));
+    }
+
+    // ==================== Delivery ====================
+
+    private void deliver(ScheduledItem item) {
+        long now = System.currentTimeMillis();
+        Long started = redisTemplate.execute(START_SCRIPT, List.of(DUE_KEY, PAYLOAD_KEY, RUNNING_KEY),
+                item.id(), String.valueOf(now + config.getLeaseSeconds() * 1000L), String.valueOf(now));
+        if (started == null || started == 0) {
+            log.debug("Scheduled {} {} was cancelled or is being delivered elsewhere", item.type(), item.id());
+            return;
+        }
+        try {
+            switch (item.type()) {
+                case EMAIL -> deliverEmail(item.payload());
+                case NOTIFICATION -> deliverNotification(item.payload());
+                case PAYMENT_REMINDER -> deliverPaymentReminder(item.payload());
+                case SMS -> deliverSms(item.payload());
+            }
+            complete(item.id());
+        } catch (Exception e) {
+            int attempts = item.attempts() + 1;
+            if (attempts >= config.getMaxAttempts()) {
+                log.error("Giving up on scheduled {} {} after {} attempts: {}", item.type(), item.id(), attempts, e.getMessage());
+                deadLetter(new ScheduledItem(item.id(), item.type(), attempts, item.payload()), e);
+                return;
+            }
+            log.warn("Scheduled {} {} failed, retrying: {}", item.type(), item.id(), e.getMessage());
+            store(new ScheduledItem(item.id(), item.type(), attempts, item.payload()),
+                    System.currentTimeMillis() + 30_000L * attempts);
+            redisTemplate.opsForHash().delete(RUNNING_KEY, item.id());
+        }
+    }
+
+    private void deliverEmail(Map<String, Object> payload) {
+        EmailRequest request = objectMapper.convertValue(payload.get("request"), EmailRequest.class);
+        request.setSendAt(null);
+        emailService.sendEmail(request, toLong(payload.get("userId")));
+    }
+
+    private void deliverSms(Map<String, Object> payload) {
+        SmsRequest request = objectMapper.convertValue(payload.get("request"), SmsRequest.class);
+        request.setSendAt(null);
+        SmsResponse response = smsService.sendNow(request, Boolean.TRUE.equals(payload.get("bulk")));
+        // Provider back-pressure goes through the normal retry backoff
+        if (DomainThrottle.STATUS_DEFERRED.equals(response.getStatus())) {
+            throw new InternalServerException("SMS to " + response.getRecipient() + " deferred by provider");
+        }
+    }
+
+    private void deliverNotification(Map<String, Object> payload) {
+        userNotificationService.createNotification(
+                toLong(payload.get("userId")),
+                (String) payload.get("title"),
+                (String) payload.get("message"),
+                (String) payload.get("type"),
+                (String) payload.get("actionUrl"),
+                (String) payload.get("icon"));
+    }
+
+    private void deliverPaymentReminder(Map<String, Object> payload) {
+        String orderId = (String) payload.get("orderId");
+        Payment payment = paymentRepository.findByOrderId(orderId).orElse(null);
+        if (payment == null || payment.getStatus() != PaymentStatus.CREATED || payment.getCustomerEmail() == null) {
+            log.debug("Payment reminder for {} no longer needed", orderId);
+            return;
+        }
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("customerName", payment.getCustomerName() != null ? payment.getCustomerName() : "there");
+        variables.put("orderId", payment.getOrderId());
+        variables.put("amount", payment.getAmount());
+        variables.put("currency", payment.getCurrency());
+        emailService.sendTemplatedEmail(payment.getCustomerEmail(), "Complete your payment - Order #" + orderId,
+                "payment-reminder", variables, payment.getUserId());
+    }
+
+    private void complete(String id) {
+        redisTemplate.execute(COMPLETE_SCRIPT, List.of(DUE_KEY, PAYLOAD_KEY, RUNNING_KEY), id);
+    }
+
+    private void deadLetter(ScheduledItem item, Exception cause) {
+        try {
+            String record = objectMapper.writeValueAsString(new DeadLetter(item, cause.getMessage(), Instant.now()));
+            redisTemplate.execute(DEAD_LETTER_SCRIPT, List.of(DUE_KEY, PAYLOAD_KEY, RUNNING_KEY, DEAD_KEY),
+                    item.id(), record, String.valueOf(config.getDeadLetterMax()));
+        } catch (JsonProcessingException e) {
+            log.error("Could not record dead letter for scheduled {} {}: {}", item.type(), item.id(), e.getMessage());
+            complete(item.id());
+        }
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.confiance.notification.service.schedule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Level 0 has {@code tickMs} slots; each higher level's slot
+ * spans a whole lower wheel. Adding and expiring an entry is O(1); entries in higher
+ * levels cascade down as time reaches their slot. Not thread-safe; callers synchronize.
+ */
+class TimingWheel<T> {
+
+    record Entry<T>(long expiresAt, T value) {}
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] levelTick;
+    private final List<Deque<Entry<T>>[]> levels = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int wheelSize, int levelCount, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levelTick = new long[levelCount];
+        long tick = tickMs;
+        for (int level = 0; level < levelCount; level++) {
+            levelTick[level] = tick;
+            Deque<Entry<T>>[] buckets = new Deque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+            levels.add(buckets);
+            tick *= wheelSize;
+        }
+        this.currentTime = startMs - (startMs % tickMs);
+    }
+
+    /**
+     * Returns false if the entry is already due (the caller runs it now)
+     */
+    boolean add(Entry<T> entry) {
+        long delay = entry.expiresAt() - currentTime;
+        if (delay < tickMs) {
+            return false;
+        }
+        for (int level = 0; level < levelTick.length; level++) {
+            if (delay < levelTick[level] * wheelSize) {
+                int slot = (int) ((entry.expiresAt() / levelTick[level]) % wheelSize);
+                levels.get(level)[slot].addLast(entry);
+                size++;
+                return true;
+            }
+        }
+        throw new IllegalArgumentException("Delay " + delay + "ms is beyond the timing wheel horizon");
+    }
+
+    /**
+     * Advance to {@code now}, passing every expired entry to {@code expired}
+     */
+    void advanceTo(long now, Consumer<Entry<T>> expired) {
+        while (currentTime + tickMs <= now) {
+            // Level-0 slot for [currentTime, currentTime + tick) has fully elapsed
+            Deque<Entry<T>> slot = levels.get(0)[(int) ((currentTime / tickMs) % wheelSize)];
+            while (!slot.isEmpty()) {
+                size--;
+                expired.accept(slot.pollFirst());
+            }
+            currentTime += tickMs;
+
+            // When a lower wheel completes a turn, spread the next higher slot over the levels below
+            for (int level = levelTick.length - 1; level >= 1; level--) {
+                if (currentTime % levelTick[level] == 0) {
+                    Deque<Entry<T>> upper = levels.get(level)[(int) ((currentTime / levelTick[level]) % wheelSize)];
+                    while (!upper.isEmpty()) {
+                        Entry<T> entry = upper.pollFirst();
+                        size--;
+                        if (!add(entry)) {
+                            expired.accept(entry);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    long horizonMs() {
+        return levelTick[levelTick.length - 1] * wheelSize;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,101 @@
+package com.confiance.notification.service.simulation;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for an outside provider call: blocks for a sampled latency and answers OK, an
+ * error or a 429 according to the provider's profile. Simulated senders run through the same
+ * throttles and concurrency limits as the real ones, so saturation behaves as in production.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProviderSimulator {
+
+    public static final String EMAIL = "simulated-email";
+    public static final String OTP = "simulated-otp";
+    public static final String SMS = "simulated-sms";
+    public static final String PUSH = "simulated-push";
+    public static final String UPLOAD = "simulated-upload";
+    public static final String PAYMENT = "simulated-payment";
+
+    private static final SimulationConfig.Profile DEFAULT_PROFILE = new SimulationConfig.Profile();
+    private static final double PARETO_ALPHA = 1.5;
+
+    private final SimulationConfig config;
+
+    private final Map<String, Bucket> caps = new ConcurrentHashMap<>();
+
+    public enum Outcome { OK, ERROR, THROTTLED }
+
+    public record Call(Outcome outcome, long latencyMs, int retryAfterSeconds) {
+        public boolean ok() {
+            return outcome == Outcome.OK;
+        }
+
+        public boolean throttled() {
+            return outcome == Outcome.THROTTLED;
+        }
+    }
+
+    /**
+     * Run one simulated call, blocking the caller as a synchronous provider call would
+     */
+    public Call call(String provider) throws InterruptedException {
+        SimulationConfig.Profile profile = profile(provider);
+        Random random = ThreadLocalRandom.current();
+
+        // Over the cap or randomly throttled: providers reject quickly, without the full latency
+        if (overCap(provider, profile) || random.nextDouble() < profile.getThrottleRate()) {
+            long latency = Math.min(sampleLatency(profile, random), profile.getLatencyMs());
+            Thread.sleep(latency);
+            return new Call(Outcome.THROTTLED, latency, profile.getRetryAfterSeconds());
+        }
+
+        long latency = sampleLatency(profile, random);
+        Thread.sleep(latency);
+        Outcome outcome = random.nextDouble() < profile.getErrorRate() ? Outcome.ERROR : Outcome.OK;
+        return new Call(outcome, latency, 0);
+    }
+
+    private boolean overCap(String provider, SimulationConfig.Profile profile) {
+        if (profile.getMaxPerSecond() <= 0) {
+            return false;
+        }
+        Bucket bucket = caps.computeIfAbsent(provider, p -> Bucket.builder()
+                .addLimit(Bandwidth.classic(profile.getMaxPerSecond(),
+                        Refill.greedy(profile.getMaxPerSecond(), Duration.ofSeconds(1))))
+                .build());
+        return !bucket.tryConsume(1);
+    }
+
+    private long sampleLatency(SimulationConfig.Profile profile, Random random) {
+        double latency = switch (profile.getLatency()) {
+            case FIXED -> profile.getLatencyMs();
+            case LOGNORMAL -> lognormal(profile, random);
+            case LONG_TAIL -> random.nextDouble() < profile.getTailProbability()
+                    // Pareto with scale tail-ms: most tail calls land near it, a few far beyond
+                    ? profile.getTailMs() / Math.pow(1 - random.nextDouble(), 1 / PARETO_ALPHA)
+                    : lognormal(profile, random);
+        };
+        return Math.max(0, Math.min((long) latency, profile.getMaxLatencyMs()));
+    }
+
+    private double lognormal(SimulationConfig.Profile profile, Random random) {
+        // The median of a lognormal is e^mu, so mu = ln(median)
+        return Math.exp(Math.log(Math.max(1, profile.getLatencyMs())) + profile.getSigma() * random.nextGaussian());
+    }
+
+    private SimulationConfig.Profile profile(String provider) {
+        return config.getProviders().getOrDefault(provider, DEFAULT_PROFILE);
+    }
+}
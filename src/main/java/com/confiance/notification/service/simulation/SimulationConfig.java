@@ -0,0 +1,41 @@
+package com.confiance.notification.service.simulation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "simulation")
+public class SimulationConfig {
+
+    private String otpCode = "123456";                // Code the simulated OTP provider accepts
+    // The simulated OTP provider only starts with one of these profiles active (and never with prod)
+    private List<String> allowedProfiles = new ArrayList<>(List.of("dev", "local", "test", "loadtest"));
+    private Map<String, Profile> providers = new HashMap<>();
+
+    public enum LatencyModel {
+        FIXED,      // Always latency-ms
+        LOGNORMAL,  // Median latency-ms, spread sigma
+        LONG_TAIL   // Lognormal, plus a Pareto tail from tail-ms on tail-probability of calls
+    }
+
+    @Data
+    public static class Profile {
+        private LatencyModel latency = LatencyModel.LOGNORMAL;
+        private long latencyMs = 100;
+        private double sigma = 0.5;
+        private double tailProbability = 0.01;
+        private long tailMs = 3000;
+        private long maxLatencyMs = 60000;            // Caps the tail so a call always returns
+        private double errorRate = 0.0;               // Share of calls that fail outright
+        private double throttleRate = 0.0;            // Share of calls answered with 429 regardless of load
+        private int maxPerSecond = 0;                 // Throughput cap; calls above it get 429. 0 = uncapped
+        private int retryAfterSeconds = 1;            // Retry-After sent with every 429
+    }
+}
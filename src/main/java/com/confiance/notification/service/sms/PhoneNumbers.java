@@ -0,0 +1,26 @@
+package com.confiance.notification.service.sms;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * E.164 formatting shared by SMS and OTP, so a number reaches the same destination whichever
+ * path sends to it
+ */
+public final class PhoneNumbers {
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Drops spaces, brackets and dashes, then prefixes the country code (or the default one)
+     * unless the number already starts with +
+     */
+    public static String toE164(String phoneNumber, String countryCode, String defaultCountryCode) {
+        String number = phoneNumber.replaceAll("[\\s()-]", "");
+        if (number.startsWith("+")) {
+            return number;
+        }
+        String code = StringUtils.hasText(countryCode) ? countryCode.trim() : defaultCountryCode;
+        return (code.startsWith("+") ? code : "+" + code) + number;
+    }
+}
@@ -0,0 +1,120 @@
+package com.confiance.notification.service.sms;
+
+import com.confiance.notification.dto.SmsResponse;
+import com.confiance.notification.enums.SmsProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.email.DomainThrottle;
+import com.confiance.notification.service.simulation.ProviderSimulator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * SMS provider with no outside calls (sms.provider=simulated), fanned out and budgeted like
+ * Twilio, bulk share included
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "sms.provider", havingValue = "simulated")
+public class SimulatedSmsSender implements SmsSender {
+
+    private final ProviderSimulator simulator;
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final Executor executor;
+
+    public SimulatedSmsSender(ProviderSimulator simulator, ProviderThrottle providerThrottle,
+                              ProviderConcurrencyLimiter concurrencyLimiter, @Qualifier("smsExecutor") Executor executor) {
+        this.simulator = simulator;
+        this.providerThrottle = providerThrottle;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.executor = executor;
+    }
+
+    @Override
+    public SmsResponse send(SmsMessage message) {
+        if (!message.bulk()) {
+            return deliver(message);
+        }
+        String bulkKey = ProviderThrottle.bulkKey(ProviderSimulator.SMS);
+        if (!providerThrottle.acquire(bulkKey)) {
+            return response(message, null, DomainThrottle.STATUS_DEFERRED);
+        }
+        try (ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(bulkKey)) {
+            if (permit == null) {
+                return response(message, null, DomainThrottle.STATUS_DEFERRED);
+            }
+            SmsResponse response = deliver(message);
+            if (!"SENT".equals(response.getStatus())) {
+                permit.ignore();
+            }
+            return response;
+        }
+    }
+
+    private SmsResponse deliver(SmsMessage message) {
+        if (!providerThrottle.acquire(ProviderSimulator.SMS)) {
+            return response(message, null, DomainThrottle.STATUS_DEFERRED);
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderSimulator.SMS);
+        if (permit == null) {
+            return response(message, null, DomainThrottle.STATUS_DEFERRED);
+        }
+        try {
+            ProviderSimulator.Call call = simulator.call(ProviderSimulator.SMS);
+            if (call.ok()) {
+                providerThrottle.onSuccess(ProviderSimulator.SMS);
+                return response(message, UUID.randomUUID().toString(), "SENT");
+            }
+            if (call.throttled()) {
+                permit.dropped();
+                providerThrottle.onThrottled(ProviderSimulator.SMS, (long) call.retryAfterSeconds());
+                return response(message, null, DomainThrottle.STATUS_DEFERRED);
+            }
+            return response(message, null, "FAILED");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return response(message, null, DomainThrottle.STATUS_DEFERRED);
+        } finally {
+            permit.close();
+        }
+    }
+
+    @Override
+    public List<SmsResponse> sendBatch(List<SmsMessage> messages) {
+        List<CompletableFuture<SmsResponse>> futures = messages.stream()
+                .map(message -> CompletableFuture.supplyAsync(() -> send(message), executor))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private SmsResponse response(SmsMessage message, String messageId, String status) {
+        return SmsResponse.builder()
+                .messageId(messageId)
+                .status(status)
+                .recipient(message.to())
+                .encoding(message.body().charset().name())
+                .segments(message.body().segments())
+                .sentAt(LocalDateTime.now())
+                .provider(getProvider().name())
+                .build();
+    }
+
+    @Override
+    public SmsProvider getProvider() {
+        return SmsProvider.SIMULATED;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+}
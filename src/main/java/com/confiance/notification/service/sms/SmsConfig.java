@@ -0,0 +1,24 @@
+package com.confiance.notification.service.sms;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "sms")
+public class SmsConfig {
+
+    private String provider = "twilio";
+    private String defaultCountryCode = "+91";
+    private boolean transliterate = true;        // Swap typographic characters for GSM-7 ones when that avoids UCS-2
+    private int maxSegments = 4;                 // Longer rendered bodies are rejected instead of billed as many parts
+    private int maxBulkRecipients = 1000;
+    private int bulkRetryDelaySeconds = 60;      // Bulk recipients the provider defers are scheduled again after this
+    // Bodies by template code, with {{variable}} placeholders. Kept in config so the text matches
+    // what is registered with carriers (e.g. DLT in India) exactly
+    private Map<String, String> templates = new HashMap<>();
+}
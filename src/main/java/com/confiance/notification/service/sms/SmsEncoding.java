@@ -0,0 +1,111 @@
+package com.confiance.notification.service.sms;
+
+import java.util.Map;
+
+/**
+ * Picks the cheaper SMS encoding for a body and counts its segments. GSM-7 carries 160
+ * characters in one segment (153 per part once split); a single character outside it turns
+ * the whole message into UCS-2 at 70 (67). Typographic lookalikes such as curly quotes, dashes
+ * and the rupee sign are replaced first when that keeps the body in GSM-7.
+ */
+public final class SmsEncoding {
+
+    public enum Charset { GSM7, UCS2 }
+
+    public record Encoded(String text, Charset charset, int segments, int units) {}
+
+    private static final String GSM7_BASIC = "@£$¥èéùìòÇ\nØø\rÅåΔ_ΦΓΛΩΠΨΣΘΞÆæßÉ !\"#¤%&'()*+,-./0123456789:;<=>?"
+            + "¡ABCDEFGHIJKLMNOPQRSTUVWXYZÄÖÑÜ§¿abcdefghijklmnopqrstuvwxyzäöñüà";
+    // Sent as escape + character, so each costs two septets
+    private static final String GSM7_EXTENSION = "^{}\\[~]|€\f";
+
+    private static final int GSM7_SINGLE = 160;
+    private static final int GSM7_PART = 153;
+    private static final int UCS2_SINGLE = 70;
+    private static final int UCS2_PART = 67;
+
+    private static final Map<Character, String> LOOKALIKES = Map.ofEntries(
+            // Quotes and primes
+            Map.entry('\u2018', "'"), Map.entry('\u2019', "'"), Map.entry('\u201B', "'"), Map.entry('\u2032', "'"),
+            Map.entry('\u201C', "\""), Map.entry('\u201D', "\""), Map.entry('\u201E', "\""), Map.entry('\u2033', "\""),
+            Map.entry('\u00AB', "\""), Map.entry('\u00BB', "\""),
+            // Hyphens, dashes, minus and bullet
+            Map.entry('\u2010', "-"), Map.entry('\u2011', "-"), Map.entry('\u2013', "-"), Map.entry('\u2014', "-"),
+            Map.entry('\u2212', "-"), Map.entry('\u2022', "-"),
+            Map.entry('\u2026', "..."),
+            // Non-breaking and thin spaces, tab, zero-width space and BOM
+            Map.entry('\u00A0', " "), Map.entry('\u2009', " "), Map.entry('\u202F', " "), Map.entry('\t', " "),
+            Map.entry('\u200B', ""), Map.entry('\uFEFF', ""),
+            // Rupee sign
+            Map.entry('\u20B9', "Rs."));
+
+    private SmsEncoding() {
+    }
+
+    public static Encoded encode(String text, boolean transliterate) {
+        if (isGsm7(text)) {
+            return gsm7(text);
+        }
+        if (transliterate) {
+            String replaced = replaceLookalikes(text);
+            if (isGsm7(replaced)) {
+                return gsm7(replaced);
+            }
+        }
+        return ucs2(text);
+    }
+
+    private static boolean isGsm7(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (GSM7_BASIC.indexOf(c) < 0 && GSM7_EXTENSION.indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String replaceLookalikes(String text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = LOOKALIKES.get(c);
+            out.append(replacement != null ? replacement : String.valueOf(c));
+        }
+        return out.toString();
+    }
+
+    private static Encoded gsm7(String text) {
+        int septets = 0;
+        int parts = 1;
+        int used = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int cost = GSM7_EXTENSION.indexOf(text.charAt(i)) >= 0 ? 2 : 1;
+            septets += cost;
+            // An escape sequence is never split across parts
+            if (used + cost > GSM7_PART) {
+                parts++;
+                used = 0;
+            }
+            used += cost;
+        }
+        return new Encoded(text, Charset.GSM7, septets <= GSM7_SINGLE ? 1 : parts, septets);
+    }
+
+    private static Encoded ucs2(String text) {
+        int units = text.length();
+        int parts = 1;
+        int used = 0;
+        for (int i = 0; i < text.length(); i++) {
+            // A surrogate pair stays in one part
+            int cost = Character.isHighSurrogate(text.charAt(i)) && i + 1 < text.length() ? 2 : 1;
+            if (used + cost > UCS2_PART) {
+                parts++;
+                used = 0;
+            }
+            used += cost;
+            i += cost - 1;
+        }
+        return new Encoded(text, Charset.UCS2, units <= UCS2_SINGLE ? 1 : parts, units);
+    }
+}
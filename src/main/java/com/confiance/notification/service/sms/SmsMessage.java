@@ -0,0 +1,19 @@
+package com.confiance.notification.service.sms;
+
+/**
+ * A rendered, encoded message ready for a provider
+ *
+ * @param to             E.164 number
+ * @param statusCallback whether the provider should post delivery receipts back to us
+ * @param bulk           sent under the provider's smaller bulk budget, leaving the rest to OTP
+ */
+public record SmsMessage(String to, SmsEncoding.Encoded body, boolean statusCallback, boolean bulk) {
+
+    public static SmsMessage of(String to, SmsEncoding.Encoded body) {
+        return new SmsMessage(to, body, false, false);
+    }
+
+    public static SmsMessage bulk(String to, SmsEncoding.Encoded body) {
+        return new SmsMessage(to, body, false, true);
+    }
+}
@@ -0,0 +1,23 @@
+package com.confiance.notification.service.sms;
+
+import com.confiance.notification.dto.SmsResponse;
+import com.confiance.notification.enums.SmsProvider;
+
+import java.util.List;
+
+public interface SmsSender {
+
+    SmsResponse send(SmsMessage message);
+
+    /**
+     * Send several messages, returning one response per message in the same order.
+     * Providers that can fan out concurrently override this.
+     */
+    default List<SmsResponse> sendBatch(List<SmsMessage> messages) {
+        return messages.stream().map(this::send).toList();
+    }
+
+    SmsProvider getProvider();
+
+    boolean isConfigured();
+}
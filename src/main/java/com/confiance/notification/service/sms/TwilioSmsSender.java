@@ -0,0 +1,182 @@
+package com.confiance.notification.service.sms;
+
+import com.confiance.notification.dto.SmsResponse;
+import com.confiance.notification.enums.SmsProvider;
+import com.confiance.notification.ratelimit.ProviderConcurrencyLimiter;
+import com.confiance.notification.ratelimit.ProviderThrottle;
+import com.confiance.notification.service.email.DomainThrottle;
+import com.confiance.notification.service.http.OutboundHttp;
+import com.twilio.exception.ApiException;
+import com.twilio.http.NetworkHttpClient;
+import com.twilio.http.TwilioRestClient;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.rest.api.v2010.account.MessageCreator;
+import com.twilio.security.RequestValidator;
+import com.twilio.type.PhoneNumber;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Twilio Messaging over one pooled, pre-connected client. Twilio has no multi-recipient send
+ * for distinct bodies, so a batch fans out concurrently on the SMS executor; the Twilio budget
+ * and concurrency limit bound how hard it pushes. Bulk messages first take the smaller
+ * twilio-bulk budget, so they cannot crowd out OTP sends on the same account.
+ */
+@Component
+@Slf4j
+public class TwilioSmsSender implements SmsSender {
+
+    private static final String API_HOST = "api.twilio.com";
+
+    private final ProviderThrottle providerThrottle;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final OutboundHttp outboundHttp;
+    private final Executor executor;
+
+    @Value("${twilio.account-sid:}")
+    private String accountSid;
+
+    @Value("${twilio.auth-token:}")
+    private String authToken;
+
+    @Value("${twilio.phone-number:}")
+    private String fromNumber;
+
+    @Value("${twilio.status-callback-url:}")
+    private String statusCallbackUrl;
+
+    private TwilioRestClient restClient;
+    private RequestValidator requestValidator;
+
+    public TwilioSmsSender(ProviderThrottle providerThrottle, ProviderConcurrencyLimiter concurrencyLimiter,
+                           OutboundHttp outboundHttp, @Qualifier("smsExecutor") Executor executor) {
+        this.providerThrottle = providerThrottle;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.outboundHttp = outboundHttp;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!isConfigured()) {
+            log.warn("Twilio SMS not configured - missing credentials or sender number");
+            return;
+        }
+        restClient = new TwilioRestClient.Builder(accountSid, authToken)
+                .httpClient(new NetworkHttpClient(HttpClientBuilder.create()
+                        .setConnectionManager(outboundHttp.pool(API_HOST))
+                        .setConnectionManagerShared(true)))
+                .build();
+        requestValidator = new RequestValidator(authToken);
+    }
+
+    @Override
+    public SmsResponse send(SmsMessage message) {
+        if (!message.bulk()) {
+            return deliver(message);
+        }
+        String bulkKey = ProviderThrottle.bulkKey(ProviderThrottle.TWILIO);
+        if (!providerThrottle.acquire(bulkKey)) {
+            return response(message, null, DomainThrottle.STATUS_DEFERRED, "Bulk budget exhausted");
+        }
+        try (ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(bulkKey)) {
+            if (permit == null) {
+                return response(message, null, DomainThrottle.STATUS_DEFERRED, "Bulk sends busy");
+            }
+            SmsResponse response = deliver(message);
+            if (!"SENT".equals(response.getStatus())) {
+                permit.ignore();
+            }
+            return response;
+        }
+    }
+
+    private SmsResponse deliver(SmsMessage message) {
+        if (!providerThrottle.acquire(ProviderThrottle.TWILIO)) {
+            log.warn("Twilio budget exhausted, deferring SMS to {}", message.to());
+            return response(message, null, DomainThrottle.STATUS_DEFERRED, "Provider budget exhausted");
+        }
+        ProviderConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(ProviderThrottle.TWILIO);
+        if (permit == null) {
+            return response(message, null, DomainThrottle.STATUS_DEFERRED, "Provider busy");
+        }
+
+        try {
+            MessageCreator creator = Message.creator(new PhoneNumber(message.to()), new PhoneNumber(fromNumber),
+                    message.body().text());
+            if (message.statusCallback() && reportsDelivery()) {
+                creator.setStatusCallback(URI.create(statusCallbackUrl));
+            }
+            Message sent = creator.create(restClient);
+            providerThrottle.onSuccess(ProviderThrottle.TWILIO);
+            log.debug("SMS sent to {} via Twilio: {} ({} segments)", message.to(), sent.getSid(), message.body().segments());
+            return response(message, sent.getSid(), "SENT", null);
+        } catch (Exception e) {
+            if (e instanceof ApiException apiException && Integer.valueOf(429).equals(apiException.getStatusCode())) {
+                // The SDK does not surface Retry-After, so the configured backoff applies
+                providerThrottle.onThrottled(ProviderThrottle.TWILIO, null);
+                permit.dropped();
+                return response(message, null, DomainThrottle.STATUS_DEFERRED, e.getMessage());
+            }
+            log.error("Failed to send SMS via Twilio: {}", e.getMessage());
+            return response(message, null, "FAILED", e.getMessage());
+        } finally {
+            permit.close();
+        }
+    }
+
+    @Override
+    public List<SmsResponse> sendBatch(List<SmsMessage> messages) {
+        List<CompletableFuture<SmsResponse>> futures = messages.stream()
+                .map(message -> CompletableFuture.supplyAsync(() -> send(message), executor))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    public boolean reportsDelivery() {
+        return StringUtils.hasText(statusCallbackUrl);
+    }
+
+    /**
+     * Checks X-Twilio-Signature on a status callback posted to the configured URL
+     */
+    public boolean isValidCallback(Map<String, String> params, String signature) {
+        return requestValidator != null && reportsDelivery() && signature != null
+                && requestValidator.validate(statusCallbackUrl, params, signature);
+    }
+
+    private SmsResponse response(SmsMessage message, String messageId, String status, String error) {
+        return SmsResponse.builder()
+                .messageId(messageId)
+                .status(status)
+                .recipient(message.to())
+                .encoding(message.body().charset().name())
+                .segments(message.body().segments())
+                .sentAt(LocalDateTime.now())
+                .provider(getProvider().name())
+                .error(error)
+                .build();
+    }
+
+    @Override
+    public SmsProvider getProvider() {
+        return SmsProvider.TWILIO;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return StringUtils.hasText(accountSid) && StringUtils.hasText(authToken) && StringUtils.hasText(fromNumber);
+    }
+}
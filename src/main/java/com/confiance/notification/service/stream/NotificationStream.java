@@ -0,0 +1,135 @@
+package com.confiance.notification.service.stream;
+
+import com.confiance.notification.dto.UserNotificationResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fan-out of committed notification changes to open streams. Events are published once on a
+ * Redis channel; every replica receives them and writes to whichever of the user's streams it
+ * holds, so a client is reached whichever node it is connected to.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationStream implements MessageListener {
+
+    public static final String EVENT_NOTIFICATION = "notification";
+    public static final String EVENT_UNREAD_COUNT = "unread-count";
+
+    // Epoch microseconds of the row's latest event, then its id
+    private static final Pattern EVENT_ID = Pattern.compile("(\\d{1,18})-(\\d{1,18})");
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final SseConnectionRegistry registry;
+    private final StreamConfig config;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Published form; unreadCount is -1 when unknown
+     */
+    public record StreamEvent(Long userId, String event, long unreadCount, UserNotificationResponse notification) {}
+
+    public record EventPosition(LocalDateTime lastEventAt, long id) {}
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(config.getChannel()));
+    }
+
+    public void publishNotification(UserNotificationResponse notification, long unreadCount) {
+        publish(new StreamEvent(notification.getUserId(), EVENT_NOTIFICATION, unreadCount, notification));
+    }
+
+    public void publishUnreadCount(Long userId, long unreadCount) {
+        publish(new StreamEvent(userId, EVENT_UNREAD_COUNT, unreadCount, null));
+    }
+
+    private void publish(StreamEvent event) {
+        try {
+            redisTemplate.convertAndSend(config.getChannel(), objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // Clients catch up through Last-Event-ID when they reconnect
+            log.warn("Could not publish {} event for user {}: {}", event.event(), event.userId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            StreamEvent event = objectMapper.readValue(message.getBody(), StreamEvent.class);
+            if (!registry.isConnected(event.userId())) {
+                return;
+            }
+            if (event.notification() != null) {
+                registry.send(event.userId(), notificationEvent(event.notification()));
+            }
+            if (event.unreadCount() >= 0) {
+                registry.send(event.userId(), unreadCountEvent(event.unreadCount()));
+            }
+        } catch (Exception e) {
+            log.warn("Dropping unreadable stream event: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ids are "lastEventAt-id", with lastEventAt in epoch microseconds. A collapsed row keeps its
+     * id but moves its lastEventAt, so a reconnecting client's Last-Event-ID replays it as well
+     */
+    public static SseEmitter.SseEventBuilder notificationEvent(UserNotificationResponse notification) {
+        return SseEmitter.event()
+                .id(eventId(notification.getLastEventAt(), notification.getId()))
+                .name(EVENT_NOTIFICATION)
+                .data(notification, MediaType.APPLICATION_JSON);
+    }
+
+    public static String eventId(LocalDateTime lastEventAt, Long id) {
+        if (lastEventAt == null) {
+            return String.valueOf(id);
+        }
+        Instant at = lastEventAt.toInstant(ZoneOffset.UTC);
+        return (at.getEpochSecond() * 1_000_000 + at.getNano() / 1_000) + "-" + id;
+    }
+
+    /**
+     * The position a Last-Event-ID header points at, or null if it is not a "lastEventAt-id" id
+     */
+    public static EventPosition parseEventId(String eventId) {
+        Matcher matcher = EVENT_ID.matcher(eventId);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            long micros = Long.parseLong(matcher.group(1));
+            LocalDateTime lastEventAt = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                    (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+            return new EventPosition(lastEventAt, Long.parseLong(matcher.group(2)));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    public static SseEmitter.SseEventBuilder unreadCountEvent(long unreadCount) {
+        return SseEmitter.event()
+                .name(EVENT_UNREAD_COUNT)
+                .data(unreadCount);
+    }
+}
@@ -0,0 +1,177 @@
+package com.confiance.notification.service.stream;
+
+import com.confiance.notification.ratelimit.RateLimitExceededException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open SSE streams on this node, by user. Streams are async servlet requests, so an idle one
+ * holds a socket and an emitter but no thread; the node can keep tens of thousands open.
+ *
+ * <p>Writes to a stream block while the client's socket buffer is full, so users are split by
+ * id over single-thread partitions: events for a user stay in order, and a stalled client only
+ * holds up its own partition. A write that takes longer than the send timeout closes that stream.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SseConnectionRegistry {
+
+    private final StreamConfig config;
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private Partition[] partitions;
+
+    private static final class Partition {
+        private final Map<Long, Deque<SseEmitter>> connections = new ConcurrentHashMap<>();
+        private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    }
+
+    @PostConstruct
+    public void start() {
+        partitions = new Partition[config.getFanoutThreads()];
+        for (int i = 0; i < partitions.length; i++) {
+            Partition partition = new Partition();
+            partition.executor.setCorePoolSize(1);
+            partition.executor.setMaxPoolSize(1);
+            partition.executor.setQueueCapacity(config.getFanoutQueueCapacity());
+            // A full partition is backed up behind slow clients; they catch up through Last-Event-ID
+            partition.executor.setRejectedExecutionHandler((task, executor) -> droppedEvents.incrementAndGet());
+            partition.executor.setThreadNamePrefix("StreamFanout-" + i + "-");
+            partition.executor.initialize();
+            partitions[i] = partition;
+        }
+    }
+
+    public SseEmitter open(Long userId) {
+        if (open.incrementAndGet() > config.getMaxConnections()) {
+            open.decrementAndGet();
+            throw new RateLimitExceededException("Too many open notification streams. Please retry shortly.", 30);
+        }
+        SseEmitter emitter = new SseEmitter(config.getTimeoutMs());
+        // compute, so a concurrent removal cannot drop the user's deque while this stream joins it
+        Deque<SseEmitter> streams = partitionOf(userId).connections.compute(userId, (id, existing) -> {
+            Deque<SseEmitter> deque = existing != null ? existing : new ConcurrentLinkedDeque<>();
+            deque.addLast(emitter);
+            return deque;
+        });
+
+        Runnable remove = () -> remove(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        // Tabs left open on many devices: keep the newest streams
+        while (streams.size() > config.getMaxConnectionsPerUser()) {
+            SseEmitter oldest = streams.peekFirst();
+            if (oldest == null || oldest == emitter) {
+                break;
+            }
+            remove(userId, oldest);
+            oldest.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Queue an event for every stream the user has open here. Returns at once; the write
+     * happens on the user's partition, and broken or slow streams are dropped there
+     */
+    public void send(Long userId, SseEmitter.SseEventBuilder event) {
+        Partition partition = partitionOf(userId);
+        if (!partition.connections.containsKey(userId)) {
+            return;
+        }
+        partition.executor.execute(() -> {
+            Deque<SseEmitter> streams = partition.connections.get(userId);
+            if (streams == null) {
+                return;
+            }
+            for (SseEmitter emitter : streams) {
+                send(userId, emitter, event);
+            }
+        });
+    }
+
+    public boolean send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        long start = System.currentTimeMillis();
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+        if (System.currentTimeMillis() - start > config.getSendTimeoutMs()) {
+            // The client is not reading; it reconnects and replays rather than stalling the partition
+            log.debug("Closing slow notification stream for user {}", userId);
+            remove(userId, emitter);
+            emitter.complete();
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isConnected(Long userId) {
+        return partitionOf(userId).connections.containsKey(userId);
+    }
+
+    public int getOpenCount() {
+        return open.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Only queues one sweep per partition; the writes run on the partitions, not the shared scheduler
+     */
+    @Scheduled(fixedDelayString = "${notification.stream.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        for (Partition partition : partitions) {
+            partition.executor.execute(() -> partition.connections.forEach((userId, streams) -> {
+                for (SseEmitter emitter : streams) {
+                    send(userId, emitter, SseEmitter.event().comment("heartbeat"));
+                }
+            }));
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        // Clients reconnect to another replica
+        for (Partition partition : partitions) {
+            partition.executor.shutdown();
+            partition.connections.values().forEach(streams -> streams.forEach(SseEmitter::complete));
+            partition.connections.clear();
+        }
+    }
+
+    private Partition partitionOf(Long userId) {
+        return partitions[Math.floorMod(userId.hashCode(), partitions.length)];
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        partitionOf(userId).connections.computeIfPresent(userId, (id, streams) -> {
+            if (streams.remove(emitter)) {
+                open.decrementAndGet();
+            }
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.confiance.notification.service.stream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "notification.stream")
+public class StreamConfig {
+
+    private String channel = "notif:stream";     // Redis pub/sub channel every replica subscribes to
+    private long timeoutMs = 1800000;            // Streams are closed after this; clients reconnect with Last-Event-ID
+    private long heartbeatIntervalMs = 25000;    // Below common proxy idle timeouts; also finds dead connections
+    private int maxConnections = 50000;          // Per node
+    private int maxConnectionsPerUser = 5;       // The oldest stream is closed past this
+    private int replayLimit = 50;                // Notifications re-sent after Last-Event-ID on reconnect
+    private int fanoutThreads = 8;               // Users are partitioned by id over these writer threads
+    private int fanoutQueueCapacity = 10000;     // Events waiting per partition; further events are dropped
+    private long sendTimeoutMs = 2000;           // A stream whose write takes longer is closed
+}
@@ -0,0 +1,256 @@
+package com.confiance.notification.service.digest;
+
+import com.confiance.notification.config.RedisConfig;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.EmailTemplateService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the offer, take, ack and restore scripts against a real Redis
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class EmailDigestServiceTest {
+
+    private static final String DUE_KEY = "digest:email:due";
+    private static final String PROCESSING_KEY = "digest:email:processing";
+    private static final long USER_ID = 7L;
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private DigestConfig config;
+    private EmailService emailService;
+    private EmailTemplateService emailTemplateService;
+    private EmailDigestService digestService;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        config = new DigestConfig();
+        config.setEnabled(true);
+        emailService = mock(EmailService.class);
+        emailTemplateService = mock(EmailTemplateService.class);
+        when(emailTemplateService.processEmailTemplate(eq("digest"), anyMap()))
+                .thenReturn(EmailTemplateService.ProcessedTemplate.builder()
+                        .subject("Your trade alerts")
+                        .htmlContent("<ul>...</ul>")
+                        .build());
+        digestService = new EmailDigestService(redisTemplate, new ObjectMapper().findAndRegisterModules(), config,
+                emailService, emailTemplateService);
+    }
+
+    @Test
+    void categoriesOutsideTheDigestAreNotBuffered() {
+        assertFalse(digestService.offer(alert("Receipt", null).category("receipt").build(), USER_ID));
+    }
+
+    @Test
+    void inlineAttachmentsAreNotBuffered() {
+        EmailRequest request = alert("AAPL above 200", null)
+                .attachments(List.of(EmailRequest.EmailAttachment.builder()
+                        .fileName("chart.png").content(new byte[]{1}).build()))
+                .build();
+
+        assertFalse(digestService.offer(request, USER_ID));
+    }
+
+    @Test
+    void bufferIsNotSentBeforeItsWindowEnds() {
+        assertTrue(digestService.offer(alert("AAPL above 200", null).build(), USER_ID));
+
+        digestService.flushDue();
+
+        verify(emailService, never()).sendImmediately(any(), any());
+    }
+
+    @Test
+    void singleEventGoesOutAsTheOriginalEmail() {
+        digestService.offer(alert("AAPL above 200", "alert-1").build(), USER_ID);
+        makeDue();
+
+        digestService.flushDue();
+
+        ArgumentCaptor<EmailRequest> sent = ArgumentCaptor.forClass(EmailRequest.class);
+        verify(emailService).sendImmediately(sent.capture(), eq(USER_ID));
+        assertEquals("AAPL above 200", sent.getValue().getSubject());
+        // Cleared so the send does not loop back into the digest, or replay the claim taken on buffering
+        assertNull(sent.getValue().getCategory());
+        assertNull(sent.getValue().getDedupKey());
+        assertNothingBuffered();
+    }
+
+    @Test
+    void severalEventsGoOutAsOneDigest() {
+        digestService.offer(alert("AAPL above 200", null).build(), USER_ID);
+        digestService.offer(alert("MSFT below 300", null).build(), USER_ID);
+        digestService.offer(alert("TSLA up 5%", null).build(), USER_ID);
+        makeDue();
+
+        digestService.flushDue();
+
+        assertEquals(3, digestVariables().get("count"));
+        ArgumentCaptor<EmailRequest> sent = ArgumentCaptor.forClass(EmailRequest.class);
+        verify(emailService, times(1)).sendImmediately(sent.capture(), eq(USER_ID));
+        assertEquals("Your trade alerts", sent.getValue().getSubject());
+        assertEquals("user@example.com", sent.getValue().getTo());
+        assertNothingBuffered();
+    }
+
+    @Test
+    void newestItemsAreListedAndTheRestCounted() {
+        config.setMaxItems(2);
+        digestService.offer(alert("AAPL above 200", null).build(), USER_ID);
+        digestService.offer(alert("MSFT below 300", null).build(), USER_ID);
+        digestService.offer(alert("TSLA up 5%", null).build(), USER_ID);
+        makeDue();
+
+        digestService.flushDue();
+
+        Map<String, Object> variables = digestVariables();
+        assertEquals(3, variables.get("count"));
+        assertEquals("and 1 more", variables.get("moreText"));
+        String items = (String) variables.get("itemsHtml");
+        assertFalse(items.contains("AAPL"));
+        assertTrue(items.contains("TSLA"));
+    }
+
+    @Test
+    void retriedEventIsListedOnce() {
+        digestService.offer(alert("AAPL above 200", "alert-1").build(), USER_ID);
+        digestService.offer(alert("AAPL above 200", "alert-1").build(), USER_ID);
+        digestService.offer(alert("MSFT below 300", "alert-2").build(), USER_ID);
+        makeDue();
+
+        digestService.flushDue();
+
+        assertEquals(2, digestVariables().get("count"));
+    }
+
+    @Test
+    void failedSendIsBufferedAgainAheadOfNewerEvents() {
+        when(emailService.sendImmediately(any(), anyLong()))
+                .thenThrow(new IllegalStateException("SMTP down"))
+                .thenReturn(null);
+        digestService.offer(alert("AAPL above 200", null).build(), USER_ID);
+        digestService.offer(alert("MSFT below 300", null).build(), USER_ID);
+        makeDue();
+        digestService.flushDue();
+
+        digestService.offer(alert("TSLA up 5%", null).build(), USER_ID);
+        makeDue();
+        digestService.flushDue();
+
+        verify(emailService, times(2)).sendImmediately(any(), eq(USER_ID));
+        Map<String, Object> variables = digestVariables();
+        assertEquals(3, variables.get("count"));
+        String items = (String) variables.get("itemsHtml");
+        assertTrue(items.indexOf("AAPL") < items.indexOf("TSLA"));
+        assertNothingBuffered();
+    }
+
+    @Test
+    void bufferAbandonedMidSendIsRestoredOnceItsLeaseEnds() throws InterruptedException {
+        config.setProcessingLeaseSeconds(0);
+        // An Error escapes the flush the way a node dying mid-send would leave things
+        when(emailService.sendImmediately(any(), anyLong()))
+                .thenThrow(new AssertionError("node died"))
+                .thenReturn(null);
+        digestService.offer(alert("AAPL above 200", null).build(), USER_ID);
+        digestService.offer(alert("MSFT below 300", null).build(), USER_ID);
+        makeDue();
+        assertThrows(AssertionError.class, () -> digestService.flushDue());
+        assertEquals(1L, redisTemplate.opsForZSet().size(PROCESSING_KEY));
+        Thread.sleep(5);
+
+        digestService.flushDue();
+
+        verify(emailService, times(2)).sendImmediately(any(), eq(USER_ID));
+        assertEquals(2, digestVariables().get("count"));
+        assertNothingBuffered();
+    }
+
+    private EmailRequest.EmailRequestBuilder alert(String subject, String dedupKey) {
+        return EmailRequest.builder()
+                .to("user@example.com")
+                .subject(subject)
+                .body("<p>" + subject + "</p>")
+                .isHtml(true)
+                .category("trade-alert")
+                .dedupKey(dedupKey);
+    }
+
+    // Pull every buffer's due time into the past
+    private void makeDue() {
+        Set<String> members = redisTemplate.opsForZSet().range(DUE_KEY, 0, -1);
+        if (members != null) {
+            members.forEach(member -> redisTemplate.opsForZSet().add(DUE_KEY, member, 0));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> digestVariables() {
+        ArgumentCaptor<Map<String, Object>> variables = ArgumentCaptor.forClass(Map.class);
+        verify(emailTemplateService, atLeastOnce())
+                .processEmailTemplate(eq("digest"), variables.capture());
+        return variables.getValue();
+    }
+
+    private void assertNothingBuffered() {
+        assertEquals(0L, redisTemplate.opsForZSet().size(DUE_KEY));
+        assertEquals(0L, redisTemplate.opsForZSet().size(PROCESSING_KEY));
+        Set<String> keys = redisTemplate.keys("digest:email:*");
+        assertTrue(keys == null || keys.isEmpty(), "left behind: " + keys);
+    }
+}
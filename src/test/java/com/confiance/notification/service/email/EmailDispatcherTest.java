@@ -0,0 +1,167 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.enums.EmailPriority;
+import com.confiance.notification.ratelimit.RateLimitExceededException;
+import com.confiance.notification.service.EmailService;
+import com.confiance.notification.service.schedule.ScheduledDeliveryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EmailDispatcherTest {
+
+    private EmailDispatchConfig config;
+    private EmailService emailService;
+    private ScheduledDeliveryService scheduledDeliveryService;
+    private DomainThrottle domainThrottle;
+    private EmailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        config = new EmailDispatchConfig();
+        config.setBatchSize(5);
+        // Generous rates and enough sender threads that a round is limited only by lane weight
+        config.setTransactional(new EmailDispatchConfig.LaneConfig(8, 16, 1000, 60000, 1000));
+        config.setNormal(new EmailDispatchConfig.LaneConfig(3, 8, 1000, 60000, 1000));
+        config.setBulk(new EmailDispatchConfig.LaneConfig(1, 4, 1000, 60000, 1000));
+        config.getDefaults().setRatePerSecond(1000);
+        config.getDefaults().setConcurrency(100);
+        emailService = mock(EmailService.class);
+        scheduledDeliveryService = mock(ScheduledDeliveryService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void roundIsSplitByLaneWeight() {
+        start();
+        for (int i = 0; i < 100; i++) {
+            enqueue(EmailPriority.TRANSACTIONAL, "user" + i + "@example.com");
+            enqueue(EmailPriority.BULK, "user" + i + "@example.com");
+        }
+
+        dispatcher.drain();
+
+        // Weight x batch size per round: 8 x 5 transactional, 1 x 5 bulk
+        Map<EmailPriority, Integer> queued = dispatcher.getQueuedCounts();
+        assertEquals(60, queued.get(EmailPriority.TRANSACTIONAL));
+        assertEquals(95, queued.get(EmailPriority.BULK));
+    }
+
+    @Test
+    void emailsAreBatchedPerRecipientDomain() {
+        start();
+        enqueue(EmailPriority.NORMAL, "a@gmail.com");
+        enqueue(EmailPriority.NORMAL, "b@yahoo.com");
+        enqueue(EmailPriority.NORMAL, "c@gmail.com");
+        enqueue(EmailPriority.NORMAL, "d@gmail.com");
+        enqueue(EmailPriority.NORMAL, "e@yahoo.com");
+
+        dispatcher.drain();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmailDispatcher.QueuedEmail>> batches = ArgumentCaptor.forClass(List.class);
+        verify(emailService, timeout(2000).times(2)).deliverBatch(batches.capture());
+        for (List<EmailDispatcher.QueuedEmail> batch : batches.getAllValues()) {
+            String domain = DomainThrottle.domainOf(batch.get(0).request().getTo());
+            int expected = domain.equals("gmail.com") ? 3 : 2;
+            assertEquals(expected, batch.size());
+            batch.forEach(email -> assertEquals(domain, DomainThrottle.domainOf(email.request().getTo())));
+        }
+    }
+
+    @Test
+    void pausedDomainWaitsWhileOthersGoOut() {
+        start();
+        domainThrottle.recordOutcome("slow.example", DomainThrottle.STATUS_DEFERRED);
+        enqueue(EmailPriority.NORMAL, "a@slow.example");
+        enqueue(EmailPriority.NORMAL, "b@slow.example");
+        enqueue(EmailPriority.NORMAL, "c@fast.example");
+
+        dispatcher.drain();
+
+        assertEquals(2, dispatcher.getQueuedCounts().get(EmailPriority.NORMAL));
+    }
+
+    @Test
+    void starvedLaneTakesSharedDomainBudgetFirst() throws InterruptedException {
+        // The domain allows five messages; the bulk lane has waited past its limit
+        config.getDefaults().setRatePerSecond(5);
+        config.getBulk().setMaxWaitMs(0);
+        start();
+        for (int i = 0; i < 5; i++) {
+            enqueue(EmailPriority.BULK, "bulk" + i + "@example.com");
+            enqueue(EmailPriority.TRANSACTIONAL, "otp" + i + "@example.com");
+        }
+        Thread.sleep(5);
+
+        dispatcher.drain();
+
+        Map<EmailPriority, Integer> queued = dispatcher.getQueuedCounts();
+        assertEquals(0, queued.get(EmailPriority.BULK));
+        assertEquals(5, queued.get(EmailPriority.TRANSACTIONAL));
+    }
+
+    @Test
+    void fullLaneRejectsNewEmails() {
+        config.getNormal().setQueueCapacity(2);
+        start();
+        enqueue(EmailPriority.NORMAL, "a@example.com");
+        enqueue(EmailPriority.NORMAL, "b@example.com");
+
+        assertThrows(RateLimitExceededException.class, () -> enqueue(EmailPriority.NORMAL, "c@example.com"));
+        assertEquals(2, dispatcher.getQueuedCounts().get(EmailPriority.NORMAL));
+    }
+
+    @Test
+    void shutdownHandsQueuedEmailsToScheduledDelivery() {
+        start();
+        enqueue(EmailPriority.BULK, "a@example.com");
+        enqueue(EmailPriority.NORMAL, "b@example.com");
+
+        dispatcher.shutdown();
+
+        verify(scheduledDeliveryService, times(2)).scheduleEmail(any(EmailRequest.class), anyLong(), any(Instant.class));
+        verify(emailService, never()).deliverBatch(any());
+        assertEquals(0, dispatcher.getQueuedCounts().get(EmailPriority.BULK));
+
+        // Anything arriving after shutdown goes the same way
+        enqueue(EmailPriority.NORMAL, "c@example.com");
+        verify(scheduledDeliveryService, times(3)).scheduleEmail(any(EmailRequest.class), anyLong(), any(Instant.class));
+    }
+
+    private void start() {
+        domainThrottle = new DomainThrottle(config);
+        dispatcher = new EmailDispatcher(emailService, domainThrottle, config, scheduledDeliveryService);
+    }
+
+    private void enqueue(EmailPriority priority, String to) {
+        dispatcher.enqueue(EmailRequest.builder()
+                .to(to)
+                .subject("Hello")
+                .body("Hi")
+                .priority(priority)
+                .build(), 7L);
+    }
+}
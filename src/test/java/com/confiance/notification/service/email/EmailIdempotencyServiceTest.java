@@ -0,0 +1,142 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.common.exception.BadRequestException;
+import com.confiance.notification.config.RedisConfig;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Claims, replays and releases idempotency keys against a real Redis
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class EmailIdempotencyServiceTest {
+
+    private static final String KEY = "order-42-receipt";
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private EmailIdempotencyService service;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        service = new EmailIdempotencyService(redisTemplate, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(service, "ttlHours", 24L);
+        ReflectionTestUtils.setField(service, "pendingTtlSeconds", 300L);
+    }
+
+    @Test
+    void firstClaimOwnsTheKey() {
+        EmailIdempotencyService.Claim claim = service.claim(KEY, request("Receipt"));
+
+        assertTrue(claim.isOwner());
+        assertNotNull(claim.key());
+    }
+
+    @Test
+    void duplicateWhileInFlightReportsProcessing() {
+        service.claim(KEY, request("Receipt"));
+
+        EmailIdempotencyService.Claim duplicate = service.claim(KEY, request("Receipt"));
+
+        assertFalse(duplicate.isOwner());
+        assertEquals(EmailIdempotencyService.STATUS_PROCESSING, duplicate.replay().getStatus());
+    }
+
+    @Test
+    void completedResponseIsReplayed() {
+        EmailIdempotencyService.Claim claim = service.claim(KEY, request("Receipt"));
+        LocalDateTime sentAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        service.complete(claim, EmailResponse.builder()
+                .messageId("msg-1")
+                .trackingId("track-1")
+                .status("SENT")
+                .provider("SENDGRID")
+                .sentAt(sentAt)
+                .build());
+
+        EmailResponse replay = service.claim(KEY, request("Receipt")).replay();
+
+        assertEquals("msg-1", replay.getMessageId());
+        assertEquals("track-1", replay.getTrackingId());
+        assertEquals("SENT", replay.getStatus());
+        assertEquals("SENDGRID", replay.getProvider());
+        assertEquals(sentAt, replay.getSentAt());
+        assertEquals("user@example.com", replay.getRecipient());
+    }
+
+    @Test
+    void keyReusedForADifferentEmailIsRejected() {
+        service.claim(KEY, request("Receipt"));
+
+        assertThrows(BadRequestException.class, () -> service.claim(KEY, request("Another receipt")));
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedAgain() {
+        service.release(service.claim(KEY, request("Receipt")));
+
+        assertTrue(service.claim(KEY, request("Receipt")).isOwner());
+    }
+
+    @Test
+    void releaseLeavesACompletedResponseInPlace() {
+        EmailIdempotencyService.Claim claim = service.claim(KEY, request("Receipt"));
+        service.complete(claim, EmailResponse.builder().messageId("msg-1").status("SENT").build());
+
+        service.release(claim);
+
+        assertEquals("msg-1", service.claim(KEY, request("Receipt")).replay().getMessageId());
+    }
+
+    @Test
+    void overlongKeyIsRejected() {
+        assertThrows(BadRequestException.class, () -> service.claim("k".repeat(129), request("Receipt")));
+    }
+
+    private static EmailRequest request(String subject) {
+        return EmailRequest.builder().to("user@example.com").subject(subject).body("Thanks for your order").build();
+    }
+}
@@ -0,0 +1,240 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailProviderHealth;
+import com.confiance.notification.dto.EmailRequest;
+import com.confiance.notification.dto.EmailResponse;
+import com.confiance.notification.enums.EmailProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailProviderRouterTest {
+
+    private EmailRoutingConfig config;
+    private FakeSender smtp;
+    private FakeSender sendGrid;
+
+    @BeforeEach
+    void setUp() {
+        config = new EmailRoutingConfig();
+        config.setConsecutiveFailures(3);
+        smtp = new FakeSender(EmailProvider.SMTP);
+        sendGrid = new FakeSender(EmailProvider.SENDGRID);
+    }
+
+    @Test
+    void preferredProviderIsUsedWhileHealthy() {
+        EmailResponse response = router(smtp, sendGrid).send(request(), EmailProvider.SENDGRID);
+
+        assertEquals("SENT", response.getStatus());
+        assertEquals("SENDGRID", response.getProvider());
+        assertEquals(0, smtp.calls);
+    }
+
+    @Test
+    void failedSendFailsOverToTheNextProvider() {
+        sendGrid.replies("FAILED");
+
+        EmailResponse response = router(smtp, sendGrid).send(request(), EmailProvider.SENDGRID);
+
+        assertEquals("SENT", response.getStatus());
+        assertEquals("SMTP", response.getProvider());
+    }
+
+    @Test
+    void throwingProviderFailsOver() {
+        sendGrid.throwing = true;
+
+        EmailResponse response = router(smtp, sendGrid).send(request(), EmailProvider.SENDGRID);
+
+        assertEquals("SMTP", response.getProvider());
+    }
+
+    @Test
+    void recipientOutcomesAreNotFailedOver() {
+        sendGrid.replies(EmailSender.STATUS_REJECTED, DomainThrottle.STATUS_DEFERRED);
+        EmailProviderRouter router = router(smtp, sendGrid);
+
+        assertEquals(EmailSender.STATUS_REJECTED, router.send(request(), EmailProvider.SENDGRID).getStatus());
+        assertEquals(DomainThrottle.STATUS_DEFERRED, router.send(request(), EmailProvider.SENDGRID).getStatus());
+        assertEquals(0, smtp.calls);
+    }
+
+    @Test
+    void throttledProviderFailsOverWithoutOpeningItsCircuit() {
+        sendGrid.replies("THROTTLED", "THROTTLED", "THROTTLED", "THROTTLED");
+        EmailProviderRouter router = router(smtp, sendGrid);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("SMTP", router.send(request(), EmailProvider.SENDGRID).getProvider());
+        }
+        assertEquals("CLOSED", circuit(router, EmailProvider.SENDGRID));
+    }
+
+    @Test
+    void consecutiveFailuresOpenTheCircuit() {
+        sendGrid.replies("FAILED", "FAILED", "FAILED");
+        EmailProviderRouter router = router(smtp, sendGrid);
+
+        openCircuit(router);
+        assertEquals("OPEN", circuit(router, EmailProvider.SENDGRID));
+
+        // An open circuit is skipped without a call
+        assertEquals("SMTP", router.send(request(), EmailProvider.SENDGRID).getProvider());
+        assertEquals(3, sendGrid.calls);
+    }
+
+    @Test
+    void halfOpenProbeClosesTheCircuitOnSuccess() {
+        config.setOpenSeconds(0);
+        sendGrid.replies("FAILED", "FAILED", "FAILED");
+        EmailProviderRouter router = router(smtp, sendGrid);
+        openCircuit(router);
+        assertEquals("HALF_OPEN", circuit(router, EmailProvider.SENDGRID));
+
+        // A half-open provider goes behind healthy ones, so leave it the only choice
+        smtp.configured = false;
+        assertEquals("SENDGRID", router.send(request(), EmailProvider.SENDGRID).getProvider());
+        assertEquals("CLOSED", circuit(router, EmailProvider.SENDGRID));
+    }
+
+    @Test
+    void failedHalfOpenProbeReopensTheCircuit() {
+        sendGrid.replies("FAILED", "FAILED", "FAILED", "FAILED");
+        EmailProviderRouter router = router(smtp, sendGrid);
+        openCircuit(router);
+        smtp.configured = false;
+
+        config.setOpenSeconds(0);
+        assertEquals("FAILED", router.send(request(), EmailProvider.SENDGRID).getStatus());
+        assertEquals(4, sendGrid.calls);
+
+        config.setOpenSeconds(60);
+        assertEquals("OPEN", circuit(router, EmailProvider.SENDGRID));
+    }
+
+    @Test
+    void unconfiguredProviderIsNeverChosen() {
+        sendGrid.configured = false;
+
+        assertEquals("SMTP", router(smtp, sendGrid).send(request(), EmailProvider.SENDGRID).getProvider());
+        assertEquals(0, sendGrid.calls);
+    }
+
+    @Test
+    void noProviderLeftReportsFailed() {
+        sendGrid.replies("FAILED");
+        smtp.replies("FAILED");
+
+        assertEquals("FAILED", router(smtp, sendGrid).send(request(), EmailProvider.SENDGRID).getStatus());
+    }
+
+    @Test
+    void failedBatchItemsFailOverToTheOtherProviders() {
+        sendGrid.replies("SENT", "FAILED", "SENT");
+
+        List<EmailResponse> responses = router(smtp, sendGrid)
+                .sendBatch(List.of(request(), request(), request()), EmailProvider.SENDGRID);
+
+        assertEquals(List.of("SENDGRID", "SMTP", "SENDGRID"),
+                responses.stream().map(EmailResponse::getProvider).toList());
+        assertEquals(1, smtp.calls);
+        assertEquals(3, sendGrid.calls);
+    }
+
+    @Test
+    void failedBatchItemIsNotRetriedOnTheProviderThatFailedIt() {
+        sendGrid.replies("SENT", "FAILED");
+        smtp.replies("FAILED");
+
+        List<EmailResponse> responses = router(smtp, sendGrid)
+                .sendBatch(List.of(request(), request()), EmailProvider.SENDGRID);
+
+        assertEquals("FAILED", responses.get(1).getStatus());
+        assertEquals(1, smtp.calls);
+        assertEquals(2, sendGrid.calls);
+    }
+
+    @Test
+    void simulatedProviderShutsOutRealOnes() {
+        FakeSender simulated = new FakeSender(EmailProvider.SIMULATED);
+        simulated.replies("FAILED");
+
+        EmailResponse response = router(smtp, simulated).send(request(), EmailProvider.SMTP);
+
+        assertEquals("FAILED", response.getStatus());
+        assertEquals(0, smtp.calls);
+    }
+
+    private EmailProviderRouter router(EmailSender... senders) {
+        return new EmailProviderRouter(List.of(senders), config, Runnable::run);
+    }
+
+    private void openCircuit(EmailProviderRouter router) {
+        for (int i = 0; i < config.getConsecutiveFailures(); i++) {
+            router.send(request(), EmailProvider.SENDGRID);
+        }
+    }
+
+    private static String circuit(EmailProviderRouter router, EmailProvider provider) {
+        return router.getHealth().stream()
+                .filter(health -> health.getProvider().equals(provider.name()))
+                .map(EmailProviderHealth::getCircuitState)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static EmailRequest request() {
+        return EmailRequest.builder().to("user@example.com").subject("Hello").body("Hi").build();
+    }
+
+    /**
+     * Answers with queued statuses, then SENT
+     */
+    private static class FakeSender implements EmailSender {
+        private final EmailProvider provider;
+        private final Deque<String> statuses = new ArrayDeque<>();
+        private boolean configured = true;
+        private boolean throwing;
+        private int calls;
+
+        FakeSender(EmailProvider provider) {
+            this.provider = provider;
+        }
+
+        void replies(String... queued) {
+            statuses.addAll(List.of(queued));
+        }
+
+        @Override
+        public EmailResponse send(EmailRequest request) {
+            calls++;
+            if (throwing) {
+                throw new IllegalStateException("connection refused");
+            }
+            String status = statuses.isEmpty() ? "SENT" : statuses.pollFirst();
+            return EmailResponse.builder()
+                    .status(status)
+                    .recipient(request.getTo())
+                    .sentAt(LocalDateTime.now())
+                    .provider(provider.name())
+                    .build();
+        }
+
+        @Override
+        public EmailProvider getProvider() {
+            return provider;
+        }
+
+        @Override
+        public boolean isConfigured() {
+            return configured;
+        }
+    }
+}
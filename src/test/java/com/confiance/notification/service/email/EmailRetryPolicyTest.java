@@ -0,0 +1,101 @@
+package com.confiance.notification.service.email;
+
+import com.confiance.notification.dto.EmailRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailRetryPolicyTest {
+
+    private EmailRetryConfig config;
+    private EmailRetryPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        config = new EmailRetryConfig();
+        config.setMaxAttempts(4);
+        config.setBaseDelaySeconds(30);
+        config.setMaxDelaySeconds(600);
+        policy = new EmailRetryPolicy(config);
+    }
+
+    @Test
+    void failedDeferredAndThrottledAreRetried() {
+        assertTrue(policy.isRetryable("FAILED"));
+        assertTrue(policy.isRetryable(DomainThrottle.STATUS_DEFERRED));
+        assertTrue(policy.isRetryable(EmailSender.STATUS_THROTTLED));
+    }
+
+    @Test
+    void finalOutcomesAreNotRetried() {
+        assertFalse(policy.isRetryable("SENT"));
+        assertFalse(policy.isRetryable(EmailSender.STATUS_REJECTED));
+        assertFalse(policy.isRetryable(null));
+    }
+
+    @Test
+    void attemptsRunOutAtTheConfiguredMaximum() {
+        assertTrue(policy.hasAttemptsLeft(3));
+        assertFalse(policy.hasAttemptsLeft(4));
+    }
+
+    @Test
+    void inlineAttachmentsCannotBeRetried() {
+        EmailRequest referenced = request(EmailRequest.EmailAttachment.builder()
+                .fileName("invoice.pdf").publicId("invoices/abc").build());
+        EmailRequest inline = request(EmailRequest.EmailAttachment.builder()
+                .fileName("invoice.pdf").content(new byte[]{1, 2, 3}).build());
+
+        assertTrue(policy.canRetry(request()));
+        assertTrue(policy.canRetry(referenced));
+        assertFalse(policy.canRetry(inline));
+    }
+
+    @Test
+    void disabledRetriesAreNeverScheduled() {
+        config.setEnabled(false);
+
+        assertFalse(policy.canRetry(request()));
+    }
+
+    @Test
+    void delayDoublesPerAttemptWithHalfOfItJittered() {
+        for (int attempt = 1; attempt <= 4; attempt++) {
+            long full = 30L << (attempt - 1);
+            assertDelayBetween(attempt, full / 2, full);
+        }
+    }
+
+    @Test
+    void delayIsCappedAtTheMaximum() {
+        assertDelayBetween(10, 300, 600);
+        // Large attempt counts must not overflow the shift
+        assertDelayBetween(200, 300, 600);
+    }
+
+    private void assertDelayBetween(int attemptsMade, long minSeconds, long maxSeconds) {
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime before = LocalDateTime.now();
+            LocalDateTime next = policy.nextAttemptAt(attemptsMade);
+            LocalDateTime after = LocalDateTime.now();
+
+            assertFalse(next.isBefore(before.plusSeconds(minSeconds)), "attempt " + attemptsMade + " too early");
+            assertFalse(next.isAfter(after.plus(Duration.ofSeconds(maxSeconds))), "attempt " + attemptsMade + " too late");
+        }
+    }
+
+    private static EmailRequest request(EmailRequest.EmailAttachment... attachments) {
+        return EmailRequest.builder()
+                .to("user@example.com")
+                .subject("Hello")
+                .body("Hi")
+                .attachments(attachments.length == 0 ? null : List.of(attachments))
+                .build();
+    }
+}
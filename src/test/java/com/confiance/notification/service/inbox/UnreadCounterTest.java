@@ -0,0 +1,146 @@
+package com.confiance.notification.service.inbox;
+
+import com.confiance.notification.config.RedisConfig;
+import com.confiance.notification.repository.UserNotificationRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the adjust, correct and claim scripts against a real Redis
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UnreadCounterTest {
+
+    private static final Long USER_ID = 7L;
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private UserNotificationRepository repository;
+    private UnreadCounter counter;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        repository = mock(UserNotificationRepository.class);
+        counter = new UnreadCounter(redisTemplate, repository);
+        ReflectionTestUtils.setField(counter, "ttlSeconds", 86400L);
+        ReflectionTestUtils.setField(counter, "settleMs", 0L);
+        ReflectionTestUtils.setField(counter, "reconcileBatch", 500);
+    }
+
+    @Test
+    void coldCounterIsBuiltFromTheTableOnce() {
+        when(repository.countByUserIdAndIsRead(USER_ID, false)).thenReturn(3L);
+
+        assertEquals(3, counter.get(USER_ID));
+        assertEquals(3, counter.get(USER_ID));
+
+        verify(repository, times(1)).countByUserIdAndIsRead(USER_ID, false);
+    }
+
+    @Test
+    void adjustmentsMoveAWarmCounter() {
+        when(repository.countByUserIdAndIsRead(USER_ID, false)).thenReturn(3L);
+        counter.get(USER_ID);
+
+        assertEquals(4, counter.adjust(USER_ID, 1));
+        assertEquals(2, counter.adjust(USER_ID, -2));
+        assertEquals(2, counter.get(USER_ID));
+    }
+
+    @Test
+    void adjustmentToAColdCounterIsSkipped() {
+        assertEquals(-1, counter.adjust(USER_ID, 1));
+
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("notif:unread:" + USER_ID)));
+    }
+
+    @Test
+    void counterNeverGoesBelowZero() {
+        when(repository.countByUserIdAndIsRead(USER_ID, false)).thenReturn(1L);
+        counter.get(USER_ID);
+
+        assertEquals(0, counter.adjust(USER_ID, -5));
+        assertEquals(0, counter.get(USER_ID));
+    }
+
+    @Test
+    void reconcileCorrectsADriftedCounter() throws InterruptedException {
+        when(repository.countByUserIdAndIsRead(USER_ID, false)).thenReturn(3L);
+        counter.get(USER_ID);
+        counter.adjust(USER_ID, 5);
+        when(repository.countUnreadByUserIds(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{USER_ID, 3L}));
+        Thread.sleep(2);
+
+        counter.reconcile();
+
+        assertEquals(3, counter.get(USER_ID));
+    }
+
+    @Test
+    void userWithNoUnreadRowsReconcilesToZero() throws InterruptedException {
+        when(repository.countByUserIdAndIsRead(USER_ID, false)).thenReturn(2L);
+        counter.get(USER_ID);
+        when(repository.countUnreadByUserIds(anyCollection())).thenReturn(List.of());
+        Thread.sleep(2);
+
+        counter.reconcile();
+
+        assertEquals(0, counter.get(USER_ID));
+    }
+
+    @Test
+    void reconciledUserIsNotCheckedAgainUntilTouched() throws InterruptedException {
+        when(repository.countByUserIdAndIsRead(USER_ID, false)).thenReturn(3L);
+        counter.get(USER_ID);
+        when(repository.countUnreadByUserIds(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{USER_ID, 3L}));
+        Thread.sleep(2);
+
+        counter.reconcile();
+        counter.reconcile();
+
+        verify(repository, times(1)).countUnreadByUserIds(anyCollection());
+    }
+}
@@ -0,0 +1,235 @@
+package com.confiance.notification.service.otp;
+
+import com.confiance.notification.config.RedisConfig;
+import com.confiance.notification.enums.OtpPurpose;
+import com.confiance.notification.ratelimit.RateLimitConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the send, verify, switch and rollback scripts against a real Redis
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OtpStateStoreTest {
+
+    private static final String IDENTIFIER = "+919800000001";
+    private static final OtpPurpose PURPOSE = OtpPurpose.LOGIN;
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, String> redisTemplate;
+
+    private RateLimitConfig rateLimitConfig;
+    private OtpStateStore store;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        rateLimitConfig = new RateLimitConfig();
+        store = new OtpStateStore(redisTemplate, rateLimitConfig);
+        ReflectionTestUtils.setField(store, "expiryMinutes", 5);
+    }
+
+    @Test
+    void hashedCodeVerifiesOnceAndReportsItsChannel() {
+        OtpStateStore.SendResult sent = sendHashed("123456");
+        assertEquals(OtpStateStore.SendOutcome.OK, sent.outcome());
+        assertEquals(1, sent.nonce());
+
+        OtpStateStore.VerifyResult verified = store.verify(IDENTIFIER, PURPOSE, "123456");
+        assertEquals(OtpStateStore.VerifyOutcome.VERIFIED, verified.outcome());
+        assertEquals(3, verified.remainingAttempts());
+        assertEquals(OtpStateStore.CodeMode.HASHED, verified.mode());
+        assertEquals("twilio-sms", verified.channel());
+        assertEquals("IN", verified.countryCode());
+        assertEquals(sent.issuedAt(), verified.requestedAt());
+        assertFalse(verified.hedged());
+
+        assertEquals(OtpStateStore.VerifyOutcome.NO_OTP, store.verify(IDENTIFIER, PURPOSE, "123456").outcome());
+    }
+
+    @Test
+    void wrongCodesUseUpAttemptsThenLock() {
+        sendHashed("123456");
+
+        assertEquals(2, store.verify(IDENTIFIER, PURPOSE, "000000").remainingAttempts());
+        assertEquals(1, store.verify(IDENTIFIER, PURPOSE, "000000").remainingAttempts());
+        OtpStateStore.VerifyResult last = store.verify(IDENTIFIER, PURPOSE, "000000");
+        assertEquals(OtpStateStore.VerifyOutcome.INVALID, last.outcome());
+        assertEquals(0, last.remainingAttempts());
+
+        assertEquals(OtpStateStore.VerifyOutcome.LOCKED, store.verify(IDENTIFIER, PURPOSE, "123456").outcome());
+    }
+
+    @Test
+    void cooldownBlocksImmediateResend() {
+        sendHashed("123456");
+
+        OtpStateStore.SendResult resend = sendHashed("654321");
+        assertEquals(OtpStateStore.SendOutcome.COOLDOWN, resend.outcome());
+        assertTrue(resend.retryAfterMs() > 0 && resend.retryAfterMs() <= 60_000);
+    }
+
+    @Test
+    void minuteWindowLimitsSends() {
+        rateLimitConfig.getOtp().setCooldownSeconds(0);
+
+        assertEquals(OtpStateStore.SendOutcome.OK, sendHashed("111111").outcome());
+        assertEquals(OtpStateStore.SendOutcome.OK, sendHashed("222222").outcome());
+
+        OtpStateStore.SendResult third = sendHashed("333333");
+        assertEquals(OtpStateStore.SendOutcome.MINUTE_LIMIT, third.outcome());
+        assertTrue(third.retryAfterMs() > 0 && third.retryAfterMs() <= 60_000);
+    }
+
+    @Test
+    void rollbackRestoresThePreviousCode() {
+        rateLimitConfig.getOtp().setCooldownSeconds(0);
+        sendHashed("111111");
+        OtpStateStore.SendResult replaced = sendHashed("222222");
+
+        assertTrue(store.rollbackSend(IDENTIFIER, PURPOSE, replaced.nonce()));
+
+        assertEquals(OtpStateStore.VerifyOutcome.INVALID, store.verify(IDENTIFIER, PURPOSE, "222222").outcome());
+        assertEquals(OtpStateStore.VerifyOutcome.VERIFIED, store.verify(IDENTIFIER, PURPOSE, "111111").outcome());
+    }
+
+    @Test
+    void rollbackReleasesTheWindowSlot() {
+        rateLimitConfig.getOtp().setCooldownSeconds(0);
+        sendHashed("111111");
+        OtpStateStore.SendResult failed = sendHashed("222222");
+        store.rollbackSend(IDENTIFIER, PURPOSE, failed.nonce());
+
+        assertEquals(OtpStateStore.SendOutcome.OK, sendHashed("333333").outcome());
+        assertEquals(OtpStateStore.SendOutcome.MINUTE_LIMIT, sendHashed("444444").outcome());
+    }
+
+    @Test
+    void rollbackOfFirstSendLeavesNoOtp() {
+        OtpStateStore.SendResult failed = sendHashed("111111");
+
+        assertTrue(store.rollbackSend(IDENTIFIER, PURPOSE, failed.nonce()));
+
+        assertEquals(OtpStateStore.VerifyOutcome.NO_OTP, store.verify(IDENTIFIER, PURPOSE, "111111").outcome());
+        // The cooldown went with it
+        assertEquals(OtpStateStore.SendOutcome.OK, sendHashed("222222").outcome());
+    }
+
+    @Test
+    void rollbackIsIgnoredOnceANewerSendReplacedIt() {
+        rateLimitConfig.getOtp().setCooldownSeconds(0);
+        OtpStateStore.SendResult first = sendHashed("111111");
+        sendHashed("222222");
+
+        assertFalse(store.rollbackSend(IDENTIFIER, PURPOSE, first.nonce()));
+
+        assertEquals(OtpStateStore.VerifyOutcome.VERIFIED, store.verify(IDENTIFIER, PURPOSE, "222222").outcome());
+    }
+
+    @Test
+    void nonceIsNotReusedAfterRollback() {
+        rateLimitConfig.getOtp().setCooldownSeconds(0);
+        sendHashed("111111");
+        OtpStateStore.SendResult failed = sendHashed("222222");
+        store.rollbackSend(IDENTIFIER, PURPOSE, failed.nonce());
+
+        // A DERIVED code for nonce 2 may already be on its way; the next send must not derive it again
+        assertEquals(3, sendHashed("333333").nonce());
+    }
+
+    @Test
+    void hedgedSwitchIsReportedOnVerify() {
+        OtpStateStore.SendResult sent = sendHashed("123456");
+
+        assertTrue(store.switchChannel(IDENTIFIER, PURPOSE, sent.nonce(), "email", true));
+
+        OtpStateStore.VerifyResult verified = store.verify(IDENTIFIER, PURPOSE, "123456");
+        assertEquals("email", verified.channel());
+        assertTrue(verified.hedged());
+    }
+
+    @Test
+    void failoverSwitchIsNotHedged() {
+        OtpStateStore.SendResult sent = sendHashed("123456");
+
+        assertTrue(store.switchChannel(IDENTIFIER, PURPOSE, sent.nonce(), "aws-sns", false));
+
+        OtpStateStore.VerifyResult verified = store.verify(IDENTIFIER, PURPOSE, "123456");
+        assertEquals("aws-sns", verified.channel());
+        assertFalse(verified.hedged());
+    }
+
+    @Test
+    void newSendClearsTheHedge() {
+        rateLimitConfig.getOtp().setCooldownSeconds(0);
+        OtpStateStore.SendResult first = sendHashed("111111");
+        store.switchChannel(IDENTIFIER, PURPOSE, first.nonce(), "email", true);
+
+        sendHashed("222222");
+
+        assertFalse(store.verify(IDENTIFIER, PURPOSE, "222222").hedged());
+    }
+
+    @Test
+    void switchIsRefusedForAStaleNonceOrAfterDelivery() {
+        OtpStateStore.SendResult sent = sendHashed("123456");
+        assertFalse(store.switchChannel(IDENTIFIER, PURPOSE, sent.nonce() + 1, "email", true));
+
+        store.trackMessage("msg-1", IDENTIFIER, PURPOSE, sent.nonce());
+        assertTrue(store.markDelivered("msg-1"));
+
+        assertFalse(store.switchChannel(IDENTIFIER, PURPOSE, sent.nonce(), "email", true));
+    }
+
+    @Test
+    void derivedCodeIsReservedThenMarkedVerifiedOnce() {
+        OtpStateStore.SendResult sent = store.startSend(IDENTIFIER, PURPOSE, OtpStateStore.CodeMode.DERIVED,
+                null, "twilio-sms", "IN");
+
+        OtpStateStore.VerifyResult reserved = store.verify(IDENTIFIER, PURPOSE, "123456");
+        assertEquals(OtpStateStore.VerifyOutcome.RESERVED, reserved.outcome());
+        assertEquals(OtpStateStore.CodeMode.DERIVED, reserved.mode());
+        assertEquals(sent.nonce(), reserved.nonce());
+        assertEquals(2, reserved.remainingAttempts());
+
+        assertTrue(store.markVerified(IDENTIFIER, PURPOSE));
+        assertFalse(store.markVerified(IDENTIFIER, PURPOSE));
+    }
+
+    private OtpStateStore.SendResult sendHashed(String code) {
+        return store.startSend(IDENTIFIER, PURPOSE, OtpStateStore.CodeMode.HASHED, code, "twilio-sms", "IN");
+    }
+}
@@ -0,0 +1,121 @@
+package com.confiance.notification.service.schedule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    // 10ms ticks, 10 slots, 3 levels: levels span 100ms, 1s and 10s
+    private TimingWheel<String> wheel;
+    private List<String> expired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel<>(10, 10, 3, 0);
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    void entryDueWithinOneTickIsNotAdded() {
+        assertFalse(wheel.add(new TimingWheel.Entry<>(5, "now")));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void levelZeroEntryExpiresOnceItsSlotElapses() {
+        assertTrue(wheel.add(new TimingWheel.Entry<>(25, "a")));
+
+        advanceTo(29);
+        assertEquals(List.of(), expired);
+
+        advanceTo(30);
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void levelOneEntryCascadesDownAndExpiresOnTime() {
+        wheel.add(new TimingWheel.Entry<>(250, "b"));
+
+        advanceTo(200);
+        // Cascaded into level 0 but not yet due
+        assertEquals(List.of(), expired);
+        assertEquals(1, wheel.size());
+
+        advanceTo(259);
+        assertEquals(List.of(), expired);
+
+        advanceTo(260);
+        assertEquals(List.of("b"), expired);
+    }
+
+    @Test
+    void levelTwoEntryCascadesThroughEveryLevel() {
+        wheel.add(new TimingWheel.Entry<>(2345, "c"));
+
+        advanceTo(2000);
+        advanceTo(2300);
+        advanceTo(2349);
+        assertEquals(List.of(), expired);
+        assertEquals(1, wheel.size());
+
+        advanceTo(2350);
+        assertEquals(List.of("c"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void entriesOnDifferentLevelsExpireInDueOrder() {
+        wheel.add(new TimingWheel.Entry<>(2345, "c"));
+        wheel.add(new TimingWheel.Entry<>(250, "b"));
+        wheel.add(new TimingWheel.Entry<>(25, "a"));
+        assertEquals(3, wheel.size());
+
+        advanceTo(3000);
+
+        assertEquals(List.of("a", "b", "c"), expired);
+    }
+
+    @Test
+    void slotAlreadyPassedThisTurnWaitsForTheNextTurn() {
+        advanceTo(50);
+        // Level-0 slot 4 was emptied at 40; this entry belongs to its next turn
+        wheel.add(new TimingWheel.Entry<>(140, "late"));
+
+        advanceTo(140);
+        assertEquals(List.of(), expired);
+
+        advanceTo(150);
+        assertEquals(List.of("late"), expired);
+    }
+
+    @Test
+    void startTimeIsAlignedToTheTick() {
+        wheel = new TimingWheel<>(10, 10, 3, 1005);
+
+        // 1008 falls in the tick starting at 1000
+        assertFalse(wheel.add(new TimingWheel.Entry<>(1008, "now")));
+        assertTrue(wheel.add(new TimingWheel.Entry<>(1010, "next")));
+
+        advanceTo(1020);
+        assertEquals(List.of("next"), expired);
+    }
+
+    @Test
+    void entryBeyondHorizonIsRejected() {
+        assertEquals(10_000, wheel.horizonMs());
+        assertThrows(IllegalArgumentException.class, () -> wheel.add(new TimingWheel.Entry<>(10_000, "far")));
+    }
+
+    private void advanceTo(long now) {
+        wheel.advanceTo(now, entry -> expired.add(entry.value()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.confiance.notification.service.sms;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SmsEncodingTest {
+
+    private static final String EURO = "€";
+    private static final String CYRILLIC_YA = "я";
+    // U+1F600, one code point in two UTF-16 units
+    private static final String EMOJI = "😀";
+
+    @Test
+    void plainGsm7FitsOneSegmentUpTo160() {
+        assertSegments("a".repeat(160), SmsEncoding.Charset.GSM7, 1, 160);
+    }
+
+    @Test
+    void gsm7SplitsInto153SeptetParts() {
+        assertSegments("a".repeat(161), SmsEncoding.Charset.GSM7, 2, 161);
+        assertSegments("a".repeat(306), SmsEncoding.Charset.GSM7, 2, 306);
+        assertSegments("a".repeat(307), SmsEncoding.Charset.GSM7, 3, 307);
+    }
+
+    @Test
+    void extensionCharactersCostTwoSeptets() {
+        assertSegments(EURO.repeat(80), SmsEncoding.Charset.GSM7, 1, 160);
+        assertSegments(EURO.repeat(81), SmsEncoding.Charset.GSM7, 2, 162);
+    }
+
+    @Test
+    void escapeSequenceIsNotSplitAcrossParts() {
+        // 306 septets would fill two parts exactly, but the escape cannot start at septet 153
+        assertSegments("a".repeat(152) + EURO + "a".repeat(152), SmsEncoding.Charset.GSM7, 3, 306);
+    }
+
+    @Test
+    void singleNonGsmCharacterSwitchesToUcs2() {
+        assertSegments("a".repeat(69) + CYRILLIC_YA, SmsEncoding.Charset.UCS2, 1, 70);
+    }
+
+    @Test
+    void ucs2SplitsInto67UnitParts() {
+        assertSegments(CYRILLIC_YA.repeat(70), SmsEncoding.Charset.UCS2, 1, 70);
+        assertSegments(CYRILLIC_YA.repeat(71), SmsEncoding.Charset.UCS2, 2, 71);
+        assertSegments(CYRILLIC_YA.repeat(134), SmsEncoding.Charset.UCS2, 2, 134);
+        assertSegments(CYRILLIC_YA.repeat(135), SmsEncoding.Charset.UCS2, 3, 135);
+    }
+
+    @Test
+    void surrogatePairIsNotSplitAcrossParts() {
+        // 134 units would fill two parts exactly, but the pair cannot start at unit 67
+        assertSegments(CYRILLIC_YA.repeat(66) + EMOJI + CYRILLIC_YA.repeat(66), SmsEncoding.Charset.UCS2, 3, 134);
+    }
+
+    @Test
+    void surrogatePairCountsTwoUnitsInSingleSegment() {
+        assertSegments(CYRILLIC_YA.repeat(68) + EMOJI, SmsEncoding.Charset.UCS2, 1, 70);
+        assertSegments(CYRILLIC_YA.repeat(69) + EMOJI, SmsEncoding.Charset.UCS2, 2, 71);
+    }
+
+    @Test
+    void lookalikesAreReplacedWhenThatKeepsGsm7() {
+        SmsEncoding.Encoded encoded = SmsEncoding.encode("Pay ₹500 – now", true);
+
+        assertEquals("Pay Rs.500 - now", encoded.text());
+        assertEquals(SmsEncoding.Charset.GSM7, encoded.charset());
+        assertEquals(1, encoded.segments());
+    }
+
+    @Test
+    void lookalikesAreKeptWithoutTransliteration() {
+        SmsEncoding.Encoded encoded = SmsEncoding.encode("Pay ₹500 – now", false);
+
+        assertEquals("Pay ₹500 – now", encoded.text());
+        assertEquals(SmsEncoding.Charset.UCS2, encoded.charset());
+    }
+
+    @Test
+    void originalTextIsKeptWhenReplacementStillNeedsUcs2() {
+        String text = "“Hi” " + CYRILLIC_YA;
+
+        SmsEncoding.Encoded encoded = SmsEncoding.encode(text, true);
+
+        assertEquals(text, encoded.text());
+        assertEquals(SmsEncoding.Charset.UCS2, encoded.charset());
+    }
+
+    private static void assertSegments(String text, SmsEncoding.Charset charset, int segments, int units) {
+        SmsEncoding.Encoded encoded = SmsEncoding.encode(text, false);
+        assertEquals(charset, encoded.charset());
+        assertEquals(segments, encoded.segments());
+        assertEquals(units, encoded.units());
+    }
+}
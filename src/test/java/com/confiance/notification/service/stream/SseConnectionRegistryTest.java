@@ -0,0 +1,142 @@
+package com.confiance.notification.service.stream;
+
+import com.confiance.notification.ratelimit.RateLimitExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Emitters here are not attached to a request: sends are buffered until completion, and a
+ * completed emitter rejects further sends, which is how the registry sees a closed stream
+ */
+class SseConnectionRegistryTest {
+
+    private static final Long USER_ID = 7L;
+
+    private StreamConfig config;
+    private SseConnectionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        config = new StreamConfig();
+        config.setFanoutThreads(2);
+        config.setMaxConnectionsPerUser(2);
+        config.setMaxConnections(10);
+        registry = new SseConnectionRegistry(config);
+        registry.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.closeAll();
+    }
+
+    @Test
+    void openedStreamIsTracked() {
+        registry.open(USER_ID);
+
+        assertTrue(registry.isConnected(USER_ID));
+        assertFalse(registry.isConnected(8L));
+        assertEquals(1, registry.getOpenCount());
+    }
+
+    @Test
+    void oldestStreamIsClosedPastThePerUserLimit() {
+        SseEmitter first = registry.open(USER_ID);
+        SseEmitter second = registry.open(USER_ID);
+        SseEmitter third = registry.open(USER_ID);
+
+        assertEquals(2, registry.getOpenCount());
+        assertThrows(IllegalStateException.class, () -> first.send(event()));
+        assertDoesNotThrow(() -> second.send(event()));
+        assertDoesNotThrow(() -> third.send(event()));
+    }
+
+    @Test
+    void nodeLimitRejectsNewStreams() {
+        config.setMaxConnections(1);
+        registry.open(USER_ID);
+
+        assertThrows(RateLimitExceededException.class, () -> registry.open(8L));
+        assertEquals(1, registry.getOpenCount());
+        assertFalse(registry.isConnected(8L));
+    }
+
+    @Test
+    void closedStreamIsDroppedOnItsNextWrite() {
+        SseEmitter emitter = registry.open(USER_ID);
+        emitter.complete();
+
+        assertFalse(registry.send(USER_ID, emitter, event()));
+
+        assertFalse(registry.isConnected(USER_ID));
+        assertEquals(0, registry.getOpenCount());
+    }
+
+    @Test
+    void liveStreamAcceptsWrites() {
+        SseEmitter emitter = registry.open(USER_ID);
+
+        assertTrue(registry.send(USER_ID, emitter, event()));
+        assertTrue(registry.isConnected(USER_ID));
+    }
+
+    @Test
+    void fanOutWritesOnThePartitionAndDropsClosedStreams() throws InterruptedException {
+        SseEmitter closed = registry.open(USER_ID);
+        registry.open(USER_ID);
+        closed.complete();
+
+        registry.send(USER_ID, event());
+
+        awaitOpenCount(1);
+        assertTrue(registry.isConnected(USER_ID));
+    }
+
+    @Test
+    void heartbeatFindsDeadStreams() throws InterruptedException {
+        registry.open(USER_ID).complete();
+        registry.open(8L).complete();
+
+        registry.heartbeat();
+
+        awaitOpenCount(0);
+        assertFalse(registry.isConnected(USER_ID));
+        assertFalse(registry.isConnected(8L));
+    }
+
+    @Test
+    void sendToAUserWithoutStreamsIsIgnored() {
+        assertDoesNotThrow(() -> registry.send(USER_ID, event()));
+        assertEquals(0, registry.getDroppedEvents());
+    }
+
+    @Test
+    void closeAllCompletesEveryStream() {
+        SseEmitter emitter = registry.open(USER_ID);
+
+        registry.closeAll();
+
+        assertFalse(registry.isConnected(USER_ID));
+        assertThrows(IllegalStateException.class, () -> emitter.send(event()));
+    }
+
+    private void awaitOpenCount(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (registry.getOpenCount() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, registry.getOpenCount());
+    }
+
+    private static SseEmitter.SseEventBuilder event() {
+        return SseEmitter.event().name(NotificationStream.EVENT_UNREAD_COUNT).data("{\"unreadCount\":1}");
+    }
+}